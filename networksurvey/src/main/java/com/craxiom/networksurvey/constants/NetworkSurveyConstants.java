@@ -27,6 +27,7 @@ public class NetworkSurveyConstants
 
     public static final String LOG_DIRECTORY_NAME = "NetworkSurveyData";
     public static final String CSV_LOG_DIRECTORY_NAME = "NetworkSurveyData/csv";
+    public static final String PROTOBUF_LOG_DIRECTORY_NAME = "NetworkSurveyData/protobuf";
 
     public static final String GSM_FILE_NAME_PREFIX = "craxiom-gsm-";
     public static final String CDMA_FILE_NAME_PREFIX = "craxiom-cdma-";
@@ -40,6 +41,9 @@ public class NetworkSurveyConstants
     public static final String CDR_FILE_NAME_PREFIX = "craxiom-cdr-";
     public static final String PHONESTATE_FILE_NAME_PREFIX = "craxiom-phonestate-";
     public static final String DEVICESTATUS_FILE_NAME_PREFIX = "craxiom-devicestatus-";
+    public static final String PIPELINEMETRICS_FILE_NAME_PREFIX = "craxiom-pipelinemetrics-";
+    public static final String SURVEY_FILE_NAME_PREFIX = "craxiom-survey-";
+    public static final String CSV_IMPORT_FILE_NAME_PREFIX = "craxiom-csvimport-";
 
     public static final String GPRS = "GPRS";
     public static final String EDGE = "EDGE";
@@ -84,6 +88,14 @@ public class NetworkSurveyConstants
     public static final int DEFAULT_DEVICE_STATUS_SCAN_INTERVAL_SECONDS = 120;
 
     public static final String DEFAULT_ROLLOVER_SIZE_MB = "5";
+    public static final String DEFAULT_LOG_STORAGE_QUOTA_MB = "0";
+    public static final String DEFAULT_LOG_RETENTION_DAYS = "0";
+    public static final boolean DEFAULT_HIGH_THROUGHPUT_LOGGING = false;
+    public static final boolean DEFAULT_INDEX_LOG_FILES = false;
+    public static final boolean DEFAULT_COMPACT_GEOPACKAGE_SCHEMA = false;
+    public static final boolean DEFAULT_MERGE_LOG_FILES = false;
+    public static final boolean DEFAULT_UNIFIED_GEOPACKAGE = false;
+    public static final boolean DEFAULT_COMPRESS_CSV_LOG_FILES = false;
 
     public static final int LOCATION_PROVIDER_FUSED = 0;
     public static final int LOCATION_PROVIDER_GNSS = 1;
@@ -104,7 +116,15 @@ public class NetworkSurveyConstants
     public static final String PROPERTY_GNSS_SCAN_INTERVAL_SECONDS = "gnss_scan_interval_seconds";
     public static final String PROPERTY_DEVICE_STATUS_SCAN_INTERVAL_SECONDS = "device_status_scan_interval_seconds";
     public static final String PROPERTY_LOG_ROLLOVER_SIZE_MB = "log_rollover_size_mb";
+    public static final String PROPERTY_LOG_STORAGE_QUOTA_MB = "log_storage_quota_mb";
+    public static final String PROPERTY_LOG_RETENTION_DAYS = "log_retention_days";
     public static final String PROPERTY_LOG_FILE_TYPE = "log_file_type";
+    public static final String PROPERTY_HIGH_THROUGHPUT_LOGGING = "high_throughput_logging";
+    public static final String PROPERTY_INDEX_LOG_FILES = "index_log_files";
+    public static final String PROPERTY_COMPACT_GEOPACKAGE_SCHEMA = "compact_geopackage_schema";
+    public static final String PROPERTY_MERGE_LOG_FILES = "merge_log_files";
+    public static final String PROPERTY_UNIFIED_GEOPACKAGE = "unified_geopackage_file";
+    public static final String PROPERTY_COMPRESS_CSV_LOG_FILES = "compress_csv_log_files";
     public static final String PROPERTY_LOCATION_PROVIDER = "location_provider";
     public static final String PROPERTY_IGNORE_WIFI_SCAN_THROTTLING_WARNING = "ignore_wifi_scan_throttling_warning";
 
@@ -0,0 +1,29 @@
+package com.craxiom.networksurvey.constants.csv;
+
+/**
+ * The constants associated with the Pipeline Metrics CSV file headers.
+ *
+ * @since 1.25.0
+ */
+public class PipelineMetricsCsvConstants extends CsvConstants
+{
+    private PipelineMetricsCsvConstants()
+    {
+    }
+
+    public static final String DEVICE_TIME = "deviceTime";
+    public static final String METRIC = "metric";
+    public static final String TYPE = "type";
+    public static final String INTERVAL_COUNT = "intervalCount";
+    public static final String RATE_PER_SECOND = "ratePerSecond";
+    public static final String MEAN_MS = "meanMs";
+    public static final String P50_MS = "p50Ms";
+    public static final String P90_MS = "p90Ms";
+    public static final String P99_MS = "p99Ms";
+    public static final String MAX_MS = "maxMs";
+    public static final String VALUE = "value";
+
+    public static final String TYPE_STAGE = "stage";
+    public static final String TYPE_QUEUE = "queue";
+    public static final String TYPE_COUNTER = "counter";
+}
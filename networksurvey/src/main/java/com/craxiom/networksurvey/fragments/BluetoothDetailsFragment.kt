@@ -15,6 +15,7 @@ import com.craxiom.messaging.BluetoothRecord
 import com.craxiom.messaging.BluetoothRecordData
 import com.craxiom.networksurvey.constants.NetworkSurveyConstants
 import com.craxiom.networksurvey.constants.NetworkSurveyConstants.PROPERTY_BLUETOOTH_SCAN_INTERVAL_SECONDS
+import com.craxiom.networksurvey.listeners.BackpressurePolicy
 import com.craxiom.networksurvey.listeners.IBluetoothSurveyRecordListener
 import com.craxiom.networksurvey.services.NetworkSurveyService
 import com.craxiom.networksurvey.ui.UNKNOWN_RSSI
@@ -110,6 +111,10 @@ class BluetoothDetailsFragment : AServiceDataFragment(), IBluetoothSurveyRecordL
         super.onSurveyServiceDisconnecting(service)
     }
 
+    override fun getBackpressurePolicy(): BackpressurePolicy {
+        return BackpressurePolicy.conflateLatest(32)
+    }
+
     override fun onBluetoothSurveyRecord(bluetoothRecord: BluetoothRecord?) {
         if (bluetoothRecord == null) return
         if (bluetoothRecord.data.sourceAddress.equals(bluetoothData.sourceAddress)) {
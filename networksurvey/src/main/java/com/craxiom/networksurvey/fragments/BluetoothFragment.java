@@ -38,6 +38,7 @@ import com.craxiom.networksurvey.R;
 import com.craxiom.networksurvey.constants.NetworkSurveyConstants;
 import com.craxiom.networksurvey.databinding.FragmentBluetoothListBinding;
 import com.craxiom.networksurvey.fragments.model.BluetoothViewModel;
+import com.craxiom.networksurvey.listeners.BackpressurePolicy;
 import com.craxiom.networksurvey.listeners.IBluetoothSurveyRecordListener;
 import com.craxiom.networksurvey.model.SortedSet;
 import com.craxiom.networksurvey.services.NetworkSurveyService;
@@ -202,6 +203,12 @@ public class BluetoothFragment extends AServiceDataFragment implements IBluetoot
         super.onSurveyServiceDisconnecting(service);
     }
 
+    @Override
+    public BackpressurePolicy getBackpressurePolicy()
+    {
+        return BackpressurePolicy.conflateLatest(32);
+    }
+
     @Override
     public void onBluetoothSurveyRecord(BluetoothRecord bluetoothRecord)
     {
@@ -47,13 +47,16 @@ import com.craxiom.networksurvey.databinding.FragmentDashboardBinding;
 import com.craxiom.networksurvey.databinding.MqttStreamItemBinding;
 import com.craxiom.networksurvey.fragments.model.DashboardViewModel;
 import com.craxiom.networksurvey.listeners.ILoggingChangeListener;
+import com.craxiom.networksurvey.model.BackpressureStats;
 import com.craxiom.networksurvey.services.NetworkSurveyService;
+import com.craxiom.networksurvey.services.SurveyLanes;
 import com.craxiom.networksurvey.util.MathUtils;
 import com.craxiom.networksurvey.util.MdmUtils;
 import com.craxiom.networksurvey.util.ToggleLoggingTask;
 import com.google.android.material.snackbar.Snackbar;
 
 import java.text.DecimalFormat;
+import java.util.Map;
 import java.util.function.BiConsumer;
 
 import timber.log.Timber;
@@ -69,11 +72,13 @@ public class DashboardFragment extends AServiceDataFragment implements LocationL
     private static final int ACCESS_REQUIRED_PERMISSION_REQUEST_ID = 20;
     private static final int ACCESS_OPTIONAL_PERMISSION_REQUEST_ID = 21;
     private static final int ACCESS_BLUETOOTH_PERMISSION_REQUEST_ID = 22;
+    private static final long BACKPRESSURE_REFRESH_RATE_MS = 5_000L;
 
     private final DecimalFormat locationFormat = new DecimalFormat("###.#####");
 
     private FragmentDashboardBinding binding;
     private DashboardViewModel viewModel;
+    private final Runnable backpressureRefresher = this::refreshDroppedRecordsText;
 
     @Nullable
     @Override
@@ -110,6 +115,7 @@ public class DashboardFragment extends AServiceDataFragment implements LocationL
     @Override
     public void onDestroyView()
     {
+        binding.getRoot().removeCallbacks(backpressureRefresher);
         removeObservers();
 
         super.onDestroyView();
@@ -145,11 +151,15 @@ public class DashboardFragment extends AServiceDataFragment implements LocationL
         updateMqttUiState(service.getMqttConnectionState());
         readMqttStreamEnabledProperties();
         updateLoggingState(service);
+
+        refreshDroppedRecordsText();
     }
 
     @Override
     protected void onSurveyServiceDisconnecting(NetworkSurveyService service)
     {
+        if (binding != null) binding.getRoot().removeCallbacks(backpressureRefresher);
+
         Context context = getContext();
         if (context != null)
         {
@@ -297,6 +307,8 @@ public class DashboardFragment extends AServiceDataFragment implements LocationL
         binding.cdrHelpIcon.setOnClickListener(c -> showCdrHelpDialog());
         binding.fileHelpIcon.setOnClickListener(c -> showFileMqttHelpDialog());
         binding.mqttHelpIcon.setOnClickListener(c -> showFileMqttHelpDialog());
+
+        binding.importCsvLogsButton.setOnClickListener(c -> importCsvLogFiles());
     }
 
     private void navigateToMqttFragment()
@@ -677,6 +689,46 @@ public class DashboardFragment extends AServiceDataFragment implements LocationL
         }
     }
 
+    /**
+     * Updates the text that shows how many survey records the slow listeners (e.g. the MQTT connection or the UI)
+     * and the survey lanes have missed, and then schedules the next update. The text is hidden when no records have been missed.
+     *
+     * @since 1.25.0
+     */
+    private void refreshDroppedRecordsText()
+    {
+        if (binding == null || service == null) return;
+
+        final StringBuilder summary = new StringBuilder();
+        for (BackpressureStats stats : service.getBackpressureStats())
+        {
+            if (!stats.hasFallenBehind()) continue;
+
+            if (summary.length() > 0) summary.append('\n');
+            summary.append(getString(R.string.dropped_records_entry, stats.listenerName, stats.recordType,
+                    stats.dropped, stats.conflated, stats.spilled, stats.backlog, stats.listenerDropped));
+        }
+
+        for (Map.Entry<SurveyLanes.Lane, Long> rejected : service.getRejectedScanCounts().entrySet())
+        {
+            if (summary.length() > 0) summary.append('\n');
+            summary.append(getString(R.string.rejected_scans_entry, rejected.getKey().key, rejected.getValue()));
+        }
+
+        final TextView droppedRecordsText = binding.droppedRecordsText;
+        if (summary.length() == 0)
+        {
+            droppedRecordsText.setVisibility(View.GONE);
+        } else
+        {
+            droppedRecordsText.setText(getString(R.string.dropped_records_summary, summary));
+            droppedRecordsText.setVisibility(View.VISIBLE);
+        }
+
+        binding.getRoot().removeCallbacks(backpressureRefresher);
+        binding.getRoot().postDelayed(backpressureRefresher, BACKPRESSURE_REFRESH_RATE_MS);
+    }
+
     /**
      * Reads the MQTT streaming settings that indicate which protocol streaming is enabled, and then
      * updates the view model with that information.
@@ -708,6 +760,47 @@ public class DashboardFragment extends AServiceDataFragment implements LocationL
         viewModel.setDeviceStatusMqttStreamEnabled(deviceStatusStreamEnabled);
     }
 
+    /**
+     * Converts the CSV log files into a new GeoPackage file in the background, and shows a toast with
+     * the result. Logging has to be off so that none of the CSV files are still being written.
+     *
+     * @since 1.25.0
+     */
+    private void importCsvLogFiles()
+    {
+        final Context context = getContext();
+        if (context == null || service == null) return;
+
+        if (service.isCellularLoggingEnabled() || service.isWifiLoggingEnabled() || service.isBluetoothLoggingEnabled()
+                || service.isGnssLoggingEnabled() || service.isCdrLoggingEnabled())
+        {
+            Toast.makeText(context, R.string.import_csv_logs_logging_on, Toast.LENGTH_LONG).show();
+            return;
+        }
+
+        final Context applicationContext = context.getApplicationContext();
+        final NetworkSurveyService surveyService = service;
+        binding.importCsvLogsButton.setEnabled(false);
+        Toast.makeText(context, R.string.import_csv_logs_started, Toast.LENGTH_SHORT).show();
+
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(() -> {
+            final long rows = surveyService.importCsvLogFiles();
+            ContextCompat.getMainExecutor(applicationContext).execute(() -> {
+                if (binding != null) binding.importCsvLogsButton.setEnabled(true);
+
+                final String message;
+                if (rows > 0)
+                {
+                    message = applicationContext.getString(R.string.import_csv_logs_complete, rows);
+                } else
+                {
+                    message = applicationContext.getString(rows == 0 ? R.string.import_csv_logs_empty : R.string.import_csv_logs_failed);
+                }
+                Toast.makeText(applicationContext, message, Toast.LENGTH_LONG).show();
+            });
+        });
+    }
+
     /**
      * Starts or stops writing the Cellular log file based on the specified parameter.
      *
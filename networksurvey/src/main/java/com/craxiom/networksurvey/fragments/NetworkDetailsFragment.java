@@ -51,6 +51,7 @@ import com.craxiom.networksurvey.fragments.model.GsmNeighbor;
 import com.craxiom.networksurvey.fragments.model.LteNeighbor;
 import com.craxiom.networksurvey.fragments.model.NrNeighbor;
 import com.craxiom.networksurvey.fragments.model.UmtsNeighbor;
+import com.craxiom.networksurvey.listeners.BackpressurePolicy;
 import com.craxiom.networksurvey.listeners.ICellularSurveyRecordListener;
 import com.craxiom.networksurvey.model.CellularProtocol;
 import com.craxiom.networksurvey.model.CellularRecordWrapper;
@@ -202,6 +203,12 @@ public class NetworkDetailsFragment extends AServiceDataFragment implements ICel
         super.onSurveyServiceDisconnecting(service);
     }
 
+    @Override
+    public BackpressurePolicy getBackpressurePolicy()
+    {
+        return BackpressurePolicy.conflateLatest(32);
+    }
+
     @Override
     public void onCellularBatch(List<CellularRecordWrapper> cellularGroup, int subscriptionId)
     {
@@ -0,0 +1,124 @@
+package com.craxiom.networksurvey.fragments;
+
+import android.os.Bundle;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.fragment.app.Fragment;
+
+import com.craxiom.networksurvey.R;
+import com.craxiom.networksurvey.databinding.FragmentPipelineDiagnosticsBinding;
+import com.craxiom.networksurvey.services.PipelineMetrics;
+import com.craxiom.networksurvey.util.LatencyHistogram;
+
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A fragment that shows where the time is going in the survey record pipeline, so that it is possible
+ * to tell if the scans, the loggers, or one of the remote connections is holding things up.
+ * <p>
+ * The latencies and rates are calculated over a sliding window of the last
+ * {@link #WINDOW_SECONDS} seconds.
+ *
+ * @since 1.25.0
+ */
+public class PipelineDiagnosticsFragment extends Fragment
+{
+    private static final long REFRESH_RATE_MS = 2_000;
+    private static final int WINDOW_SECONDS = 30;
+    private static final int WINDOW_SNAPSHOTS = (int) (WINDOW_SECONDS * 1_000 / REFRESH_RATE_MS);
+
+    private FragmentPipelineDiagnosticsBinding binding;
+    private final ArrayDeque<PipelineMetrics.Snapshot> snapshots = new ArrayDeque<>();
+    private final Runnable refresher = this::refreshMetricsText;
+
+    @Nullable
+    @Override
+    public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState)
+    {
+        binding = FragmentPipelineDiagnosticsBinding.inflate(inflater);
+        return binding.getRoot();
+    }
+
+    @Override
+    public void onResume()
+    {
+        super.onResume();
+
+        refreshMetricsText();
+    }
+
+    @Override
+    public void onPause()
+    {
+        binding.getRoot().removeCallbacks(refresher);
+        snapshots.clear();
+
+        super.onPause();
+    }
+
+    @Override
+    public void onDestroyView()
+    {
+        super.onDestroyView();
+
+        binding = null;
+    }
+
+    /**
+     * Takes a new snapshot of the pipeline metrics, shows the difference between it and the oldest
+     * snapshot in the window, and schedules the next refresh.
+     */
+    private void refreshMetricsText()
+    {
+        if (binding == null) return;
+
+        final PipelineMetrics.Snapshot current = PipelineMetrics.snapshot();
+        final PipelineMetrics.Snapshot earliest = snapshots.peekFirst();
+        snapshots.addLast(current);
+        if (snapshots.size() > WINDOW_SNAPSHOTS) snapshots.removeFirst();
+
+        binding.pipelineMetricsText.setText(formatMetrics(current, earliest));
+
+        binding.getRoot().removeCallbacks(refresher);
+        binding.getRoot().postDelayed(refresher, REFRESH_RATE_MS);
+    }
+
+    private String formatMetrics(PipelineMetrics.Snapshot current, PipelineMetrics.Snapshot earlier)
+    {
+        final double seconds = current.getSecondsSince(earlier);
+        final StringBuilder text = new StringBuilder();
+
+        text.append(getString(R.string.pipeline_diagnostics_stages, Math.round(seconds))).append('\n');
+        text.append(String.format(Locale.US, "%-18s %7s %7s %8s %8s %8s%n", "", "count", "rate/s", "p50", "p99", "max"));
+        for (PipelineMetrics.Stage stage : PipelineMetrics.Stage.values())
+        {
+            final LatencyHistogram.Snapshot interval = current.getStageSince(stage, earlier);
+            text.append(String.format(Locale.US, "%-18s %7d %7.1f %8.2f %8.2f %8.2f%n", stage.key,
+                    interval.getCount(),
+                    seconds > 0 ? interval.getCount() / seconds : 0,
+                    LatencyHistogram.Snapshot.toMillis(interval.getValueAtPercentile(50)),
+                    LatencyHistogram.Snapshot.toMillis(interval.getValueAtPercentile(99)),
+                    LatencyHistogram.Snapshot.toMillis(interval.getMaxMicros())));
+        }
+
+        text.append('\n').append(getString(R.string.pipeline_diagnostics_queues)).append('\n');
+        for (Map.Entry<String, Long> queue : current.queueDepths.entrySet())
+        {
+            text.append(String.format(Locale.US, "%-34s %8d%n", queue.getKey(), queue.getValue()));
+        }
+
+        text.append('\n').append(getString(R.string.pipeline_diagnostics_counters)).append('\n');
+        for (String counter : current.counters.keySet())
+        {
+            text.append(String.format(Locale.US, "%-34s %8.1f%n", counter, current.getCounterRate(counter, earlier)));
+        }
+
+        return text.toString();
+    }
+}
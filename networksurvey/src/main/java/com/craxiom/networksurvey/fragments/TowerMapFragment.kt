@@ -18,6 +18,7 @@ import androidx.lifecycle.viewmodel.compose.viewModel
 import androidx.navigation.fragment.findNavController
 import androidx.navigation.fragment.navArgs
 import com.craxiom.networksurvey.R
+import com.craxiom.networksurvey.listeners.BackpressurePolicy
 import com.craxiom.networksurvey.listeners.ICellularSurveyRecordListener
 import com.craxiom.networksurvey.model.CellularProtocol
 import com.craxiom.networksurvey.model.CellularRecordWrapper
@@ -117,6 +118,10 @@ class TowerMapFragment : AServiceDataFragment(), MenuProvider, ICellularSurveyRe
         super.onSurveyServiceDisconnecting(service)
     }
 
+    override fun getBackpressurePolicy(): BackpressurePolicy {
+        return BackpressurePolicy.conflateLatest(32)
+    }
+
     override fun onCellularBatch(
         cellularGroup: MutableList<CellularRecordWrapper>?,
         subscriptionId: Int
@@ -12,6 +12,7 @@ import androidx.navigation.fragment.findNavController
 import androidx.navigation.fragment.navArgs
 import androidx.preference.PreferenceManager
 import com.craxiom.networksurvey.constants.NetworkSurveyConstants
+import com.craxiom.networksurvey.listeners.BackpressurePolicy
 import com.craxiom.networksurvey.listeners.IWifiSurveyRecordListener
 import com.craxiom.networksurvey.model.WifiNetwork
 import com.craxiom.networksurvey.model.WifiRecordWrapper
@@ -111,6 +112,10 @@ class WifiDetailsFragment : AServiceDataFragment(), IWifiSurveyRecordListener {
         super.onSurveyServiceDisconnecting(service)
     }
 
+    override fun getBackpressurePolicy(): BackpressurePolicy {
+        return BackpressurePolicy.conflateLatest(32)
+    }
+
     override fun onWifiBeaconSurveyRecords(wifiBeaconRecords: MutableList<WifiRecordWrapper>?) {
         val matchedWifiRecordWrapper =
             wifiBeaconRecords?.find { it.wifiBeaconRecord.data.bssid.equals(wifiNetwork.bssid) }
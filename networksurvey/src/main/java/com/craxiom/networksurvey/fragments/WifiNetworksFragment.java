@@ -37,6 +37,7 @@ import com.craxiom.networksurvey.R;
 import com.craxiom.networksurvey.constants.NetworkSurveyConstants;
 import com.craxiom.networksurvey.databinding.FragmentWifiNetworksListBinding;
 import com.craxiom.networksurvey.fragments.model.WifiViewModel;
+import com.craxiom.networksurvey.listeners.BackpressurePolicy;
 import com.craxiom.networksurvey.listeners.IWifiSurveyRecordListener;
 import com.craxiom.networksurvey.model.WifiNetwork;
 import com.craxiom.networksurvey.model.WifiRecordWrapper;
@@ -203,6 +204,12 @@ public class WifiNetworksFragment extends AServiceDataFragment implements IWifiS
         super.onSurveyServiceDisconnecting(service);
     }
 
+    @Override
+    public BackpressurePolicy getBackpressurePolicy()
+    {
+        return BackpressurePolicy.conflateLatest(32);
+    }
+
     @Override
     public void onWifiBeaconSurveyRecords(List<WifiRecordWrapper> wifiBeaconRecords)
     {
@@ -13,6 +13,7 @@ import androidx.navigation.fragment.navArgs
 import androidx.preference.PreferenceManager
 import com.craxiom.messaging.wifi.WifiBandwidth
 import com.craxiom.networksurvey.constants.NetworkSurveyConstants
+import com.craxiom.networksurvey.listeners.BackpressurePolicy
 import com.craxiom.networksurvey.listeners.IWifiSurveyRecordListener
 import com.craxiom.networksurvey.model.WifiRecordWrapper
 import com.craxiom.networksurvey.services.NetworkSurveyService
@@ -132,6 +133,10 @@ class WifiSpectrumFragment : AServiceDataFragment(), IWifiSurveyRecordListener {
         super.onSurveyServiceDisconnecting(service)
     }
 
+    override fun getBackpressurePolicy(): BackpressurePolicy {
+        return BackpressurePolicy.conflateLatest(32)
+    }
+
     override fun onWifiBeaconSurveyRecords(wifiBeaconRecords: MutableList<WifiRecordWrapper>?) {
         val wifiNetworkInfoList: List<WifiNetworkInfo> = wifiBeaconRecords
             ?.filter {
@@ -0,0 +1,91 @@
+package com.craxiom.networksurvey.listeners;
+
+import java.util.Locale;
+
+/**
+ * Declares what should happen when a survey record listener can't keep up with the records being
+ * generated. Each listener gets its own bounded backlog of records, and once that backlog is full
+ * the policy decides whether the record processing waits on the listener, or the listener misses
+ * some records.
+ *
+ * @since 1.25.0
+ */
+public final class BackpressurePolicy
+{
+    /**
+     * What to do once the backlog for a listener is full.
+     */
+    public enum Mode
+    {
+        /**
+         * Wait for the listener to catch up. The record processing (and so all the other listeners)
+         * is held up until the listener frees up room in its backlog, but only for a bounded amount
+         * of time. If the listener still has not made room by then, it is treated as stalled and its
+         * oldest records are dropped, and counted, until it catches up.
+         */
+        BLOCK,
+        /**
+         * Drop the oldest record in the backlog to make room for the new one.
+         */
+        DROP_OLDEST,
+        /**
+         * Only deliver the latest of each snapshot (e.g. a whole cellular or Wi-Fi scan) that is in the
+         * backlog, since the older ones are out of date by the time the listener gets to them. Records
+         * that are not snapshots are dropped oldest first once the backlog is full.
+         */
+        CONFLATE_LATEST,
+        /**
+         * Move the oldest records in the backlog to a file on disk, and deliver them from there once
+         * the listener catches up. Records that can't be written to disk are dropped.
+         */
+        SPILL_TO_DISK
+    }
+
+    /**
+     * Waits on the listener once it falls a full ring of records behind. This is the default.
+     */
+    public static final BackpressurePolicy BLOCK = new BackpressurePolicy(Mode.BLOCK, Integer.MAX_VALUE);
+
+    /**
+     * Spills the oldest records to disk once the listener falls a full ring of records behind, so
+     * the record processing never waits on it. This is what the file loggers use.
+     */
+    public static final BackpressurePolicy SPILL_TO_DISK = new BackpressurePolicy(Mode.SPILL_TO_DISK, Integer.MAX_VALUE);
+
+    public final Mode mode;
+
+    /**
+     * The maximum number of records that can be waiting on the listener. This is limited to the size
+     * of the ring that the records are dispatched through.
+     */
+    public final int capacity;
+
+    private BackpressurePolicy(Mode mode, int capacity)
+    {
+        if (capacity < 1) throw new IllegalArgumentException("The capacity must be at least 1, but was " + capacity);
+
+        this.mode = mode;
+        this.capacity = capacity;
+    }
+
+    public static BackpressurePolicy dropOldest(int capacity)
+    {
+        return new BackpressurePolicy(Mode.DROP_OLDEST, capacity);
+    }
+
+    public static BackpressurePolicy conflateLatest(int capacity)
+    {
+        return new BackpressurePolicy(Mode.CONFLATE_LATEST, capacity);
+    }
+
+    public static BackpressurePolicy spillToDisk(int capacity)
+    {
+        return new BackpressurePolicy(Mode.SPILL_TO_DISK, capacity);
+    }
+
+    @Override
+    public String toString()
+    {
+        return mode == Mode.BLOCK ? mode.name() : String.format(Locale.US, "%s(%d)", mode, capacity);
+    }
+}
@@ -1,6 +1,7 @@
 package com.craxiom.networksurvey.listeners;
 
 import com.craxiom.messaging.BluetoothRecord;
+import com.craxiom.networksurvey.model.RecordTimestamp;
 
 import java.util.List;
 
@@ -9,7 +10,7 @@ import java.util.List;
  *
  * @since 1.0.0
  */
-public interface IBluetoothSurveyRecordListener
+public interface IBluetoothSurveyRecordListener extends ISurveyRecordListener
 {
     /**
      * Called when a new Bluetooth survey record is ready.
@@ -18,10 +19,38 @@ public interface IBluetoothSurveyRecordListener
      */
     void onBluetoothSurveyRecord(BluetoothRecord bluetoothRecord);
 
+    /**
+     * Called when a new Bluetooth survey record is ready, along with the time that it was captured.
+     * <p>
+     * By default this calls {@link #onBluetoothSurveyRecord(BluetoothRecord)}.
+     *
+     * @param bluetoothRecord the Bluetooth survey record.
+     * @param timestamp The time that the scan group was captured.
+     * @since 1.25.0
+     */
+    default void onBluetoothSurveyRecord(BluetoothRecord bluetoothRecord, RecordTimestamp timestamp)
+    {
+        onBluetoothSurveyRecord(bluetoothRecord);
+    }
+
     /**
      * Called when a new collection of Bluetooth survey records are ready.
      *
      * @param bluetoothRecords the list of Bluetooth records.
      */
     void onBluetoothSurveyRecords(List<BluetoothRecord> bluetoothRecords);
+
+    /**
+     * Called when a new collection of Bluetooth survey records is ready, along with the time that it was captured.
+     * <p>
+     * By default this calls {@link #onBluetoothSurveyRecords(List)}.
+     *
+     * @param bluetoothRecords the collection of Bluetooth survey records.
+     * @param timestamp The time that the scan group was captured.
+     * @since 1.25.0
+     */
+    default void onBluetoothSurveyRecords(List<BluetoothRecord> bluetoothRecords, RecordTimestamp timestamp)
+    {
+        onBluetoothSurveyRecords(bluetoothRecords);
+    }
 }
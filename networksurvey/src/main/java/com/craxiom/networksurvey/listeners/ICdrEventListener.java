@@ -8,7 +8,7 @@ import com.craxiom.networksurvey.model.CdrEvent;
  *
  * @since 1.11
  */
-public interface ICdrEventListener
+public interface ICdrEventListener extends ISurveyRecordListener
 {
     /**
      * Called when a new Call Detail Record Event is ready.
@@ -6,6 +6,7 @@ import com.craxiom.messaging.LteRecord;
 import com.craxiom.messaging.NrRecord;
 import com.craxiom.messaging.UmtsRecord;
 import com.craxiom.networksurvey.model.CellularRecordWrapper;
+import com.craxiom.networksurvey.model.RecordTimestamp;
 
 import java.util.List;
 
@@ -14,7 +15,7 @@ import java.util.List;
  *
  * @since 0.0.4
  */
-public interface ICellularSurveyRecordListener
+public interface ICellularSurveyRecordListener extends ISurveyRecordListener
 {
     /**
      * Called when a new GSM Survey Record is ready.
@@ -26,6 +27,20 @@ public interface ICellularSurveyRecordListener
     {
     }
 
+    /**
+     * Called when a new GSM Survey Record is ready, along with the time that it was captured.
+     * <p>
+     * By default this calls {@link #onGsmSurveyRecord(GsmRecord)}.
+     *
+     * @param gsmRecord the GSM Survey Record.
+     * @param timestamp The time that the scan group was captured.
+     * @since 1.25.0
+     */
+    default void onGsmSurveyRecord(GsmRecord gsmRecord, RecordTimestamp timestamp)
+    {
+        onGsmSurveyRecord(gsmRecord);
+    }
+
     /**
      * Called when a new CDMA Survey Record is ready.
      *
@@ -36,6 +51,20 @@ public interface ICellularSurveyRecordListener
     {
     }
 
+    /**
+     * Called when a new CDMA Survey Record is ready, along with the time that it was captured.
+     * <p>
+     * By default this calls {@link #onCdmaSurveyRecord(CdmaRecord)}.
+     *
+     * @param cdmaRecord the CDMA Survey Record.
+     * @param timestamp The time that the scan group was captured.
+     * @since 1.25.0
+     */
+    default void onCdmaSurveyRecord(CdmaRecord cdmaRecord, RecordTimestamp timestamp)
+    {
+        onCdmaSurveyRecord(cdmaRecord);
+    }
+
     /**
      * Called when a new UMTS Survey Record is ready.
      *
@@ -46,6 +75,20 @@ public interface ICellularSurveyRecordListener
     {
     }
 
+    /**
+     * Called when a new UMTS Survey Record is ready, along with the time that it was captured.
+     * <p>
+     * By default this calls {@link #onUmtsSurveyRecord(UmtsRecord)}.
+     *
+     * @param umtsRecord the UMTS Survey Record.
+     * @param timestamp The time that the scan group was captured.
+     * @since 1.25.0
+     */
+    default void onUmtsSurveyRecord(UmtsRecord umtsRecord, RecordTimestamp timestamp)
+    {
+        onUmtsSurveyRecord(umtsRecord);
+    }
+
     /**
      * Called when a new LTE Survey Record is ready.
      *
@@ -55,6 +98,20 @@ public interface ICellularSurveyRecordListener
     {
     }
 
+    /**
+     * Called when a new LTE Survey Record is ready, along with the time that it was captured.
+     * <p>
+     * By default this calls {@link #onLteSurveyRecord(LteRecord)}.
+     *
+     * @param lteRecord the LTE Survey Record.
+     * @param timestamp The time that the scan group was captured.
+     * @since 1.25.0
+     */
+    default void onLteSurveyRecord(LteRecord lteRecord, RecordTimestamp timestamp)
+    {
+        onLteSurveyRecord(lteRecord);
+    }
+
     /**
      * Called when a new NR Survey Record is ready.
      *
@@ -65,6 +122,20 @@ public interface ICellularSurveyRecordListener
     {
     }
 
+    /**
+     * Called when a new NR Survey Record is ready, along with the time that it was captured.
+     * <p>
+     * By default this calls {@link #onNrSurveyRecord(NrRecord)}.
+     *
+     * @param nrRecord the NR Survey Record.
+     * @param timestamp The time that the scan group was captured.
+     * @since 1.25.0
+     */
+    default void onNrSurveyRecord(NrRecord nrRecord, RecordTimestamp timestamp)
+    {
+        onNrSurveyRecord(nrRecord);
+    }
+
     /**
      * Called when a new batch of cellular survey records are ready.
      * <p>
@@ -2,13 +2,14 @@ package com.craxiom.networksurvey.listeners;
 
 import com.craxiom.messaging.DeviceStatus;
 import com.craxiom.messaging.PhoneState;
+import com.craxiom.networksurvey.model.RecordTimestamp;
 
 /**
  * Listener interface for those interested in being notified whenever a new Device Status message is ready.
  *
  * @since 0.0.4
  */
-public interface IDeviceStatusListener
+public interface IDeviceStatusListener extends ISurveyRecordListener
 {
     /**
      * Notification that a new Device Status message is ready.
@@ -27,4 +28,18 @@ public interface IDeviceStatusListener
     default void onPhoneState(PhoneState phoneState)
     {
     }
+
+    /**
+     * Called when a new Phone State message is ready, along with the time that it was captured.
+     * <p>
+     * By default this calls {@link #onPhoneState(PhoneState)}.
+     *
+     * @param phoneState the Phone State message.
+     * @param timestamp The time that the scan group was captured.
+     * @since 1.25.0
+     */
+    default void onPhoneState(PhoneState phoneState, RecordTimestamp timestamp)
+    {
+        onPhoneState(phoneState);
+    }
 }
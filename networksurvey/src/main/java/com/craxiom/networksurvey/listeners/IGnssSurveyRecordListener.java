@@ -1,13 +1,14 @@
 package com.craxiom.networksurvey.listeners;
 
 import com.craxiom.messaging.GnssRecord;
+import com.craxiom.networksurvey.model.RecordTimestamp;
 
 /**
  * Listener interface for those interested in being notified when a new GNSS Survey Record is ready.
  *
  * @since 0.3.0
  */
-public interface IGnssSurveyRecordListener
+public interface IGnssSurveyRecordListener extends ISurveyRecordListener
 {
     /**
      * Called when a new GNSS Survey Record is ready.
@@ -15,4 +16,18 @@ public interface IGnssSurveyRecordListener
      * @param gnssRecord the GNSS Record.
      */
     void onGnssSurveyRecord(GnssRecord gnssRecord);
+
+    /**
+     * Called when a new GNSS Survey Record is ready, along with the time that it was captured.
+     * <p>
+     * By default this calls {@link #onGnssSurveyRecord(GnssRecord)}.
+     *
+     * @param gnssRecord the GNSS Survey Record.
+     * @param timestamp The time that the scan group was captured.
+     * @since 1.25.0
+     */
+    default void onGnssSurveyRecord(GnssRecord gnssRecord, RecordTimestamp timestamp)
+    {
+        onGnssSurveyRecord(gnssRecord);
+    }
 }
@@ -0,0 +1,35 @@
+package com.craxiom.networksurvey.listeners;
+
+/**
+ * The base interface for all the listeners that are notified of the records generated by the survey
+ * record processor.
+ * <p>
+ * Each listener is notified on its own thread and works through its backlog of records at its own
+ * pace, so a listener can declare what should happen if that backlog fills up.
+ *
+ * @since 1.25.0
+ */
+public interface ISurveyRecordListener
+{
+    /**
+     * @return What to do when this listener can't keep up with the records. By default the record
+     * processing waits on the listener for a bounded amount of time before its oldest records are
+     * dropped. The file loggers spill to disk instead so that they are not lost, listeners that only
+     * show the latest values (e.g. the UI) conflate them, and listeners that can tolerate some loss
+     * (e.g. a remote stream) drop the oldest ones.
+     */
+    default BackpressurePolicy getBackpressurePolicy()
+    {
+        return BackpressurePolicy.BLOCK;
+    }
+
+    /**
+     * @return The number of records that this listener dropped after they were delivered to it (e.g.
+     * because a logger's write queue stayed full), so that they can be reported along with the
+     * records the dispatcher dropped.
+     */
+    default long getDroppedRecordCount()
+    {
+        return 0;
+    }
+}
@@ -1,5 +1,6 @@
 package com.craxiom.networksurvey.listeners;
 
+import com.craxiom.networksurvey.model.RecordTimestamp;
 import com.craxiom.networksurvey.model.WifiRecordWrapper;
 
 import java.util.List;
@@ -9,7 +10,7 @@ import java.util.List;
  *
  * @since 0.1.2
  */
-public interface IWifiSurveyRecordListener
+public interface IWifiSurveyRecordListener extends ISurveyRecordListener
 {
     /**
      * Called when a new collection of 802.11 Beacon Survey Records are ready.
@@ -17,4 +18,18 @@ public interface IWifiSurveyRecordListener
      * @param wifiBeaconRecords the list of 802.11 Beacon Records.
      */
     void onWifiBeaconSurveyRecords(List<WifiRecordWrapper> wifiBeaconRecords);
+
+    /**
+     * Called when a new collection of 802.11 Beacon Survey Records is ready, along with the time that it was captured.
+     * <p>
+     * By default this calls {@link #onWifiBeaconSurveyRecords(List)}.
+     *
+     * @param wifiBeaconRecords the collection of 802.11 Beacon Survey Records.
+     * @param timestamp The time that the scan group was captured.
+     * @since 1.25.0
+     */
+    default void onWifiBeaconSurveyRecords(List<WifiRecordWrapper> wifiBeaconRecords, RecordTimestamp timestamp)
+    {
+        onWifiBeaconSurveyRecords(wifiBeaconRecords);
+    }
 }
@@ -0,0 +1,689 @@
+package com.craxiom.networksurvey.logging;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes survey rows to an Arrow IPC stream (the format that Arrow, pandas, Polars, and DuckDB read
+ * as {@code .arrows} files), so that a survey can be loaded into a column store without parsing CSV.
+ * <p>
+ * Each column is written with a typed Arrow layout: integers as Int64, floating point values as
+ * Float64, booleans as bit packed Bool, times as a UTC millisecond Timestamp, and Strings as
+ * dictionary encoded Utf8 so that the values that repeat on every row (e.g. the provider or SSID)
+ * are only written once. Unbound values are written as nulls.
+ * <p>
+ * The rows are buffered in fixed size column arrays and written out as a record batch (the Arrow
+ * equivalent of a Parquet row group) every {@code rowGroupSize} rows, so the memory use is bounded
+ * by the row group size and the number of distinct String values, not the size of the survey. The
+ * String values that are first seen in a row group are sent as a delta dictionary batch right before
+ * it.
+ * <p>
+ * This implements the {@link SurveyRowInserter} interface so that it can be fed by the same code that
+ * imports CSV files into a GeoPackage (see {@link ColumnarExporter}). The point is written to the
+ * {@link #LONGITUDE_COLUMN}, {@link #LATITUDE_COLUMN}, and {@link #ALTITUDE_COLUMN} columns, which
+ * must be in the schema if {@link #bindPoint(double, double, double)} is used.
+ * <p>
+ * This class is NOT thread safe.
+ *
+ * @since 1.25.0
+ */
+final class ArrowStreamWriter implements SurveyRowInserter
+{
+    static final String LONGITUDE_COLUMN = "longitude";
+    static final String LATITUDE_COLUMN = "latitude";
+    static final String ALTITUDE_COLUMN = "altitude";
+
+    private static final int CONTINUATION_MARKER = 0xFFFFFFFF;
+    private static final int ALIGNMENT = 8;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    // Values from the Arrow Schema.fbs and Message.fbs files
+    private static final short METADATA_VERSION_V5 = 4;
+    private static final byte HEADER_SCHEMA = 1;
+    private static final byte HEADER_DICTIONARY_BATCH = 2;
+    private static final byte HEADER_RECORD_BATCH = 3;
+    private static final byte TYPE_INT = 2;
+    private static final byte TYPE_FLOATING_POINT = 3;
+    private static final byte TYPE_UTF8 = 5;
+    private static final byte TYPE_BOOL = 6;
+    private static final byte TYPE_TIMESTAMP = 10;
+    private static final short PRECISION_DOUBLE = 2;
+    private static final short TIME_UNIT_MILLISECOND = 1;
+
+    /**
+     * The Arrow type that a column is written as.
+     */
+    enum ColumnType
+    {
+        INT64,
+        FLOAT64,
+        BOOL,
+        /**
+         * A UTC timestamp in milliseconds since the epoch, which is bound with
+         * {@link #bindLong(int, long)}.
+         */
+        TIMESTAMP,
+        /**
+         * A dictionary encoded UTF-8 String.
+         */
+        STRING
+    }
+
+    /**
+     * The name and type of a column in the stream.
+     */
+    static final class Column
+    {
+        final String name;
+        final ColumnType type;
+
+        Column(String name, ColumnType type)
+        {
+            this.name = name;
+            this.type = type;
+        }
+    }
+
+    private final OutputStream out;
+    private final Column[] columns;
+    private final Map<String, Integer> columnIndexes = new HashMap<>();
+    private final int rowGroupSize;
+
+    private final byte[][] validity;
+    private final int[] nullCounts;
+    private final boolean[] bound;
+    private final long[][] longValues;
+    private final double[][] doubleValues;
+    private final int[][] dictionaryIndexes;
+    private final List<Map<String, Integer>> dictionaries;
+    private final List<List<String>> dictionaryValues;
+    private final int[] dictionarySentCounts;
+
+    private final int longitudeIndex;
+    private final int latitudeIndex;
+    private final int altitudeIndex;
+
+    private final ByteBuffer writeBuffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+    private int rowCount;
+    private long rowsWritten;
+    private boolean dictionariesStarted;
+    private boolean closed;
+
+    /**
+     * Creates the writer and writes the schema message to the stream.
+     *
+     * @param out          The stream to write to. It is NOT closed by this writer.
+     * @param columns      The columns of the stream, in order.
+     * @param rowGroupSize The number of rows in each record batch.
+     * @throws IOException If the schema could not be written.
+     */
+    ArrowStreamWriter(OutputStream out, List<Column> columns, int rowGroupSize) throws IOException
+    {
+        this.out = out;
+        this.columns = columns.toArray(new Column[0]);
+        this.rowGroupSize = Math.max(1, rowGroupSize);
+
+        final int columnCount = this.columns.length;
+        validity = new byte[columnCount][(this.rowGroupSize + 7) / 8];
+        nullCounts = new int[columnCount];
+        bound = new boolean[columnCount];
+        longValues = new long[columnCount][];
+        doubleValues = new double[columnCount][];
+        dictionaryIndexes = new int[columnCount][];
+        // Only the String columns have a dictionary, the other columns are left as null
+        dictionaries = new ArrayList<>(Collections.nCopies(columnCount, null));
+        dictionaryValues = new ArrayList<>(Collections.nCopies(columnCount, null));
+        dictionarySentCounts = new int[columnCount];
+
+        for (int i = 0; i < columnCount; i++)
+        {
+            final Column column = this.columns[i];
+            if (columnIndexes.put(column.name, i) != null)
+            {
+                throw new IllegalArgumentException("The column " + column.name + " is in the schema more than once");
+            }
+
+            switch (column.type)
+            {
+                case INT64:
+                case TIMESTAMP:
+                    longValues[i] = new long[this.rowGroupSize];
+                    break;
+                case FLOAT64:
+                    doubleValues[i] = new double[this.rowGroupSize];
+                    break;
+                case BOOL:
+                    // The values are bit packed into a second bitmap
+                    longValues[i] = new long[(this.rowGroupSize + 63) / 64];
+                    break;
+                case STRING:
+                    dictionaryIndexes[i] = new int[this.rowGroupSize];
+                    dictionaries.set(i, new HashMap<>());
+                    dictionaryValues.set(i, new ArrayList<>());
+                    break;
+            }
+        }
+
+        longitudeIndex = findColumn(LONGITUDE_COLUMN, ColumnType.FLOAT64);
+        latitudeIndex = findColumn(LATITUDE_COLUMN, ColumnType.FLOAT64);
+        altitudeIndex = findColumn(ALTITUDE_COLUMN, ColumnType.FLOAT64);
+
+        writeMessage(HEADER_SCHEMA, createSchema(), 0);
+    }
+
+    @Override
+    public int getColumnIndex(String columnName)
+    {
+        final Integer index = columnIndexes.get(columnName);
+        if (index == null) throw new IllegalArgumentException("The stream does not have a " + columnName + " column");
+        return index;
+    }
+
+    @Override
+    public void bindPoint(double longitude, double latitude, double altitude)
+    {
+        if (longitudeIndex == -1 || latitudeIndex == -1 || altitudeIndex == -1)
+        {
+            throw new IllegalStateException("The stream does not have the point columns");
+        }
+
+        bindDouble(longitudeIndex, longitude);
+        bindDouble(latitudeIndex, latitude);
+        bindDouble(altitudeIndex, altitude);
+    }
+
+    @Override
+    public void bindLong(int index, long value)
+    {
+        switch (columns[index].type)
+        {
+            case INT64:
+            case TIMESTAMP:
+                longValues[index][rowCount] = value;
+                break;
+            case FLOAT64:
+                doubleValues[index][rowCount] = value;
+                break;
+            case BOOL:
+                bindBoolean(index, value != 0);
+                return;
+            default:
+                throw new IllegalArgumentException("Can't bind an integer to the String column " + columns[index].name);
+        }
+        bound[index] = true;
+    }
+
+    @Override
+    public void bindDouble(int index, double value)
+    {
+        if (columns[index].type != ColumnType.FLOAT64)
+        {
+            throw new IllegalArgumentException("Can't bind a floating point value to the " + columns[index].name + " column");
+        }
+
+        doubleValues[index][rowCount] = value;
+        bound[index] = true;
+    }
+
+    @Override
+    public void bindBoolean(int index, boolean value)
+    {
+        if (columns[index].type != ColumnType.BOOL)
+        {
+            throw new IllegalArgumentException("Can't bind a boolean to the " + columns[index].name + " column");
+        }
+
+        if (value)
+        {
+            longValues[index][rowCount >>> 6] |= 1L << rowCount;
+        } else
+        {
+            longValues[index][rowCount >>> 6] &= ~(1L << rowCount);
+        }
+        bound[index] = true;
+    }
+
+    @Override
+    public void bindString(int index, String value)
+    {
+        if (columns[index].type != ColumnType.STRING)
+        {
+            throw new IllegalArgumentException("Can't bind a String to the " + columns[index].name + " column");
+        }
+        if (value == null)
+        {
+            bound[index] = false;
+            return;
+        }
+
+        final List<String> values = dictionaryValues.get(index);
+        Integer dictionaryIndex = dictionaries.get(index).get(value);
+        if (dictionaryIndex == null)
+        {
+            dictionaryIndex = values.size();
+            dictionaries.get(index).put(value, dictionaryIndex);
+            values.add(value);
+        }
+
+        dictionaryIndexes[index][rowCount] = dictionaryIndex;
+        bound[index] = true;
+    }
+
+    /**
+     * Adds the bound values as a new row, and writes out a record batch if the row group is full.
+     *
+     * @return The number of rows that have been inserted, which is the 1 based number of this row.
+     * @throws UncheckedIOException If a full record batch could not be written.
+     */
+    @Override
+    public long insert()
+    {
+        if (closed) throw new IllegalStateException("The stream has already been closed");
+
+        for (int i = 0; i < columns.length; i++)
+        {
+            if (bound[i])
+            {
+                validity[i][rowCount >>> 3] |= (byte) (1 << (rowCount & 7));
+                bound[i] = false;
+            } else
+            {
+                nullCounts[i]++;
+                clearValue(i);
+            }
+        }
+
+        rowCount++;
+        rowsWritten++;
+        if (rowCount == rowGroupSize)
+        {
+            try
+            {
+                flush();
+            } catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        return rowsWritten;
+    }
+
+    /**
+     * Writes out the remaining rows and the end of stream marker. The output stream is flushed but
+     * not closed.
+     *
+     * @throws UncheckedIOException If the stream could not be written.
+     */
+    @Override
+    public void close()
+    {
+        if (closed) return;
+        closed = true;
+
+        try
+        {
+            if (rowCount > 0) flush();
+
+            // Readers expect all the dictionaries before the end, even if there were no rows
+            if (!dictionariesStarted) writeDictionaries();
+
+            writeBuffer.clear();
+            writeBuffer.putInt(CONTINUATION_MARKER).putInt(0);
+            drainWriteBuffer();
+            out.flush();
+        } catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return The total number of rows that have been inserted.
+     */
+    long getRowsWritten()
+    {
+        return rowsWritten;
+    }
+
+    private int findColumn(String name, ColumnType type)
+    {
+        final Integer index = columnIndexes.get(name);
+        return index == null || columns[index].type != type ? -1 : index;
+    }
+
+    /**
+     * Resets the value of a null entry in the current row, since the column arrays are reused between
+     * record batches.
+     */
+    private void clearValue(int index)
+    {
+        switch (columns[index].type)
+        {
+            case INT64:
+            case TIMESTAMP:
+                longValues[index][rowCount] = 0;
+                break;
+            case FLOAT64:
+                doubleValues[index][rowCount] = 0;
+                break;
+            case STRING:
+                dictionaryIndexes[index][rowCount] = 0;
+                break;
+            case BOOL:
+                longValues[index][rowCount >>> 6] &= ~(1L << rowCount);
+                break;
+        }
+    }
+
+    /**
+     * Writes the buffered rows as a record batch (after any new dictionary values), and resets the
+     * buffers for the next row group.
+     */
+    private void flush() throws IOException
+    {
+        writeDictionaries();
+
+        final int rows = rowCount;
+        final List<Long> fieldNodes = new ArrayList<>();
+        final List<Long> buffers = new ArrayList<>();
+        long bodyLength = 0;
+        for (int i = 0; i < columns.length; i++)
+        {
+            fieldNodes.add((long) rows);
+            fieldNodes.add((long) nullCounts[i]);
+
+            final long validityLength = nullCounts[i] == 0 ? 0 : (rows + 7) / 8;
+            bodyLength = addBuffer(buffers, bodyLength, validityLength);
+            bodyLength = addBuffer(buffers, bodyLength, getValuesLength(columns[i].type, rows));
+        }
+
+        final FlatBufferWriter.Table recordBatch = createRecordBatch(rows, fieldNodes, buffers);
+        writeMessage(HEADER_RECORD_BATCH, recordBatch, bodyLength);
+
+        writeBuffer.clear();
+        for (int i = 0; i < columns.length; i++)
+        {
+            if (nullCounts[i] != 0)
+            {
+                writeBytes(validity[i], (rows + 7) / 8);
+                padWriteBuffer();
+            }
+
+            switch (columns[i].type)
+            {
+                case INT64:
+                case TIMESTAMP:
+                    for (int row = 0; row < rows; row++)
+                    {
+                        ensureWriteCapacity(Long.BYTES);
+                        writeBuffer.putLong(longValues[i][row]);
+                    }
+                    break;
+                case FLOAT64:
+                    for (int row = 0; row < rows; row++)
+                    {
+                        ensureWriteCapacity(Double.BYTES);
+                        writeBuffer.putDouble(doubleValues[i][row]);
+                    }
+                    break;
+                case BOOL:
+                    final int boolBytes = (rows + 7) / 8;
+                    for (int b = 0; b < boolBytes; b++)
+                    {
+                        ensureWriteCapacity(1);
+                        writeBuffer.put((byte) (longValues[i][b >>> 3] >>> (8 * (b & 7))));
+                    }
+                    padWriteBuffer();
+                    break;
+                case STRING:
+                    for (int row = 0; row < rows; row++)
+                    {
+                        ensureWriteCapacity(Integer.BYTES);
+                        writeBuffer.putInt(dictionaryIndexes[i][row]);
+                    }
+                    padWriteBuffer();
+                    break;
+            }
+        }
+        drainWriteBuffer();
+
+        for (int i = 0; i < columns.length; i++)
+        {
+            Arrays.fill(validity[i], (byte) 0);
+            nullCounts[i] = 0;
+            if (columns[i].type == ColumnType.BOOL) Arrays.fill(longValues[i], 0);
+        }
+        rowCount = 0;
+    }
+
+    /**
+     * Writes a dictionary batch for each String column that has values that have not been sent yet.
+     * The first time this is called a batch is written for every String column, even if it is empty,
+     * and from then on only the new values are sent as deltas.
+     */
+    private void writeDictionaries() throws IOException
+    {
+        for (int i = 0; i < columns.length; i++)
+        {
+            if (columns[i].type != ColumnType.STRING) continue;
+
+            final List<String> values = dictionaryValues.get(i);
+            final int start = dictionarySentCounts[i];
+            if (dictionariesStarted && start == values.size()) continue;
+
+            final List<byte[]> encodedValues = new ArrayList<>();
+            long dataLength = 0;
+            for (String value : values.subList(start, values.size()))
+            {
+                final byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+                encodedValues.add(encoded);
+                dataLength += encoded.length;
+            }
+
+            final int count = encodedValues.size();
+            final List<Long> buffers = new ArrayList<>();
+            long bodyLength = addBuffer(buffers, 0, 0);
+            bodyLength = addBuffer(buffers, bodyLength, (long) (count + 1) * Integer.BYTES);
+            bodyLength = addBuffer(buffers, bodyLength, dataLength);
+
+            final FlatBufferWriter.Table dictionaryBatch = new FlatBufferWriter.Table()
+                    .addLong(0, i)
+                    .addNode(1, createRecordBatch(count, Arrays.asList((long) count, 0L), buffers))
+                    .addBoolean(2, dictionariesStarted);
+            writeMessage(HEADER_DICTIONARY_BATCH, dictionaryBatch, bodyLength);
+
+            writeBuffer.clear();
+            int offset = 0;
+            ensureWriteCapacity(Integer.BYTES);
+            writeBuffer.putInt(offset);
+            for (byte[] encoded : encodedValues)
+            {
+                offset += encoded.length;
+                ensureWriteCapacity(Integer.BYTES);
+                writeBuffer.putInt(offset);
+            }
+            padWriteBuffer();
+            for (byte[] encoded : encodedValues)
+            {
+                writeBytes(encoded, encoded.length);
+            }
+            padWriteBuffer();
+            drainWriteBuffer();
+
+            dictionarySentCounts[i] = values.size();
+        }
+
+        dictionariesStarted = true;
+    }
+
+    /**
+     * Adds a buffer to the body layout.
+     *
+     * @return The offset of the next buffer, which is 8 byte aligned.
+     */
+    private static long addBuffer(List<Long> buffers, long offset, long length)
+    {
+        buffers.add(offset);
+        buffers.add(length);
+        return offset + pad(length);
+    }
+
+    private static long getValuesLength(ColumnType type, int rows)
+    {
+        switch (type)
+        {
+            case BOOL:
+                return (rows + 7) / 8;
+            case STRING:
+                return (long) rows * Integer.BYTES;
+            default:
+                return (long) rows * Long.BYTES;
+        }
+    }
+
+    private static long pad(long length)
+    {
+        return (length + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    private FlatBufferWriter.Table createSchema()
+    {
+        final List<FlatBufferWriter.Table> fields = new ArrayList<>();
+        for (int i = 0; i < columns.length; i++)
+        {
+            final FlatBufferWriter.Table field = new FlatBufferWriter.Table()
+                    .addString(0, columns[i].name)
+                    .addBoolean(1, true)
+                    .addNode(5, new FlatBufferWriter.NodeVector(Collections.emptyList()));
+
+            switch (columns[i].type)
+            {
+                case INT64:
+                    field.addByte(2, TYPE_INT).addNode(3, createIntType(64));
+                    break;
+                case FLOAT64:
+                    field.addByte(2, TYPE_FLOATING_POINT).addNode(3, new FlatBufferWriter.Table().addShort(0, PRECISION_DOUBLE));
+                    break;
+                case BOOL:
+                    field.addByte(2, TYPE_BOOL).addNode(3, new FlatBufferWriter.Table());
+                    break;
+                case TIMESTAMP:
+                    field.addByte(2, TYPE_TIMESTAMP).addNode(3, new FlatBufferWriter.Table()
+                            .addShort(0, TIME_UNIT_MILLISECOND)
+                            .addString(1, "UTC"));
+                    break;
+                case STRING:
+                    field.addByte(2, TYPE_UTF8).addNode(3, new FlatBufferWriter.Table())
+                            .addNode(4, new FlatBufferWriter.Table()
+                                    .addLong(0, i)
+                                    .addNode(1, createIntType(32))
+                                    .addBoolean(2, false));
+                    break;
+            }
+            fields.add(field);
+        }
+
+        return new FlatBufferWriter.Table()
+                .addShort(0, 0) // Little endian
+                .addNode(1, new FlatBufferWriter.NodeVector(fields));
+    }
+
+    private static FlatBufferWriter.Table createIntType(int bitWidth)
+    {
+        return new FlatBufferWriter.Table().addInt(0, bitWidth).addBoolean(1, true);
+    }
+
+    private static FlatBufferWriter.Table createRecordBatch(long length, List<Long> fieldNodes, List<Long> buffers)
+    {
+        return new FlatBufferWriter.Table()
+                .addLong(0, length)
+                .addNode(1, new FlatBufferWriter.LongPairVector(toArray(fieldNodes)))
+                .addNode(2, new FlatBufferWriter.LongPairVector(toArray(buffers)));
+    }
+
+    private static long[] toArray(List<Long> values)
+    {
+        final long[] array = new long[values.size()];
+        for (int i = 0; i < array.length; i++)
+        {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+
+    /**
+     * Writes the encapsulated message metadata: the continuation marker, the padded metadata size, and
+     * the metadata itself. The message body has to be written right after this.
+     */
+    private void writeMessage(byte headerType, FlatBufferWriter.Table header, long bodyLength) throws IOException
+    {
+        final byte[] metadata = FlatBufferWriter.finish(new FlatBufferWriter.Table()
+                .addShort(0, METADATA_VERSION_V5)
+                .addByte(1, headerType)
+                .addNode(2, header)
+                .addLong(3, bodyLength));
+
+        writeBuffer.clear();
+        writeBuffer.putInt(CONTINUATION_MARKER).putInt(metadata.length);
+        drainWriteBuffer();
+        out.write(metadata);
+    }
+
+    private void writeBytes(byte[] source, int length)
+    {
+        int written = 0;
+        while (written < length)
+        {
+            ensureWriteCapacity(1);
+            final int chunk = Math.min(length - written, writeBuffer.remaining());
+            writeBuffer.put(source, written, chunk);
+            written += chunk;
+        }
+    }
+
+    /**
+     * Pads the body so that the next buffer starts on an 8 byte boundary. Every body buffer is a
+     * multiple of its value size, and the write buffer is drained in multiples of 8, so the position
+     * in the write buffer lines up with the position in the body.
+     */
+    private void padWriteBuffer()
+    {
+        while (writeBuffer.position() % ALIGNMENT != 0)
+        {
+            ensureWriteCapacity(1);
+            writeBuffer.put((byte) 0);
+        }
+    }
+
+    private void ensureWriteCapacity(int size)
+    {
+        if (writeBuffer.remaining() < size)
+        {
+            try
+            {
+                drainWriteBuffer();
+            } catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private void drainWriteBuffer() throws IOException
+    {
+        out.write(writeBuffer.array(), 0, writeBuffer.position());
+        writeBuffer.clear();
+    }
+}
@@ -17,8 +17,6 @@ import static com.craxiom.networksurvey.constants.csv.BluetoothCsvConstants.SUPP
 import static com.craxiom.networksurvey.constants.csv.BluetoothCsvConstants.TECHNOLOGY;
 import static com.craxiom.networksurvey.constants.csv.BluetoothCsvConstants.TX_POWER;
 
-import android.os.Looper;
-
 import com.craxiom.messaging.BluetoothRecord;
 import com.craxiom.messaging.BluetoothRecordData;
 import com.craxiom.messaging.bluetooth.SupportedTechnologies;
@@ -27,19 +25,16 @@ import com.craxiom.networksurvey.constants.NetworkSurveyConstants;
 import com.craxiom.networksurvey.listeners.IBluetoothSurveyRecordListener;
 import com.craxiom.networksurvey.services.NetworkSurveyService;
 
-import java.io.IOException;
 import java.util.List;
 
-import timber.log.Timber;
-
 /**
  * Responsible for taking in Bluetooth survey records and logging them to a CSV file.
  */
 public class BluetoothCsvLogger extends CsvRecordLogger implements IBluetoothSurveyRecordListener
 {
-    public BluetoothCsvLogger(NetworkSurveyService networkSurveyService, Looper serviceLooper)
+    public BluetoothCsvLogger(NetworkSurveyService networkSurveyService)
     {
-        super(networkSurveyService, serviceLooper, NetworkSurveyConstants.CSV_LOG_DIRECTORY_NAME,
+        super(networkSurveyService, NetworkSurveyConstants.CSV_LOG_DIRECTORY_NAME,
                 NetworkSurveyConstants.BLUETOOTH_FILE_NAME_PREFIX, true);
     }
 
@@ -61,62 +56,37 @@ public class BluetoothCsvLogger extends CsvRecordLogger implements IBluetoothSur
     @Override
     public synchronized void onBluetoothSurveyRecord(BluetoothRecord bluetoothRecord)
     {
-        try
-        {
-            writeCsvRecord(convertToObjectArray(bluetoothRecord), false);
-        } catch (IOException e)
-        {
-            Timber.e(e, "Could not log the Bluetooth record to the CSV file");
-        }
+        writeCsvRecord(bluetoothRecord, BluetoothCsvLogger::encodeRow);
     }
 
     @Override
     public synchronized void onBluetoothSurveyRecords(List<BluetoothRecord> bluetoothRecords)
     {
-        bluetoothRecords.forEach(record -> {
-            try
-            {
-                writeCsvRecord(convertToObjectArray(record), false);
-            } catch (IOException e)
-            {
-                Timber.e(e, "Could not log the Bluetooth record to the CSV file");
-            }
-        });
-
-        try
-        {
-            printer.flush();
-        } catch (IOException e)
-        {
-            Timber.e(e, "Could not flush the Bluetooth records to the CSV file");
-        }
+        writeCsvRecords(bluetoothRecords, BluetoothCsvLogger::encodeRow);
     }
 
     /**
-     * @return A String array that contains the LTE record values that can be written out as a CSV
-     * row.
+     * Adds the LTE record values to the encoder as a CSV row.
      */
-    private String[] convertToObjectArray(BluetoothRecord record)
+    private static void encodeRow(BluetoothRecord record, CsvRowEncoder encoder)
     {
         BluetoothRecordData data = record.getData();
 
-        return new String[]{
-                data.getDeviceTime(),
-                String.valueOf(data.getLatitude()),
-                String.valueOf(data.getLongitude()),
-                String.valueOf(data.getAltitude()),
-                String.valueOf(data.getSpeed()),
-                String.valueOf(data.getAccuracy()),
-                data.getMissionId(),
-                String.valueOf(data.getRecordNumber()),
-                data.getSourceAddress(),
-                data.getDestinationAddress(),
-                data.hasSignalStrength() ? String.valueOf(data.getSignalStrength().getValue()) : "",
-                data.hasTxPower() ? String.valueOf(data.getTxPower().getValue()) : "",
-                data.getTechnology() == Technology.UNRECOGNIZED ? "" : data.getTechnology().name(),
-                data.getSupportedTechnologies() == SupportedTechnologies.UNRECOGNIZED ? "" : data.getSupportedTechnologies().name(),
-                data.getOtaDeviceName(),
-                data.hasChannel() ? String.valueOf(data.getChannel().getValue()) : ""
-        };
+        encoder.add(data.getDeviceTime())
+                .add(data.getLatitude())
+                .add(data.getLongitude())
+                .add(data.getAltitude())
+                .add(data.getSpeed())
+                .add(data.getAccuracy())
+                .add(data.getMissionId())
+                .add(data.getRecordNumber())
+                .add(data.getSourceAddress())
+                .add(data.getDestinationAddress())
+                .addIf(data.hasSignalStrength(), data.getSignalStrength().getValue())
+                .addIf(data.hasTxPower(), data.getTxPower().getValue())
+                .add(data.getTechnology() == Technology.UNRECOGNIZED ? "" : data.getTechnology().name())
+                .add(data.getSupportedTechnologies() == SupportedTechnologies.UNRECOGNIZED ? "" : data.getSupportedTechnologies().name())
+                .add(data.getOtaDeviceName())
+                .addIf(data.hasChannel(), data.getChannel().getValue());
     }
 }
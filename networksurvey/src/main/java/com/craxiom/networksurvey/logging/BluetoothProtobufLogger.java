@@ -0,0 +1,37 @@
+package com.craxiom.networksurvey.logging;
+
+import com.craxiom.messaging.BluetoothRecord;
+import com.craxiom.networksurvey.constants.NetworkSurveyConstants;
+import com.craxiom.networksurvey.listeners.IBluetoothSurveyRecordListener;
+import com.craxiom.networksurvey.services.NetworkSurveyService;
+
+import java.util.List;
+
+/**
+ * Responsible for taking in the Bluetooth survey records and logging them to a binary protobuf log
+ * file.
+ *
+ * @since 1.25.0
+ */
+public class BluetoothProtobufLogger extends ProtobufRecordLogger implements IBluetoothSurveyRecordListener
+{
+    static final int RECORD_TYPE_BLUETOOTH = 1;
+
+    public BluetoothProtobufLogger(NetworkSurveyService networkSurveyService)
+    {
+        super(networkSurveyService, NetworkSurveyConstants.PROTOBUF_LOG_DIRECTORY_NAME,
+                NetworkSurveyConstants.BLUETOOTH_FILE_NAME_PREFIX, "bluetooth");
+    }
+
+    @Override
+    public void onBluetoothSurveyRecord(BluetoothRecord bluetoothRecord)
+    {
+        writeRecord(RECORD_TYPE_BLUETOOTH, bluetoothRecord);
+    }
+
+    @Override
+    public void onBluetoothSurveyRecords(List<BluetoothRecord> bluetoothRecords)
+    {
+        writeRecords(RECORD_TYPE_BLUETOOTH, bluetoothRecords);
+    }
+}
@@ -1,7 +1,5 @@
 package com.craxiom.networksurvey.logging;
 
-import android.os.Looper;
-
 import com.craxiom.messaging.BluetoothRecord;
 import com.craxiom.messaging.BluetoothRecordData;
 import com.craxiom.messaging.bluetooth.SupportedTechnologies;
@@ -9,21 +7,21 @@ import com.craxiom.messaging.bluetooth.Technology;
 import com.craxiom.networksurvey.constants.BluetoothMessageConstants;
 import com.craxiom.networksurvey.constants.NetworkSurveyConstants;
 import com.craxiom.networksurvey.listeners.IBluetoothSurveyRecordListener;
+import com.craxiom.networksurvey.model.RecordTimestamp;
 import com.craxiom.networksurvey.services.NetworkSurveyService;
 import com.craxiom.networksurvey.util.IOUtils;
 import com.craxiom.networksurvey.util.MathUtils;
+import com.google.protobuf.InvalidProtocolBufferException;
 
 import java.sql.SQLException;
+import java.util.Collections;
 import java.util.List;
 
 import mil.nga.geopackage.GeoPackage;
+import mil.nga.geopackage.GeoPackageCore;
 import mil.nga.geopackage.db.GeoPackageDataType;
 import mil.nga.geopackage.features.user.FeatureColumn;
-import mil.nga.geopackage.features.user.FeatureDao;
-import mil.nga.geopackage.features.user.FeatureRow;
-import mil.nga.geopackage.geom.GeoPackageGeometryData;
 import mil.nga.geopackage.srs.SpatialReferenceSystem;
-import mil.nga.sf.Point;
 import timber.log.Timber;
 
 /**
@@ -33,35 +31,87 @@ import timber.log.Timber;
  */
 public class BluetoothSurveyRecordLogger extends SurveyRecordLogger implements IBluetoothSurveyRecordListener
 {
+    /**
+     * The record type used to identify the records in the spool.
+     */
+    private static final int SPOOL_TYPE_BLUETOOTH = 1;
+
+    private BluetoothTable bluetoothTable;
+
     /**
      * Constructs a Logger that writes Bluetooth Survey records to a GeoPackage SQLite database.
      *
      * @param networkSurveyService The Service instance that is running this logger.
-     * @param serviceLooper        The Looper associated with the service that can be used to do any background processing.
      */
-    public BluetoothSurveyRecordLogger(NetworkSurveyService networkSurveyService, Looper serviceLooper)
+    public BluetoothSurveyRecordLogger(NetworkSurveyService networkSurveyService)
     {
-        super(networkSurveyService, serviceLooper, NetworkSurveyConstants.LOG_DIRECTORY_NAME, NetworkSurveyConstants.BLUETOOTH_FILE_NAME_PREFIX);
+        super(networkSurveyService, NetworkSurveyConstants.LOG_DIRECTORY_NAME, NetworkSurveyConstants.BLUETOOTH_FILE_NAME_PREFIX);
     }
 
     @Override
     public void onBluetoothSurveyRecord(BluetoothRecord bluetoothRecord)
     {
-        writeBluetoothRecordToLogFile(bluetoothRecord);
+        writeRecord(bluetoothRecord, record -> writeBluetoothRecordToLogFile(record,
+                IOUtils.getEpochFromRfc3339(record.getData().getDeviceTime())));
+    }
+
+    @Override
+    public void onBluetoothSurveyRecord(BluetoothRecord bluetoothRecord, RecordTimestamp timestamp)
+    {
+        writeRecord(bluetoothRecord, timestamp.getEpochMillis(), SPOOL_TYPE_BLUETOOTH, this::writeBluetoothRecordToLogFile);
     }
 
     @Override
     public void onBluetoothSurveyRecords(List<BluetoothRecord> bluetoothRecords)
     {
-        bluetoothRecords.forEach(this::writeBluetoothRecordToLogFile);
+        writeScanGroup(bluetoothRecords, record -> writeBluetoothRecordToLogFile(record,
+                IOUtils.getEpochFromRfc3339(record.getData().getDeviceTime())));
+    }
+
+    @Override
+    public void onBluetoothSurveyRecords(List<BluetoothRecord> bluetoothRecords, RecordTimestamp timestamp)
+    {
+        writeScanGroup(bluetoothRecords, timestamp.getEpochMillis(), SPOOL_TYPE_BLUETOOTH, this::writeBluetoothRecordToLogFile);
     }
 
     @Override
     void createTables(GeoPackage geoPackage, SpatialReferenceSystem srs) throws SQLException
+    {
+        createSchema(geoPackage, srs);
+    }
+
+    /**
+     * Creates the Bluetooth table in the provided GeoPackage. This is static so that the same schema
+     * can be used by tools that don't have a running logger (e.g. the {@link CsvGeoPackageImporter}).
+     *
+     * @param geoPackage The GeoPackage to create the tables in.
+     * @param srs        The SRS to use for the table coordinates.
+     * @throws SQLException If there is a problem working with the GeoPackage SQLite DB.
+     * @since 1.25.0
+     */
+    static void createSchema(GeoPackageCore geoPackage, SpatialReferenceSystem srs) throws SQLException
     {
         createBluetoothRecordTable(geoPackage, srs);
     }
 
+    @Override
+    void prepareInserters(GeoPackage geoPackage)
+    {
+        bluetoothTable = new BluetoothTable(createInserter(BluetoothMessageConstants.BLUETOOTH_RECORDS_TABLE_NAME));
+    }
+
+    @Override
+    void replaySpooledRecord(int recordType, long epochMillis, byte[] payload) throws InvalidProtocolBufferException
+    {
+        if (recordType == SPOOL_TYPE_BLUETOOTH)
+        {
+            writeBluetoothRecordToLogFile(BluetoothRecord.parseFrom(payload), epochMillis);
+        } else
+        {
+            Timber.w("Unknown spooled Bluetooth record type: %d", recordType);
+        }
+    }
+
     /**
      * Creates an GeoPackage Table that can be populated with 802.11 Beacon Records.
      *
@@ -69,9 +119,9 @@ public class BluetoothSurveyRecordLogger extends SurveyRecordLogger implements I
      * @param srs        The SRS to use for the table coordinates.
      * @throws SQLException If there is a problem working with the GeoPackage SQLite DB.
      */
-    private void createBluetoothRecordTable(GeoPackage geoPackage, SpatialReferenceSystem srs) throws SQLException
+    private static void createBluetoothRecordTable(GeoPackageCore geoPackage, SpatialReferenceSystem srs) throws SQLException
     {
-        createTable(BluetoothMessageConstants.BLUETOOTH_RECORDS_TABLE_NAME, geoPackage, srs, false, (tableColumns, columnNumber) -> {
+        createTable(BluetoothMessageConstants.BLUETOOTH_RECORDS_TABLE_NAME, geoPackage, srs, Collections.emptyList(), false, (tableColumns, columnNumber) -> {
             tableColumns.add(FeatureColumn.createColumn(columnNumber++, BluetoothMessageConstants.SOURCE_ADDRESS_COLUMN, GeoPackageDataType.TEXT, false, null));
             tableColumns.add(FeatureColumn.createColumn(columnNumber++, BluetoothMessageConstants.OTA_DEVICE_NAME_COLUMN, GeoPackageDataType.TEXT, false, null));
             tableColumns.add(FeatureColumn.createColumn(columnNumber++, BluetoothMessageConstants.TECHNOLOGY_COLUMN, GeoPackageDataType.TEXT, false, null));
@@ -84,79 +134,108 @@ public class BluetoothSurveyRecordLogger extends SurveyRecordLogger implements I
 
     /**
      * Given a Bluetooth Record, write it to the GeoPackage log file.
+     * <p>
+     * This method is NOT thread safe and it is assumed the caller has already gotten a lock on the
+     * {@link #geoPackageLock} and is running on the {@link #writerQueue} thread.
      *
      * @param bluetoothRecord The Bluetooth Record to write to the log file.
+     * @param epochMillis     The time that the record was captured, in milliseconds since the Unix Epoch.
      */
-    private void writeBluetoothRecordToLogFile(final BluetoothRecord bluetoothRecord)
+    private void writeBluetoothRecordToLogFile(final BluetoothRecord bluetoothRecord, long epochMillis)
     {
-        if (!loggingEnabled) return;
-
-        handler.post(() -> {
-            synchronized (geoPackageLock)
+        try
+        {
+            if (geoPackage != null)
             {
-                try
+                beginBatchIfNeeded();
+
+                final BluetoothTable table = bluetoothTable;
+
+                final BluetoothRecordData data = bluetoothRecord.getData();
+
+                table.inserter.bindPoint(data.getLongitude(), data.getLatitude(), data.getAltitude());
+
+                table.inserter.bindLong(table.time, epochMillis);
+                table.inserter.bindString(table.missionId, data.getMissionId());
+                table.inserter.bindLong(table.recordNumber, data.getRecordNumber());
+                table.inserter.bindLong(table.accuracy, MathUtils.roundAccuracy(data.getAccuracy()));
+
+                final String sourceAddress = data.getSourceAddress();
+                if (!sourceAddress.isEmpty())
                 {
-                    if (geoPackage != null)
-                    {
-                        final BluetoothRecordData data = bluetoothRecord.getData();
-                        FeatureDao featureDao = geoPackage.getFeatureDao(BluetoothMessageConstants.BLUETOOTH_RECORDS_TABLE_NAME);
-                        FeatureRow row = featureDao.newRow();
-
-                        Point fix = new Point(data.getLongitude(), data.getLatitude(), (double) data.getAltitude());
-
-                        GeoPackageGeometryData geomData = new GeoPackageGeometryData(WGS84_SRS);
-                        geomData.setGeometry(fix);
-
-                        row.setGeometry(geomData);
-
-                        row.setValue(BluetoothMessageConstants.TIME_COLUMN, IOUtils.getEpochFromRfc3339(data.getDeviceTime()));
-                        row.setValue(BluetoothMessageConstants.MISSION_ID_COLUMN, data.getMissionId());
-                        row.setValue(BluetoothMessageConstants.RECORD_NUMBER_COLUMN, data.getRecordNumber());
-                        row.setValue(BluetoothMessageConstants.ACCURACY, MathUtils.roundAccuracy(data.getAccuracy()));
-
-                        final String sourceAddress = data.getSourceAddress();
-                        if (!sourceAddress.isEmpty())
-                        {
-                            row.setValue(BluetoothMessageConstants.SOURCE_ADDRESS_COLUMN, sourceAddress);
-                        }
-
-                        if (data.hasSignalStrength())
-                        {
-                            row.setValue(BluetoothMessageConstants.SIGNAL_STRENGTH_COLUMN, data.getSignalStrength().getValue());
-                        }
-
-                        if (data.hasTxPower())
-                        {
-                            row.setValue(BluetoothMessageConstants.TX_POWER_COLUMN, data.getTxPower().getValue());
-                        }
-
-                        final Technology technology = data.getTechnology();
-                        if (technology != Technology.UNKNOWN)
-                        {
-                            row.setValue(BluetoothMessageConstants.TECHNOLOGY_COLUMN, BluetoothMessageConstants.getTechnologyString(technology));
-                        }
-
-                        final SupportedTechnologies supportedTech = data.getSupportedTechnologies();
-                        if (supportedTech != SupportedTechnologies.UNKNOWN)
-                        {
-                            row.setValue(BluetoothMessageConstants.SUPPORTED_TECHNOLOGIES_COLUMN, BluetoothMessageConstants.getSupportedTechString(supportedTech));
-                        }
-
-                        final String otaDeviceName = data.getOtaDeviceName();
-                        if (!otaDeviceName.isEmpty())
-                        {
-                            row.setValue(BluetoothMessageConstants.OTA_DEVICE_NAME_COLUMN, otaDeviceName);
-                        }
-
-                        featureDao.insert(row);
-
-                        checkIfRolloverNeeded();
-                    }
-                } catch (Exception e)
+                    table.inserter.bindString(table.sourceAddress, sourceAddress);
+                }
+
+                if (data.hasSignalStrength())
                 {
-                    Timber.e(e, "Something went wrong when trying to write a Bluetooth survey record");
+                    table.inserter.bindDouble(table.signalStrength, data.getSignalStrength().getValue());
                 }
+
+                if (data.hasTxPower())
+                {
+                    table.inserter.bindDouble(table.txPower, data.getTxPower().getValue());
+                }
+
+                final Technology technology = data.getTechnology();
+                if (technology != Technology.UNKNOWN)
+                {
+                    table.inserter.bindString(table.technology, BluetoothMessageConstants.getTechnologyString(technology));
+                }
+
+                final SupportedTechnologies supportedTech = data.getSupportedTechnologies();
+                if (supportedTech != SupportedTechnologies.UNKNOWN)
+                {
+                    table.inserter.bindString(table.supportedTechnologies, BluetoothMessageConstants.getSupportedTechString(supportedTech));
+                }
+
+                final String otaDeviceName = data.getOtaDeviceName();
+                if (!otaDeviceName.isEmpty())
+                {
+                    table.inserter.bindString(table.otaDeviceName, otaDeviceName);
+                }
+
+                table.inserter.insert();
+
+                onRecordInserted();
             }
-        });
+        } catch (Exception e)
+        {
+            Timber.e(e, "Something went wrong when trying to write a Bluetooth survey record");
+        }
+    }
+
+    /**
+     * The insert statement and column indexes for the Bluetooth table in the current GeoPackage file.
+     *
+     * @since 1.25.0
+     */
+    private static final class BluetoothTable
+    {
+        final FeatureTableInserter inserter;
+        final int time;
+        final int missionId;
+        final int recordNumber;
+        final int accuracy;
+        final int sourceAddress;
+        final int signalStrength;
+        final int txPower;
+        final int technology;
+        final int supportedTechnologies;
+        final int otaDeviceName;
+
+        BluetoothTable(FeatureTableInserter inserter)
+        {
+            this.inserter = inserter;
+            time = inserter.getColumnIndex(BluetoothMessageConstants.TIME_COLUMN);
+            missionId = inserter.getColumnIndex(BluetoothMessageConstants.MISSION_ID_COLUMN);
+            recordNumber = inserter.getColumnIndex(BluetoothMessageConstants.RECORD_NUMBER_COLUMN);
+            accuracy = inserter.getColumnIndex(BluetoothMessageConstants.ACCURACY);
+            sourceAddress = inserter.getColumnIndex(BluetoothMessageConstants.SOURCE_ADDRESS_COLUMN);
+            signalStrength = inserter.getColumnIndex(BluetoothMessageConstants.SIGNAL_STRENGTH_COLUMN);
+            txPower = inserter.getColumnIndex(BluetoothMessageConstants.TX_POWER_COLUMN);
+            technology = inserter.getColumnIndex(BluetoothMessageConstants.TECHNOLOGY_COLUMN);
+            supportedTechnologies = inserter.getColumnIndex(BluetoothMessageConstants.SUPPORTED_TECHNOLOGIES_COLUMN);
+            otaDeviceName = inserter.getColumnIndex(BluetoothMessageConstants.OTA_DEVICE_NAME_COLUMN);
+        }
     }
 }
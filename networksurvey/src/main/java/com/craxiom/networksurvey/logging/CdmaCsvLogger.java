@@ -21,26 +21,20 @@ import static com.craxiom.networksurvey.constants.csv.CdmaCsvConstants.SPEED;
 import static com.craxiom.networksurvey.constants.csv.CdmaCsvConstants.ZONE;
 import static com.craxiom.networksurvey.constants.csv.CellularCsvConstants.SLOT;
 
-import android.os.Looper;
-
 import com.craxiom.messaging.CdmaRecord;
 import com.craxiom.messaging.CdmaRecordData;
 import com.craxiom.networksurvey.constants.NetworkSurveyConstants;
 import com.craxiom.networksurvey.listeners.ICellularSurveyRecordListener;
 import com.craxiom.networksurvey.services.NetworkSurveyService;
 
-import java.io.IOException;
-
-import timber.log.Timber;
-
 /**
  * Responsible for taking in CDMA survey records and logging them to a CSV file.
  */
 public class CdmaCsvLogger extends CsvRecordLogger implements ICellularSurveyRecordListener
 {
-    public CdmaCsvLogger(NetworkSurveyService networkSurveyService, Looper serviceLooper)
+    public CdmaCsvLogger(NetworkSurveyService networkSurveyService)
     {
-        super(networkSurveyService, serviceLooper, NetworkSurveyConstants.CSV_LOG_DIRECTORY_NAME,
+        super(networkSurveyService, NetworkSurveyConstants.CSV_LOG_DIRECTORY_NAME,
                 NetworkSurveyConstants.CDMA_FILE_NAME_PREFIX, true);
     }
 
@@ -61,44 +55,35 @@ public class CdmaCsvLogger extends CsvRecordLogger implements ICellularSurveyRec
     @Override
     public synchronized void onCdmaSurveyRecord(CdmaRecord record)
     {
-        try
-        {
-            writeCsvRecord(convertToObjectArray(record), true);
-        } catch (IOException e)
-        {
-            Timber.e(e, "Could not log the CDMA record to the CSV file");
-        }
+        writeCsvRecord(record, CdmaCsvLogger::encodeRow);
     }
 
     /**
-     * @return A String array that contains the CDMA record values that can be written out as a CSV
-     * row.
+     * Adds the CDMA record values to the encoder as a CSV row.
      */
-    private String[] convertToObjectArray(CdmaRecord record)
+    private static void encodeRow(CdmaRecord record, CsvRowEncoder encoder)
     {
         CdmaRecordData data = record.getData();
 
-        return new String[]{
-                data.getDeviceTime(),
-                String.valueOf(data.getLatitude()),
-                String.valueOf(data.getLongitude()),
-                String.valueOf(data.getAltitude()),
-                String.valueOf(data.getSpeed()),
-                String.valueOf(data.getAccuracy()),
-                data.getMissionId(),
-                String.valueOf(data.getRecordNumber()),
-                String.valueOf(data.getGroupNumber()),
-                data.hasSid() ? String.valueOf(data.getSid().getValue()) : "",
-                data.hasNid() ? String.valueOf(data.getNid().getValue()) : "",
-                data.hasZone() ? String.valueOf(data.getZone().getValue()) : "",
-                data.hasBsid() ? String.valueOf(data.getBsid().getValue()) : "",
-                data.hasChannel() ? String.valueOf(data.getChannel().getValue()) : "",
-                data.hasPnOffset() ? String.valueOf(data.getPnOffset().getValue()) : "",
-                data.hasSignalStrength() ? String.valueOf(data.getSignalStrength().getValue()) : "",
-                data.hasEcio() ? String.valueOf(data.getEcio().getValue()) : "",
-                data.hasServingCell() ? String.valueOf(data.getServingCell().getValue()) : "",
-                data.getProvider(),
-                data.hasSlot() ? String.valueOf(data.getSlot().getValue()) : "",
-        };
+        encoder.add(data.getDeviceTime())
+                .add(data.getLatitude())
+                .add(data.getLongitude())
+                .add(data.getAltitude())
+                .add(data.getSpeed())
+                .add(data.getAccuracy())
+                .add(data.getMissionId())
+                .add(data.getRecordNumber())
+                .add(data.getGroupNumber())
+                .addIf(data.hasSid(), data.getSid().getValue())
+                .addIf(data.hasNid(), data.getNid().getValue())
+                .addIf(data.hasZone(), data.getZone().getValue())
+                .addIf(data.hasBsid(), data.getBsid().getValue())
+                .addIf(data.hasChannel(), data.getChannel().getValue())
+                .addIf(data.hasPnOffset(), data.getPnOffset().getValue())
+                .addIf(data.hasSignalStrength(), data.getSignalStrength().getValue())
+                .addIf(data.hasEcio(), data.getEcio().getValue())
+                .addIf(data.hasServingCell(), data.getServingCell().getValue())
+                .add(data.getProvider())
+                .addIf(data.hasSlot(), data.getSlot().getValue());
     }
 }
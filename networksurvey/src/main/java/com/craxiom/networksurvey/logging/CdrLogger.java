@@ -1,16 +1,11 @@
 package com.craxiom.networksurvey.logging;
 
-import android.os.Looper;
-
 import com.craxiom.networksurvey.constants.NetworkSurveyConstants;
+import com.craxiom.networksurvey.listeners.BackpressurePolicy;
 import com.craxiom.networksurvey.listeners.ICdrEventListener;
 import com.craxiom.networksurvey.model.CdrEvent;
 import com.craxiom.networksurvey.services.NetworkSurveyService;
 
-import java.io.IOException;
-
-import timber.log.Timber;
-
 /**
  * Responsible for taking in CDR Events and logging them to a CSV file.
  *
@@ -18,9 +13,9 @@ import timber.log.Timber;
  */
 public class CdrLogger extends CsvRecordLogger implements ICdrEventListener
 {
-    public CdrLogger(NetworkSurveyService networkSurveyService, Looper serviceLooper)
+    public CdrLogger(NetworkSurveyService networkSurveyService)
     {
-        super(networkSurveyService, serviceLooper, NetworkSurveyConstants.CSV_LOG_DIRECTORY_NAME,
+        super(networkSurveyService, NetworkSurveyConstants.CSV_LOG_DIRECTORY_NAME,
                 NetworkSurveyConstants.CDR_FILE_NAME_PREFIX, false);
     }
 
@@ -36,17 +31,19 @@ public class CdrLogger extends CsvRecordLogger implements ICdrEventListener
         return new String[]{"CSV Version=0.1.0"};
     }
 
+    /**
+     * The CDR events can't be spilled to disk, so the record processing waits on this logger instead.
+     */
+    @Override
+    public BackpressurePolicy getBackpressurePolicy()
+    {
+        return BackpressurePolicy.BLOCK;
+    }
+
     // Needs to be synchronized so we don't write two records at the same time... which I saw happen
     @Override
     public synchronized void onCdrEvent(CdrEvent record)
     {
-        try
-        {
-            printer.printRecord((Object[]) record.getCsvRowArray());
-            printer.flush();
-        } catch (IOException e)
-        {
-            Timber.e(e, "Could not log the CdrEvent to the CSV log file");
-        }
+        writeCsvRecord(record.getCsvRowArray());
     }
 }
@@ -0,0 +1,61 @@
+package com.craxiom.networksurvey.logging;
+
+import com.craxiom.messaging.CdmaRecord;
+import com.craxiom.messaging.GsmRecord;
+import com.craxiom.messaging.LteRecord;
+import com.craxiom.messaging.NrRecord;
+import com.craxiom.messaging.UmtsRecord;
+import com.craxiom.networksurvey.constants.NetworkSurveyConstants;
+import com.craxiom.networksurvey.listeners.ICellularSurveyRecordListener;
+import com.craxiom.networksurvey.services.NetworkSurveyService;
+
+/**
+ * Responsible for taking in the cellular survey records and logging them to a binary protobuf log
+ * file. All the cellular technologies are written to the same file.
+ *
+ * @since 1.25.0
+ */
+public class CellularProtobufLogger extends ProtobufRecordLogger implements ICellularSurveyRecordListener
+{
+    static final int RECORD_TYPE_GSM = 1;
+    static final int RECORD_TYPE_CDMA = 2;
+    static final int RECORD_TYPE_UMTS = 3;
+    static final int RECORD_TYPE_LTE = 4;
+    static final int RECORD_TYPE_NR = 5;
+
+    public CellularProtobufLogger(NetworkSurveyService networkSurveyService)
+    {
+        super(networkSurveyService, NetworkSurveyConstants.PROTOBUF_LOG_DIRECTORY_NAME,
+                NetworkSurveyConstants.CELLULAR_FILE_NAME_PREFIX, "cellular");
+    }
+
+    @Override
+    public void onGsmSurveyRecord(GsmRecord gsmRecord)
+    {
+        writeRecord(RECORD_TYPE_GSM, gsmRecord);
+    }
+
+    @Override
+    public void onCdmaSurveyRecord(CdmaRecord cdmaRecord)
+    {
+        writeRecord(RECORD_TYPE_CDMA, cdmaRecord);
+    }
+
+    @Override
+    public void onUmtsSurveyRecord(UmtsRecord umtsRecord)
+    {
+        writeRecord(RECORD_TYPE_UMTS, umtsRecord);
+    }
+
+    @Override
+    public void onLteSurveyRecord(LteRecord lteRecord)
+    {
+        writeRecord(RECORD_TYPE_LTE, lteRecord);
+    }
+
+    @Override
+    public void onNrSurveyRecord(NrRecord nrRecord)
+    {
+        writeRecord(RECORD_TYPE_NR, nrRecord);
+    }
+}
@@ -1,7 +1,5 @@
 package com.craxiom.networksurvey.logging;
 
-import android.os.Looper;
-
 import com.craxiom.messaging.CdmaRecord;
 import com.craxiom.messaging.CdmaRecordData;
 import com.craxiom.messaging.GsmRecord;
@@ -13,6 +11,7 @@ import com.craxiom.messaging.NrRecordData;
 import com.craxiom.messaging.UmtsRecord;
 import com.craxiom.messaging.UmtsRecordData;
 import com.craxiom.networksurvey.constants.CdmaMessageConstants;
+import com.craxiom.networksurvey.constants.CellularMessageConstants;
 import com.craxiom.networksurvey.constants.GsmMessageConstants;
 import com.craxiom.networksurvey.constants.LteMessageConstants;
 import com.craxiom.networksurvey.constants.MessageConstants;
@@ -22,16 +21,21 @@ import com.craxiom.networksurvey.constants.UmtsMessageConstants;
 import com.craxiom.networksurvey.constants.csv.CellularCsvConstants;
 import com.craxiom.networksurvey.constants.csv.LteCsvConstants;
 import com.craxiom.networksurvey.listeners.ICellularSurveyRecordListener;
+import com.craxiom.networksurvey.model.CellularRecordWrapper;
+import com.craxiom.networksurvey.model.RecordTimestamp;
 import com.craxiom.networksurvey.services.NetworkSurveyService;
-import com.craxiom.networksurvey.util.IOUtils;
 import com.craxiom.networksurvey.util.MathUtils;
 import com.google.common.base.Strings;
+import com.google.protobuf.InvalidProtocolBufferException;
 
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 
 import mil.nga.geopackage.GeoPackage;
+import mil.nga.geopackage.GeoPackageCore;
 import mil.nga.geopackage.contents.Contents;
 import mil.nga.geopackage.contents.ContentsDao;
 import mil.nga.geopackage.contents.ContentsDataType;
@@ -39,13 +43,9 @@ import mil.nga.geopackage.db.GeoPackageDataType;
 import mil.nga.geopackage.features.columns.GeometryColumns;
 import mil.nga.geopackage.features.columns.GeometryColumnsDao;
 import mil.nga.geopackage.features.user.FeatureColumn;
-import mil.nga.geopackage.features.user.FeatureDao;
-import mil.nga.geopackage.features.user.FeatureRow;
 import mil.nga.geopackage.features.user.FeatureTable;
-import mil.nga.geopackage.geom.GeoPackageGeometryData;
 import mil.nga.geopackage.srs.SpatialReferenceSystem;
 import mil.nga.sf.GeometryType;
-import mil.nga.sf.Point;
 import timber.log.Timber;
 
 /**
@@ -55,49 +55,93 @@ import timber.log.Timber;
  */
 public class CellularSurveyRecordLogger extends SurveyRecordLogger implements ICellularSurveyRecordListener
 {
+    /**
+     * The columns that repeat the same few values on most rows, which are dictionary encoded when the
+     * compact schema is enabled. The NR table uses different column names than the other tables.
+     */
+    static final List<String> DICTIONARY_COLUMNS = Collections.unmodifiableList(Arrays.asList(
+            MessageConstants.MISSION_ID_COLUMN,
+            CellularMessageConstants.PROVIDER_COLUMN,
+            LteMessageConstants.BANDWIDTH_COLUMN,
+            NrMessageConstants.MISSION_ID_COLUMN,
+            NrMessageConstants.PROVIDER_COLUMN));
+
+    // The record types used to identify each record in the spool
+    private static final int SPOOL_TYPE_GSM = 1;
+    private static final int SPOOL_TYPE_CDMA = 2;
+    private static final int SPOOL_TYPE_UMTS = 3;
+    private static final int SPOOL_TYPE_LTE = 4;
+    private static final int SPOOL_TYPE_NR = 5;
+
+    private GsmTable gsmTable;
+    private CdmaTable cdmaTable;
+    private UmtsTable umtsTable;
+    private LteTable lteTable;
+    private NrTable nrTable;
+
     /**
      * Constructs a Logger that writes Cellular Survey records to a GeoPackage SQLite database.
      *
      * @param networkSurveyService The Service instance that is running this logger.
-     * @param serviceLooper        The Looper associated with the service that can be used to do any background processing.
      */
-    public CellularSurveyRecordLogger(NetworkSurveyService networkSurveyService, Looper serviceLooper)
+    public CellularSurveyRecordLogger(NetworkSurveyService networkSurveyService)
+    {
+        super(networkSurveyService, NetworkSurveyConstants.LOG_DIRECTORY_NAME, NetworkSurveyConstants.CELLULAR_FILE_NAME_PREFIX);
+    }
+
+    @Override
+    public void onGsmSurveyRecord(GsmRecord gsmRecord, RecordTimestamp timestamp)
     {
-        super(networkSurveyService, serviceLooper, NetworkSurveyConstants.LOG_DIRECTORY_NAME, NetworkSurveyConstants.CELLULAR_FILE_NAME_PREFIX);
+        writeRecord(gsmRecord, timestamp.getEpochMillis(), SPOOL_TYPE_GSM, this::writeGsmRecordToLogFile);
     }
 
     @Override
-    public void onGsmSurveyRecord(GsmRecord gsmRecord)
+    public void onCdmaSurveyRecord(CdmaRecord cdmaRecord, RecordTimestamp timestamp)
     {
-        writeGsmRecordToLogFile(gsmRecord);
+        writeRecord(cdmaRecord, timestamp.getEpochMillis(), SPOOL_TYPE_CDMA, this::writeCdmaRecordToLogFile);
     }
 
     @Override
-    public void onCdmaSurveyRecord(CdmaRecord cdmaRecord)
+    public void onUmtsSurveyRecord(UmtsRecord umtsRecord, RecordTimestamp timestamp)
     {
-        writeCdmaRecordToLogFile(cdmaRecord);
+        writeRecord(umtsRecord, timestamp.getEpochMillis(), SPOOL_TYPE_UMTS, this::writeUmtsRecordToLogFile);
     }
 
     @Override
-    public void onUmtsSurveyRecord(UmtsRecord umtsRecord)
+    public void onLteSurveyRecord(LteRecord lteRecord, RecordTimestamp timestamp)
     {
-        writeUmtsRecordToLogFile(umtsRecord);
+        writeRecord(lteRecord, timestamp.getEpochMillis(), SPOOL_TYPE_LTE, this::writeLteRecordToLogFile);
     }
 
     @Override
-    public void onLteSurveyRecord(LteRecord lteRecord)
+    public void onNrSurveyRecord(NrRecord nrRecord, RecordTimestamp timestamp)
     {
-        writeLteRecordToLogFile(lteRecord);
+        writeRecord(nrRecord, timestamp.getEpochMillis(), SPOOL_TYPE_NR, this::writeNrRecordToLogFile);
     }
 
     @Override
-    public void onNrSurveyRecord(NrRecord nrRecord)
+    public void onCellularBatch(List<CellularRecordWrapper> cellularGroup, int subscriptionId)
     {
-        writeNrRecordToLogFile(nrRecord);
+        // All the records from a single scan have been delivered, so commit them as a group
+        commitScanGroup();
     }
 
     @Override
     void createTables(GeoPackage geoPackage, SpatialReferenceSystem srs) throws SQLException
+    {
+        createSchema(geoPackage, srs);
+    }
+
+    /**
+     * Creates all the cellular tables in the provided GeoPackage. This is static so that the same schema
+     * can be used by tools that don't have a running logger (e.g. the {@link CsvGeoPackageImporter}).
+     *
+     * @param geoPackage The GeoPackage to create the tables in.
+     * @param srs        The SRS to use for the table coordinates.
+     * @throws SQLException If there is a problem working with the GeoPackage SQLite DB.
+     * @since 1.25.0
+     */
+    static void createSchema(GeoPackageCore geoPackage, SpatialReferenceSystem srs) throws SQLException
     {
         createGsmRecordTable(geoPackage, srs);
         createCdmaRecordTable(geoPackage, srs);
@@ -106,6 +150,47 @@ public class CellularSurveyRecordLogger extends SurveyRecordLogger implements IC
         createNrRecordTable(geoPackage, srs);
     }
 
+    @Override
+    void prepareInserters(GeoPackage geoPackage)
+    {
+        gsmTable = new GsmTable(createInserter(GsmMessageConstants.GSM_RECORDS_TABLE_NAME));
+        cdmaTable = new CdmaTable(createInserter(CdmaMessageConstants.CDMA_RECORDS_TABLE_NAME));
+        umtsTable = new UmtsTable(createInserter(UmtsMessageConstants.UMTS_RECORDS_TABLE_NAME));
+        lteTable = new LteTable(createInserter(LteMessageConstants.LTE_RECORDS_TABLE_NAME));
+        nrTable = new NrTable(createInserter(NrMessageConstants.NR_RECORDS_TABLE_NAME));
+    }
+
+    @Override
+    void replaySpooledRecord(int recordType, long epochMillis, byte[] payload) throws InvalidProtocolBufferException
+    {
+        switch (recordType)
+        {
+            case SPOOL_TYPE_GSM:
+                writeGsmRecordToLogFile(GsmRecord.parseFrom(payload), epochMillis);
+                break;
+            case SPOOL_TYPE_CDMA:
+                writeCdmaRecordToLogFile(CdmaRecord.parseFrom(payload), epochMillis);
+                break;
+            case SPOOL_TYPE_UMTS:
+                writeUmtsRecordToLogFile(UmtsRecord.parseFrom(payload), epochMillis);
+                break;
+            case SPOOL_TYPE_LTE:
+                writeLteRecordToLogFile(LteRecord.parseFrom(payload), epochMillis);
+                break;
+            case SPOOL_TYPE_NR:
+                writeNrRecordToLogFile(NrRecord.parseFrom(payload), epochMillis);
+                break;
+            default:
+                Timber.w("Unknown spooled cellular record type: %d", recordType);
+        }
+    }
+
+    @Override
+    List<String> getDictionaryColumns()
+    {
+        return DICTIONARY_COLUMNS;
+    }
+
     /**
      * Creates an GeoPackage Table that can be populated with GSM Records.
      *
@@ -113,9 +198,9 @@ public class CellularSurveyRecordLogger extends SurveyRecordLogger implements IC
      * @param srs        The SRS to use for the table coordinates.
      * @throws SQLException If there is a problem working with the GeoPackage SQLite DB.
      */
-    private void createGsmRecordTable(GeoPackage geoPackage, SpatialReferenceSystem srs) throws SQLException
+    private static void createGsmRecordTable(GeoPackageCore geoPackage, SpatialReferenceSystem srs) throws SQLException
     {
-        createTable(GsmMessageConstants.GSM_RECORDS_TABLE_NAME, geoPackage, srs, true, (tableColumns, columnNumber) -> {
+        createTable(GsmMessageConstants.GSM_RECORDS_TABLE_NAME, geoPackage, srs, DICTIONARY_COLUMNS, true, (tableColumns, columnNumber) -> {
             tableColumns.add(FeatureColumn.createColumn(columnNumber++, GsmMessageConstants.MCC_COLUMN, GeoPackageDataType.SMALLINT, false, null));
             tableColumns.add(FeatureColumn.createColumn(columnNumber++, GsmMessageConstants.MNC_COLUMN, GeoPackageDataType.SMALLINT, false, null));
             tableColumns.add(FeatureColumn.createColumn(columnNumber++, GsmMessageConstants.LAC_COLUMN, GeoPackageDataType.MEDIUMINT, false, null));
@@ -135,9 +220,9 @@ public class CellularSurveyRecordLogger extends SurveyRecordLogger implements IC
      * @param srs        The SRS to use for the table coordinates.
      * @throws SQLException If there is a problem working with the GeoPackage SQLite DB.
      */
-    private void createCdmaRecordTable(GeoPackage geoPackage, SpatialReferenceSystem srs) throws SQLException
+    private static void createCdmaRecordTable(GeoPackageCore geoPackage, SpatialReferenceSystem srs) throws SQLException
     {
-        createTable(CdmaMessageConstants.CDMA_RECORDS_TABLE_NAME, geoPackage, srs, true, (tableColumns, columnNumber) -> {
+        createTable(CdmaMessageConstants.CDMA_RECORDS_TABLE_NAME, geoPackage, srs, DICTIONARY_COLUMNS, true, (tableColumns, columnNumber) -> {
             tableColumns.add(FeatureColumn.createColumn(columnNumber++, CdmaMessageConstants.SID_COLUMN, GeoPackageDataType.MEDIUMINT, false, null));
             tableColumns.add(FeatureColumn.createColumn(columnNumber++, CdmaMessageConstants.NID_COLUMN, GeoPackageDataType.MEDIUMINT, false, null));
             tableColumns.add(FeatureColumn.createColumn(columnNumber++, CdmaMessageConstants.BSID_COLUMN, GeoPackageDataType.MEDIUMINT, false, null));
@@ -158,9 +243,9 @@ public class CellularSurveyRecordLogger extends SurveyRecordLogger implements IC
      * @param srs        The SRS to use for the table coordinates.
      * @throws SQLException If there is a problem working with the GeoPackage SQLite DB.
      */
-    private void createUmtsRecordTable(GeoPackage geoPackage, SpatialReferenceSystem srs) throws SQLException
+    private static void createUmtsRecordTable(GeoPackageCore geoPackage, SpatialReferenceSystem srs) throws SQLException
     {
-        createTable(UmtsMessageConstants.UMTS_RECORDS_TABLE_NAME, geoPackage, srs, true, (tableColumns, columnNumber) -> {
+        createTable(UmtsMessageConstants.UMTS_RECORDS_TABLE_NAME, geoPackage, srs, DICTIONARY_COLUMNS, true, (tableColumns, columnNumber) -> {
             tableColumns.add(FeatureColumn.createColumn(columnNumber++, UmtsMessageConstants.MCC_COLUMN, GeoPackageDataType.SMALLINT, false, null));
             tableColumns.add(FeatureColumn.createColumn(columnNumber++, UmtsMessageConstants.MNC_COLUMN, GeoPackageDataType.SMALLINT, false, null));
             tableColumns.add(FeatureColumn.createColumn(columnNumber++, UmtsMessageConstants.LAC_COLUMN, GeoPackageDataType.MEDIUMINT, false, null));
@@ -180,9 +265,9 @@ public class CellularSurveyRecordLogger extends SurveyRecordLogger implements IC
      * @param srs        The SRS to use for the table coordinates.
      * @throws SQLException If there is a problem working with the GeoPackage SQLite DB.
      */
-    private void createLteRecordTable(GeoPackage geoPackage, SpatialReferenceSystem srs) throws SQLException
+    private static void createLteRecordTable(GeoPackageCore geoPackage, SpatialReferenceSystem srs) throws SQLException
     {
-        createTable(LteMessageConstants.LTE_RECORDS_TABLE_NAME, geoPackage, srs, true, (tableColumns, columnNumber) -> {
+        createTable(LteMessageConstants.LTE_RECORDS_TABLE_NAME, geoPackage, srs, DICTIONARY_COLUMNS, true, (tableColumns, columnNumber) -> {
             tableColumns.add(FeatureColumn.createColumn(columnNumber++, LteMessageConstants.MCC_COLUMN, GeoPackageDataType.SMALLINT, false, null));
             tableColumns.add(FeatureColumn.createColumn(columnNumber++, LteMessageConstants.MNC_COLUMN, GeoPackageDataType.SMALLINT, false, null));
             tableColumns.add(FeatureColumn.createColumn(columnNumber++, LteMessageConstants.TAC_COLUMN, GeoPackageDataType.MEDIUMINT, false, null));
@@ -208,7 +293,7 @@ public class CellularSurveyRecordLogger extends SurveyRecordLogger implements IC
      * @throws SQLException If there is a problem working with the GeoPackage SQLite DB.
      * @since 1.5.0
      */
-    private void createNrRecordTable(GeoPackage geoPackage, SpatialReferenceSystem srs) throws SQLException
+    private static void createNrRecordTable(GeoPackageCore geoPackage, SpatialReferenceSystem srs) throws SQLException
     {
         ContentsDao contentsDao = geoPackage.getContentsDao();
 
@@ -256,6 +341,8 @@ public class CellularSurveyRecordLogger extends SurveyRecordLogger implements IC
         //noinspection UnusedAssignment
         tableColumns.add(FeatureColumn.createColumn(columnNumber++, CellularCsvConstants.SLOT, GeoPackageDataType.SMALLINT, false, null));
 
+        encodeDictionaryColumns(geoPackage, tableColumns, DICTIONARY_COLUMNS);
+
         FeatureTable table = new FeatureTable(NrMessageConstants.NR_RECORDS_TABLE_NAME, tableColumns);
         geoPackage.createFeatureTable(table);
 
@@ -271,499 +358,719 @@ public class CellularSurveyRecordLogger extends SurveyRecordLogger implements IC
         geometryColumns.setZ((byte) 0);
         geometryColumns.setM((byte) 0);
         geometryColumnsDao.create(geometryColumns);
+
+        createDictionaryView(NrMessageConstants.NR_RECORDS_TABLE_NAME, geoPackage, srs, tableColumns, DICTIONARY_COLUMNS);
     }
 
     /**
      * Given a GSM Record, write it to the GeoPackage log file.
+     * <p>
+     * This method is NOT thread safe and it is assumed the caller has already gotten a lock on the
+     * {@link #geoPackageLock} and is running on the {@link #writerQueue} thread.
      *
-     * @param gsmRecord The GSM Record to write to the log file.
+     * @param gsmRecord   The GSM Record to write to the log file.
+     * @param epochMillis The time that the record was captured, in milliseconds since the Unix Epoch.
      */
-    private void writeGsmRecordToLogFile(final GsmRecord gsmRecord)
+    private void writeGsmRecordToLogFile(final GsmRecord gsmRecord, long epochMillis)
     {
-        if (!loggingEnabled) return;
-
-        handler.post(() -> {
-            synchronized (geoPackageLock)
+        try
+        {
+            if (geoPackage != null)
             {
-                try
-                {
-                    if (geoPackage != null)
-                    {
-                        FeatureDao featureDao = geoPackage.getFeatureDao(GsmMessageConstants.GSM_RECORDS_TABLE_NAME);
-                        FeatureRow row = featureDao.newRow();
-
-                        final GsmRecordData data = gsmRecord.getData();
-
-                        Point fix = new Point(data.getLongitude(), data.getLatitude(), (double) data.getAltitude());
-
-                        GeoPackageGeometryData geomData = new GeoPackageGeometryData(WGS84_SRS);
-                        geomData.setGeometry(fix);
-
-                        row.setGeometry(geomData);
-
-                        row.setValue(GsmMessageConstants.TIME_COLUMN, IOUtils.getEpochFromRfc3339(data.getDeviceTime()));
-                        row.setValue(GsmMessageConstants.MISSION_ID_COLUMN, data.getMissionId());
-                        row.setValue(GsmMessageConstants.RECORD_NUMBER_COLUMN, data.getRecordNumber());
-                        row.setValue(GsmMessageConstants.GROUP_NUMBER_COLUMN, data.getGroupNumber());
-                        row.setValue(GsmMessageConstants.ACCURACY, MathUtils.roundAccuracy(data.getAccuracy()));
-
-                        if (data.hasServingCell())
-                        {
-                            row.setValue(GsmMessageConstants.SERVING_CELL_COLUMN, data.getServingCell().getValue());
-                        }
-                        final String provider = data.getProvider();
-                        if (!provider.isEmpty())
-                        {
-                            row.setValue(GsmMessageConstants.PROVIDER_COLUMN, provider);
-                        }
-
-                        if (data.hasMcc())
-                        {
-                            setShortValue(row, GsmMessageConstants.MCC_COLUMN, data.getMcc().getValue());
-                        }
-                        if (data.hasMnc())
-                        {
-                            setShortValue(row, GsmMessageConstants.MNC_COLUMN, data.getMnc().getValue());
-                        }
-                        if (data.hasLac())
-                        {
-                            setIntValue(row, GsmMessageConstants.LAC_COLUMN, data.getLac().getValue());
-                        }
-                        if (data.hasCi())
-                        {
-                            setIntValue(row, GsmMessageConstants.CID_COLUMN, data.getCi().getValue());
-                        }
-                        if (data.hasArfcn())
-                        {
-                            setShortValue(row, GsmMessageConstants.ARFCN_COLUMN, data.getArfcn().getValue());
-                        }
-                        if (data.hasBsic())
-                        {
-                            setShortValue(row, GsmMessageConstants.BSIC_COLUMN, data.getBsic().getValue());
-                        }
-                        if (data.hasSignalStrength())
-                        {
-                            row.setValue(GsmMessageConstants.SIGNAL_STRENGTH_COLUMN, data.getSignalStrength().getValue());
-                        }
-                        if (data.hasTa())
-                        {
-                            setShortValue(row, GsmMessageConstants.TA_COLUMN, data.getTa().getValue());
-                        }
-                        if (data.hasSlot())
-                        {
-                            setShortValue(row, CellularCsvConstants.SLOT, data.getSlot().getValue());
-                        }
-
-                        featureDao.insert(row);
-
-                        checkIfRolloverNeeded();
-                    }
-                } catch (Exception e)
-                {
-                    Timber.e(e, "Something went wrong when trying to write a GSM survey record");
+                beginBatchIfNeeded();
+
+                final GsmTable table = gsmTable;
+
+                final GsmRecordData data = gsmRecord.getData();
+
+                table.inserter.bindPoint(data.getLongitude(), data.getLatitude(), data.getAltitude());
+
+                table.inserter.bindLong(table.time, epochMillis);
+                table.inserter.bindString(table.missionId, data.getMissionId());
+                table.inserter.bindLong(table.recordNumber, data.getRecordNumber());
+                table.inserter.bindLong(table.groupNumber, data.getGroupNumber());
+                table.inserter.bindLong(table.accuracy, MathUtils.roundAccuracy(data.getAccuracy()));
+
+                if (data.hasServingCell())
+                {
+                    table.inserter.bindBoolean(table.servingCell, data.getServingCell().getValue());
+                }
+                final String provider = data.getProvider();
+                if (!provider.isEmpty())
+                {
+                    table.inserter.bindString(table.provider, provider);
+                }
+
+                if (data.hasMcc())
+                {
+                    table.inserter.bindLong(table.mcc, data.getMcc().getValue());
+                }
+                if (data.hasMnc())
+                {
+                    table.inserter.bindLong(table.mnc, data.getMnc().getValue());
+                }
+                if (data.hasLac())
+                {
+                    table.inserter.bindLong(table.lac, data.getLac().getValue());
+                }
+                if (data.hasCi())
+                {
+                    table.inserter.bindLong(table.cid, data.getCi().getValue());
+                }
+                if (data.hasArfcn())
+                {
+                    table.inserter.bindLong(table.arfcn, data.getArfcn().getValue());
+                }
+                if (data.hasBsic())
+                {
+                    table.inserter.bindLong(table.bsic, data.getBsic().getValue());
+                }
+                if (data.hasSignalStrength())
+                {
+                    table.inserter.bindDouble(table.signalStrength, data.getSignalStrength().getValue());
+                }
+                if (data.hasTa())
+                {
+                    table.inserter.bindLong(table.ta, data.getTa().getValue());
+                }
+                if (data.hasSlot())
+                {
+                    table.inserter.bindLong(table.slot, data.getSlot().getValue());
                 }
+
+                table.inserter.insert();
+
+                onRecordInserted();
             }
-        });
+        } catch (Exception e)
+        {
+            Timber.e(e, "Something went wrong when trying to write a GSM survey record");
+        }
     }
 
     /**
      * Given a CDMA Record, write it to the GeoPackage log file.
+     * <p>
+     * This method is NOT thread safe and it is assumed the caller has already gotten a lock on the
+     * {@link #geoPackageLock} and is running on the {@link #writerQueue} thread.
      *
-     * @param cdmaRecord The CDMA Record to write to the log file.
+     * @param cdmaRecord  The CDMA Record to write to the log file.
+     * @param epochMillis The time that the record was captured, in milliseconds since the Unix Epoch.
      */
-    private void writeCdmaRecordToLogFile(final CdmaRecord cdmaRecord)
+    private void writeCdmaRecordToLogFile(final CdmaRecord cdmaRecord, long epochMillis)
     {
-        if (!loggingEnabled) return;
-
-        handler.post(() -> {
-            synchronized (geoPackageLock)
+        try
+        {
+            if (geoPackage != null)
             {
-                try
-                {
-                    if (geoPackage != null)
-                    {
-                        FeatureDao featureDao = geoPackage.getFeatureDao(CdmaMessageConstants.CDMA_RECORDS_TABLE_NAME);
-                        FeatureRow row = featureDao.newRow();
-
-                        final CdmaRecordData data = cdmaRecord.getData();
-
-                        Point fix = new Point(data.getLongitude(), data.getLatitude(), (double) data.getAltitude());
-
-                        GeoPackageGeometryData geomData = new GeoPackageGeometryData(WGS84_SRS);
-                        geomData.setGeometry(fix);
-
-                        row.setGeometry(geomData);
-
-                        row.setValue(CdmaMessageConstants.TIME_COLUMN, IOUtils.getEpochFromRfc3339(data.getDeviceTime()));
-                        row.setValue(CdmaMessageConstants.MISSION_ID_COLUMN, data.getMissionId());
-                        row.setValue(CdmaMessageConstants.RECORD_NUMBER_COLUMN, data.getRecordNumber());
-                        row.setValue(CdmaMessageConstants.GROUP_NUMBER_COLUMN, data.getGroupNumber());
-                        row.setValue(CdmaMessageConstants.ACCURACY, MathUtils.roundAccuracy(data.getAccuracy()));
-                        if (data.hasServingCell())
-                        {
-                            row.setValue(CdmaMessageConstants.SERVING_CELL_COLUMN, data.getServingCell().getValue());
-                        }
-                        final String provider = data.getProvider();
-                        if (!provider.isEmpty())
-                        {
-                            row.setValue(CdmaMessageConstants.PROVIDER_COLUMN, provider);
-                        }
-
-                        if (data.hasSid())
-                        {
-                            setIntValue(row, CdmaMessageConstants.SID_COLUMN, data.getSid().getValue());
-                        }
-                        if (data.hasNid())
-                        {
-                            setIntValue(row, CdmaMessageConstants.NID_COLUMN, data.getNid().getValue());
-                        }
-                        if (data.hasBsid())
-                        {
-                            setIntValue(row, CdmaMessageConstants.BSID_COLUMN, data.getBsid().getValue());
-                        }
-                        if (data.hasPnOffset())
-                        {
-                            setShortValue(row, CdmaMessageConstants.PN_OFFSET_COLUMN, data.getPnOffset().getValue());
-                        }
-                        if (data.hasSignalStrength())
-                        {
-                            row.setValue(CdmaMessageConstants.SIGNAL_STRENGTH_COLUMN, data.getSignalStrength().getValue());
-                        }
-                        if (data.hasEcio())
-                        {
-                            row.setValue(CdmaMessageConstants.ECIO_COLUMN, data.getEcio().getValue());
-                        }
-                        if (data.hasSlot())
-                        {
-                            setShortValue(row, CellularCsvConstants.SLOT, data.getSlot().getValue());
-                        }
-
-                        featureDao.insert(row);
-
-                        checkIfRolloverNeeded();
-                    }
-                } catch (Exception e)
-                {
-                    Timber.e(e, "Something went wrong when trying to write a CDMA survey record");
+                beginBatchIfNeeded();
+
+                final CdmaTable table = cdmaTable;
+
+                final CdmaRecordData data = cdmaRecord.getData();
+
+                table.inserter.bindPoint(data.getLongitude(), data.getLatitude(), data.getAltitude());
+
+                table.inserter.bindLong(table.time, epochMillis);
+                table.inserter.bindString(table.missionId, data.getMissionId());
+                table.inserter.bindLong(table.recordNumber, data.getRecordNumber());
+                table.inserter.bindLong(table.groupNumber, data.getGroupNumber());
+                table.inserter.bindLong(table.accuracy, MathUtils.roundAccuracy(data.getAccuracy()));
+                if (data.hasServingCell())
+                {
+                    table.inserter.bindBoolean(table.servingCell, data.getServingCell().getValue());
+                }
+                final String provider = data.getProvider();
+                if (!provider.isEmpty())
+                {
+                    table.inserter.bindString(table.provider, provider);
                 }
+
+                if (data.hasSid())
+                {
+                    table.inserter.bindLong(table.sid, data.getSid().getValue());
+                }
+                if (data.hasNid())
+                {
+                    table.inserter.bindLong(table.nid, data.getNid().getValue());
+                }
+                if (data.hasBsid())
+                {
+                    table.inserter.bindLong(table.bsid, data.getBsid().getValue());
+                }
+                if (data.hasPnOffset())
+                {
+                    table.inserter.bindLong(table.pnOffset, data.getPnOffset().getValue());
+                }
+                if (data.hasSignalStrength())
+                {
+                    table.inserter.bindDouble(table.signalStrength, data.getSignalStrength().getValue());
+                }
+                if (data.hasEcio())
+                {
+                    table.inserter.bindDouble(table.ecio, data.getEcio().getValue());
+                }
+                if (data.hasSlot())
+                {
+                    table.inserter.bindLong(table.slot, data.getSlot().getValue());
+                }
+
+                table.inserter.insert();
+
+                onRecordInserted();
             }
-        });
+        } catch (Exception e)
+        {
+            Timber.e(e, "Something went wrong when trying to write a CDMA survey record");
+        }
     }
 
     /**
      * Given a UMTS Record, write it to the GeoPackage log file.
+     * <p>
+     * This method is NOT thread safe and it is assumed the caller has already gotten a lock on the
+     * {@link #geoPackageLock} and is running on the {@link #writerQueue} thread.
      *
-     * @param umtsRecord The UMTS Record to write to the log file.
+     * @param umtsRecord  The UMTS Record to write to the log file.
+     * @param epochMillis The time that the record was captured, in milliseconds since the Unix Epoch.
      */
-    private void writeUmtsRecordToLogFile(final UmtsRecord umtsRecord)
+    private void writeUmtsRecordToLogFile(final UmtsRecord umtsRecord, long epochMillis)
     {
-        if (!loggingEnabled) return;
-
-        handler.post(() -> {
-            synchronized (geoPackageLock)
+        try
+        {
+            if (geoPackage != null)
             {
-                try
-                {
-                    if (geoPackage != null)
-                    {
-                        FeatureDao featureDao = geoPackage.getFeatureDao(UmtsMessageConstants.UMTS_RECORDS_TABLE_NAME);
-                        FeatureRow row = featureDao.newRow();
-
-                        final UmtsRecordData data = umtsRecord.getData();
-
-                        Point fix = new Point(data.getLongitude(), data.getLatitude(), (double) data.getAltitude());
-
-                        GeoPackageGeometryData geomData = new GeoPackageGeometryData(WGS84_SRS);
-                        geomData.setGeometry(fix);
-
-                        row.setGeometry(geomData);
-
-                        row.setValue(UmtsMessageConstants.TIME_COLUMN, IOUtils.getEpochFromRfc3339(data.getDeviceTime()));
-                        row.setValue(UmtsMessageConstants.MISSION_ID_COLUMN, data.getMissionId());
-                        row.setValue(UmtsMessageConstants.RECORD_NUMBER_COLUMN, data.getRecordNumber());
-                        row.setValue(UmtsMessageConstants.GROUP_NUMBER_COLUMN, data.getGroupNumber());
-                        row.setValue(UmtsMessageConstants.ACCURACY, MathUtils.roundAccuracy(data.getAccuracy()));
-
-                        if (data.hasServingCell())
-                        {
-                            row.setValue(UmtsMessageConstants.SERVING_CELL_COLUMN, data.getServingCell().getValue());
-                        }
-                        final String provider = data.getProvider();
-                        if (!provider.isEmpty())
-                        {
-                            row.setValue(UmtsMessageConstants.PROVIDER_COLUMN, provider);
-                        }
-
-                        if (data.hasMcc())
-                        {
-                            setShortValue(row, UmtsMessageConstants.MCC_COLUMN, data.getMcc().getValue());
-                        }
-                        if (data.hasMnc())
-                        {
-                            setShortValue(row, UmtsMessageConstants.MNC_COLUMN, data.getMnc().getValue());
-                        }
-                        if (data.hasLac())
-                        {
-                            setIntValue(row, UmtsMessageConstants.LAC_COLUMN, data.getLac().getValue());
-                        }
-                        if (data.hasCid())
-                        {
-                            setIntValue(row, UmtsMessageConstants.CELL_ID_COLUMN, data.getCid().getValue());
-                        }
-                        if (data.hasUarfcn())
-                        {
-                            setShortValue(row, UmtsMessageConstants.UARFCN_COLUMN, data.getUarfcn().getValue());
-                        }
-                        if (data.hasPsc())
-                        {
-                            setShortValue(row, UmtsMessageConstants.PSC_COLUMN, data.getPsc().getValue());
-                        }
-                        if (data.hasSignalStrength())
-                        {
-                            row.setValue(UmtsMessageConstants.SIGNAL_STRENGTH_COLUMN, data.getSignalStrength().getValue());
-                        }
-                        if (data.hasRscp())
-                        {
-                            row.setValue(UmtsMessageConstants.RSCP_COLUMN, data.getRscp().getValue());
-                        }
-                        if (data.hasSlot())
-                        {
-                            setShortValue(row, CellularCsvConstants.SLOT, data.getSlot().getValue());
-                        }
-
-                        featureDao.insert(row);
-
-                        checkIfRolloverNeeded();
-                    }
-                } catch (Exception e)
-                {
-                    Timber.e(e, "Something went wrong when trying to write an UMTS survey record");
+                beginBatchIfNeeded();
+
+                final UmtsTable table = umtsTable;
+
+                final UmtsRecordData data = umtsRecord.getData();
+
+                table.inserter.bindPoint(data.getLongitude(), data.getLatitude(), data.getAltitude());
+
+                table.inserter.bindLong(table.time, epochMillis);
+                table.inserter.bindString(table.missionId, data.getMissionId());
+                table.inserter.bindLong(table.recordNumber, data.getRecordNumber());
+                table.inserter.bindLong(table.groupNumber, data.getGroupNumber());
+                table.inserter.bindLong(table.accuracy, MathUtils.roundAccuracy(data.getAccuracy()));
+
+                if (data.hasServingCell())
+                {
+                    table.inserter.bindBoolean(table.servingCell, data.getServingCell().getValue());
                 }
+                final String provider = data.getProvider();
+                if (!provider.isEmpty())
+                {
+                    table.inserter.bindString(table.provider, provider);
+                }
+
+                if (data.hasMcc())
+                {
+                    table.inserter.bindLong(table.mcc, data.getMcc().getValue());
+                }
+                if (data.hasMnc())
+                {
+                    table.inserter.bindLong(table.mnc, data.getMnc().getValue());
+                }
+                if (data.hasLac())
+                {
+                    table.inserter.bindLong(table.lac, data.getLac().getValue());
+                }
+                if (data.hasCid())
+                {
+                    table.inserter.bindLong(table.cellId, data.getCid().getValue());
+                }
+                if (data.hasUarfcn())
+                {
+                    table.inserter.bindLong(table.uarfcn, data.getUarfcn().getValue());
+                }
+                if (data.hasPsc())
+                {
+                    table.inserter.bindLong(table.psc, data.getPsc().getValue());
+                }
+                if (data.hasSignalStrength())
+                {
+                    table.inserter.bindDouble(table.signalStrength, data.getSignalStrength().getValue());
+                }
+                if (data.hasRscp())
+                {
+                    table.inserter.bindDouble(table.rscp, data.getRscp().getValue());
+                }
+                if (data.hasSlot())
+                {
+                    table.inserter.bindLong(table.slot, data.getSlot().getValue());
+                }
+
+                table.inserter.insert();
+
+                onRecordInserted();
             }
-        });
+        } catch (Exception e)
+        {
+            Timber.e(e, "Something went wrong when trying to write an UMTS survey record");
+        }
     }
 
     /**
      * Given an LTE Record, write it to the GeoPackage log file.
+     * <p>
+     * This method is NOT thread safe and it is assumed the caller has already gotten a lock on the
+     * {@link #geoPackageLock} and is running on the {@link #writerQueue} thread.
      *
-     * @param lteRecord The LTE Record to write to the log file.
+     * @param lteRecord   The LTE Record to write to the log file.
+     * @param epochMillis The time that the record was captured, in milliseconds since the Unix Epoch.
      */
-    private void writeLteRecordToLogFile(final LteRecord lteRecord)
+    private void writeLteRecordToLogFile(final LteRecord lteRecord, long epochMillis)
     {
-        if (!loggingEnabled) return;
-
-        handler.post(() -> {
-            synchronized (geoPackageLock)
+        try
+        {
+            if (geoPackage != null)
             {
-                try
-                {
-                    if (geoPackage != null)
-                    {
-                        FeatureDao featureDao = geoPackage.getFeatureDao(LteMessageConstants.LTE_RECORDS_TABLE_NAME);
-                        FeatureRow row = featureDao.newRow();
-
-                        final LteRecordData data = lteRecord.getData();
-
-                        Point fix = new Point(data.getLongitude(), data.getLatitude(), (double) data.getAltitude());
-
-                        GeoPackageGeometryData geomData = new GeoPackageGeometryData(WGS84_SRS);
-                        geomData.setGeometry(fix);
-
-                        row.setGeometry(geomData);
-
-                        row.setValue(LteMessageConstants.TIME_COLUMN, IOUtils.getEpochFromRfc3339(data.getDeviceTime()));
-                        row.setValue(LteMessageConstants.MISSION_ID_COLUMN, data.getMissionId());
-                        row.setValue(LteMessageConstants.RECORD_NUMBER_COLUMN, data.getRecordNumber());
-                        row.setValue(LteMessageConstants.GROUP_NUMBER_COLUMN, data.getGroupNumber());
-                        row.setValue(LteMessageConstants.ACCURACY, MathUtils.roundAccuracy(data.getAccuracy()));
-
-                        if (data.hasMcc())
-                        {
-                            setShortValue(row, LteMessageConstants.MCC_COLUMN, data.getMcc().getValue());
-                        }
-                        if (data.hasMnc())
-                        {
-                            setShortValue(row, LteMessageConstants.MNC_COLUMN, data.getMnc().getValue());
-                        }
-                        if (data.hasTac())
-                        {
-                            setIntValue(row, LteMessageConstants.TAC_COLUMN, data.getTac().getValue());
-                        }
-                        if (data.hasEci())
-                        {
-                            setIntValue(row, LteMessageConstants.CI_COLUMN, data.getEci().getValue());
-                        }
-                        if (data.hasEarfcn())
-                        {
-                            setIntValue(row, LteMessageConstants.EARFCN_COLUMN, data.getEarfcn().getValue());
-                        }
-                        if (data.hasPci())
-                        {
-                            setShortValue(row, LteMessageConstants.PCI_COLUMN, data.getPci().getValue());
-                        }
-                        if (data.hasRsrp())
-                        {
-                            row.setValue(LteMessageConstants.RSRP_COLUMN, data.getRsrp().getValue());
-                        }
-                        if (data.hasRsrq())
-                        {
-                            row.setValue(LteMessageConstants.RSRQ_COLUMN, data.getRsrq().getValue());
-                        }
-                        if (data.hasTa())
-                        {
-                            setShortValue(row, LteMessageConstants.TA_COLUMN, data.getTa().getValue());
-                        }
-                        if (data.hasServingCell())
-                        {
-                            row.setValue(LteMessageConstants.SERVING_CELL_COLUMN, data.getServingCell().getValue());
-                        }
-
-                        final String provider = data.getProvider();
-                        if (!provider.isEmpty())
-                        {
-                            row.setValue(LteMessageConstants.PROVIDER_COLUMN, provider);
-                        }
-
-                        if (data.hasSignalStrength())
-                        {
-                            row.setValue(LteCsvConstants.SIGNAL_STRENGTH, data.getSignalStrength().getValue());
-                        }
-                        if (data.hasCqi())
-                        {
-                            row.setValue(LteCsvConstants.CQI, data.getCqi().getValue());
-                        }
-                        if (data.hasSlot())
-                        {
-                            setShortValue(row, CellularCsvConstants.SLOT, data.getSlot().getValue());
-                        }
-                        if (data.hasSnr())
-                        {
-                            row.setValue(LteCsvConstants.SNR, data.getSnr().getValue());
-                        }
-
-                        setLteBandwidth(row, data.getLteBandwidth());
-
-                        featureDao.insert(row);
-
-                        checkIfRolloverNeeded();
-                    }
-                } catch (Exception e)
-                {
-                    Timber.e(e, "Something went wrong when trying to write an LTE survey record");
+                beginBatchIfNeeded();
+
+                final LteTable table = lteTable;
+
+                final LteRecordData data = lteRecord.getData();
+
+                table.inserter.bindPoint(data.getLongitude(), data.getLatitude(), data.getAltitude());
+
+                table.inserter.bindLong(table.time, epochMillis);
+                table.inserter.bindString(table.missionId, data.getMissionId());
+                table.inserter.bindLong(table.recordNumber, data.getRecordNumber());
+                table.inserter.bindLong(table.groupNumber, data.getGroupNumber());
+                table.inserter.bindLong(table.accuracy, MathUtils.roundAccuracy(data.getAccuracy()));
+
+                if (data.hasMcc())
+                {
+                    table.inserter.bindLong(table.mcc, data.getMcc().getValue());
+                }
+                if (data.hasMnc())
+                {
+                    table.inserter.bindLong(table.mnc, data.getMnc().getValue());
+                }
+                if (data.hasTac())
+                {
+                    table.inserter.bindLong(table.tac, data.getTac().getValue());
+                }
+                if (data.hasEci())
+                {
+                    table.inserter.bindLong(table.ci, data.getEci().getValue());
+                }
+                if (data.hasEarfcn())
+                {
+                    table.inserter.bindLong(table.earfcn, data.getEarfcn().getValue());
+                }
+                if (data.hasPci())
+                {
+                    table.inserter.bindLong(table.pci, data.getPci().getValue());
+                }
+                if (data.hasRsrp())
+                {
+                    table.inserter.bindDouble(table.rsrp, data.getRsrp().getValue());
+                }
+                if (data.hasRsrq())
+                {
+                    table.inserter.bindDouble(table.rsrq, data.getRsrq().getValue());
+                }
+                if (data.hasTa())
+                {
+                    table.inserter.bindLong(table.ta, data.getTa().getValue());
+                }
+                if (data.hasServingCell())
+                {
+                    table.inserter.bindBoolean(table.servingCell, data.getServingCell().getValue());
+                }
+
+                final String provider = data.getProvider();
+                if (!provider.isEmpty())
+                {
+                    table.inserter.bindString(table.provider, provider);
+                }
+
+                if (data.hasSignalStrength())
+                {
+                    table.inserter.bindDouble(table.signalStrength, data.getSignalStrength().getValue());
+                }
+                if (data.hasCqi())
+                {
+                    table.inserter.bindLong(table.cqi, data.getCqi().getValue());
+                }
+                if (data.hasSlot())
+                {
+                    table.inserter.bindLong(table.slot, data.getSlot().getValue());
                 }
+                if (data.hasSnr())
+                {
+                    table.inserter.bindDouble(table.snr, data.getSnr().getValue());
+                }
+
+                final String lteBandwidth = LteMessageConstants.getLteBandwidth(data.getLteBandwidth());
+                if (!lteBandwidth.isEmpty())
+                {
+                    table.inserter.bindString(table.bandwidth, lteBandwidth);
+                }
+
+                table.inserter.insert();
+
+                onRecordInserted();
             }
-        });
+        } catch (Exception e)
+        {
+            Timber.e(e, "Something went wrong when trying to write an LTE survey record");
+        }
     }
 
     /**
      * Given an NR Record, write it to the GeoPackage log file.
+     * <p>
+     * This method is NOT thread safe and it is assumed the caller has already gotten a lock on the
+     * {@link #geoPackageLock} and is running on the {@link #writerQueue} thread.
      *
-     * @param nrRecord The NR Record to write to the log file.
+     * @param nrRecord    The NR Record to write to the log file.
+     * @param epochMillis The time that the record was captured, in milliseconds since the Unix Epoch.
      * @since 1.5.0
      */
-    private void writeNrRecordToLogFile(final NrRecord nrRecord)
+    private void writeNrRecordToLogFile(final NrRecord nrRecord, long epochMillis)
     {
-        if (!loggingEnabled) return;
-
-        handler.post(() -> {
-            synchronized (geoPackageLock)
+        try
+        {
+            if (geoPackage != null)
             {
-                try
-                {
-                    if (geoPackage != null)
-                    {
-                        FeatureDao featureDao = geoPackage.getFeatureDao(NrMessageConstants.NR_RECORDS_TABLE_NAME);
-                        FeatureRow row = featureDao.newRow();
-
-                        final NrRecordData data = nrRecord.getData();
-
-                        Point fix = new Point(data.getLongitude(), data.getLatitude(), (double) data.getAltitude());
-
-                        GeoPackageGeometryData geomData = new GeoPackageGeometryData(WGS84_SRS);
-                        geomData.setGeometry(fix);
-
-                        row.setGeometry(geomData);
-
-                        row.setValue(NrMessageConstants.DEVICE_TIME_COLUMN, IOUtils.getEpochFromRfc3339(data.getDeviceTime()));
-                        row.setValue(NrMessageConstants.MISSION_ID_COLUMN, data.getMissionId());
-                        row.setValue(NrMessageConstants.RECORD_NUMBER_COLUMN, data.getRecordNumber());
-                        row.setValue(NrMessageConstants.GROUP_NUMBER_COLUMN, data.getGroupNumber());
-                        row.setValue(NrMessageConstants.ACCURACY, MathUtils.roundAccuracy(data.getAccuracy()));
-
-                        if (data.hasMcc())
-                        {
-                            setShortValue(row, NrMessageConstants.MCC_COLUMN, data.getMcc().getValue());
-                        }
-                        if (data.hasMnc())
-                        {
-                            setShortValue(row, NrMessageConstants.MNC_COLUMN, data.getMnc().getValue());
-                        }
-                        if (data.hasTac())
-                        {
-                            setIntValue(row, NrMessageConstants.TAC_COLUMN, data.getTac().getValue());
-                        }
-                        if (data.hasNci())
-                        {
-                            row.setValue(NrMessageConstants.NCI_COLUMN, data.getNci().getValue());
-                        }
-                        if (data.hasNarfcn())
-                        {
-                            setIntValue(row, NrMessageConstants.NARFCN_COLUMN, data.getNarfcn().getValue());
-                        }
-                        if (data.hasPci())
-                        {
-                            setShortValue(row, NrMessageConstants.PCI_COLUMN, data.getPci().getValue());
-                        }
-
-                        if (data.hasSsRsrp())
-                        {
-                            row.setValue(NrMessageConstants.SS_RSRP_COLUMN, data.getSsRsrp().getValue());
-                        }
-                        if (data.hasSsRsrq())
-                        {
-                            row.setValue(NrMessageConstants.SS_RSRQ_COLUMN, data.getSsRsrq().getValue());
-                        }
-                        if (data.hasSsSinr())
-                        {
-                            row.setValue(NrMessageConstants.SS_SINR_COLUMN, data.getSsSinr().getValue());
-                        }
-
-                        if (data.hasCsiRsrp())
-                        {
-                            row.setValue(NrMessageConstants.CSI_RSRP_COLUMN, data.getCsiRsrp().getValue());
-                        }
-                        if (data.hasCsiRsrq())
-                        {
-                            row.setValue(NrMessageConstants.CSI_RSRQ_COLUMN, data.getCsiRsrq().getValue());
-                        }
-                        if (data.hasCsiSinr())
-                        {
-                            row.setValue(NrMessageConstants.CSI_SINR_COLUMN, data.getCsiSinr().getValue());
-                        }
-                        if (data.hasServingCell())
-                        {
-                            row.setValue(NrMessageConstants.SERVING_CELL_COLUMN, data.getServingCell().getValue());
-                        }
-
-                        final String provider = data.getProvider();
-                        if (!Strings.isNullOrEmpty(provider))
-                        {
-                            row.setValue(NrMessageConstants.PROVIDER_COLUMN, provider);
-                        }
-                        if (data.hasSlot())
-                        {
-                            setShortValue(row, CellularCsvConstants.SLOT, data.getSlot().getValue());
-                        }
-
-                        featureDao.insert(row);
-
-                        checkIfRolloverNeeded();
-                    }
-                } catch (Exception e)
-                {
-                    Timber.e(e, "Something went wrong when trying to write an NR survey record");
+                beginBatchIfNeeded();
+
+                final NrTable table = nrTable;
+
+                final NrRecordData data = nrRecord.getData();
+
+                table.inserter.bindPoint(data.getLongitude(), data.getLatitude(), data.getAltitude());
+
+                table.inserter.bindLong(table.deviceTime, epochMillis);
+                table.inserter.bindString(table.missionId, data.getMissionId());
+                table.inserter.bindLong(table.recordNumber, data.getRecordNumber());
+                table.inserter.bindLong(table.groupNumber, data.getGroupNumber());
+                table.inserter.bindLong(table.accuracy, MathUtils.roundAccuracy(data.getAccuracy()));
+
+                if (data.hasMcc())
+                {
+                    table.inserter.bindLong(table.mcc, data.getMcc().getValue());
+                }
+                if (data.hasMnc())
+                {
+                    table.inserter.bindLong(table.mnc, data.getMnc().getValue());
+                }
+                if (data.hasTac())
+                {
+                    table.inserter.bindLong(table.tac, data.getTac().getValue());
+                }
+                if (data.hasNci())
+                {
+                    table.inserter.bindLong(table.nci, data.getNci().getValue());
                 }
+                if (data.hasNarfcn())
+                {
+                    table.inserter.bindLong(table.narfcn, data.getNarfcn().getValue());
+                }
+                if (data.hasPci())
+                {
+                    table.inserter.bindLong(table.pci, data.getPci().getValue());
+                }
+
+                if (data.hasSsRsrp())
+                {
+                    table.inserter.bindDouble(table.ssRsrp, data.getSsRsrp().getValue());
+                }
+                if (data.hasSsRsrq())
+                {
+                    table.inserter.bindDouble(table.ssRsrq, data.getSsRsrq().getValue());
+                }
+                if (data.hasSsSinr())
+                {
+                    table.inserter.bindDouble(table.ssSinr, data.getSsSinr().getValue());
+                }
+
+                if (data.hasCsiRsrp())
+                {
+                    table.inserter.bindDouble(table.csiRsrp, data.getCsiRsrp().getValue());
+                }
+                if (data.hasCsiRsrq())
+                {
+                    table.inserter.bindDouble(table.csiRsrq, data.getCsiRsrq().getValue());
+                }
+                if (data.hasCsiSinr())
+                {
+                    table.inserter.bindDouble(table.csiSinr, data.getCsiSinr().getValue());
+                }
+                if (data.hasServingCell())
+                {
+                    table.inserter.bindBoolean(table.servingCell, data.getServingCell().getValue());
+                }
+
+                final String provider = data.getProvider();
+                if (!Strings.isNullOrEmpty(provider))
+                {
+                    table.inserter.bindString(table.provider, provider);
+                }
+                if (data.hasSlot())
+                {
+                    table.inserter.bindLong(table.slot, data.getSlot().getValue());
+                }
+
+                table.inserter.insert();
+
+                onRecordInserted();
             }
-        });
+        } catch (Exception e)
+        {
+            Timber.e(e, "Something went wrong when trying to write an NR survey record");
+        }
+    }
+
+    /**
+     * The insert statement and column indexes for the GSM table in the current GeoPackage file.
+     *
+     * @since 1.25.0
+     */
+    private static final class GsmTable
+    {
+        final FeatureTableInserter inserter;
+        final int time;
+        final int missionId;
+        final int recordNumber;
+        final int groupNumber;
+        final int accuracy;
+        final int servingCell;
+        final int provider;
+        final int signalStrength;
+        final int mcc;
+        final int mnc;
+        final int lac;
+        final int cid;
+        final int arfcn;
+        final int bsic;
+        final int ta;
+        final int slot;
+
+        GsmTable(FeatureTableInserter inserter)
+        {
+            this.inserter = inserter;
+            time = inserter.getColumnIndex(GsmMessageConstants.TIME_COLUMN);
+            missionId = inserter.getColumnIndex(GsmMessageConstants.MISSION_ID_COLUMN);
+            recordNumber = inserter.getColumnIndex(GsmMessageConstants.RECORD_NUMBER_COLUMN);
+            groupNumber = inserter.getColumnIndex(GsmMessageConstants.GROUP_NUMBER_COLUMN);
+            accuracy = inserter.getColumnIndex(GsmMessageConstants.ACCURACY);
+            servingCell = inserter.getColumnIndex(GsmMessageConstants.SERVING_CELL_COLUMN);
+            provider = inserter.getColumnIndex(GsmMessageConstants.PROVIDER_COLUMN);
+            signalStrength = inserter.getColumnIndex(GsmMessageConstants.SIGNAL_STRENGTH_COLUMN);
+            mcc = inserter.getColumnIndex(GsmMessageConstants.MCC_COLUMN);
+            mnc = inserter.getColumnIndex(GsmMessageConstants.MNC_COLUMN);
+            lac = inserter.getColumnIndex(GsmMessageConstants.LAC_COLUMN);
+            cid = inserter.getColumnIndex(GsmMessageConstants.CID_COLUMN);
+            arfcn = inserter.getColumnIndex(GsmMessageConstants.ARFCN_COLUMN);
+            bsic = inserter.getColumnIndex(GsmMessageConstants.BSIC_COLUMN);
+            ta = inserter.getColumnIndex(GsmMessageConstants.TA_COLUMN);
+            slot = inserter.getColumnIndex(CellularCsvConstants.SLOT);
+        }
+    }
+
+    /**
+     * The insert statement and column indexes for the CDMA table in the current GeoPackage file.
+     *
+     * @since 1.25.0
+     */
+    private static final class CdmaTable
+    {
+        final FeatureTableInserter inserter;
+        final int time;
+        final int missionId;
+        final int recordNumber;
+        final int groupNumber;
+        final int accuracy;
+        final int servingCell;
+        final int provider;
+        final int signalStrength;
+        final int ecio;
+        final int sid;
+        final int nid;
+        final int bsid;
+        final int pnOffset;
+        final int slot;
+
+        CdmaTable(FeatureTableInserter inserter)
+        {
+            this.inserter = inserter;
+            time = inserter.getColumnIndex(CdmaMessageConstants.TIME_COLUMN);
+            missionId = inserter.getColumnIndex(CdmaMessageConstants.MISSION_ID_COLUMN);
+            recordNumber = inserter.getColumnIndex(CdmaMessageConstants.RECORD_NUMBER_COLUMN);
+            groupNumber = inserter.getColumnIndex(CdmaMessageConstants.GROUP_NUMBER_COLUMN);
+            accuracy = inserter.getColumnIndex(CdmaMessageConstants.ACCURACY);
+            servingCell = inserter.getColumnIndex(CdmaMessageConstants.SERVING_CELL_COLUMN);
+            provider = inserter.getColumnIndex(CdmaMessageConstants.PROVIDER_COLUMN);
+            signalStrength = inserter.getColumnIndex(CdmaMessageConstants.SIGNAL_STRENGTH_COLUMN);
+            ecio = inserter.getColumnIndex(CdmaMessageConstants.ECIO_COLUMN);
+            sid = inserter.getColumnIndex(CdmaMessageConstants.SID_COLUMN);
+            nid = inserter.getColumnIndex(CdmaMessageConstants.NID_COLUMN);
+            bsid = inserter.getColumnIndex(CdmaMessageConstants.BSID_COLUMN);
+            pnOffset = inserter.getColumnIndex(CdmaMessageConstants.PN_OFFSET_COLUMN);
+            slot = inserter.getColumnIndex(CellularCsvConstants.SLOT);
+        }
+    }
+
+    /**
+     * The insert statement and column indexes for the UMTS table in the current GeoPackage file.
+     *
+     * @since 1.25.0
+     */
+    private static final class UmtsTable
+    {
+        final FeatureTableInserter inserter;
+        final int time;
+        final int missionId;
+        final int recordNumber;
+        final int groupNumber;
+        final int accuracy;
+        final int servingCell;
+        final int provider;
+        final int signalStrength;
+        final int rscp;
+        final int mcc;
+        final int mnc;
+        final int lac;
+        final int cellId;
+        final int uarfcn;
+        final int psc;
+        final int slot;
+
+        UmtsTable(FeatureTableInserter inserter)
+        {
+            this.inserter = inserter;
+            time = inserter.getColumnIndex(UmtsMessageConstants.TIME_COLUMN);
+            missionId = inserter.getColumnIndex(UmtsMessageConstants.MISSION_ID_COLUMN);
+            recordNumber = inserter.getColumnIndex(UmtsMessageConstants.RECORD_NUMBER_COLUMN);
+            groupNumber = inserter.getColumnIndex(UmtsMessageConstants.GROUP_NUMBER_COLUMN);
+            accuracy = inserter.getColumnIndex(UmtsMessageConstants.ACCURACY);
+            servingCell = inserter.getColumnIndex(UmtsMessageConstants.SERVING_CELL_COLUMN);
+            provider = inserter.getColumnIndex(UmtsMessageConstants.PROVIDER_COLUMN);
+            signalStrength = inserter.getColumnIndex(UmtsMessageConstants.SIGNAL_STRENGTH_COLUMN);
+            rscp = inserter.getColumnIndex(UmtsMessageConstants.RSCP_COLUMN);
+            mcc = inserter.getColumnIndex(UmtsMessageConstants.MCC_COLUMN);
+            mnc = inserter.getColumnIndex(UmtsMessageConstants.MNC_COLUMN);
+            lac = inserter.getColumnIndex(UmtsMessageConstants.LAC_COLUMN);
+            cellId = inserter.getColumnIndex(UmtsMessageConstants.CELL_ID_COLUMN);
+            uarfcn = inserter.getColumnIndex(UmtsMessageConstants.UARFCN_COLUMN);
+            psc = inserter.getColumnIndex(UmtsMessageConstants.PSC_COLUMN);
+            slot = inserter.getColumnIndex(CellularCsvConstants.SLOT);
+        }
+    }
+
+    /**
+     * The insert statement and column indexes for the LTE table in the current GeoPackage file.
+     *
+     * @since 1.25.0
+     */
+    private static final class LteTable
+    {
+        final FeatureTableInserter inserter;
+        final int time;
+        final int missionId;
+        final int recordNumber;
+        final int groupNumber;
+        final int accuracy;
+        final int rsrp;
+        final int rsrq;
+        final int servingCell;
+        final int provider;
+        final int signalStrength;
+        final int cqi;
+        final int snr;
+        final int mcc;
+        final int mnc;
+        final int tac;
+        final int ci;
+        final int earfcn;
+        final int pci;
+        final int ta;
+        final int slot;
+        final int bandwidth;
+
+        LteTable(FeatureTableInserter inserter)
+        {
+            this.inserter = inserter;
+            time = inserter.getColumnIndex(LteMessageConstants.TIME_COLUMN);
+            missionId = inserter.getColumnIndex(LteMessageConstants.MISSION_ID_COLUMN);
+            recordNumber = inserter.getColumnIndex(LteMessageConstants.RECORD_NUMBER_COLUMN);
+            groupNumber = inserter.getColumnIndex(LteMessageConstants.GROUP_NUMBER_COLUMN);
+            accuracy = inserter.getColumnIndex(LteMessageConstants.ACCURACY);
+            rsrp = inserter.getColumnIndex(LteMessageConstants.RSRP_COLUMN);
+            rsrq = inserter.getColumnIndex(LteMessageConstants.RSRQ_COLUMN);
+            servingCell = inserter.getColumnIndex(LteMessageConstants.SERVING_CELL_COLUMN);
+            provider = inserter.getColumnIndex(LteMessageConstants.PROVIDER_COLUMN);
+            signalStrength = inserter.getColumnIndex(LteCsvConstants.SIGNAL_STRENGTH);
+            cqi = inserter.getColumnIndex(LteCsvConstants.CQI);
+            snr = inserter.getColumnIndex(LteCsvConstants.SNR);
+            mcc = inserter.getColumnIndex(LteMessageConstants.MCC_COLUMN);
+            mnc = inserter.getColumnIndex(LteMessageConstants.MNC_COLUMN);
+            tac = inserter.getColumnIndex(LteMessageConstants.TAC_COLUMN);
+            ci = inserter.getColumnIndex(LteMessageConstants.CI_COLUMN);
+            earfcn = inserter.getColumnIndex(LteMessageConstants.EARFCN_COLUMN);
+            pci = inserter.getColumnIndex(LteMessageConstants.PCI_COLUMN);
+            ta = inserter.getColumnIndex(LteMessageConstants.TA_COLUMN);
+            slot = inserter.getColumnIndex(CellularCsvConstants.SLOT);
+            bandwidth = inserter.getColumnIndex(LteMessageConstants.BANDWIDTH_COLUMN);
+        }
+    }
+
+    /**
+     * The insert statement and column indexes for the NR table in the current GeoPackage file.
+     *
+     * @since 1.25.0
+     */
+    private static final class NrTable
+    {
+        final FeatureTableInserter inserter;
+        final int deviceTime;
+        final int missionId;
+        final int recordNumber;
+        final int groupNumber;
+        final int accuracy;
+        final int nci;
+        final int ssRsrp;
+        final int ssRsrq;
+        final int ssSinr;
+        final int csiRsrp;
+        final int csiRsrq;
+        final int csiSinr;
+        final int servingCell;
+        final int provider;
+        final int mcc;
+        final int mnc;
+        final int tac;
+        final int narfcn;
+        final int pci;
+        final int slot;
+
+        NrTable(FeatureTableInserter inserter)
+        {
+            this.inserter = inserter;
+            deviceTime = inserter.getColumnIndex(NrMessageConstants.DEVICE_TIME_COLUMN);
+            missionId = inserter.getColumnIndex(NrMessageConstants.MISSION_ID_COLUMN);
+            recordNumber = inserter.getColumnIndex(NrMessageConstants.RECORD_NUMBER_COLUMN);
+            groupNumber = inserter.getColumnIndex(NrMessageConstants.GROUP_NUMBER_COLUMN);
+            accuracy = inserter.getColumnIndex(NrMessageConstants.ACCURACY);
+            nci = inserter.getColumnIndex(NrMessageConstants.NCI_COLUMN);
+            ssRsrp = inserter.getColumnIndex(NrMessageConstants.SS_RSRP_COLUMN);
+            ssRsrq = inserter.getColumnIndex(NrMessageConstants.SS_RSRQ_COLUMN);
+            ssSinr = inserter.getColumnIndex(NrMessageConstants.SS_SINR_COLUMN);
+            csiRsrp = inserter.getColumnIndex(NrMessageConstants.CSI_RSRP_COLUMN);
+            csiRsrq = inserter.getColumnIndex(NrMessageConstants.CSI_RSRQ_COLUMN);
+            csiSinr = inserter.getColumnIndex(NrMessageConstants.CSI_SINR_COLUMN);
+            servingCell = inserter.getColumnIndex(NrMessageConstants.SERVING_CELL_COLUMN);
+            provider = inserter.getColumnIndex(NrMessageConstants.PROVIDER_COLUMN);
+            mcc = inserter.getColumnIndex(NrMessageConstants.MCC_COLUMN);
+            mnc = inserter.getColumnIndex(NrMessageConstants.MNC_COLUMN);
+            tac = inserter.getColumnIndex(NrMessageConstants.TAC_COLUMN);
+            narfcn = inserter.getColumnIndex(NrMessageConstants.NARFCN_COLUMN);
+            pci = inserter.getColumnIndex(NrMessageConstants.PCI_COLUMN);
+            slot = inserter.getColumnIndex(CellularCsvConstants.SLOT);
+        }
     }
 }
@@ -0,0 +1,437 @@
+package com.craxiom.networksurvey.logging;
+
+import com.craxiom.networksurvey.constants.MessageConstants;
+import com.craxiom.networksurvey.constants.NrMessageConstants;
+
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import mil.nga.geopackage.GeoPackageCore;
+import mil.nga.geopackage.db.CoreSQLUtils;
+import mil.nga.geopackage.db.GeoPackageCoreConnection;
+import timber.log.Timber;
+
+/**
+ * Exports closed survey log files to Arrow IPC stream files (see {@link ArrowStreamWriter}) so that
+ * they can be loaded straight into analytics tools such as pandas, Polars, or DuckDB.
+ * <p>
+ * Each survey table in a GeoPackage file, and each survey CSV file, is written to its own
+ * {@link #FILE_EXTENSION} file. The point is split into longitude, latitude, and altitude columns,
+ * the record time is written as a UTC timestamp, and the rest of the columns keep the names that the
+ * GeoPackage loggers use, so a table exported from a GeoPackage file has the same columns as the
+ * same records exported from a CSV file. GeoPackage files that use the compact schema are read
+ * through their views, so the dictionary IDs are exported as the String values they reference.
+ * <p>
+ * Neither the input nor the output is ever held in memory as a whole. CSV rows are converted one at a
+ * time with the same {@link CsvGeoPackageImporter.RowConverter} that the CSV importer uses, GeoPackage
+ * rows are read one page at a time in primary key order, and the rows are written out in record
+ * batches of {@link #DEFAULT_ROW_GROUP_SIZE} rows.
+ * <p>
+ * This class only depends on the GeoPackage core API, so it can be used on the device or from a JVM
+ * tool that opens the GeoPackage with the JVM GeoPackage library. The log files must not be written
+ * to while they are being exported.
+ * <p>
+ * This class is NOT thread safe.
+ *
+ * @since 1.25.0
+ */
+public final class ColumnarExporter
+{
+    /**
+     * The number of rows in each record batch. Large enough that the per batch overhead is small, and
+     * small enough that a batch of the widest table is only a few tens of MB.
+     */
+    public static final int DEFAULT_ROW_GROUP_SIZE = 65_536;
+
+    public static final String FILE_EXTENSION = ".arrows";
+
+    private static final String CSV_FILE_EXTENSION = ".csv";
+    private static final String GZIP_FILE_EXTENSION = ".gz";
+    private static final String GEOPACKAGE_FILE_EXTENSION = ".gpkg";
+    private static final int IO_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The INTEGER columns that hold the record time in milliseconds since the epoch.
+     */
+    private static final Set<String> TIME_COLUMNS = new HashSet<>(Arrays.asList(
+            MessageConstants.TIME_COLUMN, NrMessageConstants.DEVICE_TIME_COLUMN));
+
+    private static final Set<String> DICTIONARY_COLUMNS = new HashSet<>();
+
+    static
+    {
+        DICTIONARY_COLUMNS.addAll(CellularSurveyRecordLogger.DICTIONARY_COLUMNS);
+        DICTIONARY_COLUMNS.addAll(WifiSurveyRecordLogger.DICTIONARY_COLUMNS);
+    }
+
+    private final int rowGroupSize;
+
+    private long rowsExported;
+    private long rowsSkipped;
+
+    public ColumnarExporter()
+    {
+        this(DEFAULT_ROW_GROUP_SIZE);
+    }
+
+    /**
+     * @param rowGroupSize The number of rows in each record batch, which is also the number of rows
+     *                     read from a GeoPackage table at a time.
+     */
+    public ColumnarExporter(int rowGroupSize)
+    {
+        this.rowGroupSize = Math.max(1, rowGroupSize);
+    }
+
+    /**
+     * Exports a survey CSV file to a file with the same name, but with the {@link #FILE_EXTENSION}.
+     *
+     * @param csvFile         The CSV file to export. Files that end with ".gz" are decompressed.
+     * @param outputDirectory The directory to write the exported file to.
+     * @return The exported file.
+     * @throws IOException              If the CSV file could not be read or the output could not be
+     *                                  written.
+     * @throws IllegalArgumentException If the file is not a survey CSV file.
+     */
+    public File exportCsvFile(File csvFile, File outputDirectory) throws IOException
+    {
+        String baseName = csvFile.getName();
+        if (baseName.endsWith(GZIP_FILE_EXTENSION)) baseName = baseName.substring(0, baseName.length() - GZIP_FILE_EXTENSION.length());
+        if (baseName.endsWith(CSV_FILE_EXTENSION)) baseName = baseName.substring(0, baseName.length() - CSV_FILE_EXTENSION.length());
+
+        final File outputFile = new File(outputDirectory, baseName + FILE_EXTENSION);
+        boolean exported = false;
+        InputStream in = new FileInputStream(csvFile);
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(outputFile), IO_BUFFER_SIZE))
+        {
+            if (csvFile.getName().endsWith(GZIP_FILE_EXTENSION)) in = new GZIPInputStream(in, IO_BUFFER_SIZE);
+            try (Reader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), IO_BUFFER_SIZE))
+            {
+                exportCsv(csvFile.getName(), reader, out);
+            }
+            exported = true;
+        } finally
+        {
+            in.close();
+            if (!exported) deletePartialFile(outputFile);
+        }
+
+        return outputFile;
+    }
+
+    /**
+     * Exports the rows from a single survey CSV stream. This is the entry point for callers that don't
+     * read the CSV from a file (e.g. tests and benchmarks).
+     *
+     * @param fileName The name of the CSV file, which is used to identify the type of survey records.
+     * @param reader   The CSV contents. The reader is NOT closed by this method.
+     * @param out      The stream to write the Arrow IPC stream to. It is NOT closed by this method.
+     * @return The number of rows that were exported.
+     * @throws IOException              If the CSV could not be read or the output could not be written.
+     * @throws IllegalArgumentException If the file name is not for a known survey CSV file.
+     */
+    public long exportCsv(String fileName, Reader reader, OutputStream out) throws IOException
+    {
+        final CsvGeoPackageImporter.TableMapping mapping = CsvGeoPackageImporter.findMapping(fileName);
+        if (mapping == null) throw new IllegalArgumentException(fileName + " is not a survey CSV file");
+
+        final ArrowStreamWriter writer = new ArrowStreamWriter(out, createCsvSchema(mapping), rowGroupSize);
+        try (CSVParser parser = CsvGeoPackageImporter.CSV_FORMAT.parse(reader))
+        {
+            final CsvGeoPackageImporter.RowConverter converter = new CsvGeoPackageImporter.RowConverter(mapping, parser.getHeaderMap(), writer);
+            for (CSVRecord record : parser)
+            {
+                if (!converter.parse(record))
+                {
+                    rowsSkipped++;
+                    continue;
+                }
+
+                converter.bind();
+                writer.insert();
+            }
+        } catch (UncheckedIOException e)
+        {
+            // A gzip file that was not closed (e.g. the app was killed) ends without a trailer, in which
+            // case all the rows before that point are still exported
+            if (!(e.getCause() instanceof EOFException)) throw e.getCause();
+            Timber.w("The end of the %s CSV file was truncated", fileName);
+        }
+
+        writer.close();
+        rowsExported += writer.getRowsWritten();
+        return writer.getRowsWritten();
+    }
+
+    /**
+     * Exports each survey table in the GeoPackage to its own file, named after the GeoPackage file and
+     * the table (e.g. {@code craxiom-cellular-20230501-120000-LTE_MESSAGE.arrows}).
+     *
+     * @param geoPackage      The GeoPackage to export.
+     * @param outputDirectory The directory to write the exported files to.
+     * @return The exported files.
+     * @throws IOException If one of the files could not be written.
+     */
+    public List<File> exportGeoPackage(GeoPackageCore geoPackage, File outputDirectory) throws IOException
+    {
+        String baseName = geoPackage.getName();
+        if (baseName.endsWith(GEOPACKAGE_FILE_EXTENSION)) baseName = baseName.substring(0, baseName.length() - GEOPACKAGE_FILE_EXTENSION.length());
+
+        final List<File> outputFiles = new ArrayList<>();
+        for (String tableName : geoPackage.getFeatureTables())
+        {
+            // The compact schema views are exported in place of their tables
+            if (geoPackage.isView(tableName)) continue;
+
+            final File outputFile = new File(outputDirectory, baseName + "-" + tableName + FILE_EXTENSION);
+            boolean exported = false;
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(outputFile), IO_BUFFER_SIZE))
+            {
+                final long rows = exportTable(geoPackage, tableName, out);
+                Timber.i("Exported %d rows from the %s table", rows, tableName);
+                exported = true;
+            } finally
+            {
+                if (!exported) deletePartialFile(outputFile);
+            }
+            outputFiles.add(outputFile);
+        }
+
+        return outputFiles;
+    }
+
+    /**
+     * Exports all the rows of a single survey table.
+     *
+     * @param geoPackage The GeoPackage that contains the table.
+     * @param tableName  The name of the survey table (not the view).
+     * @param out        The stream to write the Arrow IPC stream to. It is NOT closed by this method.
+     * @return The number of rows that were exported.
+     * @throws IOException If the output could not be written.
+     */
+    public long exportTable(GeoPackageCore geoPackage, String tableName, OutputStream out) throws IOException
+    {
+        final GeoPackageCoreConnection connection = geoPackage.getDatabase();
+        final String geometryColumn = connection.querySingleTypedResult(
+                "SELECT column_name FROM gpkg_geometry_columns WHERE table_name = ?", new String[]{tableName});
+
+        final String viewName = tableName + StringDictionary.VIEW_SUFFIX;
+        final boolean compact = StringDictionary.exists(geoPackage) && geoPackage.isView(viewName);
+
+        // The column types come from the table since the view columns don't have a declared type
+        String primaryKey = null;
+        final List<String> selectColumns = new ArrayList<>();
+        final List<ArrowStreamWriter.Column> schema = new ArrayList<>();
+        if (geometryColumn != null)
+        {
+            schema.add(new ArrowStreamWriter.Column(ArrowStreamWriter.LONGITUDE_COLUMN, ArrowStreamWriter.ColumnType.FLOAT64));
+            schema.add(new ArrowStreamWriter.Column(ArrowStreamWriter.LATITUDE_COLUMN, ArrowStreamWriter.ColumnType.FLOAT64));
+            schema.add(new ArrowStreamWriter.Column(ArrowStreamWriter.ALTITUDE_COLUMN, ArrowStreamWriter.ColumnType.FLOAT64));
+        }
+        for (List<Object> column : connection.queryResults("PRAGMA table_info(" + CoreSQLUtils.quoteWrap(tableName) + ")", null))
+        {
+            final String name = (String) column.get(1);
+            final String declaredType = (String) column.get(2);
+            if (((Number) column.get(5)).intValue() != 0)
+            {
+                primaryKey = name;
+                continue;
+            }
+            if (name.equals(geometryColumn)) continue;
+
+            // Some tables (e.g. NR) also store the location in their own columns, which would be duplicates
+            if (geometryColumn != null && (name.equals(ArrowStreamWriter.LONGITUDE_COLUMN)
+                    || name.equals(ArrowStreamWriter.LATITUDE_COLUMN) || name.equals(ArrowStreamWriter.ALTITUDE_COLUMN)))
+            {
+                continue;
+            }
+
+            final ArrowStreamWriter.ColumnType type = getColumnType(name, declaredType, compact);
+            if (type == null)
+            {
+                Timber.w("Skipping the %s column of the %s table because it has an unsupported type of %s", name, tableName, declaredType);
+                continue;
+            }
+
+            selectColumns.add(name);
+            schema.add(new ArrowStreamWriter.Column(name, type));
+        }
+
+        if (primaryKey == null) throw new IllegalArgumentException("The " + tableName + " table does not have a primary key");
+
+        final StringBuilder select = new StringBuilder("SELECT ").append(CoreSQLUtils.quoteWrap(primaryKey));
+        if (geometryColumn != null) select.append(", ").append(CoreSQLUtils.quoteWrap(geometryColumn));
+        for (String name : selectColumns)
+        {
+            select.append(", ").append(CoreSQLUtils.quoteWrap(name));
+        }
+        select.append(" FROM ").append(CoreSQLUtils.quoteWrap(compact ? viewName : tableName))
+                .append(" WHERE ").append(CoreSQLUtils.quoteWrap(primaryKey)).append(" > ");
+        final String pageOrder = " ORDER BY " + CoreSQLUtils.quoteWrap(primaryKey) + " LIMIT " + rowGroupSize;
+
+        final ArrowStreamWriter writer = new ArrowStreamWriter(out, schema, rowGroupSize);
+        final int firstValueIndex = geometryColumn == null ? 1 : 2;
+        final int[] bindIndexes = new int[selectColumns.size()];
+        for (int i = 0; i < bindIndexes.length; i++)
+        {
+            bindIndexes[i] = writer.getColumnIndex(selectColumns.get(i));
+        }
+
+        final double[] point = new double[3];
+        long lastId = Long.MIN_VALUE;
+        while (true)
+        {
+            // Keyset paging so that each page is an index seek instead of skipping over all the rows before it
+            final List<List<Object>> page = connection.queryResults(select.toString() + lastId + pageOrder, null);
+            for (List<Object> row : page)
+            {
+                lastId = ((Number) row.get(0)).longValue();
+                if (geometryColumn != null && row.get(1) instanceof byte[] && WkbPointEncoder.decode((byte[]) row.get(1), point))
+                {
+                    writer.bindPoint(point[0], point[1], point[2]);
+                }
+
+                for (int i = 0; i < bindIndexes.length; i++)
+                {
+                    bindValue(writer, bindIndexes[i], schema.get(bindIndexes[i]).type, row.get(firstValueIndex + i));
+                }
+                writer.insert();
+            }
+
+            if (page.size() < rowGroupSize) break;
+        }
+
+        writer.close();
+        rowsExported += writer.getRowsWritten();
+        return writer.getRowsWritten();
+    }
+
+    /**
+     * @return The total number of rows that have been exported by this exporter.
+     */
+    public long getRowsExported()
+    {
+        return rowsExported;
+    }
+
+    /**
+     * @return The total number of CSV rows that were skipped because they could not be parsed (e.g. a
+     * row that was only partially written when the app was killed).
+     */
+    public long getRowsSkipped()
+    {
+        return rowsSkipped;
+    }
+
+    /**
+     * Creates the schema for a CSV file, which has the same columns as its GeoPackage table.
+     */
+    static List<ArrowStreamWriter.Column> createCsvSchema(CsvGeoPackageImporter.TableMapping mapping)
+    {
+        final List<ArrowStreamWriter.Column> schema = new ArrayList<>();
+        schema.add(new ArrowStreamWriter.Column(ArrowStreamWriter.LONGITUDE_COLUMN, ArrowStreamWriter.ColumnType.FLOAT64));
+        schema.add(new ArrowStreamWriter.Column(ArrowStreamWriter.LATITUDE_COLUMN, ArrowStreamWriter.ColumnType.FLOAT64));
+        schema.add(new ArrowStreamWriter.Column(ArrowStreamWriter.ALTITUDE_COLUMN, ArrowStreamWriter.ColumnType.FLOAT64));
+        schema.add(new ArrowStreamWriter.Column(mapping.timeColumn, ArrowStreamWriter.ColumnType.TIMESTAMP));
+
+        for (CsvGeoPackageImporter.ColumnMapping column : mapping.columns)
+        {
+            final ArrowStreamWriter.ColumnType type;
+            switch (column.type)
+            {
+                case REAL:
+                    type = ArrowStreamWriter.ColumnType.FLOAT64;
+                    break;
+                case BOOLEAN:
+                    type = ArrowStreamWriter.ColumnType.BOOL;
+                    break;
+                case TEXT:
+                    type = ArrowStreamWriter.ColumnType.STRING;
+                    break;
+                default:
+                    type = ArrowStreamWriter.ColumnType.INT64;
+                    break;
+            }
+            schema.add(new ArrowStreamWriter.Column(column.tableColumn, type));
+        }
+
+        return schema;
+    }
+
+    /**
+     * @return The Arrow type for a table column, or null if the column can't be exported.
+     */
+    private static ArrowStreamWriter.ColumnType getColumnType(String name, String declaredType, boolean compact)
+    {
+        final String type = declaredType == null ? "" : declaredType.toUpperCase(Locale.ROOT);
+        if (compact && DICTIONARY_COLUMNS.contains(name) && type.equals("INTEGER"))
+        {
+            return ArrowStreamWriter.ColumnType.STRING;
+        }
+        if (TIME_COLUMNS.contains(name) && type.contains("INT")) return ArrowStreamWriter.ColumnType.TIMESTAMP;
+
+        switch (type)
+        {
+            case "BOOLEAN":
+                return ArrowStreamWriter.ColumnType.BOOL;
+            case "DOUBLE":
+            case "FLOAT":
+            case "REAL":
+                return ArrowStreamWriter.ColumnType.FLOAT64;
+            case "TEXT":
+            case "DATE":
+            case "DATETIME":
+                return ArrowStreamWriter.ColumnType.STRING;
+            default:
+                return type.contains("INT") ? ArrowStreamWriter.ColumnType.INT64 : null;
+        }
+    }
+
+    private static void bindValue(ArrowStreamWriter writer, int index, ArrowStreamWriter.ColumnType type, Object value)
+    {
+        if (value == null) return;
+
+        switch (type)
+        {
+            case INT64:
+            case TIMESTAMP:
+                if (value instanceof Number) writer.bindLong(index, ((Number) value).longValue());
+                break;
+            case FLOAT64:
+                if (value instanceof Number) writer.bindDouble(index, ((Number) value).doubleValue());
+                break;
+            case BOOL:
+                if (value instanceof Number) writer.bindBoolean(index, ((Number) value).longValue() != 0);
+                break;
+            case STRING:
+                writer.bindString(index, value.toString());
+                break;
+        }
+    }
+
+    private static void deletePartialFile(File file)
+    {
+        if (file.exists() && !file.delete()) Timber.w("Could not delete the partially exported file %s", file);
+    }
+}
@@ -0,0 +1,51 @@
+package com.craxiom.networksurvey.logging;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * An output stream that keeps track of how many bytes have been written through it.
+ * <p>
+ * This is placed directly in front of the file stream so that the CSV loggers know the size of the
+ * file (after compression) without having to check the size of the file on disk.
+ * <p>
+ * This class is NOT thread safe.
+ *
+ * @since 1.25.0
+ */
+final class CountingOutputStream extends FilterOutputStream
+{
+    private long byteCount;
+
+    /**
+     * @param out The stream to write the bytes to.
+     */
+    CountingOutputStream(OutputStream out)
+    {
+        super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException
+    {
+        out.write(b);
+        byteCount++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException
+    {
+        // Overridden because the FilterOutputStream implementation writes one byte at a time
+        out.write(b, off, len);
+        byteCount += len;
+    }
+
+    /**
+     * @return The number of bytes that have been written to the underlying stream.
+     */
+    long getByteCount()
+    {
+        return byteCount;
+    }
+}
@@ -0,0 +1,803 @@
+package com.craxiom.networksurvey.logging;
+
+import com.craxiom.messaging.LteBandwidth;
+import com.craxiom.messaging.bluetooth.SupportedTechnologies;
+import com.craxiom.messaging.bluetooth.Technology;
+import com.craxiom.messaging.gnss.Constellation;
+import com.craxiom.messaging.wifi.CipherSuite;
+import com.craxiom.messaging.wifi.EncryptionType;
+import com.craxiom.networksurvey.constants.BluetoothMessageConstants;
+import com.craxiom.networksurvey.constants.CdmaMessageConstants;
+import com.craxiom.networksurvey.constants.CellularMessageConstants;
+import com.craxiom.networksurvey.constants.GnssMessageConstants;
+import com.craxiom.networksurvey.constants.GsmMessageConstants;
+import com.craxiom.networksurvey.constants.LteMessageConstants;
+import com.craxiom.networksurvey.constants.MessageConstants;
+import com.craxiom.networksurvey.constants.NetworkSurveyConstants;
+import com.craxiom.networksurvey.constants.NrMessageConstants;
+import com.craxiom.networksurvey.constants.UmtsMessageConstants;
+import com.craxiom.networksurvey.constants.WifiBeaconMessageConstants;
+import com.craxiom.networksurvey.constants.csv.BluetoothCsvConstants;
+import com.craxiom.networksurvey.constants.csv.CdmaCsvConstants;
+import com.craxiom.networksurvey.constants.csv.CellularCsvConstants;
+import com.craxiom.networksurvey.constants.csv.GnssCsvConstants;
+import com.craxiom.networksurvey.constants.csv.GsmCsvConstants;
+import com.craxiom.networksurvey.constants.csv.LteCsvConstants;
+import com.craxiom.networksurvey.constants.csv.NrCsvConstants;
+import com.craxiom.networksurvey.constants.csv.UmtsCsvConstants;
+import com.craxiom.networksurvey.constants.csv.WifiCsvConstants;
+import com.craxiom.networksurvey.util.MathUtils;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.zip.GZIPInputStream;
+
+import mil.nga.geopackage.GeoPackageCore;
+import mil.nga.geopackage.srs.SpatialReferenceSystem;
+import mil.nga.proj.ProjectionConstants;
+import timber.log.Timber;
+
+/**
+ * Streams the CSV files written by the {@link CsvRecordLogger}s into a single GeoPackage file.
+ * <p>
+ * CSV logging is much cheaper on the device than GeoPackage logging, so this allows surveys to be
+ * logged as CSV and then converted afterwards. The tables are created with the same schema that the
+ * GeoPackage loggers use (e.g. {@link CellularSurveyRecordLogger#createSchema}), and each CSV column
+ * is converted the same way that the matching GeoPackage logger converts the record field, so an
+ * imported file looks the same as one that was logged directly. CSV columns that the GeoPackage
+ * loggers don't write are ignored.
+ * <p>
+ * The type of each CSV file is identified by its file name prefix (e.g.
+ * {@link NetworkSurveyConstants#LTE_FILE_NAME_PREFIX}), and both plain and gzip compressed files are
+ * supported. The rows are read one at a time and are inserted with a {@link SurveyRowInserter} for
+ * each table, which are committed in large transactions of {@link #DEFAULT_BATCH_SIZE} rows, so the
+ * memory use stays flat regardless of the size of the input files.
+ * <p>
+ * This class only works with the GeoPackage core API and the inserter factory, and on the device the
+ * inserters come from {@link FeatureTableInserter#factoryFor}. The on-device entry point is
+ * {@link SurveyRecordLogger#importCsvLogFiles}, which the dashboard runs. There is no desktop entry
+ * point yet.
+ * The column mappings use the message constants, which pull in Android classes (e.g.
+ * {@link NetworkSurveyConstants}), so running it on a plain JVM would first need those mappings split
+ * out, along with a {@link SurveyRowInserter} on top of a JDBC SQLite driver. It only supports
+ * GeoPackages that use the standard schema.
+ * <p>
+ * This class is NOT thread safe.
+ *
+ * @since 1.25.0
+ */
+public final class CsvGeoPackageImporter
+{
+    /**
+     * The number of rows inserted in each transaction. Much larger than the batches used for live
+     * logging because there is no concern about losing rows if the app is killed.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 20_000;
+
+    private static final String CSV_FILE_EXTENSION = ".csv";
+    private static final String GZIP_CSV_FILE_EXTENSION = ".csv.gz";
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    static final CSVFormat CSV_FORMAT = CSVFormat.Builder.create(CSVFormat.DEFAULT)
+            .setCommentMarker('#')
+            .setHeader()
+            .setSkipHeaderRecord(true)
+            .build();
+
+    private static final List<TableMapping> TABLE_MAPPINGS = createTableMappings();
+
+    private final GeoPackageCore geoPackage;
+    private final Function<String, SurveyRowInserter> inserterFactory;
+    private final int batchSize;
+    private final Map<String, SurveyRowInserter> inserters = new HashMap<>();
+
+    private SpatialReferenceSystem srs;
+    private int batchRowCount;
+    private long rowsImported;
+    private long rowsSkipped;
+
+    /**
+     * @param geoPackage      The GeoPackage to import the records into. Any of the survey tables that
+     *                        don't exist yet are created.
+     * @param inserterFactory Creates the inserter for a table, given the table name.
+     */
+    public CsvGeoPackageImporter(GeoPackageCore geoPackage, Function<String, SurveyRowInserter> inserterFactory)
+    {
+        this(geoPackage, inserterFactory, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param geoPackage      The GeoPackage to import the records into. Any of the survey tables that
+     *                        don't exist yet are created.
+     * @param inserterFactory Creates the inserter for a table, given the table name.
+     * @param batchSize       The number of rows to insert in each transaction.
+     * @throws IllegalArgumentException If the GeoPackage uses the compact schema.
+     */
+    public CsvGeoPackageImporter(GeoPackageCore geoPackage, Function<String, SurveyRowInserter> inserterFactory, int batchSize)
+    {
+        if (StringDictionary.exists(geoPackage))
+        {
+            throw new IllegalArgumentException("CSV files can only be imported into a GeoPackage that uses the standard schema");
+        }
+
+        this.geoPackage = geoPackage;
+        this.inserterFactory = inserterFactory;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Imports all the survey CSV files in the provided directory, in file name order (which is the
+     * order they were created in). Any files that are not survey CSV files are skipped.
+     *
+     * @param csvDirectory The directory that contains the CSV files (e.g. the
+     *                     {@link NetworkSurveyConstants#CSV_LOG_DIRECTORY_NAME} directory).
+     * @return The number of rows that were imported.
+     * @throws IOException  If one of the files could not be read.
+     * @throws SQLException If there is a problem working with the GeoPackage SQLite DB.
+     */
+    public long importDirectory(File csvDirectory) throws IOException, SQLException
+    {
+        final File[] files = csvDirectory.listFiles((dir, name) -> name.endsWith(CSV_FILE_EXTENSION) || name.endsWith(GZIP_CSV_FILE_EXTENSION));
+        if (files == null) throw new IOException("Could not list the files in " + csvDirectory);
+
+        Arrays.sort(files, (first, second) -> first.getName().compareTo(second.getName()));
+        return importFiles(Arrays.asList(files));
+    }
+
+    /**
+     * Imports the provided CSV files into the GeoPackage, in the order provided. Files that are not
+     * survey CSV files (e.g. the CDR or device status files) are skipped.
+     *
+     * @param csvFiles The CSV files to import. Files that end with ".gz" are decompressed.
+     * @return The number of rows that were imported.
+     * @throws IOException  If one of the files could not be read.
+     * @throws SQLException If there is a problem working with the GeoPackage SQLite DB.
+     */
+    public long importFiles(List<File> csvFiles) throws IOException, SQLException
+    {
+        final long rowsBefore = rowsImported;
+        for (File csvFile : csvFiles)
+        {
+            final TableMapping mapping = findMapping(csvFile.getName());
+            if (mapping == null)
+            {
+                Timber.w("Skipping %s because it is not a survey CSV file", csvFile.getName());
+                continue;
+            }
+
+            InputStream in = new FileInputStream(csvFile);
+            try
+            {
+                if (csvFile.getName().endsWith(".gz")) in = new GZIPInputStream(in, READ_BUFFER_SIZE);
+                try (Reader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), READ_BUFFER_SIZE))
+                {
+                    importCsv(mapping, reader);
+                }
+            } finally
+            {
+                in.close();
+            }
+        }
+
+        commit();
+        return rowsImported - rowsBefore;
+    }
+
+    /**
+     * Imports the rows from a single CSV stream. This is the entry point for callers that don't read
+     * the CSV from a file (e.g. tests and benchmarks). The transaction is left open, so
+     * {@link #commit()} must be called once all the streams have been imported.
+     *
+     * @param fileName The name of the CSV file, which is used to identify the type of survey records.
+     * @param reader   The CSV contents. The reader is NOT closed by this method.
+     * @return The number of rows that were imported.
+     * @throws IOException              If the CSV could not be read.
+     * @throws SQLException             If there is a problem working with the GeoPackage SQLite DB.
+     * @throws IllegalArgumentException If the file name is not for a known survey CSV file.
+     */
+    public long importCsv(String fileName, Reader reader) throws IOException, SQLException
+    {
+        final TableMapping mapping = findMapping(fileName);
+        if (mapping == null) throw new IllegalArgumentException(fileName + " is not a survey CSV file");
+
+        return importCsv(mapping, reader);
+    }
+
+    /**
+     * Commits the rows that are in the open transaction, if there is one.
+     */
+    public void commit()
+    {
+        if (batchRowCount > 0 || geoPackage.inTransaction())
+        {
+            geoPackage.endTransaction(true);
+        }
+        batchRowCount = 0;
+    }
+
+    /**
+     * Commits any remaining rows and releases all the insert statements. This must be called before
+     * the GeoPackage is closed. The GeoPackage itself is not closed.
+     */
+    public void close()
+    {
+        try
+        {
+            commit();
+        } finally
+        {
+            for (SurveyRowInserter inserter : inserters.values())
+            {
+                inserter.close();
+            }
+            inserters.clear();
+        }
+    }
+
+    /**
+     * @return The total number of rows that have been imported by this importer.
+     */
+    public long getRowsImported()
+    {
+        return rowsImported;
+    }
+
+    /**
+     * @return The total number of rows that were skipped because they could not be parsed (e.g. a
+     * row that was only partially written when the app was killed).
+     */
+    public long getRowsSkipped()
+    {
+        return rowsSkipped;
+    }
+
+    /**
+     * @return The mapping for the survey CSV file with the provided name, or null if it is not a
+     * survey CSV file.
+     */
+    static TableMapping findMapping(String fileName)
+    {
+        for (TableMapping mapping : TABLE_MAPPINGS)
+        {
+            if (fileName.startsWith(mapping.fileNamePrefix)) return mapping;
+        }
+
+        return null;
+    }
+
+    private long importCsv(TableMapping mapping, Reader reader) throws IOException, SQLException
+    {
+        final SurveyRowInserter inserter = getInserter(mapping);
+        final long rowsBefore = rowsImported;
+
+        try (CSVParser parser = CSV_FORMAT.parse(reader))
+        {
+            final RowConverter converter = new RowConverter(mapping, parser.getHeaderMap(), inserter);
+            for (CSVRecord record : parser)
+            {
+                if (!converter.parse(record))
+                {
+                    rowsSkipped++;
+                    continue;
+                }
+
+                if (batchRowCount == 0 && !geoPackage.inTransaction()) geoPackage.beginTransaction();
+
+                converter.bind();
+                inserter.insert();
+                rowsImported++;
+
+                if (++batchRowCount >= batchSize) commit();
+            }
+        } catch (UncheckedIOException e)
+        {
+            // A gzip file that was not closed (e.g. the app was killed) ends without a trailer, in which
+            // case all the rows before that point are still imported
+            if (!(e.getCause() instanceof EOFException)) throw e.getCause();
+            Timber.w("The end of the %s CSV file was truncated", mapping.tableName);
+        }
+
+        return rowsImported - rowsBefore;
+    }
+
+    /**
+     * Returns the inserter for the mapping's table, creating the table first if it does not exist.
+     */
+    private SurveyRowInserter getInserter(TableMapping mapping) throws SQLException
+    {
+        SurveyRowInserter inserter = inserters.get(mapping.tableName);
+        if (inserter != null) return inserter;
+
+        if (!geoPackage.isTable(mapping.tableName))
+        {
+            // Tables can't be created inside the import transaction
+            commit();
+
+            if (srs == null)
+            {
+                srs = geoPackage.getSpatialReferenceSystemDao()
+                        .getOrCreateCode(ProjectionConstants.AUTHORITY_EPSG, ProjectionConstants.EPSG_WORLD_GEODETIC_SYSTEM);
+                geoPackage.createGeometryColumnsTable();
+            }
+            mapping.schemaCreator.createSchema(geoPackage, srs);
+        }
+
+        inserter = inserterFactory.apply(mapping.tableName);
+        inserters.put(mapping.tableName, inserter);
+        return inserter;
+    }
+
+    private static List<TableMapping> createTableMappings()
+    {
+        final List<TableMapping> mappings = new ArrayList<>();
+
+        mappings.add(new TableMapping(NetworkSurveyConstants.GSM_FILE_NAME_PREFIX, GsmMessageConstants.GSM_RECORDS_TABLE_NAME,
+                MessageConstants.TIME_COLUMN, CellularSurveyRecordLogger::createSchema)
+                .cellularColumns(MessageConstants.MISSION_ID_COLUMN, MessageConstants.RECORD_NUMBER_COLUMN, MessageConstants.ACCURACY,
+                        CellularMessageConstants.GROUP_NUMBER_COLUMN, CellularMessageConstants.SERVING_CELL_COLUMN, CellularMessageConstants.PROVIDER_COLUMN)
+                .integer(GsmCsvConstants.MCC, GsmMessageConstants.MCC_COLUMN)
+                .integer(GsmCsvConstants.MNC, GsmMessageConstants.MNC_COLUMN)
+                .integer(GsmCsvConstants.LAC, GsmMessageConstants.LAC_COLUMN)
+                .integer(GsmCsvConstants.CI, GsmMessageConstants.CID_COLUMN)
+                .integer(GsmCsvConstants.ARFCN, GsmMessageConstants.ARFCN_COLUMN)
+                .integer(GsmCsvConstants.BSIC, GsmMessageConstants.BSIC_COLUMN)
+                .real(GsmCsvConstants.SIGNAL_STRENGTH, GsmMessageConstants.SIGNAL_STRENGTH_COLUMN)
+                .integer(GsmCsvConstants.TA, GsmMessageConstants.TA_COLUMN));
+
+        mappings.add(new TableMapping(NetworkSurveyConstants.CDMA_FILE_NAME_PREFIX, CdmaMessageConstants.CDMA_RECORDS_TABLE_NAME,
+                MessageConstants.TIME_COLUMN, CellularSurveyRecordLogger::createSchema)
+                .cellularColumns(MessageConstants.MISSION_ID_COLUMN, MessageConstants.RECORD_NUMBER_COLUMN, MessageConstants.ACCURACY,
+                        CellularMessageConstants.GROUP_NUMBER_COLUMN, CellularMessageConstants.SERVING_CELL_COLUMN, CellularMessageConstants.PROVIDER_COLUMN)
+                .integer(CdmaCsvConstants.SID, CdmaMessageConstants.SID_COLUMN)
+                .integer(CdmaCsvConstants.NID, CdmaMessageConstants.NID_COLUMN)
+                .integer(CdmaCsvConstants.BSID, CdmaMessageConstants.BSID_COLUMN)
+                .integer(CdmaCsvConstants.PN_OFFSET, CdmaMessageConstants.PN_OFFSET_COLUMN)
+                .real(CdmaCsvConstants.SIGNAL_STRENGTH, CdmaMessageConstants.SIGNAL_STRENGTH_COLUMN)
+                .real(CdmaCsvConstants.ECIO, CdmaMessageConstants.ECIO_COLUMN));
+
+        mappings.add(new TableMapping(NetworkSurveyConstants.UMTS_FILE_NAME_PREFIX, UmtsMessageConstants.UMTS_RECORDS_TABLE_NAME,
+                MessageConstants.TIME_COLUMN, CellularSurveyRecordLogger::createSchema)
+                .cellularColumns(MessageConstants.MISSION_ID_COLUMN, MessageConstants.RECORD_NUMBER_COLUMN, MessageConstants.ACCURACY,
+                        CellularMessageConstants.GROUP_NUMBER_COLUMN, CellularMessageConstants.SERVING_CELL_COLUMN, CellularMessageConstants.PROVIDER_COLUMN)
+                .integer(UmtsCsvConstants.MCC, UmtsMessageConstants.MCC_COLUMN)
+                .integer(UmtsCsvConstants.MNC, UmtsMessageConstants.MNC_COLUMN)
+                .integer(UmtsCsvConstants.LAC, UmtsMessageConstants.LAC_COLUMN)
+                .integer(UmtsCsvConstants.CID, UmtsMessageConstants.CELL_ID_COLUMN)
+                .integer(UmtsCsvConstants.UARFCN, UmtsMessageConstants.UARFCN_COLUMN)
+                .integer(UmtsCsvConstants.PSC, UmtsMessageConstants.PSC_COLUMN)
+                .real(UmtsCsvConstants.SIGNAL_STRENGTH, UmtsMessageConstants.SIGNAL_STRENGTH_COLUMN)
+                .real(UmtsCsvConstants.RSCP, UmtsMessageConstants.RSCP_COLUMN));
+
+        mappings.add(new TableMapping(NetworkSurveyConstants.LTE_FILE_NAME_PREFIX, LteMessageConstants.LTE_RECORDS_TABLE_NAME,
+                MessageConstants.TIME_COLUMN, CellularSurveyRecordLogger::createSchema)
+                .cellularColumns(MessageConstants.MISSION_ID_COLUMN, MessageConstants.RECORD_NUMBER_COLUMN, MessageConstants.ACCURACY,
+                        CellularMessageConstants.GROUP_NUMBER_COLUMN, CellularMessageConstants.SERVING_CELL_COLUMN, CellularMessageConstants.PROVIDER_COLUMN)
+                .integer(LteCsvConstants.MCC, LteMessageConstants.MCC_COLUMN)
+                .integer(LteCsvConstants.MNC, LteMessageConstants.MNC_COLUMN)
+                .integer(LteCsvConstants.TAC, LteMessageConstants.TAC_COLUMN)
+                .integer(LteCsvConstants.ECI, LteMessageConstants.CI_COLUMN)
+                .integer(LteCsvConstants.EARFCN, LteMessageConstants.EARFCN_COLUMN)
+                .integer(LteCsvConstants.PCI, LteMessageConstants.PCI_COLUMN)
+                .real(LteCsvConstants.RSRP, LteMessageConstants.RSRP_COLUMN)
+                .real(LteCsvConstants.RSRQ, LteMessageConstants.RSRQ_COLUMN)
+                .integer(LteCsvConstants.TA, LteMessageConstants.TA_COLUMN)
+                .text(LteCsvConstants.LTE_BANDWIDTH, LteMessageConstants.BANDWIDTH_COLUMN,
+                        value -> LteMessageConstants.getLteBandwidth(enumValue(LteBandwidth.class, value, LteBandwidth.UNRECOGNIZED)))
+                .real(LteCsvConstants.SIGNAL_STRENGTH, LteCsvConstants.SIGNAL_STRENGTH)
+                .integer(LteCsvConstants.CQI, LteCsvConstants.CQI)
+                .real(LteCsvConstants.SNR, LteCsvConstants.SNR));
+
+        mappings.add(new TableMapping(NetworkSurveyConstants.NR_FILE_NAME_PREFIX, NrMessageConstants.NR_RECORDS_TABLE_NAME,
+                NrMessageConstants.DEVICE_TIME_COLUMN, CellularSurveyRecordLogger::createSchema)
+                .cellularColumns(NrMessageConstants.MISSION_ID_COLUMN, NrMessageConstants.RECORD_NUMBER_COLUMN, NrMessageConstants.ACCURACY,
+                        NrMessageConstants.GROUP_NUMBER_COLUMN, NrMessageConstants.SERVING_CELL_COLUMN, NrMessageConstants.PROVIDER_COLUMN)
+                .integer(NrCsvConstants.MCC, NrMessageConstants.MCC_COLUMN)
+                .integer(NrCsvConstants.MNC, NrMessageConstants.MNC_COLUMN)
+                .integer(NrCsvConstants.TAC, NrMessageConstants.TAC_COLUMN)
+                .integer(NrCsvConstants.NCI, NrMessageConstants.NCI_COLUMN)
+                .integer(NrCsvConstants.NARFCN, NrMessageConstants.NARFCN_COLUMN)
+                .integer(NrCsvConstants.PCI, NrMessageConstants.PCI_COLUMN)
+                .real(NrCsvConstants.SS_RSRP, NrMessageConstants.SS_RSRP_COLUMN)
+                .real(NrCsvConstants.SS_RSRQ, NrMessageConstants.SS_RSRQ_COLUMN)
+                .real(NrCsvConstants.SS_SINR, NrMessageConstants.SS_SINR_COLUMN)
+                .real(NrCsvConstants.CSI_RSRP, NrMessageConstants.CSI_RSRP_COLUMN)
+                .real(NrCsvConstants.CSI_RSRQ, NrMessageConstants.CSI_RSRQ_COLUMN)
+                .real(NrCsvConstants.CSI_SINR, NrMessageConstants.CSI_SINR_COLUMN));
+
+        mappings.add(new TableMapping(NetworkSurveyConstants.WIFI_FILE_NAME_PREFIX, WifiBeaconMessageConstants.WIFI_BEACON_RECORDS_TABLE_NAME,
+                MessageConstants.TIME_COLUMN, WifiSurveyRecordLogger::createSchema)
+                .commonColumns(MessageConstants.MISSION_ID_COLUMN, MessageConstants.RECORD_NUMBER_COLUMN, MessageConstants.ACCURACY)
+                .text(WifiCsvConstants.BSSID, WifiBeaconMessageConstants.BSSID_COLUMN)
+                .text(WifiCsvConstants.SSID, WifiBeaconMessageConstants.SSID_COLUMN)
+                .real(WifiCsvConstants.SIGNAL_STRENGTH, WifiBeaconMessageConstants.SIGNAL_STRENGTH_COLUMN)
+                .integer(WifiCsvConstants.CHANNEL, WifiBeaconMessageConstants.CHANNEL_COLUMN)
+                .integer(WifiCsvConstants.FREQ_MHZ, WifiBeaconMessageConstants.FREQUENCY_MHZ_COLUMN)
+                .text(WifiCsvConstants.ENCRYPTION_TYPE, WifiBeaconMessageConstants.ENCRYPTION_TYPE_COLUMN, value -> {
+                    final EncryptionType encryptionType = enumValue(EncryptionType.class, value, EncryptionType.UNKNOWN);
+                    return encryptionType == EncryptionType.UNKNOWN ? "" : WifiBeaconMessageConstants.getEncryptionTypeString(encryptionType);
+                })
+                .bool(WifiCsvConstants.WPA, WifiBeaconMessageConstants.WPS_COLUMN)
+                .textKeepEmpty(WifiCsvConstants.STANDARD, WifiCsvConstants.STANDARD)
+                .bool(WifiCsvConstants.PASSPOINT, WifiCsvConstants.PASSPOINT)
+                .textKeepEmpty(WifiCsvConstants.BANDWIDTH, WifiCsvConstants.BANDWIDTH)
+                .text(WifiCsvConstants.CIPHER_SUITES, WifiBeaconMessageConstants.CIPHER_SUITES_COLUMN, CsvGeoPackageImporter::convertCipherSuites));
+
+        mappings.add(new TableMapping(NetworkSurveyConstants.BLUETOOTH_FILE_NAME_PREFIX, BluetoothMessageConstants.BLUETOOTH_RECORDS_TABLE_NAME,
+                MessageConstants.TIME_COLUMN, BluetoothSurveyRecordLogger::createSchema)
+                .commonColumns(MessageConstants.MISSION_ID_COLUMN, MessageConstants.RECORD_NUMBER_COLUMN, MessageConstants.ACCURACY)
+                .text(BluetoothCsvConstants.SOURCE_ADDRESS, BluetoothMessageConstants.SOURCE_ADDRESS_COLUMN)
+                .real(BluetoothCsvConstants.SIGNAL_STRENGTH, BluetoothMessageConstants.SIGNAL_STRENGTH_COLUMN)
+                .real(BluetoothCsvConstants.TX_POWER, BluetoothMessageConstants.TX_POWER_COLUMN)
+                .text(BluetoothCsvConstants.TECHNOLOGY, BluetoothMessageConstants.TECHNOLOGY_COLUMN, value -> {
+                    final Technology technology = enumValue(Technology.class, value, Technology.UNKNOWN);
+                    return technology == Technology.UNKNOWN ? "" : BluetoothMessageConstants.getTechnologyString(technology);
+                })
+                .text(BluetoothCsvConstants.SUPPORTED_TECHNOLOGIES, BluetoothMessageConstants.SUPPORTED_TECHNOLOGIES_COLUMN, value -> {
+                    final SupportedTechnologies supportedTech = enumValue(SupportedTechnologies.class, value, SupportedTechnologies.UNKNOWN);
+                    return supportedTech == SupportedTechnologies.UNKNOWN ? "" : BluetoothMessageConstants.getSupportedTechString(supportedTech);
+                })
+                .text(BluetoothCsvConstants.OTA_DEVICE_NAME, BluetoothMessageConstants.OTA_DEVICE_NAME_COLUMN));
+
+        mappings.add(new TableMapping(NetworkSurveyConstants.GNSS_FILE_NAME_PREFIX, GnssMessageConstants.GNSS_RECORDS_TABLE_NAME,
+                MessageConstants.TIME_COLUMN, GnssRecordLogger::createSchema)
+                .commonColumns(MessageConstants.MISSION_ID_COLUMN, MessageConstants.RECORD_NUMBER_COLUMN, MessageConstants.ACCURACY)
+                .integer(GnssCsvConstants.GROUP_NUMBER, GnssMessageConstants.GROUP_NUMBER_COLUMN)
+                .text(GnssCsvConstants.CONSTELLATION, GnssMessageConstants.CONSTELLATION, value -> {
+                    final Constellation constellation = enumValue(Constellation.class, value, Constellation.UNKNOWN);
+                    return constellation == Constellation.UNKNOWN ? "" : GnssMessageConstants.getConstellationString(constellation);
+                })
+                .integer(GnssCsvConstants.SPACE_VEHICLE_ID, GnssMessageConstants.SPACE_VEHICLE_ID)
+                .integer(GnssCsvConstants.CARRIER_FREQ_HZ, GnssMessageConstants.CARRIER_FREQUENCY_HZ)
+                .real(GnssCsvConstants.LATITUDE_STD_DEV_M, GnssMessageConstants.LATITUDE_STD_DEV_M)
+                .real(GnssCsvConstants.LONGITUDE_STD_DEV_M, GnssMessageConstants.LONGITUDE_STD_DEV_M)
+                .real(GnssCsvConstants.ALTITUDE_STD_DEV_M, GnssMessageConstants.ALTITUDE_STD_DEV_M)
+                .real(GnssCsvConstants.AGC_DB, GnssMessageConstants.AGC_DB)
+                .real(GnssCsvConstants.CN0_DB_HZ, GnssMessageConstants.CARRIER_TO_NOISE_DENSITY_DB_HZ));
+
+        return mappings;
+    }
+
+    /**
+     * Converts the CSV cipher suites (the enum names separated by semicolons) to the GeoPackage
+     * format, which uses the user friendly names.
+     */
+    private static String convertCipherSuites(String value)
+    {
+        final StringBuilder cipherSuites = new StringBuilder();
+        for (String name : value.split(";"))
+        {
+            final String cipherSuite = WifiBeaconMessageConstants.getCipherSuiteString(enumValue(CipherSuite.class, name, CipherSuite.UNRECOGNIZED));
+            if (cipherSuite.isEmpty()) continue;
+
+            if (cipherSuites.length() > 0) cipherSuites.append(';');
+            cipherSuites.append(cipherSuite);
+        }
+
+        return cipherSuites.toString();
+    }
+
+    /**
+     * @return The enum constant with the provided name, or the default value if there is no such constant.
+     */
+    private static <E extends Enum<E>> E enumValue(Class<E> enumClass, String name, E defaultValue)
+    {
+        try
+        {
+            return Enum.valueOf(enumClass, name);
+        } catch (IllegalArgumentException e)
+        {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Creates all the GeoPackage tables for one of the loggers, e.g.
+     * {@link CellularSurveyRecordLogger#createSchema}.
+     */
+    @FunctionalInterface
+    interface SchemaCreator
+    {
+        void createSchema(GeoPackageCore geoPackage, SpatialReferenceSystem srs) throws SQLException;
+    }
+
+    /**
+     * The type of value that a CSV column is converted to.
+     */
+    enum ValueType
+    {
+        INTEGER,
+        REAL,
+        BOOLEAN,
+        TEXT,
+        /**
+         * The CSV accuracy, which is rounded to an integer the same way the GeoPackage loggers do it.
+         */
+        ACCURACY
+    }
+
+    /**
+     * How a single CSV column is converted and which table column it is written to.
+     */
+    static final class ColumnMapping
+    {
+        final String csvHeader;
+        final String tableColumn;
+        final ValueType type;
+        final UnaryOperator<String> textConverter;
+        final boolean keepEmpty;
+
+        ColumnMapping(String csvHeader, String tableColumn, ValueType type, UnaryOperator<String> textConverter, boolean keepEmpty)
+        {
+            this.csvHeader = csvHeader;
+            this.tableColumn = tableColumn;
+            this.type = type;
+            this.textConverter = textConverter;
+            this.keepEmpty = keepEmpty;
+        }
+    }
+
+    /**
+     * How one type of survey CSV file is imported into its GeoPackage table.
+     */
+    static final class TableMapping
+    {
+        final String fileNamePrefix;
+        final String tableName;
+        final String timeColumn;
+        final SchemaCreator schemaCreator;
+        final List<ColumnMapping> columns = new ArrayList<>();
+
+        TableMapping(String fileNamePrefix, String tableName, String timeColumn, SchemaCreator schemaCreator)
+        {
+            this.fileNamePrefix = fileNamePrefix;
+            this.tableName = tableName;
+            this.timeColumn = timeColumn;
+            this.schemaCreator = schemaCreator;
+        }
+
+        /**
+         * Adds the columns that every survey table has. The mission ID is always written, even if it
+         * is empty, the same as the GeoPackage loggers.
+         */
+        TableMapping commonColumns(String missionIdColumn, String recordNumberColumn, String accuracyColumn)
+        {
+            columns.add(new ColumnMapping(CellularCsvConstants.MISSION_ID, missionIdColumn, ValueType.TEXT, null, true));
+            columns.add(new ColumnMapping(CellularCsvConstants.RECORD_NUMBER, recordNumberColumn, ValueType.INTEGER, null, false));
+            columns.add(new ColumnMapping(CellularCsvConstants.ACCURACY, accuracyColumn, ValueType.ACCURACY, null, false));
+            return this;
+        }
+
+        /**
+         * Adds the common columns plus the columns that every cellular table has.
+         */
+        TableMapping cellularColumns(String missionIdColumn, String recordNumberColumn, String accuracyColumn,
+                                     String groupNumberColumn, String servingCellColumn, String providerColumn)
+        {
+            commonColumns(missionIdColumn, recordNumberColumn, accuracyColumn);
+            integer(CellularCsvConstants.GROUP_NUMBER, groupNumberColumn);
+            bool(CellularCsvConstants.SERVING_CELL, servingCellColumn);
+            text(CellularCsvConstants.PROVIDER, providerColumn);
+            return integer(CellularCsvConstants.SLOT, CellularCsvConstants.SLOT);
+        }
+
+        TableMapping integer(String csvHeader, String tableColumn)
+        {
+            columns.add(new ColumnMapping(csvHeader, tableColumn, ValueType.INTEGER, null, false));
+            return this;
+        }
+
+        TableMapping real(String csvHeader, String tableColumn)
+        {
+            columns.add(new ColumnMapping(csvHeader, tableColumn, ValueType.REAL, null, false));
+            return this;
+        }
+
+        TableMapping bool(String csvHeader, String tableColumn)
+        {
+            columns.add(new ColumnMapping(csvHeader, tableColumn, ValueType.BOOLEAN, null, false));
+            return this;
+        }
+
+        /**
+         * Adds a TEXT column that is left null if the CSV value is empty.
+         */
+        TableMapping text(String csvHeader, String tableColumn)
+        {
+            return text(csvHeader, tableColumn, null);
+        }
+
+        /**
+         * Adds a TEXT column that is converted with the provided function. The column is left null if
+         * the converted value is empty.
+         */
+        TableMapping text(String csvHeader, String tableColumn, UnaryOperator<String> converter)
+        {
+            columns.add(new ColumnMapping(csvHeader, tableColumn, ValueType.TEXT, converter, false));
+            return this;
+        }
+
+        /**
+         * Adds a TEXT column that is written even if the CSV value is empty.
+         */
+        TableMapping textKeepEmpty(String csvHeader, String tableColumn)
+        {
+            columns.add(new ColumnMapping(csvHeader, tableColumn, ValueType.TEXT, null, true));
+            return this;
+        }
+    }
+
+    /**
+     * Converts the rows of a single CSV file. The CSV header positions and the table bind indexes are
+     * resolved once per file, and all the parsed values are held in reusable arrays, so converting a
+     * row does not allocate anything other than the Strings from the CSV parser.
+     * <p>
+     * Each row is fully parsed before anything is bound, so that a row with a bad value can be
+     * skipped without leaving any of its values bound to the insert statement.
+     */
+    static final class RowConverter
+    {
+        private final SurveyRowInserter inserter;
+        private final ColumnMapping[] columns;
+        private final int[] csvIndexes;
+        private final int[] bindIndexes;
+        private final boolean[] present;
+        private final long[] longValues;
+        private final double[] doubleValues;
+        private final String[] textValues;
+
+        private final int timeCsvIndex;
+        private final int timeBindIndex;
+        private final int latitudeCsvIndex;
+        private final int longitudeCsvIndex;
+        private final int altitudeCsvIndex;
+
+        private long time;
+        private double latitude;
+        private double longitude;
+        private double altitude;
+
+        RowConverter(TableMapping mapping, Map<String, Integer> headerMap, SurveyRowInserter inserter)
+        {
+            this.inserter = inserter;
+
+            // Only the columns that are in this CSV file are imported; older files might not have all of them
+            final List<ColumnMapping> presentColumns = new ArrayList<>();
+            for (ColumnMapping column : mapping.columns)
+            {
+                if (headerMap.containsKey(column.csvHeader)) presentColumns.add(column);
+            }
+
+            columns = presentColumns.toArray(new ColumnMapping[0]);
+            csvIndexes = new int[columns.length];
+            bindIndexes = new int[columns.length];
+            present = new boolean[columns.length];
+            longValues = new long[columns.length];
+            doubleValues = new double[columns.length];
+            textValues = new String[columns.length];
+            for (int i = 0; i < columns.length; i++)
+            {
+                csvIndexes[i] = headerMap.get(columns[i].csvHeader);
+                bindIndexes[i] = inserter.getColumnIndex(columns[i].tableColumn);
+            }
+
+            timeCsvIndex = requireHeader(headerMap, CellularCsvConstants.DEVICE_TIME);
+            timeBindIndex = inserter.getColumnIndex(mapping.timeColumn);
+            latitudeCsvIndex = requireHeader(headerMap, CellularCsvConstants.LATITUDE);
+            longitudeCsvIndex = requireHeader(headerMap, CellularCsvConstants.LONGITUDE);
+            altitudeCsvIndex = requireHeader(headerMap, CellularCsvConstants.ALTITUDE);
+        }
+
+        /**
+         * Parses all the values in the provided CSV row.
+         *
+         * @return True if the row was parsed, false if it is missing the time or location or it has a
+         * value that could not be parsed.
+         */
+        boolean parse(CSVRecord record)
+        {
+            try
+            {
+                time = ZonedDateTime.parse(record.get(timeCsvIndex), DateTimeFormatter.ISO_OFFSET_DATE_TIME).toInstant().toEpochMilli();
+                latitude = Double.parseDouble(record.get(latitudeCsvIndex));
+                longitude = Double.parseDouble(record.get(longitudeCsvIndex));
+                altitude = Double.parseDouble(record.get(altitudeCsvIndex));
+
+                for (int i = 0; i < columns.length; i++)
+                {
+                    final ColumnMapping column = columns[i];
+                    String value = record.get(csvIndexes[i]);
+                    present[i] = !value.isEmpty() || column.keepEmpty;
+                    if (!present[i]) continue;
+
+                    switch (column.type)
+                    {
+                        case INTEGER:
+                            longValues[i] = Long.parseLong(value);
+                            break;
+                        case REAL:
+                            doubleValues[i] = Double.parseDouble(value);
+                            break;
+                        case BOOLEAN:
+                            longValues[i] = Boolean.parseBoolean(value) ? 1 : 0;
+                            break;
+                        case ACCURACY:
+                            longValues[i] = MathUtils.roundAccuracy(Float.parseFloat(value));
+                            break;
+                        case TEXT:
+                            if (column.textConverter != null) value = column.textConverter.apply(value);
+                            present[i] = column.keepEmpty || !value.isEmpty();
+                            textValues[i] = value;
+                            break;
+                    }
+                }
+
+                return true;
+            } catch (RuntimeException e)
+            {
+                // A truncated last row or a column that was edited by hand
+                Timber.w("Skipping CSV row %d: %s", record.getRecordNumber(), e.getMessage());
+                return false;
+            }
+        }
+
+        /**
+         * Binds the values from the last row that was successfully parsed.
+         */
+        void bind()
+        {
+            inserter.bindPoint(longitude, latitude, altitude);
+            inserter.bindLong(timeBindIndex, time);
+
+            for (int i = 0; i < columns.length; i++)
+            {
+                if (!present[i]) continue;
+
+                switch (columns[i].type)
+                {
+                    case INTEGER:
+                    case ACCURACY:
+                        inserter.bindLong(bindIndexes[i], longValues[i]);
+                        break;
+                    case REAL:
+                        inserter.bindDouble(bindIndexes[i], doubleValues[i]);
+                        break;
+                    case BOOLEAN:
+                        inserter.bindBoolean(bindIndexes[i], longValues[i] != 0);
+                        break;
+                    case TEXT:
+                        inserter.bindString(bindIndexes[i], textValues[i]);
+                        break;
+                }
+            }
+        }
+
+        private static int requireHeader(Map<String, Integer> headerMap, String header)
+        {
+            final Integer index = headerMap.get(header);
+            if (index == null) throw new IllegalArgumentException("The CSV file does not have a " + header + " column");
+            return index;
+        }
+    }
+}
@@ -9,6 +9,7 @@ import android.os.Looper;
 import android.widget.Toast;
 
 import com.craxiom.networksurvey.constants.NetworkSurveyConstants;
+import com.craxiom.networksurvey.listeners.BackpressurePolicy;
 import com.craxiom.networksurvey.services.NetworkSurveyService;
 import com.craxiom.networksurvey.services.SurveyRecordProcessor;
 import com.craxiom.networksurvey.util.PreferenceUtils;
@@ -16,16 +17,22 @@ import com.craxiom.networksurvey.util.PreferenceUtils;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVPrinter;
 
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.zip.GZIPOutputStream;
 
 import timber.log.Timber;
 
@@ -38,7 +45,27 @@ import timber.log.Timber;
  */
 public abstract class CsvRecordLogger
 {
-    private static final int RECORD_COUNT_INTERVAL = 5000;
+    private static final String CSV_FILE_EXTENSION = ".csv";
+    private static final String GZIP_CSV_FILE_EXTENSION = ".csv.gz";
+    private static final int GZIP_BUFFER_SIZE = 8 * 1024;
+
+    /**
+     * The size of the buffer (in chars) that sits in front of the CSV file. Rows are only written out
+     * to the file once this much has built up, or when the {@link #FLUSH_INTERVAL_MS} has passed.
+     */
+    static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The max amount of time that a row can sit in the write buffer before it is flushed to the file.
+     */
+    static final long FLUSH_INTERVAL_MS = 1_000;
+
+    /**
+     * The flush interval for gzip compressed CSV files. Each flush is a gzip sync flush, which makes
+     * everything written so far readable from the partial file, but it also makes the compression a
+     * bit worse, so compressed files are flushed less often.
+     */
+    static final long GZIP_SYNC_FLUSH_INTERVAL_MS = 5_000;
 
     /**
      * A lock to synchronize the writing of single records and the creation of a new CSV file
@@ -47,39 +74,136 @@ public abstract class CsvRecordLogger
     protected final Object csvFileLock = new Object();
 
     private Context applicationContext;
-    final Handler handler;
+
+    /**
+     * All the CSV file I/O for this logger happens on this queue's thread so that a slow disk never
+     * holds up the survey scans.
+     */
+    final RecordWriterQueue writerQueue;
     private final String logDirectoryName;
     private final String fileNamePrefix;
     private final boolean lazyFileCreation;
+    private final LogStorageManager logStorageManager;
     private final RolloverWorker rolloverWorker = new RolloverWorker();
 
     CSVPrinter printer;
+
+    /**
+     * The writer for the current CSV file. The header is written with the {@link #printer}, and then
+     * the rows are written directly to this writer by the {@link #csvRowEncoder}.
+     */
+    private Writer writer;
+
+    /**
+     * Counts the bytes written to the current CSV file (after compression) so that the rollover
+     * worker never has to check the size of the file on disk.
+     */
+    private CountingOutputStream fileOutputStream;
+
+    /**
+     * True if new CSV files should be gzip compressed. This only takes effect when the next file is
+     * created.
+     */
+    private volatile boolean compressOutput = NetworkSurveyConstants.DEFAULT_COMPRESS_CSV_LOG_FILES;
+
+    /**
+     * True if the current CSV file is gzip compressed.
+     */
+    private boolean compressedFile;
+    private final CsvRowEncoder csvRowEncoder = new CsvRowEncoder();
+
+    /**
+     * True if new rows are accepted. It is cleared as soon as logging is disabled, but the rows that
+     * were accepted before that are still written out (see {@link #sessionOpen}).
+     */
     volatile boolean loggingEnabled;
+
+    /**
+     * True from when logging is enabled until the logging session has been closed out on the
+     * {@link #writerQueue} thread. The queued rows are written as long as this is true, so the rows
+     * that were accepted before logging was disabled end up in the file before it is closed.
+     */
+    private boolean sessionOpen;
+
+    /**
+     * Incremented for each logging session so that the close task for a session that has already
+     * been closed out does not close the next one.
+     */
+    private int session;
     private String logFileDirectoryPath;
 
     private String loggingFileName;
 
+    /**
+     * True if the {@link #flushTask} has been scheduled and has not run yet.
+     */
+    private boolean flushScheduled;
+
+    /**
+     * Flushes any buffered rows out to the CSV file.
+     */
+    private final Runnable flushTask = () -> {
+        synchronized (csvFileLock)
+        {
+            flushScheduled = false;
+            flushPrinter();
+        }
+    };
+
     /**
      * Constructs a Logger that writes Survey records to a GeoPackage SQLite database.
      *
      * @param networkSurveyService The Service instance that is running this logger.
-     * @param serviceLooper        The Looper associated with the service that can be used to do any background processing.
      * @param logDirectoryName     The parent directory name to write all the files in.
      * @param fileNamePrefix       The prefix to use for the GeoPackage file name.
      */
-    CsvRecordLogger(NetworkSurveyService networkSurveyService, Looper serviceLooper,
+    CsvRecordLogger(NetworkSurveyService networkSurveyService,
                     String logDirectoryName, String fileNamePrefix, boolean lazyFileCreation)
     {
         applicationContext = networkSurveyService.getApplicationContext();
-        handler = new Handler(serviceLooper);
+        writerQueue = new RecordWriterQueue(fileNamePrefix + "csv");
         this.logDirectoryName = logDirectoryName;
         this.fileNamePrefix = fileNamePrefix;
         this.lazyFileCreation = lazyFileCreation;
+        logStorageManager = networkSurveyService.getLogStorageManager();
     }
 
     public void onDestroy()
     {
         applicationContext = null;
+        // Delayed tasks are discarded when the queue is shut down, so flush explicitly
+        writerQueue.post(flushTask);
+        writerQueue.quitSafely();
+    }
+
+    /**
+     * @return The queue that all the writes to the CSV file are run on. Exposed so that the queue
+     * depth metrics can be displayed.
+     * @since 1.25.0
+     */
+    public RecordWriterQueue getWriterQueue()
+    {
+        return writerQueue;
+    }
+
+    /**
+     * @return The number of record writes that were dropped because the write queue stayed full.
+     * Reported along with the survey record listener stats.
+     * @since 1.25.0
+     */
+    public long getDroppedRecordCount()
+    {
+        return writerQueue.getDroppedTaskCount();
+    }
+
+    /**
+     * @return {@link BackpressurePolicy#SPILL_TO_DISK} so that the records this logger falls behind
+     * on are kept on disk until it catches up, rather than holding up the record processing.
+     * @since 1.25.0
+     */
+    public BackpressurePolicy getBackpressurePolicy()
+    {
+        return BackpressurePolicy.SPILL_TO_DISK;
     }
 
     abstract String[] getHeaders();
@@ -110,10 +234,22 @@ public abstract class CsvRecordLogger
                     if (loggingEnabled)
                     {
                         loggingEnabled = false;
-                        loggingFileName = null;
-                        printer.close(true);
-                        printer = null;
-                        rolloverWorker.reset();
+
+                        // The file is flushed and closed on the writer thread, behind the rows that
+                        // have already been accepted, so that they are not dropped
+                        final int closingSession = session;
+                        writerQueue.post(() -> {
+                            synchronized (csvFileLock)
+                            {
+                                try
+                                {
+                                    if (session == closingSession) closeSession();
+                                } catch (IOException e)
+                                {
+                                    Timber.e(e, "Could not close the CSV file");
+                                }
+                            }
+                        });
                         return true;
                     }
 
@@ -122,17 +258,24 @@ public abstract class CsvRecordLogger
 
                 if (!isExternalStorageWritable()) return false;
 
+                // Logging was turned back on before the previous session was closed out, so close it
+                // now. Any of its rows that are still queued go in the new file.
+                if (sessionOpen) closeSession();
+
                 updateRolloverWorker();
+                updateCompressionPreference();
 
-                if (lazyFileCreation) return true;
+                session++;
+                if (lazyFileCreation) return sessionOpen = loggingEnabled = true;
 
                 loggingFileName = null;
                 boolean fileCreated = prepareCsvForLogging();
 
-                return loggingEnabled = fileCreated;
+                return sessionOpen = loggingEnabled = fileCreated;
             } catch (Exception e)
             {
                 Timber.e(e, "Caught an exception when trying prepare CSV file for logging");
+                sessionOpen = false;
                 if (printer != null)
                 {
                     try
@@ -144,6 +287,8 @@ public abstract class CsvRecordLogger
                     } finally
                     {
                         printer = null;
+                        writer = null;
+                        fileOutputStream = null;
                         loggingFileName = null;
                     }
                 }
@@ -152,14 +297,184 @@ public abstract class CsvRecordLogger
         }
     }
 
-    synchronized void writeCsvRecord(Object[] row, boolean flush) throws IOException
+    /**
+     * Adds a task to the {@link #writerQueue} that writes the provided row to the CSV file.
+     *
+     * @param row The values to write out as a single CSV row.
+     */
+    void writeCsvRecord(Object[] row)
+    {
+        writeCsvRecord(row, CsvRecordLogger::encodeValues);
+    }
+
+    /**
+     * Adds a task to the {@link #writerQueue} that encodes the provided record as a row in the CSV
+     * file. The record is encoded on the writer thread with the {@link CsvRowEncoder} that is reused
+     * for every row, so no intermediate Strings or arrays are created for it.
+     * <p>
+     * The row is buffered, and it is written out to the file when the buffer fills up or within
+     * {@link #FLUSH_INTERVAL_MS}, whichever comes first. The buffer is also flushed when the file is
+     * rolled over, when logging is disabled, and when the logger is destroyed.
+     *
+     * @param record     The record to write out as a single CSV row.
+     * @param rowEncoder Adds the fields of the record to the encoder, in the same order as the headers.
+     * @since 1.25.0
+     */
+    <T> void writeCsvRecord(T record, BiConsumer<T, CsvRowEncoder> rowEncoder)
+    {
+        if (!loggingEnabled) return;
+
+        writerQueue.offer(() -> {
+            synchronized (csvFileLock)
+            {
+                try
+                {
+                    if (!sessionOpen) return;
+
+                    printCsvRecord(record, rowEncoder);
+                    scheduleFlush();
+                } catch (Exception e)
+                {
+                    Timber.e(e, "Could not log the record to the CSV file");
+                }
+            }
+        });
+    }
+
+    /**
+     * Adds a task to the {@link #writerQueue} that writes all the provided records to the CSV file.
+     * This is used to write the records from a single scan together. The rows are encoded and flushed
+     * to the file the same as {@link #writeCsvRecord(Object, BiConsumer)}.
+     *
+     * @param records    The records to write out to the CSV file, one row per record.
+     * @param rowEncoder Adds the fields of a record to the encoder, in the same order as the headers.
+     * @since 1.25.0
+     */
+    <T> void writeCsvRecords(List<T> records, BiConsumer<T, CsvRowEncoder> rowEncoder)
+    {
+        if (!loggingEnabled) return;
+
+        writerQueue.offer(() -> {
+            synchronized (csvFileLock)
+            {
+                try
+                {
+                    if (!sessionOpen) return;
+
+                    for (T record : records)
+                    {
+                        printCsvRecord(record, rowEncoder);
+                    }
+                    scheduleFlush();
+                } catch (Exception e)
+                {
+                    Timber.e(e, "Could not log the records to the CSV file");
+                }
+            }
+        });
+    }
+
+    /**
+     * Encodes a single record as a row in the CSV file, creating the file first if necessary.
+     * <p>
+     * This method is NOT thread safe and it is assumed the caller has already gotten a lock on the
+     * {@link #csvFileLock} and is running on the {@link #writerQueue} thread.
+     *
+     * @param record     The record to write out as a single CSV row.
+     * @param rowEncoder Adds the fields of the record to the encoder.
+     * @throws IOException If the row could not be written.
+     */
+    private <T> void printCsvRecord(T record, BiConsumer<T, CsvRowEncoder> rowEncoder) throws IOException
     {
         if (lazyFileCreation) lazyCreateFileIfNecessary();
-        printer.printRecord(row);
-        if (flush) printer.flush(); // TODO could we get away with not flushing on every record?
+
+        // Drop anything left over from a row that failed part way through
+        csvRowEncoder.clear();
+        rowEncoder.accept(record, csvRowEncoder);
+        csvRowEncoder.endRow(writer);
+
         checkIfRolloverNeeded();
     }
 
+    /**
+     * Adds each of the provided values to the encoder as a String field, the same way that Commons
+     * CSV prints an array of values.
+     */
+    static void encodeValues(Object[] values, CsvRowEncoder encoder)
+    {
+        for (Object value : values)
+        {
+            encoder.add(value == null ? null : value.toString());
+        }
+    }
+
+    /**
+     * Schedules the {@link #flushTask} to run once the {@link #FLUSH_INTERVAL_MS} (or the
+     * {@link #GZIP_SYNC_FLUSH_INTERVAL_MS} for compressed files) has passed, unless it is already
+     * scheduled.
+     * <p>
+     * This method is NOT thread safe and it is assumed the caller has already gotten a lock on the
+     * {@link #csvFileLock} and is running on the {@link #writerQueue} thread.
+     */
+    private void scheduleFlush()
+    {
+        if (flushScheduled) return;
+
+        flushScheduled = true;
+        writerQueue.postDelayed(flushTask, compressedFile ? GZIP_SYNC_FLUSH_INTERVAL_MS : FLUSH_INTERVAL_MS);
+    }
+
+    /**
+     * Flushes and closes the current CSV file, if one was created, and ends the logging session.
+     * <p>
+     * This method is NOT thread safe and it is assumed the caller has already gotten a lock on the
+     * {@link #csvFileLock}.
+     *
+     * @throws IOException If the file could not be closed.
+     */
+    private void closeSession() throws IOException
+    {
+        sessionOpen = false;
+        writerQueue.removeCallbacks(flushTask);
+        flushScheduled = false;
+
+        final String closedFileName = loggingFileName;
+        loggingFileName = null;
+        try
+        {
+            // With lazy file creation the file is never created if no records came in
+            if (printer != null)
+            {
+                printer.close(true);
+                logStorageManager.onLogFileClosed(closedFileName);
+            }
+        } finally
+        {
+            printer = null;
+            writer = null;
+            fileOutputStream = null;
+        }
+    }
+
+    /**
+     * Writes any buffered rows out to the CSV file.
+     * <p>
+     * This method is NOT thread safe and it is assumed the caller has already gotten a lock on the
+     * {@link #csvFileLock}.
+     */
+    private void flushPrinter()
+    {
+        if (printer == null) return;
+
+        try
+        {
+            printer.flush();
+        } catch (IOException e)
+        {
+            Timber.e(e, "Could not flush the CSV file");
+        }
+    }
+
     /**
      * If lazy file creation is enabled, and the file has not yet been created, then this method
      * creates the CSV file.
@@ -182,7 +497,8 @@ public abstract class CsvRecordLogger
      */
     private synchronized boolean prepareCsvForLogging()
     {
-        loggingFileName = createPublicStorageFilePath();
+        compressedFile = compressOutput;
+        loggingFileName = createPublicStorageFilePath(compressedFile ? GZIP_CSV_FILE_EXTENSION : CSV_FILE_EXTENSION);
 
         Timber.i("Creating the log file: %s", loggingFileName);
 
@@ -200,9 +516,13 @@ public abstract class CsvRecordLogger
                 .build();
         try
         {
-            final FileWriter out = new FileWriter(loggingFileName);
-            printer = new CSVPrinter(out, csvFormat);
+            fileOutputStream = new CountingOutputStream(new FileOutputStream(loggingFileName));
+            // With sync flush enabled, each flush makes all the rows so far readable from the partial file
+            final OutputStream out = compressedFile ? new GZIPOutputStream(fileOutputStream, GZIP_BUFFER_SIZE, true) : fileOutputStream;
+            writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+            printer = new CSVPrinter(writer, csvFormat);
             printer.flush();
+            logStorageManager.onLogFileCreated(loggingFileName);
         } catch (IOException e)
         {
             final String errorMessage = "Error: Unable to create the CSV file.  No logging will be recorded.";
@@ -210,18 +530,23 @@ public abstract class CsvRecordLogger
             new Handler(Looper.getMainLooper()).post(() -> Toast.makeText(applicationContext, errorMessage, Toast.LENGTH_SHORT).show());
 
             loggingFileName = null;
+            writer = null;
 
-            if (printer != null)
+            try
             {
-                try
+                if (printer != null)
                 {
                     printer.close();
-                } catch (IOException ignore)
+                } else if (fileOutputStream != null)
                 {
-                } finally
-                {
-                    printer = null;
+                    fileOutputStream.close();
                 }
+            } catch (IOException ignore)
+            {
+            } finally
+            {
+                printer = null;
+                fileOutputStream = null;
             }
             return false;
         }
@@ -241,6 +566,17 @@ public abstract class CsvRecordLogger
         rolloverWorker.update(logRolloverSize);
     }
 
+    /**
+     * Updates the CSV compression setting from the SharedPreferences, or the MDM properties if
+     * enabled. The new setting is used the next time a CSV file is created.
+     *
+     * @since 1.25.0
+     */
+    private void updateCompressionPreference()
+    {
+        compressOutput = PreferenceUtils.getCompressCsvLogFilesPreference(applicationContext);
+    }
+
     /**
      * Checks to see if the rollover worker needs to initiate the creation of a new log file.
      *
@@ -248,27 +584,30 @@ public abstract class CsvRecordLogger
      */
     protected void checkIfRolloverNeeded()
     {
-        rolloverWorker.incrementRolloverCounter();
+        rolloverWorker.rolloverIfNeeded();
     }
 
     /**
-     * Update the max log size if the preference has changed via shared preferences.
+     * Update the max log size and the compression setting if the preferences have changed via
+     * shared preferences.
      *
      * @since 0.4.0
      */
     public void onSharedPreferenceChanged()
     {
         updateRolloverWorker();
+        updateCompressionPreference();
     }
 
     /**
-     * Update the max log size if the preference has changed via MDM.
+     * Update the max log size and the compression setting if the preferences have changed via MDM.
      *
      * @since 0.4.0
      */
     public void onMdmPreferenceChanged()
     {
         updateRolloverWorker();
+        updateCompressionPreference();
     }
 
     /**
@@ -287,9 +626,10 @@ public abstract class CsvRecordLogger
      * <p>
      * Also, as a side effect, this class creates and sets the {@link #logFileDirectoryPath} instance variable.
      *
+     * @param fileExtension The extension to use for the file, including the leading dot.
      * @return The full path to the CSV log file.
      */
-    private String createPublicStorageFilePath()
+    private String createPublicStorageFilePath(String fileExtension)
     {
         logFileDirectoryPath = Environment.getExternalStoragePublicDirectory(
                 Environment.DIRECTORY_DOWNLOADS) + "/" + logDirectoryName + "/";
@@ -304,19 +644,18 @@ public abstract class CsvRecordLogger
         }
 
         String filePath = logFileDirectoryPath +
-                fileNamePrefix + SurveyRecordProcessor.DATE_TIME_FORMATTER.format(LocalDateTime.now()) + ".csv";
+                fileNamePrefix + SurveyRecordProcessor.DATE_TIME_FORMATTER.format(LocalDateTime.now()) + fileExtension;
 
         // I have seen a couple times now that it is possible that the RolloverWorker can create two CSV files
         // within the same second. Both instances were bluetooth so I am thinking there were 500+ devices around which
-        // caused the rollover worker to be run twice in the same scan iteration. I also increased the rollover
-        // check to 5000 which should help prevent this error as well, but just in case it is best if we ensure the file
-        // path is unique.
+        // caused the rollover worker to be run twice in the same scan iteration. Just in case, it is best if we ensure the
+        // file path is unique.
         int counter = 0;
         while (new File(filePath).exists())
         {
             counter++;
             filePath = logFileDirectoryPath + fileNamePrefix +
-                    SurveyRecordProcessor.DATE_TIME_FORMATTER.format(LocalDateTime.now()) + "-" + counter + ".csv";
+                    SurveyRecordProcessor.DATE_TIME_FORMATTER.format(LocalDateTime.now()) + "-" + counter + fileExtension;
         }
 
         return filePath;
@@ -339,11 +678,6 @@ public abstract class CsvRecordLogger
          */
         private final Object rolloverSizeLock = new Object();
 
-        /**
-         * The record count since last reset, or last rollover.
-         */
-        private final AtomicInteger recordCount = new AtomicInteger();
-
         /**
          * The max log size for a GeoPackage file before a new one is created, in bytes. When this
          * value is set to 0, rollover is de-activated.
@@ -365,11 +699,18 @@ public abstract class CsvRecordLogger
         }
 
         /**
-         * Increments rollover record count. At the mark of {@link #RECORD_COUNT_INTERVAL} records, we check
-         * the CSV file size. If the file size is equal to or greater than the size
+         * Checks the number of bytes that have been written to the current CSV file (after
+         * compression if the file is compressed). If it is equal to or greater than the size
          * threshold, we roll over. If no rollover is enabled, the method immediately returns.
+         * <p>
+         * The byte count is tracked by the writer, so this is cheap enough to call for every record.
+         * It does not include the rows that are still in the write buffer, so a file can end up
+         * slightly larger than the rollover size.
+         * <p>
+         * This method is NOT thread safe and it is assumed the caller has already gotten a lock on
+         * the {@link #csvFileLock} and is running on the {@link #writerQueue} thread.
          */
-        public void incrementRolloverCounter()
+        public void rolloverIfNeeded()
         {
             synchronized (rolloverSizeLock)
             {
@@ -378,52 +719,24 @@ public abstract class CsvRecordLogger
                     return; // A rollover of size 0 means rollover is not active
                 }
 
-                if (recordCount.compareAndSet(RECORD_COUNT_INTERVAL, 0))
-                {
-                    File file;
-                    // Need to synchronize so that we don't try to get the file while a new one is being created.
-                    synchronized (csvFileLock)
-                    {
-                        file = new File(loggingFileName);
-                    }
-                    final long fileSizeBytes = file.length();
-
-                    Timber.v("Checking GeoPackage file size, currently at: %s bytes", fileSizeBytes);
-                    if (fileSizeBytes >= rolloverSizeBytes)
-                    {
-                        // This task is protected by the {@link #csvFileLock} to prevent closing a file that is
-                        // currently being logged to.
-                        synchronized (csvFileLock)
-                        {
-                            try
-                            {
-                                printer.close(true);
+                if (fileOutputStream == null || fileOutputStream.getByteCount() < rolloverSizeBytes) return;
+            }
 
-                                boolean fileCreated = prepareCsvForLogging();
-                                if (!fileCreated)
-                                {
-                                    Timber.e("Failed to create a new rollover CSV file");
-                                }
-                            } catch (Exception e)
-                            {
-                                Timber.e(e, "Error occurred while trying to create a rollover CSV file");
-                            }
-                        }
-                    }
+            Timber.v("Rolling over the CSV file %s at %s bytes", loggingFileName, fileOutputStream.getByteCount());
+            try
+            {
+                printer.close(true);
+                logStorageManager.onLogFileClosed(loggingFileName);
 
-                    return;
+                boolean fileCreated = prepareCsvForLogging();
+                if (!fileCreated)
+                {
+                    Timber.e("Failed to create a new rollover CSV file");
                 }
+            } catch (Exception e)
+            {
+                Timber.e(e, "Error occurred while trying to create a rollover CSV file");
             }
-
-            recordCount.getAndIncrement();
-        }
-
-        /**
-         * Resets the record count.
-         */
-        public void reset()
-        {
-            recordCount.set(0);
         }
     }
 
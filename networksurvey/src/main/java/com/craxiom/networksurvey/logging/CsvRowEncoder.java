@@ -0,0 +1,233 @@
+package com.craxiom.networksurvey.logging;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Encodes survey records as CSV rows directly into a reusable buffer.
+ * <p>
+ * The CSV loggers used to convert every record into a new {@code String[]} (one String per field)
+ * and then hand it to Commons CSV, which scanned each field again to decide if it needed to be
+ * quoted. This encoder instead appends the fields straight into a single {@link StringBuilder} that
+ * is reused for every row, and numbers are appended without creating an intermediate String.
+ * <p>
+ * The output is the same as the {@link org.apache.commons.csv.CSVFormat#DEFAULT} format that the
+ * CSV files have always been written with: comma delimited, fields are only quoted when they need
+ * to be (the Commons CSV {@code QuoteMode.MINIMAL} rules), quotes are escaped by doubling them, and
+ * each row ends with CRLF.
+ * <p>
+ * This class is NOT thread safe. It is expected to only be used from a logger's writer thread.
+ *
+ * @since 1.25.0
+ */
+final class CsvRowEncoder
+{
+    private static final char DELIMITER = ',';
+    private static final char QUOTE = '"';
+    private static final String RECORD_SEPARATOR = "\r\n";
+
+    /**
+     * Commons CSV quotes any field that starts with a char at or below the comment char.
+     */
+    private static final char COMMENT = '#';
+
+    private final StringBuilder row = new StringBuilder(512);
+    private char[] chars = new char[512];
+    private boolean newRecord = true;
+
+    /**
+     * Adds a String field to the current row, quoting it if necessary. A null value is written as an
+     * empty field (the same as Commons CSV), but unlike an empty String it is never quoted.
+     *
+     * @param value The value of the field.
+     * @return This encoder so that calls can be chained.
+     */
+    CsvRowEncoder add(CharSequence value)
+    {
+        startField();
+        if (value == null)
+        {
+            newRecord = false;
+            return this;
+        }
+
+        final int length = value.length();
+        if (length == 0)
+        {
+            // An empty first field is always quoted so that the row is not mistaken for an empty line
+            if (newRecord) row.append(QUOTE).append(QUOTE);
+        } else if (needsQuotes(value, length))
+        {
+            row.append(QUOTE);
+            for (int i = 0; i < length; i++)
+            {
+                final char c = value.charAt(i);
+                if (c == QUOTE) row.append(QUOTE);
+                row.append(c);
+            }
+            row.append(QUOTE);
+        } else
+        {
+            row.append(value);
+        }
+
+        newRecord = false;
+        return this;
+    }
+
+    /**
+     * Adds an empty field to the current row.
+     *
+     * @return This encoder so that calls can be chained.
+     */
+    CsvRowEncoder addEmpty()
+    {
+        return add("");
+    }
+
+    /**
+     * Adds an int field to the current row. Formatted the same as {@link String#valueOf(int)}.
+     */
+    CsvRowEncoder add(int value)
+    {
+        startField();
+        row.append(value);
+        newRecord = false;
+        return this;
+    }
+
+    /**
+     * Adds a long field to the current row. Formatted the same as {@link String#valueOf(long)}.
+     */
+    CsvRowEncoder add(long value)
+    {
+        startField();
+        row.append(value);
+        newRecord = false;
+        return this;
+    }
+
+    /**
+     * Adds a float field to the current row. Formatted the same as {@link String#valueOf(float)}.
+     */
+    CsvRowEncoder add(float value)
+    {
+        startField();
+        row.append(value);
+        newRecord = false;
+        return this;
+    }
+
+    /**
+     * Adds a double field to the current row. Formatted the same as {@link String#valueOf(double)}.
+     */
+    CsvRowEncoder add(double value)
+    {
+        startField();
+        row.append(value);
+        newRecord = false;
+        return this;
+    }
+
+    /**
+     * Adds a boolean field to the current row. Formatted the same as {@link String#valueOf(boolean)}.
+     */
+    CsvRowEncoder add(boolean value)
+    {
+        startField();
+        row.append(value);
+        newRecord = false;
+        return this;
+    }
+
+    /**
+     * Adds an int field to the current row if the value is present, otherwise an empty field. This
+     * lines up with the protobuf wrapper fields, e.g. {@code addIf(data.hasMcc(), data.getMcc().getValue())}.
+     */
+    CsvRowEncoder addIf(boolean present, int value)
+    {
+        return present ? add(value) : addEmpty();
+    }
+
+    /**
+     * Adds a long field to the current row if the value is present, otherwise an empty field.
+     */
+    CsvRowEncoder addIf(boolean present, long value)
+    {
+        return present ? add(value) : addEmpty();
+    }
+
+    /**
+     * Adds a float field to the current row if the value is present, otherwise an empty field.
+     */
+    CsvRowEncoder addIf(boolean present, float value)
+    {
+        return present ? add(value) : addEmpty();
+    }
+
+    /**
+     * Adds a double field to the current row if the value is present, otherwise an empty field.
+     */
+    CsvRowEncoder addIf(boolean present, double value)
+    {
+        return present ? add(value) : addEmpty();
+    }
+
+    /**
+     * Adds a boolean field to the current row if the value is present, otherwise an empty field.
+     */
+    CsvRowEncoder addIf(boolean present, boolean value)
+    {
+        return present ? add(value) : addEmpty();
+    }
+
+    /**
+     * Ends the current row and writes it to the provided writer. The encoder is then ready for the
+     * next row.
+     *
+     * @param out The writer to write the row to.
+     * @throws IOException If the row could not be written.
+     */
+    void endRow(Writer out) throws IOException
+    {
+        row.append(RECORD_SEPARATOR);
+
+        final int length = row.length();
+        if (chars.length < length) chars = new char[Math.max(length, chars.length * 2)];
+        row.getChars(0, length, chars, 0);
+
+        clear();
+        out.write(chars, 0, length);
+    }
+
+    /**
+     * Discards the current row without writing it.
+     */
+    void clear()
+    {
+        row.setLength(0);
+        newRecord = true;
+    }
+
+    private void startField()
+    {
+        if (!newRecord) row.append(DELIMITER);
+    }
+
+    /**
+     * @return True if the provided non-empty value has to be quoted, following the same rules as the
+     * Commons CSV {@code QuoteMode.MINIMAL} mode.
+     */
+    private static boolean needsQuotes(CharSequence value, int length)
+    {
+        if (value.charAt(0) <= COMMENT) return true;
+
+        for (int i = 0; i < length; i++)
+        {
+            final char c = value.charAt(i);
+            if (c == '\n' || c == '\r' || c == QUOTE || c == DELIMITER) return true;
+        }
+
+        return value.charAt(length - 1) <= ' ';
+    }
+}
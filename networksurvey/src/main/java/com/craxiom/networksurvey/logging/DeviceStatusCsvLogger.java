@@ -16,26 +16,20 @@ import static com.craxiom.networksurvey.constants.csv.DeviceStatusCsvConstants.N
 import static com.craxiom.networksurvey.constants.csv.DeviceStatusCsvConstants.NETWORK_LONGITUDE;
 import static com.craxiom.networksurvey.constants.csv.DeviceStatusCsvConstants.SPEED;
 
-import android.os.Looper;
-
 import com.craxiom.messaging.DeviceStatus;
 import com.craxiom.messaging.DeviceStatusData;
 import com.craxiom.networksurvey.constants.NetworkSurveyConstants;
 import com.craxiom.networksurvey.listeners.IDeviceStatusListener;
 import com.craxiom.networksurvey.services.NetworkSurveyService;
 
-import java.io.IOException;
-
-import timber.log.Timber;
-
 /**
  * Responsible for taking in device status records and logging them to a CSV file.
  */
 public class DeviceStatusCsvLogger extends CsvRecordLogger implements IDeviceStatusListener
 {
-    public DeviceStatusCsvLogger(NetworkSurveyService networkSurveyService, Looper serviceLooper)
+    public DeviceStatusCsvLogger(NetworkSurveyService networkSurveyService)
     {
-        super(networkSurveyService, serviceLooper, NetworkSurveyConstants.CSV_LOG_DIRECTORY_NAME,
+        super(networkSurveyService, NetworkSurveyConstants.CSV_LOG_DIRECTORY_NAME,
                 NetworkSurveyConstants.DEVICESTATUS_FILE_NAME_PREFIX, true);
     }
 
@@ -56,20 +50,13 @@ public class DeviceStatusCsvLogger extends CsvRecordLogger implements IDeviceSta
     @Override
     public void onDeviceStatus(DeviceStatus record)
     {
-        try
-        {
-            writeCsvRecord(convertToObjectArray(record), true);
-        } catch (IOException e)
-        {
-            Timber.e(e, "Could not log the Device Status record to the CSV file");
-        }
+        writeCsvRecord(record, DeviceStatusCsvLogger::encodeRow);
     }
 
     /**
-     * @return A String array that contains the Device Status record values that can be written out
-     * as a CSV row.
+     * Adds the Device Status record values to the encoder as a CSV row.
      */
-    private String[] convertToObjectArray(DeviceStatus record)
+    private static void encodeRow(DeviceStatus record, CsvRowEncoder encoder)
     {
         DeviceStatusData data = record.getData();
 
@@ -82,24 +69,20 @@ public class DeviceStatusCsvLogger extends CsvRecordLogger implements IDeviceSta
         double networkLongitude = data.getNetworkLongitude();
         boolean hasNetworkLocation = networkLatitude != 0d && networkLongitude != 0d;
 
-        return new String[]{
-                data.getDeviceTime(),
-                String.valueOf(data.getLatitude()),
-                String.valueOf(data.getLongitude()),
-                String.valueOf(data.getAltitude()),
-                String.valueOf(data.getSpeed()),
-                String.valueOf(data.getAccuracy()),
-                data.hasBatteryLevelPercent() ? String.valueOf(data.getBatteryLevelPercent()) : "",
-
-                hasGnssLocation ? String.valueOf(gnssLatitude) : "",
-                hasGnssLocation ? String.valueOf(gnssLongitude) : "",
-                hasGnssLocation ? String.valueOf(data.getGnssAltitude()) : "",
-                hasGnssLocation ? String.valueOf(data.getGnssAccuracy()) : "",
-
-                hasNetworkLocation ? String.valueOf(networkLatitude) : "",
-                hasNetworkLocation ? String.valueOf(networkLongitude) : "",
-                hasNetworkLocation ? String.valueOf(data.getNetworkAltitude()) : "",
-                hasNetworkLocation ? String.valueOf(data.getNetworkAccuracy()) : "",
-        };
+        encoder.add(data.getDeviceTime())
+                .add(data.getLatitude())
+                .add(data.getLongitude())
+                .add(data.getAltitude())
+                .add(data.getSpeed())
+                .add(data.getAccuracy())
+                .add(data.hasBatteryLevelPercent() ? String.valueOf(data.getBatteryLevelPercent()) : "")
+                .addIf(hasGnssLocation, gnssLatitude)
+                .addIf(hasGnssLocation, gnssLongitude)
+                .addIf(hasGnssLocation, data.getGnssAltitude())
+                .addIf(hasGnssLocation, data.getGnssAccuracy())
+                .addIf(hasNetworkLocation, networkLatitude)
+                .addIf(hasNetworkLocation, networkLongitude)
+                .addIf(hasNetworkLocation, data.getNetworkAltitude())
+                .addIf(hasNetworkLocation, data.getNetworkAccuracy());
     }
 }
@@ -0,0 +1,259 @@
+package com.craxiom.networksurvey.logging;
+
+import android.database.sqlite.SQLiteStatement;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import mil.nga.geopackage.GeoPackage;
+import mil.nga.geopackage.db.CoreSQLUtils;
+import mil.nga.geopackage.features.user.FeatureColumn;
+import mil.nga.geopackage.features.user.FeatureDao;
+import mil.nga.geopackage.features.user.FeatureTable;
+
+/**
+ * A reusable insert statement for a single GeoPackage feature table.
+ * <p>
+ * Inserting through a {@link FeatureDao} requires a DAO lookup, a new feature row, and a column name
+ * lookup for every value that is set. Instead, this class resolves the DAO and compiles the insert
+ * statement once per GeoPackage file. Values are then bound using the index returned from
+ * {@link #getColumnIndex(String)}, which callers should look up once per file and hold on to.
+ * <p>
+ * Any column that is not bound before calling {@link #insert()} is inserted with its default value
+ * if it has one, otherwise as null.
+ * <p>
+ * If the GeoPackage uses the compact schema, then the values bound with
+ * {@link #bindString(int, String)} for dictionary encoded columns are replaced with their ID from the
+ * {@link StringDictionary}, so the callers don't need to know which schema is in use.
+ * <p>
+ * This class is NOT thread safe. It is expected to only be used from a logger's writer thread.
+ *
+ * @since 1.25.0
+ */
+class FeatureTableInserter implements SurveyRowInserter
+{
+    private final String tableName;
+    private final FeatureDao featureDao;
+    private final SQLiteStatement insertStatement;
+    private final Map<String, Integer> columnIndexes = new HashMap<>();
+    private final Map<Integer, Object> defaultValues = new HashMap<>();
+    private final Set<Integer> dictionaryIndexes = new HashSet<>();
+    private final StringDictionary dictionary;
+    private final int geometryColumnIndex;
+    private final WkbPointEncoder pointEncoder = new WkbPointEncoder((int) SurveyRecordLogger.WGS84_SRS);
+
+    /**
+     * Resolves the DAO for the provided table and compiles an insert statement that includes every
+     * column other than the primary key.
+     *
+     * @param geoPackage        The GeoPackage that contains the table.
+     * @param tableName         The name of the feature table to insert rows into.
+     * @param dictionary        The dictionary for the GeoPackage, or null if it uses the standard schema.
+     * @param dictionaryColumns The names of the columns that are dictionary encoded when the compact
+     *                          schema is used.
+     */
+    FeatureTableInserter(GeoPackage geoPackage, String tableName, StringDictionary dictionary, Collection<String> dictionaryColumns)
+    {
+        this.tableName = tableName;
+        this.dictionary = dictionary;
+        featureDao = geoPackage.getFeatureDao(tableName);
+        final FeatureTable table = featureDao.getTable();
+
+        final StringBuilder columnNames = new StringBuilder();
+        final StringBuilder placeholders = new StringBuilder();
+        int bindIndex = 0;
+        for (FeatureColumn column : table.getColumns())
+        {
+            if (column.isPrimaryKey()) continue;
+
+            if (bindIndex > 0)
+            {
+                columnNames.append(", ");
+                placeholders.append(", ");
+            }
+            columnNames.append(CoreSQLUtils.quoteWrap(column.getName()));
+            placeholders.append('?');
+
+            // SQLite bind indexes start at 1
+            columnIndexes.put(column.getName(), ++bindIndex);
+            if (column.hasDefaultValue()) defaultValues.put(bindIndex, column.getDefaultValue());
+            if (dictionary != null && dictionaryColumns.contains(column.getName())) dictionaryIndexes.add(bindIndex);
+        }
+
+        final String sql = "INSERT INTO " + CoreSQLUtils.quoteWrap(tableName)
+                + " (" + columnNames + ") VALUES (" + placeholders + ")";
+
+        insertStatement = geoPackage.getConnection().getDb().getDb().compileStatement(sql);
+        geometryColumnIndex = getColumnIndex(table.getGeometryColumnName());
+        bindDefaultValues();
+    }
+
+    /**
+     * Returns a factory that creates an inserter for each table in the provided GeoPackage. This is
+     * how the {@link CsvGeoPackageImporter} is used on the device. The inserters do not do any
+     * dictionary encoding, so this is only for GeoPackages that use the standard schema.
+     *
+     * @param geoPackage The GeoPackage to insert rows into.
+     * @return A factory that takes a table name and returns a new inserter for that table.
+     */
+    static Function<String, SurveyRowInserter> factoryFor(GeoPackage geoPackage)
+    {
+        return tableName -> new FeatureTableInserter(geoPackage, tableName, null, Collections.emptyList());
+    }
+
+    /**
+     * @return The name of the table that this inserter writes to.
+     */
+    String getTableName()
+    {
+        return tableName;
+    }
+
+    /**
+     * @return The DAO for the table, which was resolved when this inserter was created.
+     */
+    FeatureDao getFeatureDao()
+    {
+        return featureDao;
+    }
+
+    /**
+     * Returns the index to use when binding a value for the specified column.
+     *
+     * @param columnName The name of the column.
+     * @return The bind index for the column.
+     * @throws IllegalArgumentException If the table does not contain the specified column.
+     */
+    @Override
+    public int getColumnIndex(String columnName)
+    {
+        final Integer index = columnIndexes.get(columnName);
+        if (index == null)
+        {
+            throw new IllegalArgumentException("The " + tableName + " table does not have a " + columnName + " column");
+        }
+
+        return index;
+    }
+
+    /**
+     * Binds a WGS84 point to the geometry column of the table.
+     * <p>
+     * The point is encoded into a buffer that is reused for every row (see {@link WkbPointEncoder}),
+     * which is safe because the bound value is consumed by the next {@link #insert()}.
+     *
+     * @param longitude The longitude of the point.
+     * @param latitude  The latitude of the point.
+     * @param altitude  The altitude of the point.
+     */
+    @Override
+    public void bindPoint(double longitude, double latitude, double altitude)
+    {
+        insertStatement.bindBlob(geometryColumnIndex, pointEncoder.encode(longitude, latitude, altitude));
+    }
+
+    /**
+     * Binds an integer value (INTEGER, MEDIUMINT, SMALLINT, or TINYINT column).
+     */
+    @Override
+    public void bindLong(int index, long value)
+    {
+        insertStatement.bindLong(index, value);
+    }
+
+    /**
+     * Binds a floating point value (DOUBLE, FLOAT, or REAL column).
+     */
+    @Override
+    public void bindDouble(int index, double value)
+    {
+        insertStatement.bindDouble(index, value);
+    }
+
+    /**
+     * Binds a boolean value, which is stored as 1 or 0 per the GeoPackage BOOLEAN data type.
+     */
+    @Override
+    public void bindBoolean(int index, boolean value)
+    {
+        insertStatement.bindLong(index, value ? 1 : 0);
+    }
+
+    /**
+     * Binds a String value, or null if the provided value is null. If the column is dictionary encoded
+     * then the ID of the value is bound instead.
+     */
+    @Override
+    public void bindString(int index, String value)
+    {
+        if (value == null)
+        {
+            insertStatement.bindNull(index);
+        } else if (dictionaryIndexes.contains(index))
+        {
+            insertStatement.bindLong(index, dictionary.getId(value));
+        } else
+        {
+            insertStatement.bindString(index, value);
+        }
+    }
+
+    /**
+     * Inserts a row using all the values that have been bound since the last insert, and then
+     * clears the bindings so that the statement is ready for the next row.
+     *
+     * @return The row ID of the inserted row.
+     */
+    @Override
+    public long insert()
+    {
+        try
+        {
+            return insertStatement.executeInsert();
+        } finally
+        {
+            insertStatement.clearBindings();
+            bindDefaultValues();
+        }
+    }
+
+    /**
+     * Since every column is part of the insert statement, SQLite never applies a column's default
+     * value, so it is bound up front instead so that any value bound for the next row replaces it.
+     */
+    private void bindDefaultValues()
+    {
+        for (Map.Entry<Integer, Object> entry : defaultValues.entrySet())
+        {
+            final int index = entry.getKey();
+            final Object value = entry.getValue();
+            if (value instanceof Float || value instanceof Double)
+            {
+                insertStatement.bindDouble(index, ((Number) value).doubleValue());
+            } else if (value instanceof Number)
+            {
+                insertStatement.bindLong(index, ((Number) value).longValue());
+            } else if (value instanceof Boolean)
+            {
+                bindBoolean(index, (Boolean) value);
+            } else
+            {
+                insertStatement.bindString(index, value.toString());
+            }
+        }
+    }
+
+    /**
+     * Releases the compiled statement. This must be called before the GeoPackage file is closed.
+     */
+    @Override
+    public void close()
+    {
+        insertStatement.close();
+    }
+}
@@ -0,0 +1,308 @@
+package com.craxiom.networksurvey.logging;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A minimal FlatBuffers encoder for the handful of Arrow IPC metadata messages that the
+ * {@link ArrowStreamWriter} writes.
+ * <p>
+ * The Arrow metadata is only a few hundred bytes per message, so instead of pulling in the
+ * FlatBuffers runtime and the generated Arrow classes, the message is described as a small tree of
+ * {@link Table}s, strings, and vectors, and then written out in a single pass. Unlike the official
+ * builder, which writes the buffer back to front, this writer lays each object out front to back with
+ * its children after it, so all the offsets point forward as the format requires. Only the types
+ * that the Arrow messages need are supported.
+ * <p>
+ * All values are written little endian, and every object is aligned to its size relative to the start
+ * of the buffer, which is padded to a multiple of 8 bytes.
+ *
+ * @since 1.25.0
+ */
+final class FlatBufferWriter
+{
+    private static final int OFFSET_SIZE = Integer.BYTES;
+
+    private byte[] bytes = new byte[256];
+    private int position;
+
+    private FlatBufferWriter()
+    {
+    }
+
+    /**
+     * Encodes the provided root table.
+     *
+     * @param root The root table of the buffer.
+     * @return The encoded buffer, padded to a multiple of 8 bytes.
+     */
+    static byte[] finish(Table root)
+    {
+        final FlatBufferWriter writer = new FlatBufferWriter();
+        final int rootOffsetPosition = writer.reserve(OFFSET_SIZE, OFFSET_SIZE);
+        writer.patchOffset(rootOffsetPosition, root.write(writer));
+        writer.align(Long.BYTES);
+        return Arrays.copyOf(writer.bytes, writer.position);
+    }
+
+    /**
+     * Pads the buffer so that the next object starts at a multiple of the provided alignment.
+     */
+    private void align(int alignment)
+    {
+        reserve(0, alignment);
+    }
+
+    /**
+     * Aligns the buffer and then reserves the provided number of zeroed bytes.
+     *
+     * @return The position of the reserved bytes.
+     */
+    private int reserve(int size, int alignment)
+    {
+        final int start = (position + alignment - 1) / alignment * alignment;
+        final int end = start + size;
+        if (end > bytes.length) bytes = Arrays.copyOf(bytes, Math.max(end, bytes.length * 2));
+        position = end;
+        return start;
+    }
+
+    private void putLittleEndian(int at, long value, int size)
+    {
+        for (int i = 0; i < size; i++)
+        {
+            bytes[at + i] = (byte) (value >>> (8 * i));
+        }
+    }
+
+    /**
+     * Points the uoffset at the provided position to the object at the target position, which must come
+     * after it.
+     */
+    private void patchOffset(int offsetPosition, int targetPosition)
+    {
+        putLittleEndian(offsetPosition, targetPosition - offsetPosition, OFFSET_SIZE);
+    }
+
+    /**
+     * Something that can be referenced by an offset.
+     */
+    abstract static class Node
+    {
+        /**
+         * Appends this node (and anything it references) to the buffer.
+         *
+         * @return The position that an offset to this node has to point to.
+         */
+        abstract int write(FlatBufferWriter writer);
+    }
+
+    /**
+     * A table with scalar fields and offsets to other nodes. Fields that are not added are left out of
+     * the table, which means the reader uses the schema's default value for them.
+     */
+    static final class Table extends Node
+    {
+        private final List<Field> fields = new ArrayList<>();
+
+        Table addByte(int id, int value)
+        {
+            return addScalar(id, value, Byte.BYTES);
+        }
+
+        Table addBoolean(int id, boolean value)
+        {
+            return addScalar(id, value ? 1 : 0, Byte.BYTES);
+        }
+
+        Table addShort(int id, int value)
+        {
+            return addScalar(id, value, Short.BYTES);
+        }
+
+        Table addInt(int id, int value)
+        {
+            return addScalar(id, value, Integer.BYTES);
+        }
+
+        Table addLong(int id, long value)
+        {
+            return addScalar(id, value, Long.BYTES);
+        }
+
+        Table addString(int id, String value)
+        {
+            return addNode(id, new StringNode(value));
+        }
+
+        /**
+         * Adds a field that references another table, a string, or a vector.
+         */
+        Table addNode(int id, Node node)
+        {
+            fields.add(new Field(id, OFFSET_SIZE, 0, node));
+            return this;
+        }
+
+        private Table addScalar(int id, long value, int size)
+        {
+            fields.add(new Field(id, size, value, null));
+            return this;
+        }
+
+        @Override
+        int write(FlatBufferWriter writer)
+        {
+            int slotCount = 0;
+            for (Field field : fields)
+            {
+                slotCount = Math.max(slotCount, field.id + 1);
+            }
+
+            // The largest fields first so that there is as little padding between them as possible
+            final List<Field> layout = new ArrayList<>(fields);
+            layout.sort((first, second) -> Integer.compare(second.size, first.size));
+
+            int tableSize = OFFSET_SIZE; // The soffset to the vtable
+            int tableAlignment = OFFSET_SIZE;
+            final int[] fieldOffsets = new int[layout.size()];
+            for (int i = 0; i < layout.size(); i++)
+            {
+                final int size = layout.get(i).size;
+                tableSize = (tableSize + size - 1) / size * size;
+                fieldOffsets[i] = tableSize;
+                tableSize += size;
+                tableAlignment = Math.max(tableAlignment, size);
+            }
+            tableSize = (tableSize + tableAlignment - 1) / tableAlignment * tableAlignment;
+
+            final int vtableSize = 2 * Short.BYTES + slotCount * Short.BYTES;
+            final int vtablePosition = writer.reserve(vtableSize, Short.BYTES);
+            final int tablePosition = writer.reserve(tableSize, tableAlignment);
+
+            writer.putLittleEndian(vtablePosition, vtableSize, Short.BYTES);
+            writer.putLittleEndian(vtablePosition + Short.BYTES, tableSize, Short.BYTES);
+            writer.putLittleEndian(tablePosition, tablePosition - vtablePosition, OFFSET_SIZE);
+
+            for (int i = 0; i < layout.size(); i++)
+            {
+                final Field field = layout.get(i);
+                writer.putLittleEndian(vtablePosition + 2 * Short.BYTES + field.id * Short.BYTES, fieldOffsets[i], Short.BYTES);
+                if (field.node == null)
+                {
+                    writer.putLittleEndian(tablePosition + fieldOffsets[i], field.value, field.size);
+                }
+            }
+
+            // The referenced nodes go after the table so that the offsets are positive
+            for (int i = 0; i < layout.size(); i++)
+            {
+                final Field field = layout.get(i);
+                if (field.node != null)
+                {
+                    writer.patchOffset(tablePosition + fieldOffsets[i], field.node.write(writer));
+                }
+            }
+
+            return tablePosition;
+        }
+    }
+
+    /**
+     * A null terminated UTF-8 string.
+     */
+    static final class StringNode extends Node
+    {
+        private final byte[] value;
+
+        StringNode(String value)
+        {
+            this.value = value.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        int write(FlatBufferWriter writer)
+        {
+            final int lengthPosition = writer.reserve(OFFSET_SIZE + value.length + 1, OFFSET_SIZE);
+            writer.putLittleEndian(lengthPosition, value.length, OFFSET_SIZE);
+            System.arraycopy(value, 0, writer.bytes, lengthPosition + OFFSET_SIZE, value.length);
+            return lengthPosition;
+        }
+    }
+
+    /**
+     * A vector of tables (or any other nodes).
+     */
+    static final class NodeVector extends Node
+    {
+        private final List<? extends Node> nodes;
+
+        NodeVector(List<? extends Node> nodes)
+        {
+            this.nodes = nodes;
+        }
+
+        @Override
+        int write(FlatBufferWriter writer)
+        {
+            final int lengthPosition = writer.reserve(OFFSET_SIZE + nodes.size() * OFFSET_SIZE, OFFSET_SIZE);
+            writer.putLittleEndian(lengthPosition, nodes.size(), OFFSET_SIZE);
+            for (int i = 0; i < nodes.size(); i++)
+            {
+                writer.patchOffset(lengthPosition + OFFSET_SIZE + i * OFFSET_SIZE, nodes.get(i).write(writer));
+            }
+            return lengthPosition;
+        }
+    }
+
+    /**
+     * A vector of structs that are each made up of two longs, which is the layout of both the Arrow
+     * {@code FieldNode} and {@code Buffer} structs.
+     */
+    static final class LongPairVector extends Node
+    {
+        private final long[] values;
+
+        /**
+         * @param values The two longs of each struct, one struct after the other.
+         */
+        LongPairVector(long[] values)
+        {
+            this.values = values;
+        }
+
+        @Override
+        int write(FlatBufferWriter writer)
+        {
+            // The structs have to be 8 byte aligned, and they come right after the 4 byte length
+            writer.align(OFFSET_SIZE);
+            if (writer.position % Long.BYTES == 0) writer.reserve(OFFSET_SIZE, OFFSET_SIZE);
+
+            final int lengthPosition = writer.reserve(OFFSET_SIZE + values.length * Long.BYTES, OFFSET_SIZE);
+            writer.putLittleEndian(lengthPosition, values.length / 2, OFFSET_SIZE);
+            for (int i = 0; i < values.length; i++)
+            {
+                writer.putLittleEndian(lengthPosition + OFFSET_SIZE + i * Long.BYTES, values[i], Long.BYTES);
+            }
+            return lengthPosition;
+        }
+    }
+
+    private static final class Field
+    {
+        final int id;
+        final int size;
+        final long value;
+        final Node node;
+
+        Field(int id, int size, long value, Node node)
+        {
+            this.id = id;
+            this.size = size;
+            this.value = value;
+            this.node = node;
+        }
+    }
+}
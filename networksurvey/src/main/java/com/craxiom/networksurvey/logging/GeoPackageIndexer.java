@@ -0,0 +1,67 @@
+package com.craxiom.networksurvey.logging;
+
+import com.craxiom.networksurvey.constants.MessageConstants;
+
+import mil.nga.geopackage.GeoPackage;
+import mil.nga.geopackage.db.CoreSQLUtils;
+import mil.nga.geopackage.extension.rtree.RTreeIndexExtension;
+import mil.nga.geopackage.features.user.FeatureTable;
+import timber.log.Timber;
+
+/**
+ * Adds the indexes that make it fast to query a finished survey log file.
+ * <p>
+ * The feature tables are created without any indexes because keeping an index up to date slows down
+ * every insert. Instead, once a log file is closed (or rolled over), an RTree spatial index (the
+ * GeoPackage RTree extension) and an index on the time column are built for each feature table in
+ * one pass. Building an index over rows that are already in the table is much faster than updating
+ * it one row at a time.
+ *
+ * @since 1.25.0
+ */
+final class GeoPackageIndexer
+{
+    private GeoPackageIndexer()
+    {
+    }
+
+    /**
+     * Builds the spatial and time indexes for all the feature tables in the provided GeoPackage. This
+     * can take a while for large files, so it should be called from a background thread, and it must
+     * not be called while a transaction is open.
+     *
+     * @param geoPackage The GeoPackage to index.
+     */
+    static void createIndexes(GeoPackage geoPackage)
+    {
+        final long startTime = System.currentTimeMillis();
+
+        final RTreeIndexExtension rTreeIndexExtension = new RTreeIndexExtension(geoPackage);
+        for (String tableName : geoPackage.getFeatureTables())
+        {
+            // The compact schema views are registered as features, but they can't be indexed
+            if (geoPackage.isView(tableName)) continue;
+
+            geoPackage.beginTransaction();
+            boolean successful = false;
+            try
+            {
+                final FeatureTable table = geoPackage.getFeatureDao(tableName).getTable();
+                if (!rTreeIndexExtension.has(table)) rTreeIndexExtension.create(table);
+
+                geoPackage.execSQL("CREATE INDEX IF NOT EXISTS " + CoreSQLUtils.quoteWrap(tableName + "_time_idx")
+                        + " ON " + CoreSQLUtils.quoteWrap(tableName)
+                        + " (" + CoreSQLUtils.quoteWrap(MessageConstants.TIME_COLUMN) + ")");
+                successful = true;
+            } catch (Exception e)
+            {
+                Timber.e(e, "Could not create the indexes for the %s table in %s", tableName, geoPackage.getName());
+            } finally
+            {
+                geoPackage.endTransaction(successful);
+            }
+        }
+
+        Timber.i("Indexed the GeoPackage file %s in %d ms", geoPackage.getName(), System.currentTimeMillis() - startTime);
+    }
+}
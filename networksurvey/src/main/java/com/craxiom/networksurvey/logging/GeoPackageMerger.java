@@ -0,0 +1,268 @@
+package com.craxiom.networksurvey.logging;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import mil.nga.geopackage.GeoPackageCore;
+import mil.nga.geopackage.db.CoreSQLUtils;
+import mil.nga.geopackage.db.GeoPackageCoreConnection;
+import mil.nga.proj.ProjectionConstants;
+import timber.log.Timber;
+
+/**
+ * Concatenates several survey GeoPackage files (e.g. all the files that were rolled over during one
+ * logging session) into a single GeoPackage.
+ * <p>
+ * Each source file is attached to the target database and its rows are copied with a single
+ * {@code INSERT ... SELECT} per table, so the records never pass through Java and the copy runs at
+ * the speed of SQLite itself. The survey tables (and the compact schema views) are created in the
+ * target from the definitions in the first source file that has them, and their contents and
+ * geometry column entries are pointed at the target's WGS 84 spatial reference system. For the
+ * compact schema, the dictionary IDs are remapped to the target's {@link StringDictionary} as the
+ * rows are copied.
+ * <p>
+ * The primary keys are not copied, so the rows are renumbered in the order of the source files.
+ * Only the columns that exist in both the source and target tables are copied, which allows files
+ * written by different versions of the app to be merged.
+ * <p>
+ * This class only depends on the GeoPackage core API, so it can be used on the device or from a JVM
+ * tool that opens the target with the JVM GeoPackage library. The caller is responsible for creating
+ * the indexes (see {@link GeoPackageIndexer}) and calling {@link #compact(GeoPackageCore)} once all
+ * the files have been merged.
+ *
+ * @since 1.25.0
+ */
+public final class GeoPackageMerger
+{
+    private static final String SOURCE_SCHEMA = "merge_source";
+
+    /**
+     * The names of all the columns that can be dictionary encoded in the compact schema.
+     */
+    private static final Set<String> DICTIONARY_COLUMNS = new HashSet<>();
+
+    static
+    {
+        DICTIONARY_COLUMNS.addAll(CellularSurveyRecordLogger.DICTIONARY_COLUMNS);
+        DICTIONARY_COLUMNS.addAll(WifiSurveyRecordLogger.DICTIONARY_COLUMNS);
+    }
+
+    private GeoPackageMerger()
+    {
+    }
+
+    /**
+     * Copies all the survey records from the source files into the target GeoPackage, in the order
+     * provided. Each source file is copied in its own transaction. This can take a while for large
+     * files, so it should be called from a background thread, and it must not be called while a
+     * transaction is open.
+     *
+     * @param target      The GeoPackage to copy the records into. This is normally a new file, but it
+     *                    can also be a file that was previously merged into.
+     * @param sourceFiles The GeoPackage files to copy the records from. They are not modified.
+     * @return The total number of rows that were copied.
+     * @throws IllegalArgumentException If some of the files use the compact schema and others do not.
+     */
+    public static long merge(GeoPackageCore target, List<File> sourceFiles)
+    {
+        final long srsId = target.getSpatialReferenceSystemDao()
+                .getOrCreateCode(ProjectionConstants.AUTHORITY_EPSG, ProjectionConstants.EPSG_WORLD_GEODETIC_SYSTEM)
+                .getSrsId();
+        target.createGeometryColumnsTable();
+
+        long totalRows = 0;
+        for (File sourceFile : sourceFiles)
+        {
+            final long startTime = System.currentTimeMillis();
+
+            // Attaching is not allowed inside of a transaction
+            target.execSQL("ATTACH DATABASE " + quoteLiteral(sourceFile.getAbsolutePath()) + " AS " + SOURCE_SCHEMA);
+            try
+            {
+                target.beginTransaction();
+                boolean successful = false;
+                try
+                {
+                    final long rows = mergeSource(target, srsId);
+                    successful = true;
+                    totalRows += rows;
+                    Timber.i("Merged %d rows from %s in %d ms", rows, sourceFile.getName(), System.currentTimeMillis() - startTime);
+                } finally
+                {
+                    target.endTransaction(successful);
+                }
+            } finally
+            {
+                target.execSQL("DETACH DATABASE " + SOURCE_SCHEMA);
+            }
+        }
+
+        return totalRows;
+    }
+
+    /**
+     * Rebuilds the target file so that it does not have any free pages and its tables are stored
+     * contiguously. This should be called after the files are merged and indexed, and it must not be
+     * called while a transaction is open.
+     *
+     * @param geoPackage The GeoPackage to compact.
+     */
+    public static void compact(GeoPackageCore geoPackage)
+    {
+        final long startTime = System.currentTimeMillis();
+        geoPackage.vacuum();
+        Timber.i("Compacted the GeoPackage file %s in %d ms", geoPackage.getName(), System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * Copies all the survey tables from the attached source database.
+     *
+     * @return The number of rows that were copied.
+     */
+    private static long mergeSource(GeoPackageCore target, long srsId)
+    {
+        final GeoPackageCoreConnection connection = target.getDatabase();
+
+        final boolean sourceCompact = isSourceType("table", StringDictionary.TABLE_NAME, connection);
+        if (sourceCompact != StringDictionary.exists(target))
+        {
+            if (!sourceCompact || !target.getFeatureTables().isEmpty())
+            {
+                throw new IllegalArgumentException("Files that use the compact schema can't be merged with files that use the standard schema");
+            }
+            StringDictionary.createTable(target);
+        }
+
+        if (sourceCompact)
+        {
+            target.execSQL("INSERT OR IGNORE INTO " + StringDictionary.TABLE_NAME + " (" + StringDictionary.VALUE_COLUMN + ")"
+                    + " SELECT " + StringDictionary.VALUE_COLUMN + " FROM " + SOURCE_SCHEMA + "." + StringDictionary.TABLE_NAME);
+        }
+
+        final List<String> featureTables = connection.querySingleColumnTypedResults(
+                "SELECT table_name FROM " + SOURCE_SCHEMA + ".gpkg_contents WHERE data_type = 'features'", null);
+
+        // The tables have to be created before any of the views that select from them
+        final List<String> views = new ArrayList<>();
+        long rows = 0;
+        for (String tableName : featureTables)
+        {
+            if (isSourceType("view", tableName, connection))
+            {
+                views.add(tableName);
+                continue;
+            }
+
+            if (!target.isTable(tableName)) copyDefinition("table", tableName, target, srsId);
+            rows += copyRows(tableName, target, sourceCompact);
+        }
+
+        for (String viewName : views)
+        {
+            if (!target.isView(viewName)) copyDefinition("view", viewName, target, srsId);
+        }
+
+        return rows;
+    }
+
+    /**
+     * Creates a table or view in the target using the SQL from the source, and registers it in the
+     * target's contents and geometry columns tables.
+     */
+    private static void copyDefinition(String type, String name, GeoPackageCore target, long srsId)
+    {
+        final String sql = target.getDatabase().querySingleTypedResult(
+                "SELECT sql FROM " + SOURCE_SCHEMA + ".sqlite_master WHERE type = ? AND name = ?", new String[]{type, name});
+        target.execSQL(sql);
+
+        final String whereTableName = " WHERE table_name = " + quoteLiteral(name);
+        target.execSQL("INSERT INTO gpkg_contents (table_name, data_type, identifier, description, last_change, srs_id)"
+                + " SELECT table_name, data_type, identifier, description, last_change, " + srsId
+                + " FROM " + SOURCE_SCHEMA + ".gpkg_contents" + whereTableName);
+        target.execSQL("INSERT INTO gpkg_geometry_columns (table_name, column_name, geometry_type_name, srs_id, z, m)"
+                + " SELECT table_name, column_name, geometry_type_name, " + srsId + ", z, m"
+                + " FROM " + SOURCE_SCHEMA + ".gpkg_geometry_columns" + whereTableName);
+    }
+
+    /**
+     * Copies all the rows of a table from the source with a single {@code INSERT ... SELECT}.
+     *
+     * @return The number of rows that were copied.
+     */
+    private static long copyRows(String tableName, GeoPackageCore target, boolean compact)
+    {
+        final GeoPackageCoreConnection connection = target.getDatabase();
+        final String quotedTable = CoreSQLUtils.quoteWrap(tableName);
+
+        final Set<String> sourceColumns = new HashSet<>();
+        for (List<Object> column : connection.queryResults("PRAGMA " + SOURCE_SCHEMA + ".table_info(" + quotedTable + ")", null))
+        {
+            sourceColumns.add((String) column.get(1));
+        }
+
+        final StringBuilder insertColumns = new StringBuilder();
+        final StringBuilder selectColumns = new StringBuilder();
+        for (List<Object> column : connection.queryResults("PRAGMA main.table_info(" + quotedTable + ")", null))
+        {
+            final String name = (String) column.get(1);
+            final boolean primaryKey = ((Number) column.get(5)).intValue() != 0;
+            if (primaryKey || !sourceColumns.contains(name)) continue;
+
+            if (insertColumns.length() > 0)
+            {
+                insertColumns.append(", ");
+                selectColumns.append(", ");
+            }
+
+            final String quotedColumn = CoreSQLUtils.quoteWrap(name);
+            insertColumns.append(quotedColumn);
+            if (compact && isDictionaryColumn(name, (String) column.get(2)))
+            {
+                // Look up the target ID for the value that the source ID refers to
+                selectColumns.append("(SELECT m.").append(StringDictionary.ID_COLUMN)
+                        .append(" FROM ").append(StringDictionary.TABLE_NAME).append(" m JOIN ")
+                        .append(SOURCE_SCHEMA).append('.').append(StringDictionary.TABLE_NAME).append(" s ON s.")
+                        .append(StringDictionary.VALUE_COLUMN).append(" = m.").append(StringDictionary.VALUE_COLUMN)
+                        .append(" WHERE s.").append(StringDictionary.ID_COLUMN).append(" = t.").append(quotedColumn).append(')');
+            } else
+            {
+                selectColumns.append("t.").append(quotedColumn);
+            }
+        }
+
+        if (insertColumns.length() == 0) return 0;
+
+        target.execSQL("INSERT INTO main." + quotedTable + " (" + insertColumns + ") SELECT " + selectColumns
+                + " FROM " + SOURCE_SCHEMA + "." + quotedTable + " t");
+
+        final Number changes = connection.querySingleTypedResult("SELECT changes()", null);
+        return changes == null ? 0 : changes.longValue();
+    }
+
+    /**
+     * @return True if the column with the provided name and declared type holds dictionary IDs.
+     */
+    private static boolean isDictionaryColumn(String name, String declaredType)
+    {
+        return DICTIONARY_COLUMNS.contains(name) && "INTEGER".equalsIgnoreCase(declaredType);
+    }
+
+    /**
+     * @return True if the attached source database has a table or view (depending on the type) with
+     * the provided name.
+     */
+    private static boolean isSourceType(String type, String name, GeoPackageCoreConnection connection)
+    {
+        final Number count = connection.querySingleTypedResult("SELECT COUNT(*) FROM " + SOURCE_SCHEMA
+                + ".sqlite_master WHERE type = ? AND name = ?", new String[]{type, name});
+        return count != null && count.intValue() > 0;
+    }
+
+    private static String quoteLiteral(String value)
+    {
+        return "'" + value.replace("'", "''") + "'";
+    }
+}
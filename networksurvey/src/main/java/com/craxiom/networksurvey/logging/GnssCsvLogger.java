@@ -23,26 +23,20 @@ import static com.craxiom.networksurvey.constants.csv.GnssCsvConstants.UNDULATIO
 import static com.craxiom.networksurvey.constants.csv.GnssCsvConstants.USED_IN_SOLUTION;
 import static com.craxiom.networksurvey.constants.csv.GnssCsvConstants.VDOP;
 
-import android.os.Looper;
-
 import com.craxiom.messaging.GnssRecord;
 import com.craxiom.messaging.GnssRecordData;
 import com.craxiom.networksurvey.constants.NetworkSurveyConstants;
 import com.craxiom.networksurvey.listeners.IGnssSurveyRecordListener;
 import com.craxiom.networksurvey.services.NetworkSurveyService;
 
-import java.io.IOException;
-
-import timber.log.Timber;
-
 /**
  * Responsible for taking in GNSS survey records and logging them to a CSV file.
  */
 public class GnssCsvLogger extends CsvRecordLogger implements IGnssSurveyRecordListener
 {
-    public GnssCsvLogger(NetworkSurveyService networkSurveyService, Looper serviceLooper)
+    public GnssCsvLogger(NetworkSurveyService networkSurveyService)
     {
-        super(networkSurveyService, serviceLooper, NetworkSurveyConstants.CSV_LOG_DIRECTORY_NAME,
+        super(networkSurveyService, NetworkSurveyConstants.CSV_LOG_DIRECTORY_NAME,
                 NetworkSurveyConstants.GNSS_FILE_NAME_PREFIX, true);
     }
 
@@ -65,46 +59,37 @@ public class GnssCsvLogger extends CsvRecordLogger implements IGnssSurveyRecordL
     @Override
     public void onGnssSurveyRecord(GnssRecord record)
     {
-        try
-        {
-            writeCsvRecord(convertToObjectArray(record), true);
-        } catch (IOException e)
-        {
-            Timber.e(e, "Could not log the GNSS record to the CSV file");
-        }
+        writeCsvRecord(record, GnssCsvLogger::encodeRow);
     }
 
     /**
-     * @return A String array that contains the GNSS record values that can be written out as a CSV
-     * row.
+     * Adds the GNSS record values to the encoder as a CSV row.
      */
-    private String[] convertToObjectArray(GnssRecord record)
+    private static void encodeRow(GnssRecord record, CsvRowEncoder encoder)
     {
         GnssRecordData data = record.getData();
 
-        return new String[]{
-                data.getDeviceTime(),
-                String.valueOf(data.getLatitude()),
-                String.valueOf(data.getLongitude()),
-                String.valueOf(data.getAltitude()),
-                String.valueOf(data.getSpeed()),
-                String.valueOf(data.getAccuracy()),
-                data.getMissionId(),
-                String.valueOf(data.getRecordNumber()),
-                String.valueOf(data.getGroupNumber()),
-                data.getConstellation().toString(),
-                data.hasSpaceVehicleId() ? String.valueOf(data.getSpaceVehicleId().getValue()) : "",
-                data.hasCarrierFreqHz() ? String.valueOf(data.getCarrierFreqHz().getValue()) : "",
-                data.hasClockOffset() ? String.valueOf(data.getClockOffset().getValue()) : "",
-                data.hasUsedInSolution() ? String.valueOf(data.getUsedInSolution().getValue()) : "",
-                data.hasUndulationM() ? String.valueOf(data.getUndulationM().getValue()) : "",
-                data.hasLatitudeStdDevM() ? String.valueOf(data.getLatitudeStdDevM().getValue()) : "",
-                data.hasLongitudeStdDevM() ? String.valueOf(data.getLongitudeStdDevM().getValue()) : "",
-                data.hasAltitudeStdDevM() ? String.valueOf(data.getAltitudeStdDevM().getValue()) : "",
-                data.hasAgcDb() ? String.valueOf(data.getAgcDb().getValue()) : "",
-                data.hasCn0DbHz() ? String.valueOf(data.getCn0DbHz().getValue()) : "",
-                data.hasHdop() ? String.valueOf(data.getHdop().getValue()) : "",
-                data.hasVdop() ? String.valueOf(data.getVdop().getValue()) : ""
-        };
+        encoder.add(data.getDeviceTime())
+                .add(data.getLatitude())
+                .add(data.getLongitude())
+                .add(data.getAltitude())
+                .add(data.getSpeed())
+                .add(data.getAccuracy())
+                .add(data.getMissionId())
+                .add(data.getRecordNumber())
+                .add(data.getGroupNumber())
+                .add(data.getConstellation().toString())
+                .addIf(data.hasSpaceVehicleId(), data.getSpaceVehicleId().getValue())
+                .addIf(data.hasCarrierFreqHz(), data.getCarrierFreqHz().getValue())
+                .addIf(data.hasClockOffset(), data.getClockOffset().getValue())
+                .addIf(data.hasUsedInSolution(), data.getUsedInSolution().getValue())
+                .addIf(data.hasUndulationM(), data.getUndulationM().getValue())
+                .addIf(data.hasLatitudeStdDevM(), data.getLatitudeStdDevM().getValue())
+                .addIf(data.hasLongitudeStdDevM(), data.getLongitudeStdDevM().getValue())
+                .addIf(data.hasAltitudeStdDevM(), data.getAltitudeStdDevM().getValue())
+                .addIf(data.hasAgcDb(), data.getAgcDb().getValue())
+                .addIf(data.hasCn0DbHz(), data.getCn0DbHz().getValue())
+                .addIf(data.hasHdop(), data.getHdop().getValue())
+                .addIf(data.hasVdop(), data.getVdop().getValue());
     }
 }
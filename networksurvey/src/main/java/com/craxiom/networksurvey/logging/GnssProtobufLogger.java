@@ -0,0 +1,28 @@
+package com.craxiom.networksurvey.logging;
+
+import com.craxiom.messaging.GnssRecord;
+import com.craxiom.networksurvey.constants.NetworkSurveyConstants;
+import com.craxiom.networksurvey.listeners.IGnssSurveyRecordListener;
+import com.craxiom.networksurvey.services.NetworkSurveyService;
+
+/**
+ * Responsible for taking in the GNSS survey records and logging them to a binary protobuf log file.
+ *
+ * @since 1.25.0
+ */
+public class GnssProtobufLogger extends ProtobufRecordLogger implements IGnssSurveyRecordListener
+{
+    static final int RECORD_TYPE_GNSS = 1;
+
+    public GnssProtobufLogger(NetworkSurveyService networkSurveyService)
+    {
+        super(networkSurveyService, NetworkSurveyConstants.PROTOBUF_LOG_DIRECTORY_NAME,
+                NetworkSurveyConstants.GNSS_FILE_NAME_PREFIX, "gnss");
+    }
+
+    @Override
+    public void onGnssSurveyRecord(GnssRecord gnssRecord)
+    {
+        writeRecord(RECORD_TYPE_GNSS, gnssRecord);
+    }
+}
@@ -16,28 +16,25 @@ import static com.craxiom.networksurvey.constants.GnssMessageConstants.TIME_COLU
 import static com.craxiom.networksurvey.constants.GnssMessageConstants.getConstellationString;
 import static com.craxiom.networksurvey.constants.MessageConstants.ACCURACY;
 
-import android.os.Looper;
-
 import com.craxiom.messaging.GnssRecord;
 import com.craxiom.messaging.GnssRecordData;
 import com.craxiom.messaging.gnss.Constellation;
 import com.craxiom.networksurvey.constants.GnssMessageConstants;
 import com.craxiom.networksurvey.constants.NetworkSurveyConstants;
 import com.craxiom.networksurvey.listeners.IGnssSurveyRecordListener;
+import com.craxiom.networksurvey.model.RecordTimestamp;
 import com.craxiom.networksurvey.services.NetworkSurveyService;
 import com.craxiom.networksurvey.util.IOUtils;
 import com.craxiom.networksurvey.util.MathUtils;
+import com.google.protobuf.InvalidProtocolBufferException;
 
 import java.sql.SQLException;
 
 import mil.nga.geopackage.GeoPackage;
+import mil.nga.geopackage.GeoPackageCore;
 import mil.nga.geopackage.db.GeoPackageDataType;
 import mil.nga.geopackage.features.user.FeatureColumn;
-import mil.nga.geopackage.features.user.FeatureDao;
-import mil.nga.geopackage.features.user.FeatureRow;
-import mil.nga.geopackage.geom.GeoPackageGeometryData;
 import mil.nga.geopackage.srs.SpatialReferenceSystem;
-import mil.nga.sf.Point;
 import timber.log.Timber;
 
 /**
@@ -47,29 +44,74 @@ import timber.log.Timber;
  */
 public class GnssRecordLogger extends SurveyRecordLogger implements IGnssSurveyRecordListener
 {
+    /**
+     * The record type used to identify the records in the spool.
+     */
+    private static final int SPOOL_TYPE_GNSS = 1;
+
+    private GnssTable gnssTable;
+
     /**
      * Constructs a Logger that writes GNSS Survey records to a GeoPackage SQLite database.
      *
      * @param networkSurveyService The Service instance that is running this logger.
-     * @param serviceLooper        The Looper associated with the service that can be used to do any background processing.
      */
-    public GnssRecordLogger(NetworkSurveyService networkSurveyService, Looper serviceLooper)
+    public GnssRecordLogger(NetworkSurveyService networkSurveyService)
     {
-        super(networkSurveyService, serviceLooper, NetworkSurveyConstants.LOG_DIRECTORY_NAME, NetworkSurveyConstants.GNSS_FILE_NAME_PREFIX);
+        super(networkSurveyService, NetworkSurveyConstants.LOG_DIRECTORY_NAME, NetworkSurveyConstants.GNSS_FILE_NAME_PREFIX);
     }
 
     @Override
     public void onGnssSurveyRecord(GnssRecord gnssRecord)
     {
-        writeGnssRecordToLogFile(gnssRecord);
+        writeRecord(gnssRecord, record -> writeGnssRecordToLogFile(record,
+                IOUtils.getEpochFromRfc3339(record.getData().getDeviceTime())));
+    }
+
+    @Override
+    public void onGnssSurveyRecord(GnssRecord gnssRecord, RecordTimestamp timestamp)
+    {
+        writeRecord(gnssRecord, timestamp.getEpochMillis(), SPOOL_TYPE_GNSS, this::writeGnssRecordToLogFile);
     }
 
     @Override
     void createTables(GeoPackage geoPackage, SpatialReferenceSystem srs) throws SQLException
+    {
+        createSchema(geoPackage, srs);
+    }
+
+    /**
+     * Creates the GNSS table in the provided GeoPackage. This is static so that the same schema
+     * can be used by tools that don't have a running logger (e.g. the {@link CsvGeoPackageImporter}).
+     *
+     * @param geoPackage The GeoPackage to create the tables in.
+     * @param srs        The SRS to use for the table coordinates.
+     * @throws SQLException If there is a problem working with the GeoPackage SQLite DB.
+     * @since 1.25.0
+     */
+    static void createSchema(GeoPackageCore geoPackage, SpatialReferenceSystem srs) throws SQLException
     {
         createGnssRecordTable(geoPackage, srs);
     }
 
+    @Override
+    void prepareInserters(GeoPackage geoPackage)
+    {
+        gnssTable = new GnssTable(createInserter(GNSS_RECORDS_TABLE_NAME));
+    }
+
+    @Override
+    void replaySpooledRecord(int recordType, long epochMillis, byte[] payload) throws InvalidProtocolBufferException
+    {
+        if (recordType == SPOOL_TYPE_GNSS)
+        {
+            writeGnssRecordToLogFile(GnssRecord.parseFrom(payload), epochMillis);
+        } else
+        {
+            Timber.w("Unknown spooled GNSS record type: %d", recordType);
+        }
+    }
+
     /**
      * Creates an GeoPackage Table that can be populated with GNSS Records.
      *
@@ -77,9 +119,9 @@ public class GnssRecordLogger extends SurveyRecordLogger implements IGnssSurveyR
      * @param srs        The SRS to use for the table coordinates.
      * @throws SQLException If there is a problem working with the GeoPackage SQLite DB.
      */
-    private void createGnssRecordTable(GeoPackage geoPackage, SpatialReferenceSystem srs) throws SQLException
+    private static void createGnssRecordTable(GeoPackageCore geoPackage, SpatialReferenceSystem srs) throws SQLException
     {
-        createTable(GNSS_RECORDS_TABLE_NAME, geoPackage, srs, false, (tableColumns, columnNumber) -> {
+        createTable(GNSS_RECORDS_TABLE_NAME, geoPackage, srs, Collections.emptyList(), false, (tableColumns, columnNumber) -> {
             tableColumns.add(FeatureColumn.createColumn(columnNumber++, GROUP_NUMBER_COLUMN, GeoPackageDataType.MEDIUMINT, true, -1));
 
             tableColumns.add(FeatureColumn.createColumn(columnNumber++, CONSTELLATION, GeoPackageDataType.TEXT, false, null));
@@ -97,85 +139,122 @@ public class GnssRecordLogger extends SurveyRecordLogger implements IGnssSurveyR
 
     /**
      * Given a GNSS Record, write it to the GeoPackage log file.
+     * <p>
+     * This method is NOT thread safe and it is assumed the caller has already gotten a lock on the
+     * {@link #geoPackageLock} and is running on the {@link #writerQueue} thread.
      *
-     * @param gnssRecord The GNSS Record to write to the log file.
+     * @param gnssRecord  The GNSS Record to write to the log file.
+     * @param epochMillis The time that the record was captured, in milliseconds since the Unix Epoch.
      */
-    private void writeGnssRecordToLogFile(final GnssRecord gnssRecord)
+    private void writeGnssRecordToLogFile(final GnssRecord gnssRecord, long epochMillis)
     {
-        if (!loggingEnabled) return;
-
-        handler.post(() -> {
-            synchronized (geoPackageLock)
+        try
+        {
+            if (geoPackage != null)
             {
-                try
+                beginBatchIfNeeded();
+
+                final GnssTable table = gnssTable;
+
+                final GnssRecordData data = gnssRecord.getData();
+
+                table.inserter.bindPoint(data.getLongitude(), data.getLatitude(), data.getAltitude());
+
+                table.inserter.bindLong(table.time, epochMillis);
+                table.inserter.bindString(table.missionId, data.getMissionId());
+                table.inserter.bindLong(table.recordNumber, data.getRecordNumber());
+                table.inserter.bindLong(table.groupNumber, data.getGroupNumber());
+                table.inserter.bindString(table.deviceModel, data.getDeviceModel());
+                table.inserter.bindLong(table.accuracy, MathUtils.roundAccuracy(data.getAccuracy()));
+
+                final Constellation constellation = data.getConstellation();
+                if (constellation != Constellation.UNKNOWN)
+                {
+                    table.inserter.bindString(table.constellation, getConstellationString(constellation));
+                }
+
+                if (data.hasSpaceVehicleId())
                 {
-                    if (geoPackage != null)
-                    {
-                        final GnssRecordData data = gnssRecord.getData();
-                        FeatureDao featureDao = geoPackage.getFeatureDao(GNSS_RECORDS_TABLE_NAME);
-                        FeatureRow row = featureDao.newRow();
-
-                        Point fix = new Point(data.getLongitude(), data.getLatitude(), (double) data.getAltitude());
-
-                        GeoPackageGeometryData geomData = new GeoPackageGeometryData(WGS84_SRS);
-                        geomData.setGeometry(fix);
-
-                        row.setGeometry(geomData);
-
-                        row.setValue(TIME_COLUMN, IOUtils.getEpochFromRfc3339(data.getDeviceTime()));
-                        row.setValue(GnssMessageConstants.MISSION_ID_COLUMN, data.getMissionId());
-                        row.setValue(RECORD_NUMBER_COLUMN, data.getRecordNumber());
-                        row.setValue(GROUP_NUMBER_COLUMN, data.getGroupNumber());
-                        row.setValue(DEVICE_MODEL_COLUMN, data.getDeviceModel());
-                        row.setValue(ACCURACY, MathUtils.roundAccuracy(data.getAccuracy()));
-
-                        final Constellation constellation = data.getConstellation();
-                        if (constellation != Constellation.UNKNOWN)
-                        {
-                            row.setValue(CONSTELLATION, getConstellationString(constellation));
-                        }
-
-                        if (data.hasSpaceVehicleId())
-                        {
-                            row.setValue(SPACE_VEHICLE_ID, data.getSpaceVehicleId().getValue());
-                        }
-
-                        if (data.hasCarrierFreqHz())
-                        {
-                            row.setValue(CARRIER_FREQUENCY_HZ, data.getCarrierFreqHz().getValue());
-                        }
-
-                        if (data.hasLatitudeStdDevM())
-                        {
-                            row.setValue(LATITUDE_STD_DEV_M, data.getLatitudeStdDevM().getValue());
-                        }
-
-                        if (data.hasLongitudeStdDevM())
-                        {
-                            row.setValue(LONGITUDE_STD_DEV_M, data.getLongitudeStdDevM().getValue());
-                        }
-
-                        if (data.hasAltitudeStdDevM())
-                        {
-                            row.setValue(ALTITUDE_STD_DEV_M, data.getAltitudeStdDevM().getValue());
-                        }
-
-                        if (data.hasAgcDb()) row.setValue(AGC_DB, data.getAgcDb().getValue());
-
-                        if (data.hasCn0DbHz())
-                        {
-                            row.setValue(CARRIER_TO_NOISE_DENSITY_DB_HZ, data.getCn0DbHz().getValue());
-                        }
-
-                        featureDao.insert(row);
-
-                        checkIfRolloverNeeded();
-                    }
-                } catch (Exception e)
+                    table.inserter.bindLong(table.spaceVehicleId, data.getSpaceVehicleId().getValue());
+                }
+
+                if (data.hasCarrierFreqHz())
+                {
+                    table.inserter.bindLong(table.carrierFrequencyHz, data.getCarrierFreqHz().getValue());
+                }
+
+                if (data.hasLatitudeStdDevM())
+                {
+                    table.inserter.bindDouble(table.latitudeStdDevM, data.getLatitudeStdDevM().getValue());
+                }
+
+                if (data.hasLongitudeStdDevM())
+                {
+                    table.inserter.bindDouble(table.longitudeStdDevM, data.getLongitudeStdDevM().getValue());
+                }
+
+                if (data.hasAltitudeStdDevM())
                 {
-                    Timber.e(e, "Something went wrong when trying to write a GNSS survey record");
+                    table.inserter.bindDouble(table.altitudeStdDevM, data.getAltitudeStdDevM().getValue());
                 }
+
+                if (data.hasAgcDb()) table.inserter.bindDouble(table.agcDb, data.getAgcDb().getValue());
+
+                if (data.hasCn0DbHz())
+                {
+                    table.inserter.bindDouble(table.carrierToNoiseDensityDbHz, data.getCn0DbHz().getValue());
+                }
+
+                table.inserter.insert();
+
+                onRecordInserted();
             }
-        });
+        } catch (Exception e)
+        {
+            Timber.e(e, "Something went wrong when trying to write a GNSS survey record");
+        }
+    }
+
+    /**
+     * The insert statement and column indexes for the GNSS table in the current GeoPackage file.
+     *
+     * @since 1.25.0
+     */
+    private static final class GnssTable
+    {
+        final FeatureTableInserter inserter;
+        final int time;
+        final int missionId;
+        final int recordNumber;
+        final int groupNumber;
+        final int deviceModel;
+        final int accuracy;
+        final int constellation;
+        final int spaceVehicleId;
+        final int carrierFrequencyHz;
+        final int latitudeStdDevM;
+        final int longitudeStdDevM;
+        final int altitudeStdDevM;
+        final int agcDb;
+        final int carrierToNoiseDensityDbHz;
+
+        GnssTable(FeatureTableInserter inserter)
+        {
+            this.inserter = inserter;
+            time = inserter.getColumnIndex(TIME_COLUMN);
+            missionId = inserter.getColumnIndex(GnssMessageConstants.MISSION_ID_COLUMN);
+            recordNumber = inserter.getColumnIndex(RECORD_NUMBER_COLUMN);
+            groupNumber = inserter.getColumnIndex(GROUP_NUMBER_COLUMN);
+            deviceModel = inserter.getColumnIndex(DEVICE_MODEL_COLUMN);
+            accuracy = inserter.getColumnIndex(ACCURACY);
+            constellation = inserter.getColumnIndex(CONSTELLATION);
+            spaceVehicleId = inserter.getColumnIndex(SPACE_VEHICLE_ID);
+            carrierFrequencyHz = inserter.getColumnIndex(CARRIER_FREQUENCY_HZ);
+            latitudeStdDevM = inserter.getColumnIndex(LATITUDE_STD_DEV_M);
+            longitudeStdDevM = inserter.getColumnIndex(LONGITUDE_STD_DEV_M);
+            altitudeStdDevM = inserter.getColumnIndex(ALTITUDE_STD_DEV_M);
+            agcDb = inserter.getColumnIndex(AGC_DB);
+            carrierToNoiseDensityDbHz = inserter.getColumnIndex(CARRIER_TO_NOISE_DENSITY_DB_HZ);
+        }
     }
 }
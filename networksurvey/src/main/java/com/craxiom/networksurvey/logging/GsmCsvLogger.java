@@ -21,26 +21,20 @@ import static com.craxiom.networksurvey.constants.csv.GsmCsvConstants.SIGNAL_STR
 import static com.craxiom.networksurvey.constants.csv.GsmCsvConstants.SPEED;
 import static com.craxiom.networksurvey.constants.csv.GsmCsvConstants.TA;
 
-import android.os.Looper;
-
 import com.craxiom.messaging.GsmRecord;
 import com.craxiom.messaging.GsmRecordData;
 import com.craxiom.networksurvey.constants.NetworkSurveyConstants;
 import com.craxiom.networksurvey.listeners.ICellularSurveyRecordListener;
 import com.craxiom.networksurvey.services.NetworkSurveyService;
 
-import java.io.IOException;
-
-import timber.log.Timber;
-
 /**
  * Responsible for taking in GSM survey records and logging them to a CSV file.
  */
 public class GsmCsvLogger extends CsvRecordLogger implements ICellularSurveyRecordListener
 {
-    public GsmCsvLogger(NetworkSurveyService networkSurveyService, Looper serviceLooper)
+    public GsmCsvLogger(NetworkSurveyService networkSurveyService)
     {
-        super(networkSurveyService, serviceLooper, NetworkSurveyConstants.CSV_LOG_DIRECTORY_NAME,
+        super(networkSurveyService, NetworkSurveyConstants.CSV_LOG_DIRECTORY_NAME,
                 NetworkSurveyConstants.GSM_FILE_NAME_PREFIX, true);
     }
 
@@ -61,44 +55,35 @@ public class GsmCsvLogger extends CsvRecordLogger implements ICellularSurveyReco
     @Override
     public synchronized void onGsmSurveyRecord(GsmRecord record)
     {
-        try
-        {
-            writeCsvRecord(convertToObjectArray(record), true);
-        } catch (IOException e)
-        {
-            Timber.e(e, "Could not log the GSM record to the CSV file");
-        }
+        writeCsvRecord(record, GsmCsvLogger::encodeRow);
     }
 
     /**
-     * @return A String array that contains the GSM record values that can be written out as a CSV
-     * row.
+     * Adds the GSM record values to the encoder as a CSV row.
      */
-    private String[] convertToObjectArray(GsmRecord record)
+    private static void encodeRow(GsmRecord record, CsvRowEncoder encoder)
     {
         GsmRecordData data = record.getData();
 
-        return new String[]{
-                data.getDeviceTime(),
-                String.valueOf(data.getLatitude()),
-                String.valueOf(data.getLongitude()),
-                String.valueOf(data.getAltitude()),
-                String.valueOf(data.getSpeed()),
-                String.valueOf(data.getAccuracy()),
-                data.getMissionId(),
-                String.valueOf(data.getRecordNumber()),
-                String.valueOf(data.getGroupNumber()),
-                data.hasMcc() ? String.valueOf(data.getMcc().getValue()) : "",
-                data.hasMnc() ? String.valueOf(data.getMnc().getValue()) : "",
-                data.hasLac() ? String.valueOf(data.getLac().getValue()) : "",
-                data.hasCi() ? String.valueOf(data.getCi().getValue()) : "",
-                data.hasArfcn() ? String.valueOf(data.getArfcn().getValue()) : "",
-                data.hasBsic() ? String.valueOf(data.getBsic().getValue()) : "",
-                data.hasSignalStrength() ? String.valueOf(data.getSignalStrength().getValue()) : "",
-                data.hasTa() ? String.valueOf(data.getTa().getValue()) : "",
-                data.hasServingCell() ? String.valueOf(data.getServingCell().getValue()) : "",
-                data.getProvider(),
-                data.hasSlot() ? String.valueOf(data.getSlot().getValue()) : "",
-        };
+        encoder.add(data.getDeviceTime())
+                .add(data.getLatitude())
+                .add(data.getLongitude())
+                .add(data.getAltitude())
+                .add(data.getSpeed())
+                .add(data.getAccuracy())
+                .add(data.getMissionId())
+                .add(data.getRecordNumber())
+                .add(data.getGroupNumber())
+                .addIf(data.hasMcc(), data.getMcc().getValue())
+                .addIf(data.hasMnc(), data.getMnc().getValue())
+                .addIf(data.hasLac(), data.getLac().getValue())
+                .addIf(data.hasCi(), data.getCi().getValue())
+                .addIf(data.hasArfcn(), data.getArfcn().getValue())
+                .addIf(data.hasBsic(), data.getBsic().getValue())
+                .addIf(data.hasSignalStrength(), data.getSignalStrength().getValue())
+                .addIf(data.hasTa(), data.getTa().getValue())
+                .addIf(data.hasServingCell(), data.getServingCell().getValue())
+                .add(data.getProvider())
+                .addIf(data.hasSlot(), data.getSlot().getValue());
     }
 }
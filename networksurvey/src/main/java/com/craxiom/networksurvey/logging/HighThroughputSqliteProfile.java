@@ -0,0 +1,141 @@
+package com.craxiom.networksurvey.logging;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import java.io.File;
+
+import mil.nga.geopackage.GeoPackage;
+import timber.log.Timber;
+
+/**
+ * The SQLite settings that are used for GeoPackage log files when the high throughput logging
+ * preference is enabled.
+ * <p>
+ * By default, SQLite uses a rollback journal and syncs to disk on every commit, which limits how many
+ * batches per second can be written. This profile instead uses a write-ahead log (WAL) with
+ * {@code synchronous=NORMAL}, a larger page size, and a larger page cache. Committed records can be
+ * lost if the device loses power before the next checkpoint, but the file is never corrupted.
+ * <p>
+ * A WAL file is not portable on its own, so before a log file is closed it is checkpointed and
+ * switched back to the default rollback journal. That leaves a single self-contained {@code .gpkg}
+ * file, the same as when this profile is not used.
+ *
+ * @since 1.25.0
+ */
+final class HighThroughputSqliteProfile
+{
+    private static final String WAL_FILE_SUFFIX = "-wal";
+
+    /**
+     * The page size to use for new files. This has to be set before the WAL is enabled since the
+     * page size of a database in WAL mode can't be changed.
+     */
+    private static final int PAGE_SIZE_BYTES = 8192;
+
+    /**
+     * The size of the page cache for the connection, in KiB (negative values for the
+     * {@code cache_size} pragma are in KiB instead of pages).
+     */
+    private static final int CACHE_SIZE_KIB = 8192;
+
+    private HighThroughputSqliteProfile()
+    {
+    }
+
+    /**
+     * Applies this profile to a newly created GeoPackage file. This must be called before any of the
+     * survey tables are created, and it must not be called while a transaction is open.
+     *
+     * @param geoPackage The GeoPackage that was just created.
+     */
+    static void apply(GeoPackage geoPackage)
+    {
+        final SQLiteDatabase db = getDatabase(geoPackage);
+
+        // The GeoPackage manager already added the required tables, so vacuum the file to apply the
+        // new page size. The file is nearly empty at this point, so the vacuum is quick.
+        db.execSQL("PRAGMA page_size = " + PAGE_SIZE_BYTES);
+        db.execSQL("VACUUM");
+
+        if (!db.enableWriteAheadLogging())
+        {
+            Timber.w("Could not enable write-ahead logging for the GeoPackage file %s", geoPackage.getName());
+            return;
+        }
+
+        // Set after enabling the WAL because Android resets the sync mode when the journal mode changes
+        db.execSQL("PRAGMA synchronous = NORMAL");
+        db.execSQL("PRAGMA cache_size = -" + CACHE_SIZE_KIB);
+    }
+
+    /**
+     * @return True if the provided GeoPackage is currently using a write-ahead log.
+     */
+    static boolean isEnabled(GeoPackage geoPackage)
+    {
+        return getDatabase(geoPackage).isWriteAheadLoggingEnabled();
+    }
+
+    /**
+     * Copies as much of the WAL as possible back into the database file without waiting on any
+     * readers or writers. This keeps the WAL from growing too large between the automatic
+     * checkpoints, and keeps the file size check for the rollover accurate.
+     * <p>
+     * This must not be called while a transaction is open.
+     *
+     * @param geoPackage The GeoPackage to checkpoint.
+     */
+    static void checkpoint(GeoPackage geoPackage)
+    {
+        runCheckpoint(geoPackage, "PASSIVE");
+    }
+
+    /**
+     * Checkpoints the entire WAL into the database file and then switches the file back to the
+     * default rollback journal so that the WAL file is removed. This should be called right before
+     * the GeoPackage is closed, and it must not be called while a transaction is open.
+     *
+     * @param geoPackage The GeoPackage that is about to be closed.
+     */
+    static void restoreDefaultJournalMode(GeoPackage geoPackage)
+    {
+        final SQLiteDatabase db = getDatabase(geoPackage);
+        if (!db.isWriteAheadLoggingEnabled()) return;
+
+        runCheckpoint(geoPackage, "TRUNCATE");
+        db.disableWriteAheadLogging();
+    }
+
+    /**
+     * Returns the size of the log file, including any records that are still in the WAL file.
+     *
+     * @param databaseFile The GeoPackage file.
+     * @return The total size in bytes.
+     */
+    static long getFileSize(File databaseFile)
+    {
+        final File walFile = new File(databaseFile.getPath() + WAL_FILE_SUFFIX);
+        return databaseFile.length() + walFile.length();
+    }
+
+    private static void runCheckpoint(GeoPackage geoPackage, String mode)
+    {
+        // The checkpoint pragma returns a row, so it has to be run as a query
+        try (Cursor cursor = getDatabase(geoPackage).rawQuery("PRAGMA wal_checkpoint(" + mode + ")", null))
+        {
+            if (cursor.moveToFirst() && cursor.getInt(0) != 0)
+            {
+                Timber.d("The %s WAL checkpoint for %s could not complete", mode, geoPackage.getName());
+            }
+        } catch (Exception e)
+        {
+            Timber.e(e, "Could not checkpoint the WAL for the GeoPackage file %s", geoPackage.getName());
+        }
+    }
+
+    private static SQLiteDatabase getDatabase(GeoPackage geoPackage)
+    {
+        return geoPackage.getConnection().getDb().getDb();
+    }
+}
@@ -0,0 +1,174 @@
+package com.craxiom.networksurvey.logging;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * An in-memory index of the survey log files and their sizes, which is updated as the loggers create
+ * and close files so that the storage usage is always known without listing the log directories.
+ * <p>
+ * The closed files are kept in order of their last modified time so that the oldest files can be
+ * picked for removal without sorting the whole index. Open files are tracked separately since their
+ * size keeps changing, and they are never picked for removal.
+ * <p>
+ * All the methods are thread safe.
+ *
+ * @since 1.25.0
+ */
+final class LogFileIndex
+{
+    /**
+     * Orders the entries from the oldest to the newest, using the path to break ties so that two files
+     * with the same time are both kept.
+     */
+    private static final Comparator<Entry> OLDEST_FIRST = Comparator.<Entry>comparingLong(entry -> entry.lastModifiedMs)
+            .thenComparing(entry -> entry.path);
+
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final TreeSet<Entry> closedEntries = new TreeSet<>(OLDEST_FIRST);
+    private long closedBytes;
+
+    /**
+     * Adds (or replaces) a file that is being written to.
+     *
+     * @param path The absolute path of the file.
+     */
+    synchronized void putOpen(String path)
+    {
+        remove(path);
+        entries.put(path, new Entry(path, 0, Long.MAX_VALUE, true));
+    }
+
+    /**
+     * Adds (or replaces) a file that has been closed.
+     *
+     * @param path           The absolute path of the file.
+     * @param sizeBytes      The size of the file.
+     * @param lastModifiedMs The last modified time of the file.
+     */
+    synchronized void putClosed(String path, long sizeBytes, long lastModifiedMs)
+    {
+        remove(path);
+        final Entry entry = new Entry(path, sizeBytes, lastModifiedMs, false);
+        entries.put(path, entry);
+        closedEntries.add(entry);
+        closedBytes += sizeBytes;
+    }
+
+    /**
+     * Adds a closed file unless the file is already in the index. This is used when scanning the log
+     * directories so that a scan never overwrites what the loggers have reported.
+     *
+     * @return True if the file was added.
+     */
+    synchronized boolean putClosedIfAbsent(String path, long sizeBytes, long lastModifiedMs)
+    {
+        if (entries.containsKey(path)) return false;
+
+        putClosed(path, sizeBytes, lastModifiedMs);
+        return true;
+    }
+
+    /**
+     * Removes a file from the index.
+     *
+     * @param path The absolute path of the file.
+     * @return The entry that was removed, or null if the file was not in the index.
+     */
+    synchronized Entry remove(String path)
+    {
+        final Entry entry = entries.remove(path);
+        if (entry != null && !entry.open)
+        {
+            closedEntries.remove(entry);
+            closedBytes -= entry.sizeBytes;
+        }
+        return entry;
+    }
+
+    /**
+     * @return The total size of all the closed files.
+     */
+    synchronized long getClosedBytes()
+    {
+        return closedBytes;
+    }
+
+    /**
+     * @return The number of files in the index, both open and closed.
+     */
+    synchronized int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * @return The paths of all the files that are currently open.
+     */
+    synchronized List<String> getOpenPaths()
+    {
+        final List<String> openPaths = new ArrayList<>();
+        for (Entry entry : entries.values())
+        {
+            if (entry.open) openPaths.add(entry.path);
+        }
+        return openPaths;
+    }
+
+    /**
+     * Picks the closed files that need to be removed to satisfy the retention policy, oldest first.
+     * This includes every file that is older than the max age, and then as many of the next oldest
+     * files as needed to get the total size under the quota.
+     *
+     * @param quotaBytes The max total size of all the log files, or 0 if there is no quota.
+     * @param maxAgeMs   The max age of a closed log file, or 0 if the files can be kept forever.
+     * @param nowMs      The current time.
+     * @param openBytes  The current size of the open files, which counts toward the quota.
+     * @return The files to remove, oldest first. Empty if the policy is already satisfied.
+     */
+    synchronized List<Entry> selectForRetention(long quotaBytes, long maxAgeMs, long nowMs, long openBytes)
+    {
+        final List<Entry> selected = new ArrayList<>();
+        long remainingBytes = closedBytes + openBytes;
+        for (Entry entry : closedEntries)
+        {
+            final boolean overQuota = quotaBytes > 0 && remainingBytes > quotaBytes;
+            if (!overQuota && !isExpired(entry, maxAgeMs, nowMs)) break;
+
+            selected.add(entry);
+            remainingBytes -= entry.sizeBytes;
+        }
+        return selected;
+    }
+
+    /**
+     * @return True if the entry is older than the max age.
+     */
+    static boolean isExpired(Entry entry, long maxAgeMs, long nowMs)
+    {
+        return maxAgeMs > 0 && entry.lastModifiedMs < nowMs - maxAgeMs;
+    }
+
+    /**
+     * A single log file in the index.
+     */
+    static final class Entry
+    {
+        final String path;
+        final long sizeBytes;
+        final long lastModifiedMs;
+        final boolean open;
+
+        Entry(String path, long sizeBytes, long lastModifiedMs, boolean open)
+        {
+            this.path = path;
+            this.sizeBytes = sizeBytes;
+            this.lastModifiedMs = lastModifiedMs;
+            this.open = open;
+        }
+    }
+}
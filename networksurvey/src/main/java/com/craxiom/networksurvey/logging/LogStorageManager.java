@@ -0,0 +1,304 @@
+package com.craxiom.networksurvey.logging;
+
+import android.content.Context;
+
+import com.craxiom.networksurvey.constants.NetworkSurveyConstants;
+import com.craxiom.networksurvey.util.PreferenceUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import timber.log.Timber;
+
+/**
+ * Keeps track of how much storage the survey log files are using, and enforces the storage quota
+ * and max age preferences by removing the oldest closed log files in the background.
+ * <p>
+ * The log directories are only listed once, when this manager is started. From then on, the
+ * loggers report each file they create, close, or delete, so the {@link LogFileIndex} is kept up
+ * to date incrementally and the current usage can be read at any time without touching the disk.
+ * <p>
+ * Files that are older than the max age are deleted. When the total size is over the quota, the
+ * oldest plain CSV files are gzip compressed first since that frees up most of their space while
+ * keeping the data, and if that is not enough the oldest files are deleted. Files that are still
+ * being written to are never touched.
+ *
+ * @since 1.25.0
+ */
+public final class LogStorageManager
+{
+    private static final String GEOPACKAGE_FILE_EXTENSION = ".gpkg";
+    private static final String CSV_FILE_EXTENSION = ".csv";
+    private static final String GZIP_FILE_EXTENSION = ".gz";
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final long BYTES_PER_MEGABYTE = 1_048_576;
+
+    /**
+     * The directories that the loggers write their files to.
+     */
+    private static final String[] LOG_DIRECTORY_NAMES = {
+            NetworkSurveyConstants.LOG_DIRECTORY_NAME,
+            NetworkSurveyConstants.CSV_LOG_DIRECTORY_NAME,
+            NetworkSurveyConstants.PROTOBUF_LOG_DIRECTORY_NAME
+    };
+
+    private final Context applicationContext;
+    private final LogFileIndex index = new LogFileIndex();
+
+    /**
+     * The initial scan, and all the deleting and compressing, happens on this thread.
+     */
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    private volatile long quotaBytes;
+    private volatile long maxAgeMs;
+
+    /**
+     * @param context The context used to read the storage quota and max age preferences.
+     */
+    public LogStorageManager(Context context)
+    {
+        applicationContext = context.getApplicationContext();
+    }
+
+    /**
+     * Reads the preferences, and then indexes the existing log files and applies the retention policy
+     * in the background.
+     */
+    public void start()
+    {
+        updatePreferences();
+        execute(() -> {
+            scanLogDirectories();
+            enforceRetentionPolicy();
+        });
+    }
+
+    public void onDestroy()
+    {
+        executor.shutdown();
+    }
+
+    /**
+     * Re-reads the storage quota and max age preferences and applies them to the existing files.
+     */
+    public void onPreferencesChanged()
+    {
+        updatePreferences();
+        execute(this::enforceRetentionPolicy);
+    }
+
+    /**
+     * @return The total size of all the survey log files, including the files that are being written
+     * to right now.
+     */
+    public long getUsageBytes()
+    {
+        return index.getClosedBytes() + getOpenBytes();
+    }
+
+    /**
+     * @return The number of survey log files.
+     */
+    public int getLogFileCount()
+    {
+        return index.size();
+    }
+
+    /**
+     * Must be called right after a logger creates a new log file. The paths passed to these methods
+     * don't need to be absolute, they are resolved so that they match the paths found by the scan.
+     *
+     * @param path The path of the new file.
+     */
+    void onLogFileCreated(String path)
+    {
+        index.putOpen(new File(path).getAbsolutePath());
+    }
+
+    /**
+     * Must be called once a logger has closed a log file, and is done with it.
+     *
+     * @param path The path of the closed file.
+     */
+    void onLogFileClosed(String path)
+    {
+        final File file = new File(path);
+        if (!file.exists())
+        {
+            index.remove(file.getAbsolutePath());
+            return;
+        }
+
+        index.putClosed(file.getAbsolutePath(), file.length(), file.lastModified());
+        execute(this::enforceRetentionPolicy);
+    }
+
+    /**
+     * Must be called after a logger deletes one of its log files.
+     *
+     * @param path The path of the deleted file.
+     */
+    void onLogFileDeleted(String path)
+    {
+        index.remove(new File(path).getAbsolutePath());
+    }
+
+    private void updatePreferences()
+    {
+        quotaBytes = PreferenceUtils.getLogStorageQuotaPreference(applicationContext) * BYTES_PER_MEGABYTE;
+        maxAgeMs = TimeUnit.DAYS.toMillis(PreferenceUtils.getLogRetentionDaysPreference(applicationContext));
+    }
+
+    /**
+     * Adds all the log files that are already on disk to the index. This is the only time that the
+     * log directories are listed.
+     */
+    private void scanLogDirectories()
+    {
+        final long startTime = System.currentTimeMillis();
+        for (String directoryName : LOG_DIRECTORY_NAMES)
+        {
+            final File[] files = new File(SurveyRecordLogger.getPublicStorageDirectoryPath(directoryName)).listFiles();
+            if (files == null) continue;
+
+            for (File file : files)
+            {
+                if (file.isFile() && isLogFile(file.getName()))
+                {
+                    index.putClosedIfAbsent(file.getAbsolutePath(), file.length(), file.lastModified());
+                }
+            }
+        }
+
+        Timber.i("Indexed %d log files (%d bytes) in %d ms", index.size(), getUsageBytes(), System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * Deletes or compresses the oldest closed files until the max age and the quota are both
+     * satisfied. Must be run on the {@link #executor}.
+     */
+    private void enforceRetentionPolicy()
+    {
+        final long quota = quotaBytes;
+        final long maxAge = maxAgeMs;
+        if (quota <= 0 && maxAge <= 0) return;
+
+        while (true)
+        {
+            final long now = System.currentTimeMillis();
+            final List<LogFileIndex.Entry> selected = index.selectForRetention(quota, maxAge, now, getOpenBytes());
+            if (selected.isEmpty()) return;
+
+            final LogFileIndex.Entry oldest = selected.get(0);
+            if (!LogFileIndex.isExpired(oldest, maxAge, now) && oldest.path.endsWith(CSV_FILE_EXTENSION))
+            {
+                // Still worth keeping, so try to make it smaller before deleting anything
+                if (compress(oldest)) continue;
+            }
+
+            delete(oldest);
+        }
+    }
+
+    /**
+     * Replaces a plain CSV file with a gzip compressed copy.
+     *
+     * @return True if the file was compressed.
+     */
+    private boolean compress(LogFileIndex.Entry entry)
+    {
+        final File source = new File(entry.path);
+        final File compressed = new File(entry.path + GZIP_FILE_EXTENSION);
+        if (compressed.exists()) return false;
+
+        try (InputStream in = new FileInputStream(source);
+             OutputStream out = new GZIPOutputStream(new FileOutputStream(compressed), COPY_BUFFER_SIZE))
+        {
+            final byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1)
+            {
+                out.write(buffer, 0, read);
+            }
+        } catch (IOException e)
+        {
+            Timber.e(e, "Could not compress the log file %s", entry.path);
+            //noinspection ResultOfMethodCallIgnored
+            compressed.delete();
+            return false;
+        }
+
+        // Keep the original time so that the compressed file keeps its place in the retention order
+        //noinspection ResultOfMethodCallIgnored
+        compressed.setLastModified(entry.lastModifiedMs);
+        //noinspection ResultOfMethodCallIgnored
+        source.delete();
+
+        index.remove(entry.path);
+        index.putClosed(compressed.getAbsolutePath(), compressed.length(), entry.lastModifiedMs);
+        Timber.i("Compressed the log file %s from %d to %d bytes", source.getName(), entry.sizeBytes, compressed.length());
+        return true;
+    }
+
+    private void delete(LogFileIndex.Entry entry)
+    {
+        final File file = new File(entry.path);
+        if (file.exists() && !file.delete())
+        {
+            Timber.w("Could not delete the log file %s", entry.path);
+        } else
+        {
+            Timber.i("Deleted the log file %s to stay within the storage limits", file.getName());
+        }
+
+        // Removed even if the delete failed so that the same file does not keep getting picked
+        index.remove(entry.path);
+    }
+
+    /**
+     * @return The current size of the files that are being written to.
+     */
+    private long getOpenBytes()
+    {
+        long openBytes = 0;
+        for (String path : index.getOpenPaths())
+        {
+            openBytes += new File(path).length();
+        }
+        return openBytes;
+    }
+
+    private void execute(Runnable task)
+    {
+        try
+        {
+            executor.execute(task);
+        } catch (RejectedExecutionException e)
+        {
+            Timber.d("Skipping the log storage task because the manager has been destroyed");
+        }
+    }
+
+    /**
+     * @return True if the file name is one of the survey log file types. This leaves out the SQLite
+     * journal and WAL files.
+     */
+    private static boolean isLogFile(String fileName)
+    {
+        return fileName.endsWith(GEOPACKAGE_FILE_EXTENSION)
+                || fileName.endsWith(CSV_FILE_EXTENSION)
+                || fileName.endsWith(CSV_FILE_EXTENSION + GZIP_FILE_EXTENSION)
+                || fileName.endsWith(ProtobufRecordLogger.FILE_EXTENSION);
+    }
+}
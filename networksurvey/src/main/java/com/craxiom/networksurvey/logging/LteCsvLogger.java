@@ -26,8 +26,6 @@ import static com.craxiom.networksurvey.constants.csv.LteCsvConstants.SPEED;
 import static com.craxiom.networksurvey.constants.csv.LteCsvConstants.TA;
 import static com.craxiom.networksurvey.constants.csv.LteCsvConstants.TAC;
 
-import android.os.Looper;
-
 import com.craxiom.messaging.LteBandwidth;
 import com.craxiom.messaging.LteRecord;
 import com.craxiom.messaging.LteRecordData;
@@ -35,18 +33,14 @@ import com.craxiom.networksurvey.constants.NetworkSurveyConstants;
 import com.craxiom.networksurvey.listeners.ICellularSurveyRecordListener;
 import com.craxiom.networksurvey.services.NetworkSurveyService;
 
-import java.io.IOException;
-
-import timber.log.Timber;
-
 /**
  * Responsible for taking in LTE survey records and logging them to a CSV file.
  */
 public class LteCsvLogger extends CsvRecordLogger implements ICellularSurveyRecordListener
 {
-    public LteCsvLogger(NetworkSurveyService networkSurveyService, Looper serviceLooper)
+    public LteCsvLogger(NetworkSurveyService networkSurveyService)
     {
-        super(networkSurveyService, serviceLooper, NetworkSurveyConstants.CSV_LOG_DIRECTORY_NAME,
+        super(networkSurveyService, NetworkSurveyConstants.CSV_LOG_DIRECTORY_NAME,
                 NetworkSurveyConstants.LTE_FILE_NAME_PREFIX, true);
     }
 
@@ -67,51 +61,42 @@ public class LteCsvLogger extends CsvRecordLogger implements ICellularSurveyReco
     @Override
     public synchronized void onLteSurveyRecord(LteRecord record)
     {
-        try
-        {
-            writeCsvRecord(convertToObjectArray(record), true);
-        } catch (IOException e)
-        {
-            Timber.e(e, "Could not log the LTE record to the CSV file");
-        }
+        writeCsvRecord(record, LteCsvLogger::encodeRow);
     }
 
     /**
-     * @return A String array that contains the LTE record values that can be written out as a CSV
-     * row.
+     * Adds the LTE record values to the encoder as a CSV row.
      */
-    private String[] convertToObjectArray(LteRecord record)
+    private static void encodeRow(LteRecord record, CsvRowEncoder encoder)
     {
         LteRecordData data = record.getData();
 
         LteBandwidth lteBandwidth = data.getLteBandwidth();
 
-        return new String[]{
-                data.getDeviceTime(),
-                String.valueOf(data.getLatitude()),
-                String.valueOf(data.getLongitude()),
-                String.valueOf(data.getAltitude()),
-                String.valueOf(data.getSpeed()),
-                String.valueOf(data.getAccuracy()),
-                data.getMissionId(),
-                String.valueOf(data.getRecordNumber()),
-                String.valueOf(data.getGroupNumber()),
-                data.hasMcc() ? String.valueOf(data.getMcc().getValue()) : "",
-                data.hasMnc() ? String.valueOf(data.getMnc().getValue()) : "",
-                data.hasTac() ? String.valueOf(data.getTac().getValue()) : "",
-                data.hasEci() ? String.valueOf(data.getEci().getValue()) : "",
-                data.hasEarfcn() ? String.valueOf(data.getEarfcn().getValue()) : "",
-                data.hasPci() ? String.valueOf(data.getPci().getValue()) : "",
-                data.hasRsrp() ? String.valueOf(data.getRsrp().getValue()) : "",
-                data.hasRsrq() ? String.valueOf(data.getRsrq().getValue()) : "",
-                data.hasTa() ? String.valueOf(data.getTa().getValue()) : "",
-                data.hasServingCell() ? String.valueOf(data.getServingCell().getValue()) : "",
-                lteBandwidth == LteBandwidth.UNRECOGNIZED ? "" : lteBandwidth.name(),
-                data.getProvider(),
-                data.hasSignalStrength() ? String.valueOf(data.getSignalStrength().getValue()) : "",
-                data.hasCqi() ? String.valueOf(data.getCqi().getValue()) : "",
-                data.hasSlot() ? String.valueOf(data.getSlot().getValue()) : "",
-                data.hasSnr() ? String.valueOf(data.getSnr().getValue()) : "",
-        };
+        encoder.add(data.getDeviceTime())
+                .add(data.getLatitude())
+                .add(data.getLongitude())
+                .add(data.getAltitude())
+                .add(data.getSpeed())
+                .add(data.getAccuracy())
+                .add(data.getMissionId())
+                .add(data.getRecordNumber())
+                .add(data.getGroupNumber())
+                .addIf(data.hasMcc(), data.getMcc().getValue())
+                .addIf(data.hasMnc(), data.getMnc().getValue())
+                .addIf(data.hasTac(), data.getTac().getValue())
+                .addIf(data.hasEci(), data.getEci().getValue())
+                .addIf(data.hasEarfcn(), data.getEarfcn().getValue())
+                .addIf(data.hasPci(), data.getPci().getValue())
+                .addIf(data.hasRsrp(), data.getRsrp().getValue())
+                .addIf(data.hasRsrq(), data.getRsrq().getValue())
+                .addIf(data.hasTa(), data.getTa().getValue())
+                .addIf(data.hasServingCell(), data.getServingCell().getValue())
+                .add(lteBandwidth == LteBandwidth.UNRECOGNIZED ? "" : lteBandwidth.name())
+                .add(data.getProvider())
+                .addIf(data.hasSignalStrength(), data.getSignalStrength().getValue())
+                .addIf(data.hasCqi(), data.getCqi().getValue())
+                .addIf(data.hasSlot(), data.getSlot().getValue())
+                .addIf(data.hasSnr(), data.getSnr().getValue());
     }
 }
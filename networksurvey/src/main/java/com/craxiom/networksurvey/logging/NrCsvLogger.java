@@ -26,26 +26,20 @@ import static com.craxiom.networksurvey.constants.csv.NrCsvConstants.SS_SINR;
 import static com.craxiom.networksurvey.constants.csv.NrCsvConstants.TA;
 import static com.craxiom.networksurvey.constants.csv.NrCsvConstants.TAC;
 
-import android.os.Looper;
-
 import com.craxiom.messaging.NrRecord;
 import com.craxiom.messaging.NrRecordData;
 import com.craxiom.networksurvey.constants.NetworkSurveyConstants;
 import com.craxiom.networksurvey.listeners.ICellularSurveyRecordListener;
 import com.craxiom.networksurvey.services.NetworkSurveyService;
 
-import java.io.IOException;
-
-import timber.log.Timber;
-
 /**
  * Responsible for taking in 5G NR survey records and logging them to a CSV file.
  */
 public class NrCsvLogger extends CsvRecordLogger implements ICellularSurveyRecordListener
 {
-    public NrCsvLogger(NetworkSurveyService networkSurveyService, Looper serviceLooper)
+    public NrCsvLogger(NetworkSurveyService networkSurveyService)
     {
-        super(networkSurveyService, serviceLooper, NetworkSurveyConstants.CSV_LOG_DIRECTORY_NAME,
+        super(networkSurveyService, NetworkSurveyConstants.CSV_LOG_DIRECTORY_NAME,
                 NetworkSurveyConstants.NR_FILE_NAME_PREFIX, true);
     }
 
@@ -66,49 +60,40 @@ public class NrCsvLogger extends CsvRecordLogger implements ICellularSurveyRecor
     @Override
     public synchronized void onNrSurveyRecord(NrRecord record)
     {
-        try
-        {
-            writeCsvRecord(convertToObjectArray(record), true);
-        } catch (IOException e)
-        {
-            Timber.e(e, "Could not log the NR record to the CSV file");
-        }
+        writeCsvRecord(record, NrCsvLogger::encodeRow);
     }
 
     /**
-     * @return A String array that contains the NR record values that can be written out as a CSV
-     * row.
+     * Adds the NR record values to the encoder as a CSV row.
      */
-    private String[] convertToObjectArray(NrRecord record)
+    private static void encodeRow(NrRecord record, CsvRowEncoder encoder)
     {
         NrRecordData data = record.getData();
 
-        return new String[]{
-                data.getDeviceTime(),
-                String.valueOf(data.getLatitude()),
-                String.valueOf(data.getLongitude()),
-                String.valueOf(data.getAltitude()),
-                String.valueOf(data.getSpeed()),
-                String.valueOf(data.getAccuracy()),
-                data.getMissionId(),
-                String.valueOf(data.getRecordNumber()),
-                String.valueOf(data.getGroupNumber()),
-                data.hasMcc() ? String.valueOf(data.getMcc().getValue()) : "",
-                data.hasMnc() ? String.valueOf(data.getMnc().getValue()) : "",
-                data.hasTac() ? String.valueOf(data.getTac().getValue()) : "",
-                data.hasNci() ? String.valueOf(data.getNci().getValue()) : "",
-                data.hasNarfcn() ? String.valueOf(data.getNarfcn().getValue()) : "",
-                data.hasPci() ? String.valueOf(data.getPci().getValue()) : "",
-                data.hasSsRsrp() ? String.valueOf(data.getSsRsrp().getValue()) : "",
-                data.hasSsRsrq() ? String.valueOf(data.getSsRsrq().getValue()) : "",
-                data.hasSsSinr() ? String.valueOf(data.getSsSinr().getValue()) : "",
-                data.hasCsiRsrp() ? String.valueOf(data.getCsiRsrp().getValue()) : "",
-                data.hasCsiRsrq() ? String.valueOf(data.getCsiRsrq().getValue()) : "",
-                data.hasCsiSinr() ? String.valueOf(data.getCsiSinr().getValue()) : "",
-                data.hasTa() ? String.valueOf(data.getTa().getValue()) : "",
-                data.hasServingCell() ? String.valueOf(data.getServingCell().getValue()) : "",
-                data.getProvider(),
-                data.hasSlot() ? String.valueOf(data.getSlot().getValue()) : "",
-        };
+        encoder.add(data.getDeviceTime())
+                .add(data.getLatitude())
+                .add(data.getLongitude())
+                .add(data.getAltitude())
+                .add(data.getSpeed())
+                .add(data.getAccuracy())
+                .add(data.getMissionId())
+                .add(data.getRecordNumber())
+                .add(data.getGroupNumber())
+                .addIf(data.hasMcc(), data.getMcc().getValue())
+                .addIf(data.hasMnc(), data.getMnc().getValue())
+                .addIf(data.hasTac(), data.getTac().getValue())
+                .addIf(data.hasNci(), data.getNci().getValue())
+                .addIf(data.hasNarfcn(), data.getNarfcn().getValue())
+                .addIf(data.hasPci(), data.getPci().getValue())
+                .addIf(data.hasSsRsrp(), data.getSsRsrp().getValue())
+                .addIf(data.hasSsRsrq(), data.getSsRsrq().getValue())
+                .addIf(data.hasSsSinr(), data.getSsSinr().getValue())
+                .addIf(data.hasCsiRsrp(), data.getCsiRsrp().getValue())
+                .addIf(data.hasCsiRsrq(), data.getCsiRsrq().getValue())
+                .addIf(data.hasCsiSinr(), data.getCsiSinr().getValue())
+                .addIf(data.hasTa(), data.getTa().getValue())
+                .addIf(data.hasServingCell(), data.getServingCell().getValue())
+                .add(data.getProvider())
+                .addIf(data.hasSlot(), data.getSlot().getValue());
     }
 }
@@ -12,21 +12,20 @@ import static com.craxiom.networksurvey.constants.MessageConstants.MISSION_ID_CO
 import static com.craxiom.networksurvey.constants.MessageConstants.RECORD_NUMBER_COLUMN;
 import static com.craxiom.networksurvey.constants.MessageConstants.TIME_COLUMN;
 
-import android.os.Looper;
-
 import com.craxiom.messaging.DeviceStatus;
 import com.craxiom.messaging.PhoneState;
 import com.craxiom.messaging.PhoneStateData;
 import com.craxiom.messaging.phonestate.SimState;
 import com.craxiom.networksurvey.constants.NetworkSurveyConstants;
 import com.craxiom.networksurvey.listeners.IDeviceStatusListener;
+import com.craxiom.networksurvey.model.RecordTimestamp;
 import com.craxiom.networksurvey.services.NetworkSurveyService;
-import com.craxiom.networksurvey.util.IOUtils;
 import com.craxiom.networksurvey.util.MathUtils;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Strings;
 import com.google.gson.Gson;
+import com.google.protobuf.InvalidProtocolBufferException;
 
 import org.jetbrains.annotations.Nullable;
 
@@ -35,11 +34,7 @@ import java.sql.SQLException;
 import mil.nga.geopackage.GeoPackage;
 import mil.nga.geopackage.db.GeoPackageDataType;
 import mil.nga.geopackage.features.user.FeatureColumn;
-import mil.nga.geopackage.features.user.FeatureDao;
-import mil.nga.geopackage.features.user.FeatureRow;
-import mil.nga.geopackage.geom.GeoPackageGeometryData;
 import mil.nga.geopackage.srs.SpatialReferenceSystem;
-import mil.nga.sf.Point;
 import timber.log.Timber;
 
 /**
@@ -49,9 +44,16 @@ import timber.log.Timber;
  */
 public class PhoneStateRecordLogger extends SurveyRecordLogger implements IDeviceStatusListener
 {
-    public PhoneStateRecordLogger(NetworkSurveyService networkSurveyService, Looper serviceLooper)
+    /**
+     * The record type used to identify the records in the spool.
+     */
+    private static final int SPOOL_TYPE_PHONE_STATE = 1;
+
+    private PhoneStateTable phoneStateTable;
+
+    public PhoneStateRecordLogger(NetworkSurveyService networkSurveyService)
     {
-        super(networkSurveyService, serviceLooper,
+        super(networkSurveyService,
                 NetworkSurveyConstants.LOG_DIRECTORY_NAME,
                 NetworkSurveyConstants.PHONESTATE_FILE_NAME_PREFIX);
     }
@@ -70,6 +72,24 @@ public class PhoneStateRecordLogger extends SurveyRecordLogger implements IDevic
         });
     }
 
+    @Override
+    void prepareInserters(GeoPackage geoPackage)
+    {
+        phoneStateTable = new PhoneStateTable(createInserter(PHONE_STATE_TABLE_NAME));
+    }
+
+    @Override
+    void replaySpooledRecord(int recordType, long epochMillis, byte[] payload) throws InvalidProtocolBufferException
+    {
+        if (recordType == SPOOL_TYPE_PHONE_STATE)
+        {
+            writePhoneStateToLogFile(PhoneState.parseFrom(payload), epochMillis);
+        } else
+        {
+            Timber.w("Unknown spooled phone state record type: %d", recordType);
+        }
+    }
+
     @Override
     public void onDeviceStatus(DeviceStatus deviceStatus)
     {
@@ -77,47 +97,56 @@ public class PhoneStateRecordLogger extends SurveyRecordLogger implements IDevic
     }
 
     @Override
-    public void onPhoneState(PhoneState phoneState)
+    public void onPhoneState(PhoneState phoneState, RecordTimestamp timestamp)
     {
-        if (!loggingEnabled) return;
+        writeRecord(phoneState, timestamp.getEpochMillis(), SPOOL_TYPE_PHONE_STATE, this::writePhoneStateToLogFile);
+    }
 
-        handler.post(() -> {
-            synchronized (geoPackageLock)
+    /**
+     * Given a Phone State record, write it to the GeoPackage log file.
+     * <p>
+     * This method is NOT thread safe and it is assumed the caller has already gotten a lock on the
+     * {@link #geoPackageLock} and is running on the {@link #writerQueue} thread.
+     *
+     * @param phoneState  The Phone State record to write to the log file.
+     * @param epochMillis The time that the record was captured, in milliseconds since the Unix Epoch.
+     */
+    private void writePhoneStateToLogFile(final PhoneState phoneState, long epochMillis)
+    {
+        try
+        {
+            if (geoPackage != null)
             {
-                try
-                {
-                    if (geoPackage != null)
-                    {
-                        final PhoneStateData data = phoneState.getData();
-                        FeatureDao featureDao = geoPackage.getFeatureDao(PHONE_STATE_TABLE_NAME);
-                        FeatureRow row = featureDao.newRow();
-
-                        row.setGeometry(buildGeometry(data));
-                        row.setValue(LATITUDE_COLUMN, data.getLatitude());
-                        row.setValue(LONGITUDE_COLUMN, data.getLongitude());
-                        row.setValue(ALTITUDE_COLUMN, data.getAltitude());
-
-                        row.setValue(TIME_COLUMN, IOUtils.getEpochFromRfc3339(data.getDeviceTime()));
-                        row.setValue(MISSION_ID_COLUMN, data.getMissionId());
-                        row.setValue(RECORD_NUMBER_COLUMN, data.getRecordNumber());
-                        row.setValue(ACCURACY, MathUtils.roundAccuracy(data.getAccuracy()));
-
-                        row.setValue(SIM_STATE_COLUMN, readSimState(data));
-                        row.setValue(SIM_OPERATOR_COLUMN, data.getSimOperator());
-
-                        String networkRegistrationJson = new Gson().toJson(data.getNetworkRegistrationInfoList());
-                        row.setValue(NETWORK_REGISTRATION_COLUMN, networkRegistrationJson);
-
-                        featureDao.insert(row);
-
-                        checkIfRolloverNeeded();
-                    }
-                } catch (Exception e)
-                {
-                    Timber.e(e, "Something went wrong when trying to write a Phone State record");
-                }
+                beginBatchIfNeeded();
+
+                final PhoneStateTable table = phoneStateTable;
+
+                final PhoneStateData data = phoneState.getData();
+
+                table.inserter.bindPoint(data.getLongitude(), data.getLatitude(), data.getAltitude());
+                table.inserter.bindDouble(table.latitude, data.getLatitude());
+                table.inserter.bindDouble(table.longitude, data.getLongitude());
+                table.inserter.bindDouble(table.altitude, data.getAltitude());
+
+                table.inserter.bindLong(table.time, epochMillis);
+                table.inserter.bindString(table.missionId, data.getMissionId());
+                table.inserter.bindLong(table.recordNumber, data.getRecordNumber());
+                table.inserter.bindLong(table.accuracy, MathUtils.roundAccuracy(data.getAccuracy()));
+
+                table.inserter.bindString(table.simState, readSimState(data));
+                table.inserter.bindString(table.simOperator, data.getSimOperator());
+
+                String networkRegistrationJson = new Gson().toJson(data.getNetworkRegistrationInfoList());
+                table.inserter.bindString(table.networkRegistration, networkRegistrationJson);
+
+                table.inserter.insert();
+
+                onRecordInserted();
             }
-        });
+        } catch (Exception e)
+        {
+            Timber.e(e, "Something went wrong when trying to write a Phone State record");
+        }
     }
 
     /**
@@ -139,17 +168,37 @@ public class PhoneStateRecordLogger extends SurveyRecordLogger implements IDevic
     }
 
     /**
-     * @param data The {@link PhoneStateData} from which to pull the location (geometry).
-     * @return A {@link GeoPackageGeometryData} object based on the latitude, longitude, and altitude
-     * defined in the {@link PhoneStateData}.
+     * The insert statement and column indexes for the phone state table in the current GeoPackage file.
+     *
+     * @since 1.25.0
      */
-    private GeoPackageGeometryData buildGeometry(PhoneStateData data)
+    private static final class PhoneStateTable
     {
-        Point fix = new Point(data.getLongitude(), data.getLatitude(), (double) data.getAltitude());
-
-        GeoPackageGeometryData geomData = new GeoPackageGeometryData(WGS84_SRS);
-        geomData.setGeometry(fix);
-
-        return geomData;
+        final FeatureTableInserter inserter;
+        final int latitude;
+        final int longitude;
+        final int altitude;
+        final int time;
+        final int missionId;
+        final int recordNumber;
+        final int accuracy;
+        final int simState;
+        final int simOperator;
+        final int networkRegistration;
+
+        PhoneStateTable(FeatureTableInserter inserter)
+        {
+            this.inserter = inserter;
+            latitude = inserter.getColumnIndex(LATITUDE_COLUMN);
+            longitude = inserter.getColumnIndex(LONGITUDE_COLUMN);
+            altitude = inserter.getColumnIndex(ALTITUDE_COLUMN);
+            time = inserter.getColumnIndex(TIME_COLUMN);
+            missionId = inserter.getColumnIndex(MISSION_ID_COLUMN);
+            recordNumber = inserter.getColumnIndex(RECORD_NUMBER_COLUMN);
+            accuracy = inserter.getColumnIndex(ACCURACY);
+            simState = inserter.getColumnIndex(SIM_STATE_COLUMN);
+            simOperator = inserter.getColumnIndex(SIM_OPERATOR_COLUMN);
+            networkRegistration = inserter.getColumnIndex(NETWORK_REGISTRATION_COLUMN);
+        }
     }
 }
@@ -0,0 +1,112 @@
+package com.craxiom.networksurvey.logging;
+
+import static com.craxiom.networksurvey.constants.csv.PipelineMetricsCsvConstants.DEVICE_TIME;
+import static com.craxiom.networksurvey.constants.csv.PipelineMetricsCsvConstants.INTERVAL_COUNT;
+import static com.craxiom.networksurvey.constants.csv.PipelineMetricsCsvConstants.MAX_MS;
+import static com.craxiom.networksurvey.constants.csv.PipelineMetricsCsvConstants.MEAN_MS;
+import static com.craxiom.networksurvey.constants.csv.PipelineMetricsCsvConstants.METRIC;
+import static com.craxiom.networksurvey.constants.csv.PipelineMetricsCsvConstants.P50_MS;
+import static com.craxiom.networksurvey.constants.csv.PipelineMetricsCsvConstants.P90_MS;
+import static com.craxiom.networksurvey.constants.csv.PipelineMetricsCsvConstants.P99_MS;
+import static com.craxiom.networksurvey.constants.csv.PipelineMetricsCsvConstants.RATE_PER_SECOND;
+import static com.craxiom.networksurvey.constants.csv.PipelineMetricsCsvConstants.TYPE;
+import static com.craxiom.networksurvey.constants.csv.PipelineMetricsCsvConstants.TYPE_COUNTER;
+import static com.craxiom.networksurvey.constants.csv.PipelineMetricsCsvConstants.TYPE_QUEUE;
+import static com.craxiom.networksurvey.constants.csv.PipelineMetricsCsvConstants.TYPE_STAGE;
+import static com.craxiom.networksurvey.constants.csv.PipelineMetricsCsvConstants.VALUE;
+
+import com.craxiom.networksurvey.constants.NetworkSurveyConstants;
+import com.craxiom.networksurvey.services.NetworkSurveyService;
+import com.craxiom.networksurvey.services.PipelineMetrics;
+import com.craxiom.networksurvey.util.IOUtils;
+import com.craxiom.networksurvey.util.LatencyHistogram;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Responsible for periodically logging the {@link PipelineMetrics} to a CSV file so that the latency
+ * of a survey can be looked at after the fact.
+ * <p>
+ * Each call to {@link #writeSnapshot(PipelineMetrics.Snapshot)} writes one row per pipeline stage,
+ * queue, and counter. The stage and counter rows cover the interval since the previous snapshot.
+ *
+ * @since 1.25.0
+ */
+public class PipelineMetricsCsvLogger extends CsvRecordLogger
+{
+    private PipelineMetrics.Snapshot previousSnapshot;
+
+    public PipelineMetricsCsvLogger(NetworkSurveyService networkSurveyService)
+    {
+        super(networkSurveyService, NetworkSurveyConstants.CSV_LOG_DIRECTORY_NAME,
+                NetworkSurveyConstants.PIPELINEMETRICS_FILE_NAME_PREFIX, true);
+    }
+
+    @Override
+    String[] getHeaders()
+    {
+        return new String[]{DEVICE_TIME, METRIC, TYPE, INTERVAL_COUNT, RATE_PER_SECOND, MEAN_MS, P50_MS,
+                P90_MS, P99_MS, MAX_MS, VALUE};
+    }
+
+    @Override
+    String[] getHeaderComments()
+    {
+        return new String[]{"CSV Version=0.1.0"};
+    }
+
+    /**
+     * Writes out the metrics for the interval between the previous snapshot and this one. The first
+     * snapshot after logging is enabled covers everything since the app was started.
+     *
+     * @param snapshot The current pipeline metrics.
+     */
+    public synchronized void writeSnapshot(PipelineMetrics.Snapshot snapshot)
+    {
+        final PipelineMetrics.Snapshot earlier = previousSnapshot;
+        previousSnapshot = snapshot;
+
+        final String deviceTime = IOUtils.getRfc3339String(ZonedDateTime.now());
+        final double seconds = snapshot.getSecondsSince(earlier);
+        final List<Object[]> rows = new ArrayList<>();
+
+        for (PipelineMetrics.Stage stage : PipelineMetrics.Stage.values())
+        {
+            final LatencyHistogram.Snapshot interval = snapshot.getStageSince(stage, earlier);
+            rows.add(new Object[]{deviceTime, stage.key, TYPE_STAGE, interval.getCount(),
+                    seconds > 0 ? round(interval.getCount() / seconds) : null,
+                    round(LatencyHistogram.Snapshot.toMillis(interval.getMeanMicros())),
+                    round(LatencyHistogram.Snapshot.toMillis(interval.getValueAtPercentile(50))),
+                    round(LatencyHistogram.Snapshot.toMillis(interval.getValueAtPercentile(90))),
+                    round(LatencyHistogram.Snapshot.toMillis(interval.getValueAtPercentile(99))),
+                    round(LatencyHistogram.Snapshot.toMillis(interval.getMaxMicros())), null});
+        }
+
+        for (Map.Entry<String, Long> queue : snapshot.queueDepths.entrySet())
+        {
+            rows.add(new Object[]{deviceTime, queue.getKey(), TYPE_QUEUE, null, null, null, null, null, null,
+                    null, queue.getValue()});
+        }
+
+        for (Map.Entry<String, Long> counter : snapshot.counters.entrySet())
+        {
+            rows.add(new Object[]{deviceTime, counter.getKey(), TYPE_COUNTER, null,
+                    seconds > 0 ? round(snapshot.getCounterRate(counter.getKey(), earlier)) : null,
+                    null, null, null, null, null, counter.getValue()});
+        }
+
+        writeCsvRecords(rows, CsvRecordLogger::encodeValues);
+    }
+
+    /**
+     * Rounds to three decimal places to keep the rows short. For the millisecond values that is the
+     * microsecond precision of the histograms anyway.
+     */
+    private static double round(double value)
+    {
+        return Math.round(value * 1_000) / 1_000d;
+    }
+}
@@ -0,0 +1,472 @@
+package com.craxiom.networksurvey.logging;
+
+import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.os.Environment;
+import android.os.Handler;
+import android.os.Looper;
+import android.widget.Toast;
+
+import com.craxiom.networksurvey.listeners.BackpressurePolicy;
+import com.craxiom.networksurvey.services.NetworkSurveyService;
+import com.craxiom.networksurvey.services.SurveyRecordProcessor;
+import com.craxiom.networksurvey.util.PreferenceUtils;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.MessageLite;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import timber.log.Timber;
+
+/**
+ * Abstract base class for logging survey records to an append only binary file of length delimited
+ * protobuf messages.
+ * <p>
+ * The survey records are already protobuf messages, so this is the cheapest way to log them on the
+ * device: each record is written out as is, with no conversion to GeoPackage rows or CSV strings.
+ * One file is written per survey type, and it is rolled over like the other log files.
+ * <p>
+ * File format:
+ * <ul>
+ *     <li>A header: the 4 byte magic number "NSPB", the format version as a varint, and then the
+ *     survey type and the app version, each as a length delimited UTF-8 string.</li>
+ *     <li>Followed by the records. Each record is a single byte record type (defined by the
+ *     subclass), followed by the protobuf message in the same length delimited format as
+ *     {@code MessageLite.writeDelimitedTo} (so it can be read with {@code parseDelimitedFrom}).</li>
+ *     <li>Sync markers are mixed in with the records each time the file is flushed. A sync marker is
+ *     the record type {@link #SYNC_MARKER_TYPE}, the 8 byte {@link #SYNC_MARKER} value, and the time
+ *     the marker was written as an 8 byte epoch millis value (both little endian). Everything before
+ *     a sync marker was flushed to the file, and a reader that finds a damaged record can skip ahead
+ *     to the next sync marker.</li>
+ * </ul>
+ *
+ * @since 1.25.0
+ */
+public abstract class ProtobufRecordLogger
+{
+    static final String FILE_EXTENSION = ".nspb";
+    static final byte[] MAGIC = {'N', 'S', 'P', 'B'};
+    static final int FORMAT_VERSION = 1;
+
+    /**
+     * The record type that marks a sync marker. Subclasses must not use it for their records.
+     */
+    static final int SYNC_MARKER_TYPE = 0;
+
+    /**
+     * The value that follows the {@link #SYNC_MARKER_TYPE}. It is "NSPBSYNC" in ASCII.
+     */
+    static final long SYNC_MARKER = 0x434E5953_4250534EL;
+
+    /**
+     * How often the buffered records are flushed to the file, which is also how often a sync marker
+     * is written.
+     */
+    static final long SYNC_INTERVAL_MS = 1_000;
+
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    private static final int BYTES_TO_MEGABYTES = 1_048_576;
+
+    /**
+     * A lock to synchronize the writing of records and the creation of a new file during rollover.
+     */
+    protected final Object logFileLock = new Object();
+
+    private Context applicationContext;
+
+    /**
+     * All the file I/O for this logger happens on this queue's thread so that a slow disk never holds
+     * up the survey scans.
+     */
+    final RecordWriterQueue writerQueue;
+    private final String logDirectoryName;
+    private final String fileNamePrefix;
+    private final String surveyType;
+    private final LogStorageManager logStorageManager;
+
+    volatile boolean loggingEnabled;
+
+    /**
+     * The max size of a log file before a new one is created, in bytes. A value of 0 means rollover
+     * is de-activated.
+     */
+    private volatile long rolloverSizeBytes;
+
+    private String loggingFileName;
+    private FileOutputStream fileOutputStream;
+    private CodedOutputStream output;
+
+    /**
+     * True if records have been written since the last sync marker.
+     */
+    private boolean recordsSinceSync;
+
+    /**
+     * True if the {@link #syncTask} has been scheduled and has not run yet.
+     */
+    private boolean syncScheduled;
+
+    /**
+     * Flushes the buffered records out to the file and writes a sync marker.
+     */
+    private final Runnable syncTask = () -> {
+        synchronized (logFileLock)
+        {
+            syncScheduled = false;
+            sync();
+        }
+    };
+
+    /**
+     * @param networkSurveyService The Service instance that is running this logger.
+     * @param logDirectoryName     The parent directory name to write all the files in.
+     * @param fileNamePrefix       The prefix to use for the file name.
+     * @param surveyType           The name of the survey type, which is written in the file header.
+     */
+    ProtobufRecordLogger(NetworkSurveyService networkSurveyService, String logDirectoryName,
+                         String fileNamePrefix, String surveyType)
+    {
+        applicationContext = networkSurveyService.getApplicationContext();
+        writerQueue = new RecordWriterQueue(fileNamePrefix + "pb");
+        this.logDirectoryName = logDirectoryName;
+        this.fileNamePrefix = fileNamePrefix;
+        this.surveyType = surveyType;
+        logStorageManager = networkSurveyService.getLogStorageManager();
+    }
+
+    public void onDestroy()
+    {
+        applicationContext = null;
+        // Delayed tasks are discarded when the queue is shut down, so flush explicitly
+        writerQueue.post(syncTask);
+        writerQueue.quitSafely();
+    }
+
+    /**
+     * @return The queue that all the writes to the log file are run on. Exposed so that the queue
+     * depth metrics can be displayed.
+     */
+    public RecordWriterQueue getWriterQueue()
+    {
+        return writerQueue;
+    }
+
+    /**
+     * @return The number of record writes that were dropped because the write queue stayed full.
+     * Reported along with the survey record listener stats.
+     * @since 1.25.0
+     */
+    public long getDroppedRecordCount()
+    {
+        return writerQueue.getDroppedTaskCount();
+    }
+
+    /**
+     * @return {@link BackpressurePolicy#SPILL_TO_DISK} so that the records this logger falls behind
+     * on are kept on disk until it catches up, rather than holding up the record processing.
+     * @since 1.25.0
+     */
+    public BackpressurePolicy getBackpressurePolicy()
+    {
+        return BackpressurePolicy.SPILL_TO_DISK;
+    }
+
+    /**
+     * Turns logging on or off. The log file is not created until the first record comes in.
+     * <p>
+     * If calling this method, it is assumed that the caller will add this logger as a listener for
+     * survey records.
+     *
+     * @param enable True if logging is being turned on, false if the log file should be closed.
+     * @return True if the toggling action was successful, false if the request could not be completed.
+     */
+    public boolean enableLogging(boolean enable)
+    {
+        synchronized (logFileLock)
+        {
+            Timber.i("Toggling protobuf logging to %s", enable);
+            if (!enable)
+            {
+                if (!loggingEnabled) return false;
+
+                loggingEnabled = false;
+                writerQueue.removeCallbacks(syncTask);
+                syncScheduled = false;
+                closeLogFile();
+                return true;
+            }
+
+            if (!Environment.MEDIA_MOUNTED.equals(Environment.getExternalStorageState())) return false;
+
+            updateRolloverSize();
+
+            return loggingEnabled = true;
+        }
+    }
+
+    /**
+     * Adds a task to the {@link #writerQueue} that appends the provided record to the log file.
+     *
+     * @param recordType The type of the record, which must be between 1 and 255.
+     * @param record     The record to write.
+     */
+    void writeRecord(int recordType, MessageLite record)
+    {
+        if (!loggingEnabled) return;
+
+        writerQueue.offer(() -> {
+            synchronized (logFileLock)
+            {
+                try
+                {
+                    if (!loggingEnabled) return;
+
+                    appendRecord(recordType, record);
+                    scheduleSync();
+                } catch (Exception e)
+                {
+                    Timber.e(e, "Could not write the record to the protobuf log file");
+                }
+            }
+        });
+    }
+
+    /**
+     * Adds a task to the {@link #writerQueue} that appends all the provided records to the log file.
+     * This is used to write the records from a single scan together.
+     *
+     * @param recordType The type of the records, which must be between 1 and 255.
+     * @param records    The records to write.
+     */
+    void writeRecords(int recordType, List<? extends MessageLite> records)
+    {
+        if (!loggingEnabled) return;
+
+        writerQueue.offer(() -> {
+            synchronized (logFileLock)
+            {
+                try
+                {
+                    if (!loggingEnabled) return;
+
+                    for (MessageLite record : records)
+                    {
+                        appendRecord(recordType, record);
+                    }
+                    scheduleSync();
+                } catch (Exception e)
+                {
+                    Timber.e(e, "Could not write the records to the protobuf log file");
+                }
+            }
+        });
+    }
+
+    /**
+     * Update the max log size if the preference has changed via shared preferences.
+     */
+    public void onSharedPreferenceChanged()
+    {
+        updateRolloverSize();
+    }
+
+    /**
+     * Update the max log size if the preference has changed via MDM.
+     */
+    public void onMdmPreferenceChanged()
+    {
+        updateRolloverSize();
+    }
+
+    /**
+     * Writes a single record to the log file, creating the file first if necessary, and then rolls
+     * the file over if it has reached the max size.
+     * <p>
+     * This method is NOT thread safe and it is assumed the caller has already gotten a lock on the
+     * {@link #logFileLock} and is running on the {@link #writerQueue} thread.
+     */
+    private void appendRecord(int recordType, MessageLite record) throws IOException
+    {
+        if (output == null && !createLogFile()) return;
+
+        // The same framing as writeDelimitedTo, but without creating a new stream for each record
+        output.writeRawByte((byte) recordType);
+        output.writeUInt32NoTag(record.getSerializedSize());
+        record.writeTo(output);
+        recordsSinceSync = true;
+
+        final long rolloverSize = rolloverSizeBytes;
+        if (rolloverSize != 0 && output.getTotalBytesWritten() >= rolloverSize)
+        {
+            Timber.i("Rolling over the protobuf log file %s", loggingFileName);
+            // The next record creates the new file
+            closeLogFile();
+        }
+    }
+
+    /**
+     * Creates a new log file and writes the header to it.
+     * <p>
+     * This method is NOT thread safe and it is assumed the caller has already gotten a lock on the
+     * {@link #logFileLock}.
+     *
+     * @return True if the file was created.
+     */
+    private boolean createLogFile()
+    {
+        loggingFileName = createPublicStorageFilePath();
+        Timber.i("Creating the log file: %s", loggingFileName);
+
+        try
+        {
+            fileOutputStream = new FileOutputStream(loggingFileName);
+            output = CodedOutputStream.newInstance(fileOutputStream, WRITE_BUFFER_SIZE);
+            output.writeRawBytes(MAGIC);
+            output.writeUInt32NoTag(FORMAT_VERSION);
+            output.writeStringNoTag(surveyType);
+            output.writeStringNoTag(getVersionName());
+            output.flush();
+            logStorageManager.onLogFileCreated(loggingFileName);
+            return true;
+        } catch (IOException e)
+        {
+            final String errorMessage = "Error: Unable to create the protobuf log file.  No logging will be recorded.";
+            Timber.e(e, errorMessage);
+            new Handler(Looper.getMainLooper()).post(() -> Toast.makeText(applicationContext, errorMessage, Toast.LENGTH_SHORT).show());
+
+            closeLogFile();
+            return false;
+        }
+    }
+
+    /**
+     * Flushes and closes the current log file, if there is one.
+     * <p>
+     * This method is NOT thread safe and it is assumed the caller has already gotten a lock on the
+     * {@link #logFileLock}.
+     */
+    private void closeLogFile()
+    {
+        if (output != null) sync();
+
+        if (fileOutputStream != null)
+        {
+            try
+            {
+                fileOutputStream.close();
+            } catch (IOException e)
+            {
+                Timber.e(e, "Could not close the protobuf log file");
+            }
+            logStorageManager.onLogFileClosed(loggingFileName);
+        }
+
+        fileOutputStream = null;
+        output = null;
+        loggingFileName = null;
+        recordsSinceSync = false;
+    }
+
+    /**
+     * Schedules the {@link #syncTask} to run once the {@link #SYNC_INTERVAL_MS} has passed, unless it
+     * is already scheduled.
+     * <p>
+     * This method is NOT thread safe and it is assumed the caller has already gotten a lock on the
+     * {@link #logFileLock} and is running on the {@link #writerQueue} thread.
+     */
+    private void scheduleSync()
+    {
+        if (syncScheduled) return;
+
+        syncScheduled = true;
+        writerQueue.postDelayed(syncTask, SYNC_INTERVAL_MS);
+    }
+
+    /**
+     * Writes a sync marker (if any records have been written since the last one) and flushes the
+     * buffered data out to the file.
+     * <p>
+     * This method is NOT thread safe and it is assumed the caller has already gotten a lock on the
+     * {@link #logFileLock}.
+     */
+    private void sync()
+    {
+        if (output == null || !recordsSinceSync) return;
+
+        try
+        {
+            output.writeRawByte((byte) SYNC_MARKER_TYPE);
+            output.writeFixed64NoTag(SYNC_MARKER);
+            output.writeFixed64NoTag(System.currentTimeMillis());
+            output.flush();
+            recordsSinceSync = false;
+        } catch (IOException e)
+        {
+            Timber.e(e, "Could not flush the protobuf log file");
+        }
+    }
+
+    /**
+     * Updates the rollover size from the SharedPreferences, or the MDM properties if enabled.
+     */
+    private void updateRolloverSize()
+    {
+        final int logRolloverSizeMb = PreferenceUtils.getRolloverSizePreference(applicationContext);
+        Timber.i("Log Rollover Size updated to %s MB", logRolloverSizeMb);
+        rolloverSizeBytes = (long) logRolloverSizeMb * BYTES_TO_MEGABYTES;
+    }
+
+    /**
+     * Creates the absolute path to the log file that this class writes to.
+     *
+     * @return The full path to the log file.
+     */
+    private String createPublicStorageFilePath()
+    {
+        final String logFileDirectoryPath = Environment.getExternalStoragePublicDirectory(
+                Environment.DIRECTORY_DOWNLOADS) + "/" + logDirectoryName + "/";
+
+        try
+        {
+            Files.createDirectories(Paths.get(logFileDirectoryPath));
+        } catch (IOException e)
+        {
+            Timber.e(e, "Could not create the protobuf log file directory");
+        }
+
+        final String fileName = fileNamePrefix + SurveyRecordProcessor.DATE_TIME_FORMATTER.format(LocalDateTime.now());
+        String filePath = logFileDirectoryPath + fileName + FILE_EXTENSION;
+
+        // A rollover can happen within the same second that the previous file was created
+        int counter = 0;
+        while (new File(filePath).exists())
+        {
+            counter++;
+            filePath = logFileDirectoryPath + fileName + "-" + counter + FILE_EXTENSION;
+        }
+
+        return filePath;
+    }
+
+    /**
+     * @return The NS App version number, or an empty string if it could not be determined.
+     */
+    private String getVersionName()
+    {
+        try
+        {
+            PackageInfo info = applicationContext.getPackageManager().getPackageInfo(applicationContext.getPackageName(), 0);
+            return info.versionName;
+        } catch (PackageManager.NameNotFoundException e)
+        {
+            return "";
+        }
+    }
+}
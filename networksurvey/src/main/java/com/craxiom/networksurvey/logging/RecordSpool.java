@@ -0,0 +1,288 @@
+package com.craxiom.networksurvey.logging;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.MessageLite;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import timber.log.Timber;
+
+/**
+ * A circular spool file that holds the survey records that have been handed to a logger, but have
+ * not been committed to the GeoPackage file yet.
+ * <p>
+ * The records in a logger's writer queue only exist in memory, so if the app process is killed
+ * then all the queued records, and any records in the open transaction, are lost. To prevent that,
+ * each record is serialized into this spool before its write task is queued. The spool is a memory
+ * mapped file, so appending a record is just a memory copy, and the OS still writes the data out to
+ * the file if the process dies. After each commit to the GeoPackage file the space used by the
+ * committed records is given back with {@link #commit(int)}, and new entries wrap around to the
+ * front of the file once they reach the end. If the app is killed, the records that are still in the
+ * spool are replayed into the log file the next time logging is started.
+ * <p>
+ * The spool has a fixed capacity. If it fills up with uncommitted records (i.e. the GeoPackage
+ * writer has fallen way behind) then {@link #append(int, long, MessageLite)} fails and the record is
+ * only kept in memory, the same as if there was no spool.
+ * <p>
+ * File format: a 4 byte magic number and the 4 byte offset of the oldest uncommitted entry, followed
+ * by the entries. Each entry is a 4 byte entry length (including this entry header), a 1 byte record
+ * type, an 8 byte epoch time, and then the protobuf encoded record. An entry length of 0 marks the end
+ * of the entries, and an entry length of -1 means the next entry is at the front of the file. The
+ * length of an entry is written last, so a partially written entry is never read back.
+ *
+ * @since 1.25.0
+ */
+final class RecordSpool
+{
+    private static final int MAGIC = 0x4E535332; // "NSS2"
+    private static final int START_OFFSET_POSITION = 4;
+    private static final int FILE_HEADER_LENGTH = 4 + 4;
+    private static final int ENTRY_HEADER_LENGTH = 4 + 1 + 8;
+    private static final int END_MARKER_LENGTH = 4;
+    private static final int END_MARKER = 0;
+    private static final int WRAP_MARKER = -1;
+
+    /**
+     * The offset that the first entry is written to, which is also the write offset of an empty spool.
+     */
+    static final int EMPTY_OFFSET = FILE_HEADER_LENGTH;
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private int startOffset;
+    private int writeOffset;
+    private boolean closed;
+
+    /**
+     * Opens the spool file, creating it if it does not exist. Any entries that are already in the file
+     * are kept so that they can be read with {@link #readEntries()}.
+     *
+     * @param spoolFile The file to use for the spool.
+     * @param capacity  The size of the spool file in bytes.
+     * @throws IOException If the file could not be opened or mapped into memory.
+     */
+    RecordSpool(File spoolFile, int capacity) throws IOException
+    {
+        this.capacity = capacity;
+        file = new RandomAccessFile(spoolFile, "rw");
+        try
+        {
+            buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        } catch (IOException e)
+        {
+            file.close();
+            throw e;
+        }
+
+        startOffset = buffer.getInt(START_OFFSET_POSITION);
+        if (buffer.getInt(0) == MAGIC && startOffset >= EMPTY_OFFSET && startOffset + END_MARKER_LENGTH <= capacity)
+        {
+            writeOffset = findEndOffset();
+        } else
+        {
+            buffer.putInt(EMPTY_OFFSET, END_MARKER);
+            buffer.putInt(START_OFFSET_POSITION, EMPTY_OFFSET);
+            buffer.putInt(0, MAGIC);
+            startOffset = EMPTY_OFFSET;
+            writeOffset = EMPTY_OFFSET;
+        }
+    }
+
+    /**
+     * Serializes the record into the spool.
+     *
+     * @param recordType  The type of the record, which is used to know how to parse it when it is read
+     *                    back. Only needs to be unique within a single spool.
+     * @param epochMillis The time that the record was captured.
+     * @param record      The record to write.
+     * @return The offset of the end of the entry, which is the value to pass to {@link #commit(int)}
+     * once the record has been committed. -1 if the spool is full or closed.
+     */
+    synchronized int append(int recordType, long epochMillis, MessageLite record)
+    {
+        if (closed) return -1;
+
+        final int entryLength = ENTRY_HEADER_LENGTH + record.getSerializedSize();
+
+        // The entries are written from the start offset towards the end of the file, and then from the
+        // front of the file up to the start offset. Room for an end marker is always left after the
+        // entry so the end of the entries can be found.
+        final int entryOffset;
+        if (writeOffset >= startOffset && writeOffset + entryLength + END_MARKER_LENGTH <= capacity)
+        {
+            entryOffset = writeOffset;
+        } else if (writeOffset >= startOffset && EMPTY_OFFSET + entryLength + END_MARKER_LENGTH <= startOffset)
+        {
+            entryOffset = EMPTY_OFFSET;
+        } else if (writeOffset < startOffset && writeOffset + entryLength + END_MARKER_LENGTH <= startOffset)
+        {
+            entryOffset = writeOffset;
+        } else
+        {
+            return -1;
+        }
+
+        try
+        {
+            buffer.limit(entryOffset + entryLength);
+            buffer.position(entryOffset + ENTRY_HEADER_LENGTH);
+            final CodedOutputStream outputStream = CodedOutputStream.newInstance(buffer);
+            record.writeTo(outputStream);
+            outputStream.flush();
+        } catch (IOException e)
+        {
+            Timber.e(e, "Could not write a record to the spool");
+            return -1;
+        } finally
+        {
+            buffer.clear();
+        }
+
+        buffer.put(entryOffset + 4, (byte) recordType);
+        buffer.putLong(entryOffset + 5, epochMillis);
+        buffer.putInt(entryOffset + entryLength, END_MARKER);
+        // Written last so that the entry is only visible once it is complete
+        buffer.putInt(entryOffset, entryLength);
+        if (entryOffset != writeOffset) buffer.putInt(writeOffset, WRAP_MARKER);
+
+        writeOffset = entryOffset + entryLength;
+        return writeOffset;
+    }
+
+    /**
+     * Removes the entries up to the provided offset from the spool so that their space can be reused.
+     * This is called after a commit with the end offset of the last record that was written to the
+     * GeoPackage file, so any records that were appended since then are kept.
+     *
+     * @param committedOffset The end offset of the last committed record, as returned from
+     *                        {@link #append(int, long, MessageLite)}.
+     * @return True if the spool is now empty.
+     */
+    synchronized boolean commit(int committedOffset)
+    {
+        if (closed) return false;
+
+        if (committedOffset == writeOffset)
+        {
+            // Everything is committed, so start over at the front of the file to keep the entries in one piece
+            buffer.putInt(EMPTY_OFFSET, END_MARKER);
+            buffer.putInt(START_OFFSET_POSITION, EMPTY_OFFSET);
+            startOffset = EMPTY_OFFSET;
+            writeOffset = EMPTY_OFFSET;
+            return true;
+        }
+
+        buffer.putInt(START_OFFSET_POSITION, committedOffset);
+        startOffset = committedOffset;
+        return false;
+    }
+
+    /**
+     * @return The offset that the next entry will be written to if it fits before the end of the file.
+     */
+    synchronized int getWriteOffset()
+    {
+        return writeOffset;
+    }
+
+    /**
+     * @return A copy of all the entries in the spool, in the order they were appended.
+     */
+    synchronized List<Entry> readEntries()
+    {
+        final List<Entry> entries = new ArrayList<>();
+        int offset = startOffset;
+        while (offset != writeOffset)
+        {
+            final int entryLength = buffer.getInt(offset);
+            if (entryLength == WRAP_MARKER)
+            {
+                offset = EMPTY_OFFSET;
+                continue;
+            }
+
+            final byte[] payload = new byte[entryLength - ENTRY_HEADER_LENGTH];
+            buffer.position(offset + ENTRY_HEADER_LENGTH);
+            buffer.get(payload);
+            buffer.clear();
+
+            entries.add(new Entry(buffer.get(offset + 4), buffer.getLong(offset + 5), payload));
+            offset += entryLength;
+        }
+
+        return entries;
+    }
+
+    /**
+     * Closes the spool file. Any entries that are still in the spool are kept in the file.
+     */
+    synchronized void close()
+    {
+        if (closed) return;
+        closed = true;
+
+        try
+        {
+            file.close();
+        } catch (IOException e)
+        {
+            Timber.e(e, "Could not close the spool file");
+        }
+    }
+
+    /**
+     * Walks the entries from the start offset to find where the next entry should be written.
+     * If an invalid entry length is found (which should not happen), the spool is truncated there.
+     */
+    private int findEndOffset()
+    {
+        int offset = startOffset;
+        boolean wrapped = false;
+        while (true)
+        {
+            final int entryLength = buffer.getInt(offset);
+            if (entryLength == END_MARKER) return offset;
+
+            if (entryLength == WRAP_MARKER && !wrapped && startOffset > EMPTY_OFFSET)
+            {
+                wrapped = true;
+                offset = EMPTY_OFFSET;
+                continue;
+            }
+
+            final int limit = wrapped ? startOffset : capacity;
+            if (entryLength < ENTRY_HEADER_LENGTH || offset + entryLength + END_MARKER_LENGTH > limit)
+            {
+                Timber.w("Found a corrupt entry in the spool file at offset %d, dropping the rest of the spool", offset);
+                buffer.putInt(offset, END_MARKER);
+                return offset;
+            }
+
+            offset += entryLength;
+        }
+    }
+
+    /**
+     * A single record that was read back from the spool.
+     */
+    static final class Entry
+    {
+        final int recordType;
+        final long epochMillis;
+        final byte[] payload;
+
+        Entry(int recordType, long epochMillis, byte[] payload)
+        {
+            this.recordType = recordType;
+            this.epochMillis = epochMillis;
+            this.payload = payload;
+        }
+    }
+}
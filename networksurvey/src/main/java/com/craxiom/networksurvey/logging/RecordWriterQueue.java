@@ -0,0 +1,288 @@
+package com.craxiom.networksurvey.logging;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+
+import com.craxiom.networksurvey.services.PipelineMetrics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import timber.log.Timber;
+
+/**
+ * A bounded and ordered queue of write tasks that are run on a dedicated background thread.
+ * <p>
+ * Each logger owns one of these queues so that the disk I/O for a log file never delays the survey
+ * scans (which are scheduled on the service looper), or the writes for any of the other log files.
+ * Tasks are run one at a time in the order they were added. If the disk can't keep up and the queue
+ * fills up, adding a record write task waits for room instead of letting the queue grow without
+ * bound. The loggers are called on their own survey record dispatcher thread, so the wait pushes
+ * back on the dispatcher, which spills the records the logger falls behind on to disk until it
+ * catches up (see {@link com.craxiom.networksurvey.listeners.BackpressurePolicy#SPILL_TO_DISK}). A
+ * task is only dropped (and counted) if the writer thread makes no progress for
+ * {@link #OFFER_TIMEOUT_MS}, or if the queue has been shut down.
+ *
+ * @since 1.25.0
+ */
+public class RecordWriterQueue
+{
+    /**
+     * The default max number of record write tasks that can be waiting in the queue.
+     */
+    static final int DEFAULT_CAPACITY = 10_000;
+
+    /**
+     * The max amount of time to wait for room in a full queue before dropping a record write task.
+     */
+    static final long OFFER_TIMEOUT_MS = 30_000;
+
+    private static final int DROPPED_TASK_LOG_INTERVAL = 1000;
+
+    private final String name;
+    private final int capacity;
+
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private final AtomicLong droppedTaskCount = new AtomicLong();
+    private final Object capacityLock = new Object();
+
+    private HandlerThread writerThread;
+    private Handler writerHandler;
+
+    /**
+     * Set once the queue has been shut down, after which no more tasks are accepted, and the writer
+     * thread is not started again.
+     */
+    private volatile boolean quit;
+    private volatile Thread currentWriterThread;
+
+    /**
+     * Constructs a new writer queue with the {@link #DEFAULT_CAPACITY}.
+     *
+     * @param name The name to use for the writer thread, which is helpful when debugging.
+     */
+    RecordWriterQueue(String name)
+    {
+        this(name, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a new writer queue. The writer thread is not started until the first task is added.
+     *
+     * @param name     The name to use for the writer thread, which is helpful when debugging.
+     * @param capacity The max number of record write tasks that can be waiting in the queue.
+     */
+    RecordWriterQueue(String name, int capacity)
+    {
+        this.name = name;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Adds a record write task to the end of the queue. If the queue is full, this waits for room
+     * (up to {@link #OFFER_TIMEOUT_MS}), unless it is called from the writer thread itself.
+     *
+     * @param task The task to run on the writer thread.
+     * @return True if the task was added to the queue, false if it was dropped because the queue
+     * stayed full or the queue has been shut down.
+     */
+    boolean offer(Runnable task)
+    {
+        final int depth;
+        synchronized (capacityLock)
+        {
+            if (!awaitRoom())
+            {
+                onTaskDropped();
+                return false;
+            }
+
+            depth = queueDepth.incrementAndGet();
+        }
+
+        maxQueueDepth.accumulateAndGet(depth, Math::max);
+
+        final Handler handler = getWriterHandler();
+        final boolean posted = handler != null && handler.post(() -> {
+            try
+            {
+                task.run();
+            } finally
+            {
+                onTaskFinished();
+            }
+        });
+
+        if (!posted)
+        {
+            onTaskFinished();
+            onTaskDropped();
+        }
+
+        return posted;
+    }
+
+    /**
+     * Adds a task to the end of the queue regardless of how many tasks are waiting. This should
+     * only be used for tasks that must not be dropped, such as closing out a log file.
+     *
+     * @param task The task to run on the writer thread.
+     * @return True if the task was added, false if the queue has been shut down.
+     */
+    boolean post(Runnable task)
+    {
+        final Handler handler = getWriterHandler();
+        return handler != null && handler.post(task);
+    }
+
+    /**
+     * Schedules a task to run on the writer thread after the specified delay.
+     *
+     * @param task    The task to run on the writer thread.
+     * @param delayMs The amount of time to wait before running the task.
+     * @return True if the task was scheduled, false if the queue has been shut down.
+     */
+    boolean postDelayed(Runnable task, long delayMs)
+    {
+        final Handler handler = getWriterHandler();
+        return handler != null && handler.postDelayed(task, delayMs);
+    }
+
+    /**
+     * Removes any pending posts of the provided task that were added with {@link #post(Runnable)}
+     * or {@link #postDelayed(Runnable, long)}.
+     *
+     * @param task The task to remove.
+     */
+    synchronized void removeCallbacks(Runnable task)
+    {
+        if (writerHandler != null) writerHandler.removeCallbacks(task);
+    }
+
+    /**
+     * Stops the writer thread once all the tasks that are currently in the queue have been run.
+     * Any delayed tasks that are not yet due are discarded. Any tasks that are added after this are
+     * dropped, and the writer thread is not started again.
+     */
+    synchronized void quitSafely()
+    {
+        quit = true;
+        synchronized (capacityLock)
+        {
+            capacityLock.notifyAll();
+        }
+
+        if (writerThread != null)
+        {
+            writerThread.quitSafely();
+            writerThread = null;
+            writerHandler = null;
+            PipelineMetrics.unregisterQueue(getMetricsName());
+        }
+    }
+
+    /**
+     * @return The number of record write tasks that are waiting to be run, or are currently running.
+     */
+    public int getQueueDepth()
+    {
+        return queueDepth.get();
+    }
+
+    /**
+     * @return The largest number of record write tasks that have been in the queue at one time.
+     */
+    public int getMaxQueueDepth()
+    {
+        return maxQueueDepth.get();
+    }
+
+    /**
+     * @return The number of record write tasks that were dropped because the queue stayed full, or
+     * because they were added after the queue was shut down.
+     */
+    public long getDroppedTaskCount()
+    {
+        return droppedTaskCount.get();
+    }
+
+    /**
+     * Waits for there to be room in the queue. Must be called while holding the capacity lock.
+     *
+     * @return True if a task can be added to the queue, false if the queue stayed full or has been
+     * shut down.
+     */
+    private boolean awaitRoom()
+    {
+        // A task that adds another task can't wait on itself to finish
+        if (Thread.currentThread() == currentWriterThread) return !quit;
+
+        final long deadline = System.currentTimeMillis() + OFFER_TIMEOUT_MS;
+        try
+        {
+            while (!quit && queueDepth.get() >= capacity)
+            {
+                final long remainingMs = deadline - System.currentTimeMillis();
+                if (remainingMs <= 0) return false;
+
+                capacityLock.wait(remainingMs);
+            }
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+
+        return !quit;
+    }
+
+    private void onTaskFinished()
+    {
+        // Only wake up the threads waiting for room if the queue was full
+        if (queueDepth.getAndDecrement() >= capacity)
+        {
+            synchronized (capacityLock)
+            {
+                capacityLock.notifyAll();
+            }
+        }
+    }
+
+    private void onTaskDropped()
+    {
+        final long dropped = droppedTaskCount.incrementAndGet();
+        if (dropped == 1 || dropped % DROPPED_TASK_LOG_INTERVAL == 0)
+        {
+            Timber.w("The %s writer queue dropped a write task, %d have been dropped so far", name, dropped);
+        }
+    }
+
+    /**
+     * @return The handler for the writer thread, starting the thread if it is not already running,
+     * or null if the queue has been shut down.
+     */
+    private synchronized Handler getWriterHandler()
+    {
+        if (quit) return null;
+
+        if (writerHandler == null)
+        {
+            writerThread = new HandlerThread(name + "-writer", Process.THREAD_PRIORITY_BACKGROUND);
+            writerThread.start();
+            currentWriterThread = writerThread;
+            final Looper looper = writerThread.getLooper();
+            writerHandler = new Handler(looper);
+            PipelineMetrics.registerQueue(getMetricsName(), this::getQueueDepth);
+        }
+
+        return writerHandler;
+    }
+
+    private String getMetricsName()
+    {
+        return "writer." + name;
+    }
+}
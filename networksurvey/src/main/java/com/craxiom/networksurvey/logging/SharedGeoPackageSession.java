@@ -0,0 +1,319 @@
+package com.craxiom.networksurvey.logging;
+
+import android.content.Context;
+
+import com.craxiom.networksurvey.constants.NetworkSurveyConstants;
+import com.craxiom.networksurvey.util.PreferenceUtils;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import mil.nga.geopackage.GeoPackage;
+import mil.nga.geopackage.GeoPackageFactory;
+import mil.nga.geopackage.GeoPackageManager;
+import timber.log.Timber;
+
+/**
+ * Owns a single GeoPackage file that all the {@link SurveyRecordLogger}s write to when the unified
+ * GeoPackage file preference is enabled.
+ * <p>
+ * Instead of each logger having its own file, writer thread, and connection, all the loggers share
+ * the {@link #writerQueue} thread, the {@link #lock}, and the connection to the one file. Since they
+ * share the connection, they also share its transaction, so a commit by any logger commits the rows
+ * from all the survey types at once. This cuts down on the number of fsync calls, and on the memory
+ * used by the page caches and prepared statements of several open files.
+ * <p>
+ * The file is created when the first logger starts logging, and it is finished and closed once the
+ * last logger stops. All the tables for all the registered loggers are created up front so that a
+ * logger that starts later on does not have to alter the schema of the open file. When the file
+ * reaches the rollover size, all the loggers are moved over to a new file together.
+ * <p>
+ * Everything other than the constructor and {@link #onDestroy()} must be called while holding the
+ * {@link #lock}, and anything that touches the file must also be running on the {@link #writerQueue}
+ * thread.
+ *
+ * @since 1.25.0
+ */
+public final class SharedGeoPackageSession
+{
+    /**
+     * All the GeoPackage I/O for all the loggers happens on this queue's thread.
+     */
+    final RecordWriterQueue writerQueue = new RecordWriterQueue(NetworkSurveyConstants.SURVEY_FILE_NAME_PREFIX + "gpkg");
+
+    /**
+     * The lock that all the loggers use as their {@code geoPackageLock}.
+     */
+    final Object lock = new Object();
+
+    private final Context applicationContext;
+    private final GeoPackageManager geoPackageManager;
+    private final LogStorageManager logStorageManager;
+
+    /**
+     * Finishes and closes the old files (and merges them if enabled) so that none of those slow
+     * operations hold up the {@link #writerQueue}.
+     */
+    private final ExecutorService finishExecutor = Executors.newSingleThreadExecutor();
+
+    /**
+     * All the loggers that use this session, whether they are logging or not.
+     */
+    private final List<SurveyRecordLogger> loggers = new ArrayList<>();
+
+    /**
+     * The loggers that are currently writing to the {@link #geoPackage}.
+     */
+    private final Set<SurveyRecordLogger> participants = new LinkedHashSet<>();
+
+    /**
+     * The names of the GeoPackage files that have been created since the first logger joined, in the
+     * order they were created.
+     */
+    private final List<String> sessionGeoPackageNames = new ArrayList<>();
+
+    private GeoPackage geoPackage;
+    private StringDictionary stringDictionary;
+    private boolean indexLogFiles;
+    private boolean mergeLogFiles;
+
+    /**
+     * @param context           The context used to read the preferences and to open the GeoPackage manager.
+     * @param logStorageManager The manager to report the shared files to.
+     */
+    public SharedGeoPackageSession(Context context, LogStorageManager logStorageManager)
+    {
+        applicationContext = context.getApplicationContext();
+        geoPackageManager = GeoPackageFactory.getManager(applicationContext);
+        this.logStorageManager = logStorageManager;
+    }
+
+    /**
+     * Shuts down the shared writer thread once all of its queued tasks have run. This should be called
+     * after all the loggers have been destroyed.
+     */
+    public void onDestroy()
+    {
+        writerQueue.quitSafely();
+        finishExecutor.shutdown();
+    }
+
+    /**
+     * Adds a logger to this session so that its tables are created in each new file.
+     *
+     * @param logger The logger that uses this session.
+     */
+    void register(SurveyRecordLogger logger)
+    {
+        loggers.add(logger);
+    }
+
+    /**
+     * Adds the logger as a participant, creating the shared file if this is the first logger to start
+     * logging.
+     *
+     * @param logger The logger that is starting to log.
+     * @return The shared GeoPackage file, or null if it could not be created.
+     * @throws SQLException If the tables could not be created in a new file.
+     */
+    GeoPackage join(SurveyRecordLogger logger) throws SQLException
+    {
+        if (geoPackage == null)
+        {
+            updatePreferences();
+            geoPackage = createGeoPackage();
+            if (geoPackage == null) return null;
+
+            sessionGeoPackageNames.clear();
+            sessionGeoPackageNames.add(geoPackage.getName());
+        }
+
+        participants.add(logger);
+        return geoPackage;
+    }
+
+    /**
+     * Removes the logger as a participant. Once the last participant has left, all the rows are
+     * committed and the shared file is finished and closed in the background.
+     * <p>
+     * Must be run on the {@link #writerQueue} thread.
+     *
+     * @param logger The logger that has stopped logging.
+     */
+    void leave(SurveyRecordLogger logger)
+    {
+        // The logger might have been turned back on before this task ran
+        if (logger.loggingEnabled || !participants.remove(logger) || !participants.isEmpty()) return;
+
+        final GeoPackage closingGeoPackage = geoPackage;
+        if (closingGeoPackage == null) return;
+
+        commit();
+        closeStringDictionary();
+        geoPackage = null;
+
+        final boolean createIndexes = indexLogFiles;
+        runInBackground(() -> SurveyRecordLogger.finishGeoPackage(closingGeoPackage, createIndexes, logStorageManager));
+
+        final List<String> sessionNames = new ArrayList<>(sessionGeoPackageNames);
+        sessionGeoPackageNames.clear();
+        if (mergeLogFiles && sessionNames.size() > 1)
+        {
+            // Queued behind the finish tasks so that all the files are closed before they are merged
+            runInBackground(() -> SurveyRecordLogger.mergeGeoPackageFiles(geoPackageManager, sessionNames, createIndexes, logStorageManager));
+        }
+    }
+
+    /**
+     * Commits the shared transaction (if there is one), and lets each participant know that its rows
+     * were committed.
+     * <p>
+     * Must be run on the {@link #writerQueue} thread.
+     */
+    void commit()
+    {
+        try
+        {
+            if (geoPackage != null && geoPackage.inTransaction()) geoPackage.endTransaction(true);
+        } catch (Exception e)
+        {
+            Timber.e(e, "Could not commit the batch of survey records to the shared GeoPackage file");
+        }
+
+        onBatchCommitted();
+    }
+
+    /**
+     * Lets each participant know that the shared transaction was just committed so that they can
+     * reset their batch and remove the committed records from their spool.
+     * <p>
+     * Must be run on the {@link #writerQueue} thread.
+     */
+    void onBatchCommitted()
+    {
+        for (SurveyRecordLogger participant : participants)
+        {
+            participant.onBatchCommitted();
+        }
+    }
+
+    /**
+     * Commits any pending rows, and then moves all the participants over to a new file. The old file
+     * is finished and closed in the background.
+     * <p>
+     * Must be run on the {@link #writerQueue} thread.
+     *
+     * @throws SQLException If the tables could not be created in the new file.
+     */
+    void rollover() throws SQLException
+    {
+        final GeoPackage oldGeoPackage = geoPackage;
+        if (oldGeoPackage == null) return;
+
+        commit();
+        for (SurveyRecordLogger participant : participants)
+        {
+            participant.detachSharedGeoPackage();
+        }
+        closeStringDictionary();
+        geoPackage = null;
+
+        final boolean createIndexes = indexLogFiles;
+        runInBackground(() -> SurveyRecordLogger.finishGeoPackage(oldGeoPackage, createIndexes, logStorageManager));
+
+        geoPackage = createGeoPackage();
+        if (geoPackage == null)
+        {
+            Timber.e("Failed to create a new shared GeoPackage file");
+            return;
+        }
+
+        Timber.i("Rolled over to the shared log file: %s", geoPackage.getName());
+        sessionGeoPackageNames.add(geoPackage.getName());
+        for (SurveyRecordLogger participant : participants)
+        {
+            participant.attachSharedGeoPackage(geoPackage);
+        }
+    }
+
+    /**
+     * @return The dictionary for the shared file, which all the loggers have to use so that they don't
+     * assign different IDs to the same value. Only valid if the file uses the compact schema.
+     */
+    StringDictionary getStringDictionary()
+    {
+        if (stringDictionary == null) stringDictionary = new StringDictionary(geoPackage);
+        return stringDictionary;
+    }
+
+    /**
+     * Creates a new shared file with the tables for all the registered loggers.
+     *
+     * @return The new GeoPackage, or null if it could not be created or opened.
+     */
+    private GeoPackage createGeoPackage() throws SQLException
+    {
+        final boolean highThroughputProfile = PreferenceUtils.getHighThroughputLoggingPreference(applicationContext);
+        boolean compactSchema = false;
+        if (PreferenceUtils.getCompactGeoPackageSchemaPreference(applicationContext))
+        {
+            for (SurveyRecordLogger logger : loggers)
+            {
+                compactSchema |= !logger.getDictionaryColumns().isEmpty();
+            }
+        }
+
+        final String filePath = SurveyRecordLogger.createLogFilePath(
+                SurveyRecordLogger.getPublicStorageDirectoryPath(NetworkSurveyConstants.LOG_DIRECTORY_NAME),
+                NetworkSurveyConstants.SURVEY_FILE_NAME_PREFIX);
+
+        return SurveyRecordLogger.createLogFile(geoPackageManager, filePath, highThroughputProfile, compactSchema,
+                (newGeoPackage, srs) -> {
+                    for (SurveyRecordLogger logger : loggers)
+                    {
+                        logger.createTables(newGeoPackage, srs);
+                    }
+                }, logStorageManager);
+    }
+
+    private void updatePreferences()
+    {
+        indexLogFiles = PreferenceUtils.getIndexLogFilesPreference(applicationContext);
+        mergeLogFiles = PreferenceUtils.getMergeLogFilesPreference(applicationContext);
+    }
+
+    private void closeStringDictionary()
+    {
+        if (stringDictionary == null) return;
+
+        try
+        {
+            stringDictionary.close();
+        } catch (Exception e)
+        {
+            Timber.e(e, "Could not close the shared string dictionary");
+        }
+        stringDictionary = null;
+    }
+
+    /**
+     * Runs the provided task on the {@link #finishExecutor}, or on the calling thread if the session
+     * has already been destroyed so that the log files are still closed out properly.
+     */
+    private void runInBackground(Runnable task)
+    {
+        try
+        {
+            finishExecutor.execute(task);
+        } catch (RejectedExecutionException e)
+        {
+            task.run();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.craxiom.networksurvey.logging;
+
+import android.database.sqlite.SQLiteStatement;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import mil.nga.geopackage.GeoPackage;
+import mil.nga.geopackage.GeoPackageCore;
+import mil.nga.geopackage.db.CoreSQLUtils;
+import mil.nga.geopackage.features.user.FeatureColumn;
+
+/**
+ * A lookup table of String values for the compact GeoPackage schema.
+ * <p>
+ * Many of the TEXT columns in the survey tables repeat the same handful of values on every row (e.g.
+ * the mission ID, the cellular provider, the SSID, or the Wi-Fi cipher suites). When the compact
+ * schema is enabled, those columns are created as INTEGER columns that reference the ID of the value
+ * in the {@link #TABLE_NAME} table, so that each distinct value is only stored once per file. The
+ * IDs are cached in memory so that, after the first time a value is seen, writing it to a row is
+ * just a map lookup.
+ * <p>
+ * To keep the files easy to use, a view is created for each survey table (see
+ * {@link #createView(GeoPackageCore, String, List, List)}) that joins the values back in, so the view has
+ * the same columns as the standard schema.
+ * <p>
+ * This class is NOT thread safe. It is expected to only be used from a logger's writer thread.
+ *
+ * @since 1.25.0
+ */
+final class StringDictionary
+{
+    static final String TABLE_NAME = "nsv_string_dictionary";
+    static final String VIEW_SUFFIX = "_view";
+
+    static final String ID_COLUMN = "id";
+    static final String VALUE_COLUMN = "value";
+
+    private final Map<String, Long> ids = new HashMap<>();
+    private final SQLiteStatement insertStatement;
+
+    /**
+     * @param geoPackage The GeoPackage that contains the dictionary table.
+     */
+    StringDictionary(GeoPackage geoPackage)
+    {
+        insertStatement = geoPackage.getConnection().getDb().getDb().compileStatement(
+                "INSERT INTO " + TABLE_NAME + " (" + VALUE_COLUMN + ") VALUES (?)");
+    }
+
+    /**
+     * Creates the dictionary table, which marks the GeoPackage as using the compact schema. This has
+     * to be called before any of the survey tables are created.
+     *
+     * @param geoPackage The GeoPackage to add the table to.
+     */
+    static void createTable(GeoPackageCore geoPackage)
+    {
+        geoPackage.execSQL("CREATE TABLE " + TABLE_NAME + " ("
+                + ID_COLUMN + " INTEGER PRIMARY KEY NOT NULL, "
+                + VALUE_COLUMN + " TEXT NOT NULL UNIQUE)");
+    }
+
+    /**
+     * @return True if the provided GeoPackage uses the compact schema.
+     */
+    static boolean exists(GeoPackageCore geoPackage)
+    {
+        return geoPackage.isTable(TABLE_NAME);
+    }
+
+    /**
+     * Creates a view that has the same columns as the standard schema for the provided table by
+     * replacing each dictionary encoded column with the String value that it references.
+     *
+     * @param geoPackage        The GeoPackage that contains the table.
+     * @param tableName         The name of the survey table.
+     * @param tableColumns      All the columns of the survey table, in order.
+     * @param dictionaryColumns The names of the columns that are dictionary encoded.
+     */
+    static void createView(GeoPackageCore geoPackage, String tableName, List<FeatureColumn> tableColumns, List<String> dictionaryColumns)
+    {
+        final StringBuilder select = new StringBuilder();
+        final StringBuilder joins = new StringBuilder();
+        int joinCount = 0;
+        for (FeatureColumn column : tableColumns)
+        {
+            if (select.length() > 0) select.append(", ");
+
+            final String columnName = CoreSQLUtils.quoteWrap(column.getName());
+            if (dictionaryColumns.contains(column.getName()))
+            {
+                final String alias = "d" + joinCount++;
+                select.append(alias).append('.').append(VALUE_COLUMN).append(" AS ").append(columnName);
+                joins.append(" LEFT JOIN ").append(TABLE_NAME).append(' ').append(alias)
+                        .append(" ON ").append(alias).append('.').append(ID_COLUMN).append(" = t.").append(columnName);
+            } else
+            {
+                select.append("t.").append(columnName);
+            }
+        }
+
+        geoPackage.execSQL("CREATE VIEW " + CoreSQLUtils.quoteWrap(tableName + VIEW_SUFFIX) + " AS SELECT " + select
+                + " FROM " + CoreSQLUtils.quoteWrap(tableName) + " t" + joins);
+    }
+
+    /**
+     * Returns the ID for the provided value, adding it to the dictionary table if this is the first
+     * time it has been seen.
+     * <p>
+     * This must be called as part of the same transaction as the row that references the ID.
+     *
+     * @param value The String value.
+     * @return The ID to store in the dictionary encoded column.
+     */
+    long getId(String value)
+    {
+        Long id = ids.get(value);
+        if (id == null)
+        {
+            insertStatement.bindString(1, value);
+            try
+            {
+                id = insertStatement.executeInsert();
+            } finally
+            {
+                insertStatement.clearBindings();
+            }
+            ids.put(value, id);
+        }
+
+        return id;
+    }
+
+    /**
+     * Releases the compiled statement. This must be called before the GeoPackage file is closed.
+     */
+    void close()
+    {
+        insertStatement.close();
+        ids.clear();
+    }
+}
@@ -2,29 +2,39 @@ package com.craxiom.networksurvey.logging;
 
 import android.content.Context;
 import android.os.Environment;
-import android.os.Handler;
-import android.os.Looper;
+import android.os.SystemClock;
 import android.widget.Toast;
 
-import com.craxiom.messaging.LteBandwidth;
 import com.craxiom.networksurvey.constants.CellularMessageConstants;
-import com.craxiom.networksurvey.constants.LteMessageConstants;
 import com.craxiom.networksurvey.constants.MessageConstants;
 import com.craxiom.networksurvey.constants.NetworkSurveyConstants;
 import com.craxiom.networksurvey.constants.csv.CellularCsvConstants;
+import com.craxiom.networksurvey.listeners.BackpressurePolicy;
 import com.craxiom.networksurvey.services.NetworkSurveyService;
+import com.craxiom.networksurvey.services.PipelineMetrics;
 import com.craxiom.networksurvey.services.SurveyRecordProcessor;
 import com.craxiom.networksurvey.util.PreferenceUtils;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.MessageLite;
 
 import java.io.File;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.ListIterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
 
 import mil.nga.geopackage.GeoPackage;
+import mil.nga.geopackage.GeoPackageCore;
 import mil.nga.geopackage.GeoPackageFactory;
 import mil.nga.geopackage.GeoPackageManager;
 import mil.nga.geopackage.contents.Contents;
@@ -34,7 +44,6 @@ import mil.nga.geopackage.db.GeoPackageDataType;
 import mil.nga.geopackage.features.columns.GeometryColumns;
 import mil.nga.geopackage.features.columns.GeometryColumnsDao;
 import mil.nga.geopackage.features.user.FeatureColumn;
-import mil.nga.geopackage.features.user.FeatureRow;
 import mil.nga.geopackage.features.user.FeatureTable;
 import mil.nga.geopackage.srs.SpatialReferenceSystem;
 import mil.nga.proj.ProjectionConstants;
@@ -51,154 +60,1410 @@ import timber.log.Timber;
 public abstract class SurveyRecordLogger
 {
     private static final String JOURNAL_FILE_SUFFIX = "-journal";
+    private static final String GEOPACKAGE_FILE_EXTENSION = ".gpkg";
+    private static final String MERGED_FILE_SUFFIX = "-merged";
     private static final int RECORD_COUNT_INTERVAL = 5000;
     static final long WGS84_SRS = 4326;
 
+    /**
+     * The maximum number of rows that are inserted as part of a single transaction before the
+     * transaction is committed.
+     */
+    static final int MAX_BATCH_ROWS = 500;
+
+    /**
+     * The maximum amount of time that a transaction is kept open before it is committed. This bounds
+     * the number of records that are lost if the app is killed in the middle of a batch.
+     */
+    static final long MAX_BATCH_AGE_MS = 2_000;
+
+    /**
+     * The maximum amount of time that a transaction is kept open when the records are also being
+     * written to the {@link RecordSpool}. Since the spool protects the records from being lost if the
+     * app is killed, the batches can be much larger.
+     */
+    static final long SPOOLED_MAX_BATCH_AGE_MS = 10_000;
+
+    private static final String SPOOL_DIRECTORY_NAME = "spool";
+    private static final String SPOOL_FILE_EXTENSION = ".spool";
+    private static final int SPOOL_CAPACITY_BYTES = 4 * 1_048_576;
+
+    /**
+     * Once the log file reaches this percentage of the rollover size, the next GeoPackage file is
+     * created in the background so that it is ready to go when the rollover happens. The time in the
+     * name of that file is when it was created, not when the rollover happened.
+     */
+    private static final int STANDBY_FILE_THRESHOLD_PERCENT = 50;
+
+    /**
+     * How often the write-ahead log is checkpointed when the {@link HighThroughputSqliteProfile} is
+     * being used.
+     */
+    private static final long WAL_CHECKPOINT_INTERVAL_MS = 10_000;
+
     private NetworkSurveyService networkSurveyService;
     private Context applicationContext;
-    Handler handler;
+
+    /**
+     * All the GeoPackage I/O for this logger happens on this queue's thread so that a slow disk
+     * never holds up the survey scans.
+     */
+    final RecordWriterQueue writerQueue;
     private final String logDirectoryName;
     private final String fileNamePrefix;
     private final GeoPackageManager geoPackageManager;
+    private final LogStorageManager logStorageManager;
     private final RolloverWorker rolloverWorker = new RolloverWorker();
 
     GeoPackage geoPackage;
     volatile boolean loggingEnabled;
-    private String logFileDirectoryPath;
 
     /**
-     * A lock to synchronize the writing of single records and the creation of a new GeoPackage file
-     * during rollover.
+     * The number of rows that have been inserted as part of the currently open transaction.
+     */
+    private int batchRowCount;
+
+    /**
+     * The insert statements that have been compiled for the current GeoPackage file.
+     */
+    private final List<FeatureTableInserter> inserters = new ArrayList<>();
+
+    /**
+     * Creates the next GeoPackage file before it is needed, and finishes and closes the old files,
+     * so that none of those slow operations hold up the {@link #writerQueue}.
+     */
+    private final ExecutorService standbyExecutor = Executors.newSingleThreadExecutor();
+    private final Object standbyLock = new Object();
+
+    /**
+     * The next GeoPackage file, which has already been created and had all its tables added. Null
+     * if one has not been requested, or if it is still being created.
+     */
+    private GeoPackage standbyGeoPackage;
+    private boolean standbyRequested;
+
+    /**
+     * Incremented each time the standby file is taken or discarded so that a file that was still
+     * being created at the time can tell that it is no longer wanted.
+     */
+    private int standbyGeneration;
+
+    /**
+     * True if new GeoPackage files should be set up using the {@link HighThroughputSqliteProfile}.
+     * Changing this does not affect the file that is currently being written to.
+     */
+    private volatile boolean highThroughputProfile;
+
+    /**
+     * True if the spatial and time indexes should be built for each GeoPackage file once it is closed
+     * (see {@link GeoPackageIndexer}).
+     */
+    private volatile boolean indexLogFiles = NetworkSurveyConstants.DEFAULT_INDEX_LOG_FILES;
+
+    /**
+     * True if new GeoPackage files should be created using the compact schema, where the columns from
+     * {@link #getDictionaryColumns()} are stored in a {@link StringDictionary}.
+     */
+    private volatile boolean compactSchema;
+
+    /**
+     * True if all the GeoPackage files from a logging session should be merged into a single file
+     * once logging stops (see {@link GeoPackageMerger}).
+     */
+    private volatile boolean mergeLogFiles = NetworkSurveyConstants.DEFAULT_MERGE_LOG_FILES;
+
+    /**
+     * The names of the GeoPackage files that have been logged to since logging was enabled, in the
+     * order they were created. Only accessed while holding the {@link #geoPackageLock}.
+     */
+    private final List<String> sessionGeoPackageNames = new ArrayList<>();
+
+    /**
+     * The dictionary for the current GeoPackage file, or null if the file uses the standard schema.
+     */
+    private StringDictionary stringDictionary;
+
+    /**
+     * The spool that records are appended to before their write task is queued, or null if the spool
+     * is not open (either because logging is off, or because the spool file could not be opened).
+     * Opened and closed on the {@link #writerQueue} thread.
+     */
+    private volatile RecordSpool recordSpool;
+
+    /**
+     * The spool that the last record written to the GeoPackage file came from, and the end offset of
+     * that record in the spool (-1 if no spooled record has been written since the last commit). Only
+     * accessed from the {@link #writerQueue} thread.
+     */
+    private RecordSpool processedSpool;
+    private int processedSpoolOffset = -1;
+
+    /**
+     * True if a record that is not in the spool has been written since the last commit, so the next
+     * scan group commit can't be skipped. Only accessed from the {@link #writerQueue} thread.
+     */
+    private boolean unspooledRecordPending;
+
+    /**
+     * The time that the oldest record written since the last commit was queued, from
+     * {@link PipelineMetrics#now()}, or 0 if nothing has been written since the last commit. Only
+     * accessed from the {@link #writerQueue} thread.
+     */
+    private long oldestUncommittedNanos;
+
+    /**
+     * The {@link SystemClock#elapsedRealtime()} of the last WAL checkpoint request.
+     */
+    private long lastCheckpointTimeMs;
+
+    /**
+     * A lock to synchronize the writing of single records and the creation of a new GeoPackage file
+     * during rollover. When the {@link #sharedSession} is used, this is the session's lock.
+     */
+    protected final Object geoPackageLock;
+
+    /**
+     * The session that owns the GeoPackage file, writer thread, and lock for all the loggers when the
+     * unified GeoPackage file preference is enabled, or null if this logger has its own file.
+     */
+    private final SharedGeoPackageSession sharedSession;
+
+    /**
+     * Commits the current transaction if it has been left open for {@link #MAX_BATCH_AGE_MS}.
+     */
+    private final Runnable batchTimeoutTask;
+
+    /**
+     * Checkpoints the write-ahead log for the current GeoPackage file. This is run as its own task on
+     * the {@link #writerQueue} so that it happens between batches.
+     */
+    private final Runnable checkpointTask;
+
+    /**
+     * Constructs a Logger that writes Survey records to a GeoPackage SQLite database.
+     *
+     * @param networkSurveyService The Service instance that is running this logger.
+     * @param logDirectoryName     The parent directory name to write all the files in.
+     * @param fileNamePrefix       The prefix to use for the GeoPackage file name.
+     */
+    SurveyRecordLogger(NetworkSurveyService networkSurveyService, String logDirectoryName, String fileNamePrefix)
+    {
+        this.networkSurveyService = networkSurveyService;
+        applicationContext = networkSurveyService.getApplicationContext();
+        this.logDirectoryName = logDirectoryName;
+        this.fileNamePrefix = fileNamePrefix;
+        logStorageManager = networkSurveyService.getLogStorageManager();
+
+        sharedSession = networkSurveyService.getSharedGeoPackageSession();
+        if (sharedSession != null)
+        {
+            writerQueue = sharedSession.writerQueue;
+            geoPackageLock = sharedSession.lock;
+            sharedSession.register(this);
+        } else
+        {
+            writerQueue = new RecordWriterQueue(fileNamePrefix + "gpkg");
+            geoPackageLock = new Object();
+        }
+
+        batchTimeoutTask = () -> {
+            synchronized (geoPackageLock)
+            {
+                commitBatch();
+            }
+        };
+
+        checkpointTask = () -> {
+            synchronized (geoPackageLock)
+            {
+                if (geoPackage != null && !geoPackage.inTransaction())
+                {
+                    HighThroughputSqliteProfile.checkpoint(geoPackage);
+                }
+            }
+        };
+
+        geoPackageManager = GeoPackageFactory.getManager(networkSurveyService.getApplicationContext());
+    }
+
+    public void onDestroy()
+    {
+        networkSurveyService = null;
+        applicationContext = null;
+        // The shared writer queue is shut down by the session once all the loggers are done with it
+        if (sharedSession == null) writerQueue.quitSafely();
+        standbyExecutor.shutdown();
+    }
+
+    /**
+     * @return The queue that all the writes to the GeoPackage file are run on. Exposed so that the
+     * queue depth metrics can be displayed.
+     * @since 1.25.0
+     */
+    public RecordWriterQueue getWriterQueue()
+    {
+        return writerQueue;
+    }
+
+    /**
+     * @return The number of record writes that were dropped because the write queue stayed full.
+     * Reported along with the survey record listener stats.
+     * @since 1.25.0
+     */
+    public long getDroppedRecordCount()
+    {
+        return writerQueue.getDroppedTaskCount();
+    }
+
+    /**
+     * @return {@link BackpressurePolicy#SPILL_TO_DISK} so that the records this logger falls behind
+     * on are kept on disk until it catches up, rather than holding up the record processing.
+     * @since 1.25.0
+     */
+    public BackpressurePolicy getBackpressurePolicy()
+    {
+        return BackpressurePolicy.SPILL_TO_DISK;
+    }
+
+    /**
+     * Create all GeoPackage table(s) that can be populated with records.
+     *
+     * @param geoPackage The GeoPackage to create the table in.
+     * @param srs        The SRS to use for the table coordinates.
+     * @throws SQLException If there is a problem working with the GeoPackage SQLite DB.
+     */
+    abstract void createTables(GeoPackage geoPackage, SpatialReferenceSystem srs) throws SQLException;
+
+    /**
+     * Resolve the insert statements (see {@link #createInserter(String)}) and column indexes for
+     * each of the tables in the GeoPackage file. This is called once each time a new GeoPackage file
+     * is created, including after a rollover, so that none of that work happens per record.
+     *
+     * @param geoPackage The GeoPackage that was just created by {@link #createTables}.
+     * @since 1.25.0
+     */
+    abstract void prepareInserters(GeoPackage geoPackage);
+
+    /**
+     * Parses a record that was read back from the {@link RecordSpool} and writes it to the current
+     * GeoPackage file. This is how the records that were not committed before the app was killed are
+     * recovered the next time logging is started.
+     * <p>
+     * This method is NOT thread safe and it is assumed the caller has already gotten a lock on the
+     * {@link #geoPackageLock} and is running on the {@link #writerQueue} thread.
+     *
+     * @param recordType  The record type that was passed in when the record was written.
+     * @param epochMillis The time that the record was captured.
+     * @param payload     The protobuf encoded record.
+     * @throws InvalidProtocolBufferException If the record could not be parsed.
+     * @since 1.25.0
+     */
+    abstract void replaySpooledRecord(int recordType, long epochMillis, byte[] payload) throws InvalidProtocolBufferException;
+
+    /**
+     * Returns the names of the TEXT columns that should be dictionary encoded when the compact schema
+     * is enabled (see {@link StringDictionary}). These should be the columns that have the same few
+     * values repeated on many rows. By default, none of the columns are encoded.
+     *
+     * @return The names of the columns to encode, for all the tables that this logger creates.
+     * @since 1.25.0
+     */
+    List<String> getDictionaryColumns()
+    {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Sets up all the GeoPackage stuff so that the survey records can be written to a log file.
+     * <p>
+     * If calling this method, it is assumed that the caller will add this {@link SurveyRecordLogger} as a listener for
+     * survey records.
+     *
+     * @param enable True if logging is being turned on, false if the log file should be closed.
+     * @return True if the toggling action was successful, false if the request could not be completed.
+     */
+    public boolean enableLogging(boolean enable)
+    {
+        synchronized (geoPackageLock)
+        {
+            try
+            {
+                if (!enable)
+                {
+                    if (loggingEnabled)
+                    {
+                        loggingEnabled = false;
+                        closeInserters();
+                        if (sharedSession != null)
+                        {
+                            leaveSharedSession();
+                            return true;
+                        }
+
+                        // The transaction for the current batch is bound to the writer thread, so
+                        // the commit and close have to happen there as well.
+                        final GeoPackage closingGeoPackage = geoPackage;
+                        geoPackage = null;
+                        final RecordSpool closingSpool = recordSpool;
+                        recordSpool = null;
+                        final List<String> sessionNames = new ArrayList<>(sessionGeoPackageNames);
+                        sessionGeoPackageNames.clear();
+                        writerQueue.post(() -> {
+                            synchronized (geoPackageLock)
+                            {
+                                closeGeoPackage(closingGeoPackage);
+                                closeRecordSpool(closingSpool);
+                                // Queued behind the finish tasks so that all the files are closed before they are merged
+                                if (mergeLogFiles && sessionNames.size() > 1)
+                                {
+                                    runInBackground(() -> mergeGeoPackageFiles(geoPackageManager, sessionNames, indexLogFiles, logStorageManager));
+                                }
+                                // Wait until the file has been finished so that its journal is not removed while in use
+                                runInBackground(() -> removeTempFiles(sessionNames));
+                            }
+                        });
+                        rolloverWorker.reset();
+                        discardStandbyGeoPackage();
+                        return true;
+                    }
+
+                    return false;
+                }
+
+                if (!isExternalStorageWritable()) return false;
+
+                updateGeoPackagePreferences();
+                sessionGeoPackageNames.clear();
+                boolean fileCreated = prepareGeoPackageForLogging();
+
+                // Opened on the writer thread so that it happens after the spool from any previous
+                // logging session has been closed out
+                if (fileCreated) writerQueue.post(this::openRecordSpool);
+
+                updateRolloverWorker();
+
+                return loggingEnabled = fileCreated;
+            } catch (Exception e)
+            {
+                Timber.e(e, "Caught an exception when trying prepare GeoPackage file for logging");
+                if (geoPackage != null)
+                {
+                    closeInserters();
+                    if (sharedSession == null)
+                    {
+                        geoPackage.close();
+                    } else
+                    {
+                        writerQueue.post(() -> {
+                            synchronized (geoPackageLock)
+                            {
+                                sharedSession.leave(this);
+                            }
+                        });
+                    }
+                    geoPackage = null;
+                }
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Creates and sets up a GeoPackage file to be ready for survey logging.
+     * <p>
+     * This method is NOT thread safe and it is assumed the caller has already gotten a lock on the
+     * {@link #geoPackageLock} before making a call to this method.
+     *
+     * @return True, if the operations were successful.
+     * @throws SQLException Thrown if database manipulations resulted in failure.
+     */
+    private boolean prepareGeoPackageForLogging() throws SQLException
+    {
+        geoPackage = sharedSession != null ? sharedSession.join(this) : createGeoPackage();
+        if (geoPackage == null)
+        {
+            final String errorMessage = "Error: Unable to create the GeoPackage file.  No logging will be recorded.";
+            Toast.makeText(networkSurveyService.getApplicationContext(), errorMessage, Toast.LENGTH_SHORT).show();
+            return false;
+        }
+
+        // The shared session keeps track of its own files
+        if (sharedSession == null) sessionGeoPackageNames.add(geoPackage.getName());
+        prepareInserters(geoPackage);
+
+        return true;
+    }
+
+    /**
+     * Creates a new GeoPackage file and adds all the tables to it. This does not touch any of the
+     * state for the current log file, so it is safe to call from any thread.
+     *
+     * @return The new GeoPackage, or null if it could not be created or opened.
+     * @throws SQLException Thrown if database manipulations resulted in failure.
+     * @since 1.25.0
+     */
+    private GeoPackage createGeoPackage() throws SQLException
+    {
+        return createLogFile(geoPackageManager, createPublicStorageFilePath(), highThroughputProfile,
+                compactSchema && !getDictionaryColumns().isEmpty(), this::createTables, logStorageManager);
+    }
+
+    /**
+     * Creates a new GeoPackage file and adds all the tables to it.
+     *
+     * @param geoPackageManager     The manager to create the file with.
+     * @param loggingFile           The full path of the file to create.
+     * @param highThroughputProfile True if the {@link HighThroughputSqliteProfile} should be applied.
+     * @param compactSchema         True if the {@link StringDictionary} table should be added so that
+     *                              the tables are created with the compact schema.
+     * @param tableCreator          Creates the survey tables.
+     * @param logStorageManager     The manager to report the new file to.
+     * @return The new GeoPackage, or null if it could not be created or opened.
+     * @throws SQLException Thrown if database manipulations resulted in failure.
+     * @since 1.25.0
+     */
+    static GeoPackage createLogFile(GeoPackageManager geoPackageManager, String loggingFile, boolean highThroughputProfile,
+                                    boolean compactSchema, TableCreator tableCreator, LogStorageManager logStorageManager)
+            throws SQLException
+    {
+        Timber.i("Creating the log file: %s", loggingFile);
+
+        final boolean created = geoPackageManager.create(loggingFile);
+        if (!created)
+        {
+            Timber.e("Unable to create the GeoPackage file %s", loggingFile);
+            return null;
+        }
+        logStorageManager.onLogFileCreated(loggingFile);
+
+        final GeoPackage newGeoPackage = geoPackageManager.open(loggingFile);
+        if (newGeoPackage == null)
+        {
+            Timber.e("Unable to open the GeoPackage file %s", loggingFile);
+            logStorageManager.onLogFileClosed(loggingFile);
+            return null;
+        }
+
+        try
+        {
+            // Has to happen before the tables are created so that the new page size can be applied
+            if (highThroughputProfile) HighThroughputSqliteProfile.apply(newGeoPackage);
+
+            // The dictionary table has to exist before the other tables so they know to use the compact schema
+            if (compactSchema) StringDictionary.createTable(newGeoPackage);
+
+            final SpatialReferenceSystem spatialReferenceSystem = newGeoPackage.getSpatialReferenceSystemDao()
+                    .getOrCreateCode(ProjectionConstants.AUTHORITY_EPSG, ProjectionConstants.EPSG_WORLD_GEODETIC_SYSTEM);
+
+            newGeoPackage.createGeometryColumnsTable();
+            tableCreator.createTables(newGeoPackage, spatialReferenceSystem);
+        } catch (Exception e)
+        {
+            newGeoPackage.close();
+            logStorageManager.onLogFileClosed(loggingFile);
+            throw e;
+        }
+
+        return newGeoPackage;
+    }
+
+    /**
+     * Starts creating the next GeoPackage file in the background, unless it has already been
+     * requested. The file is used by the next rollover (see {@link #takeStandbyGeoPackage()}).
+     * <p>
+     * The file is named with the current time, so the name of a file that came from a rollover is
+     * earlier than its first record. The file is not renamed when it is taken because it is already
+     * open (and possibly in write-ahead log mode), and moving an open SQLite database along with its
+     * journal files is not safe. The names still sort in the order the files were logged to, since
+     * the standby file is always created after the file it replaces.
+     *
+     * @since 1.25.0
+     */
+    private void requestStandbyGeoPackage()
+    {
+        // The shared session creates its new files at the time of the rollover
+        if (sharedSession != null) return;
+
+        final int generation;
+        synchronized (standbyLock)
+        {
+            if (standbyRequested) return;
+            standbyRequested = true;
+            generation = standbyGeneration;
+        }
+
+        standbyExecutor.execute(() -> {
+            GeoPackage standby = null;
+            try
+            {
+                standby = createGeoPackage();
+            } catch (Exception e)
+            {
+                Timber.e(e, "Could not create the standby GeoPackage file");
+            }
+
+            if (standby == null) return;
+
+            synchronized (standbyLock)
+            {
+                if (generation == standbyGeneration)
+                {
+                    standbyGeoPackage = standby;
+                    return;
+                }
+            }
+
+            // Logging was turned off or the rollover happened before this file was ready
+            deleteGeoPackage(standby);
+        });
+    }
+
+    /**
+     * Takes the standby GeoPackage file so that it can be used for logging. If the standby file has
+     * not been requested, or if it is not ready yet, then null is returned and the caller needs to
+     * create the new file itself.
+     *
+     * @return The standby GeoPackage, or null if it is not ready.
+     * @since 1.25.0
+     */
+    private GeoPackage takeStandbyGeoPackage()
+    {
+        synchronized (standbyLock)
+        {
+            final GeoPackage standby = standbyGeoPackage;
+            standbyGeoPackage = null;
+            standbyRequested = false;
+            standbyGeneration++;
+            return standby;
+        }
+    }
+
+    /**
+     * Deletes the standby GeoPackage file if one was created, since it is no longer needed.
+     *
+     * @since 1.25.0
+     */
+    private void discardStandbyGeoPackage()
+    {
+        final GeoPackage standby = takeStandbyGeoPackage();
+        if (standby != null) standbyExecutor.execute(() -> deleteGeoPackage(standby));
+    }
+
+    /**
+     * Closes the provided GeoPackage and deletes its file. This is only used for standby files that
+     * never had any records written to them.
+     *
+     * @param unusedGeoPackage The GeoPackage to delete.
+     * @since 1.25.0
+     */
+    private void deleteGeoPackage(GeoPackage unusedGeoPackage)
+    {
+        try
+        {
+            final String name = unusedGeoPackage.getName();
+            unusedGeoPackage.close();
+            deleteGeoPackageFile(geoPackageManager, name, logStorageManager);
+        } catch (Exception e)
+        {
+            Timber.e(e, "Could not delete the unused standby GeoPackage file");
+        }
+    }
+
+    /**
+     * Deletes the file for the provided GeoPackage name, which must already be closed.
+     *
+     * @param geoPackageManager The manager that the GeoPackage was created with.
+     * @param name              The name of the GeoPackage in the manager.
+     * @param logStorageManager The manager to report the deleted file to.
+     * @since 1.25.0
+     */
+    static void deleteGeoPackageFile(GeoPackageManager geoPackageManager, String name, LogStorageManager logStorageManager)
+    {
+        final File file = geoPackageManager.getFile(name);
+        geoPackageManager.delete(name);
+        if (file != null)
+        {
+            //noinspection ResultOfMethodCallIgnored
+            if (file.exists()) file.delete();
+            logStorageManager.onLogFileDeleted(file.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Switches logging over to a new GeoPackage file. The standby file is used if it is ready,
+     * otherwise a new file is created. Any pending batch is committed to the old file on this thread
+     * (the transaction is bound to it), and then the old file is closed in the background.
+     * <p>
+     * This method is NOT thread safe and it is assumed the caller has already gotten a lock on the
+     * {@link #geoPackageLock} and is running on the {@link #writerQueue} thread.
+     *
+     * @throws SQLException Thrown if a new GeoPackage file needed to be created, but it failed.
+     * @since 1.25.0
+     */
+    private void rollover() throws SQLException
+    {
+        if (sharedSession != null)
+        {
+            // All the loggers that share the file have to move to the new file together
+            sharedSession.rollover();
+            return;
+        }
+
+        closeInserters();
+        commitBatch();
+
+        final GeoPackage oldGeoPackage = geoPackage;
+        final GeoPackage standby = takeStandbyGeoPackage();
+        if (standby != null)
+        {
+            // The name has the time the standby file was created, which is before the rollover
+            Timber.i("Rolling over to the standby log file: %s", standby.getName());
+            geoPackage = standby;
+            sessionGeoPackageNames.add(geoPackage.getName());
+            prepareInserters(geoPackage);
+        } else
+        {
+            geoPackage = null;
+            if (!prepareGeoPackageForLogging())
+            {
+                Timber.e("Failed to create a new GeoPackage file");
+            }
+        }
+
+        if (oldGeoPackage != null) finishGeoPackageInBackground(oldGeoPackage);
+    }
+
+    /**
+     * Starts a new transaction if one is not already open for the current GeoPackage file. This
+     * method should be called right before inserting a row so that all the rows in a scan group
+     * are written as part of a single transaction instead of one transaction per row.
+     * <p>
+     * This method is NOT thread safe and it is assumed the caller has already gotten a lock on the
+     * {@link #geoPackageLock} and is running on the {@link #writerQueue} thread.
+     *
+     * @since 1.25.0
+     */
+    void beginBatchIfNeeded()
+    {
+        if (geoPackage == null || geoPackage.inTransaction()) return;
+
+        geoPackage.beginTransaction();
+        batchRowCount = 0;
+        writerQueue.postDelayed(batchTimeoutTask, recordSpool == null ? MAX_BATCH_AGE_MS : SPOOLED_MAX_BATCH_AGE_MS);
+    }
+
+    /**
+     * Must be called after each row is inserted. Commits the current batch if it has reached the
+     * {@link #MAX_BATCH_ROWS} limit and then checks to see if the log file needs to be rolled over.
+     * <p>
+     * This method is NOT thread safe and it is assumed the caller has already gotten a lock on the
+     * {@link #geoPackageLock} and is running on the {@link #writerQueue} thread.
+     *
+     * @since 1.25.0
+     */
+    void onRecordInserted()
+    {
+        if (++batchRowCount >= MAX_BATCH_ROWS) commitBatch();
+
+        checkIfRolloverNeeded();
+    }
+
+    /**
+     * Commits the currently open transaction (if there is one). This should be called at the end of
+     * each scan group so that a group of records ends up in the log file together.
+     * <p>
+     * This method is NOT thread safe and it is assumed the caller has already gotten a lock on the
+     * {@link #geoPackageLock} and is running on the {@link #writerQueue} thread.
+     *
+     * @since 1.25.0
+     */
+    void commitBatch()
+    {
+        writerQueue.removeCallbacks(batchTimeoutTask);
+        batchRowCount = 0;
+
+        try
+        {
+            if (geoPackage != null && geoPackage.inTransaction())
+            {
+                geoPackage.endTransaction(true);
+                requestCheckpointIfNeeded();
+            }
+
+            if (sharedSession != null)
+            {
+                // The transaction is shared, so the rows from the other loggers were just committed too
+                sharedSession.onBatchCommitted();
+            } else
+            {
+                onBatchCommitted();
+            }
+        } catch (Exception e)
+        {
+            Timber.e(e, "Could not commit the batch of survey records to the GeoPackage file");
+        }
+    }
+
+    /**
+     * Resets the batch and removes the records that are now committed from the spool. This is called
+     * after each commit, including commits of the shared transaction by another logger.
+     * <p>
+     * This method is NOT thread safe and it is assumed the caller has already gotten a lock on the
+     * {@link #geoPackageLock} and is running on the {@link #writerQueue} thread.
+     *
+     * @since 1.25.0
+     */
+    void onBatchCommitted()
+    {
+        writerQueue.removeCallbacks(batchTimeoutTask);
+        batchRowCount = 0;
+
+        // Only the oldest record in the batch is measured since it waited the longest for the commit
+        if (oldestUncommittedNanos != 0)
+        {
+            PipelineMetrics.recordSince(PipelineMetrics.Stage.LOG_COMMIT, oldestUncommittedNanos);
+            oldestUncommittedNanos = 0;
+        }
+
+        // Everything that has been written so far is now committed, so its space in the spool can be reused
+        unspooledRecordPending = false;
+        commitProcessedSpool();
+    }
+
+    /**
+     * Adds a {@link #checkpointTask} to the {@link #writerQueue} if the current GeoPackage file is
+     * using a write-ahead log and it has been at least {@link #WAL_CHECKPOINT_INTERVAL_MS} since the
+     * last checkpoint.
+     * <p>
+     * This method is NOT thread safe and it is assumed the caller has already gotten a lock on the
+     * {@link #geoPackageLock} and is running on the {@link #writerQueue} thread.
+     *
+     * @since 1.25.0
+     */
+    private void requestCheckpointIfNeeded()
+    {
+        final long now = SystemClock.elapsedRealtime();
+        if (now - lastCheckpointTimeMs < WAL_CHECKPOINT_INTERVAL_MS) return;
+        if (!HighThroughputSqliteProfile.isEnabled(geoPackage)) return;
+
+        lastCheckpointTimeMs = now;
+        writerQueue.post(checkpointTask);
+    }
+
+    /**
+     * Adds a write task to the {@link #writerQueue} that writes a group of records from a single scan
+     * to the log file, and then commits the batch so that the entire group is written in one
+     * transaction.
+     *
+     * @param records      The records from a single scan.
+     * @param recordWriter The method that inserts a single record into the GeoPackage file.
+     * @param <T>          The type of record being written.
+     * @since 1.25.0
+     */
+    <T> void writeScanGroup(List<T> records, Consumer<T> recordWriter)
+    {
+        if (!loggingEnabled) return;
+
+        final long queuedNanos = PipelineMetrics.now();
+        writerQueue.offer(() -> {
+            synchronized (geoPackageLock)
+            {
+                records.forEach(recordWriter);
+                onRecordQueued(queuedNanos);
+                commitBatch();
+            }
+        });
+    }
+
+    /**
+     * Adds a write task to the {@link #writerQueue} that writes a single record to the log file. The
+     * record is added to the current batch, which is committed once it is full, once it has been
+     * open for {@link #MAX_BATCH_AGE_MS}, or at the end of the next scan group.
+     *
+     * @param record       The record to write.
+     * @param recordWriter The method that inserts a single record into the GeoPackage file.
+     * @param <T>          The type of record being written.
+     * @since 1.25.0
+     */
+    <T> void writeRecord(T record, Consumer<T> recordWriter)
+    {
+        if (!loggingEnabled) return;
+
+        final long queuedNanos = PipelineMetrics.now();
+        writerQueue.offer(() -> {
+            synchronized (geoPackageLock)
+            {
+                recordWriter.accept(record);
+                onRecordQueued(queuedNanos);
+            }
+        });
+    }
+
+    /**
+     * Appends each of the records from a single scan to the {@link RecordSpool}, and then adds a write
+     * task to the {@link #writerQueue} that writes them to the log file.
+     * <p>
+     * When the spool is open, the batch is not committed at the end of the group since the records
+     * can be recovered from the spool. Instead, the batch is committed once it is full, or once it has
+     * been open for {@link #SPOOLED_MAX_BATCH_AGE_MS}. Otherwise, this behaves the same as
+     * {@link #writeScanGroup(List, Consumer)}.
+     *
+     * @param records      The records from a single scan.
+     * @param epochMillis  The time that the records were captured.
+     * @param recordType   The type of record, which is passed to {@link #replaySpooledRecord} if the
+     *                     records are read back from the spool.
+     * @param recordWriter The method that inserts a single record into the GeoPackage file.
+     * @param <T>          The type of record being written.
+     * @since 1.25.0
+     */
+    <T extends MessageLite> void writeScanGroup(List<T> records, long epochMillis, int recordType, ObjLongConsumer<T> recordWriter)
+    {
+        if (!loggingEnabled) return;
+
+        final long queuedNanos = PipelineMetrics.now();
+        final int[] spoolOffsets = appendToSpool(records, epochMillis, recordType);
+
+        writerQueue.offer(() -> {
+            synchronized (geoPackageLock)
+            {
+                for (int i = 0; i < records.size(); i++)
+                {
+                    recordWriter.accept(records.get(i), epochMillis);
+                    onRecordWritten(spoolOffsets == null ? -1 : spoolOffsets[i]);
+                }
+                onRecordQueued(queuedNanos);
+
+                if (recordSpool == null || unspooledRecordPending) commitBatch();
+            }
+        });
+    }
+
+    /**
+     * Appends a record to the {@link RecordSpool}, and then adds a write task to the
+     * {@link #writerQueue} that writes it to the log file. Otherwise, this behaves the same as
+     * {@link #writeRecord(Object, Consumer)}.
+     *
+     * @param record       The record to write.
+     * @param epochMillis  The time that the record was captured.
+     * @param recordType   The type of record, which is passed to {@link #replaySpooledRecord} if the
+     *                     record is read back from the spool.
+     * @param recordWriter The method that inserts a single record into the GeoPackage file.
+     * @param <T>          The type of record being written.
+     * @since 1.25.0
+     */
+    <T extends MessageLite> void writeRecord(T record, long epochMillis, int recordType, ObjLongConsumer<T> recordWriter)
+    {
+        if (!loggingEnabled) return;
+
+        final long queuedNanos = PipelineMetrics.now();
+        final RecordSpool spool = recordSpool;
+        final int spoolOffset = spool == null ? -1 : spool.append(recordType, epochMillis, record);
+
+        writerQueue.offer(() -> {
+            synchronized (geoPackageLock)
+            {
+                recordWriter.accept(record, epochMillis);
+                onRecordWritten(spoolOffset);
+                onRecordQueued(queuedNanos);
+            }
+        });
+    }
+
+    /**
+     * Adds a task to the {@link #writerQueue} that commits the current batch. This is used to mark the
+     * end of a scan group when the records from that group are delivered one at a time.
+     * <p>
+     * The commit is skipped if all the records since the last commit are in the {@link RecordSpool}.
+     *
+     * @since 1.25.0
+     */
+    void commitScanGroup()
+    {
+        if (!loggingEnabled) return;
+
+        writerQueue.post(() -> {
+            synchronized (geoPackageLock)
+            {
+                if (recordSpool == null || unspooledRecordPending) commitBatch();
+            }
+        });
+    }
+
+    /**
+     * Appends the records to the spool if it is open.
+     *
+     * @return The end offset of each record in the spool (-1 for any record that could not be
+     * appended), or null if the spool is not open.
+     */
+    private <T extends MessageLite> int[] appendToSpool(List<T> records, long epochMillis, int recordType)
+    {
+        final RecordSpool spool = recordSpool;
+        if (spool == null) return null;
+
+        final int[] offsets = new int[records.size()];
+        for (int i = 0; i < offsets.length; i++)
+        {
+            offsets[i] = spool.append(recordType, epochMillis, records.get(i));
+        }
+        return offsets;
+    }
+
+    /**
+     * Tracks the time the oldest uncommitted record was queued so that the time to commit it can be
+     * measured. Must be called after each write task writes its records.
+     * <p>
+     * This method is NOT thread safe and it is assumed the caller has already gotten a lock on the
+     * {@link #geoPackageLock} and is running on the {@link #writerQueue} thread.
+     *
+     * @param queuedNanos The time the write task was queued, from {@link PipelineMetrics#now()}.
+     */
+    private void onRecordQueued(long queuedNanos)
+    {
+        if (oldestUncommittedNanos == 0) oldestUncommittedNanos = queuedNanos;
+    }
+
+    /**
+     * Tracks how far into the spool the records have been written to the GeoPackage file. Must be
+     * called after each spooled record is written.
+     * <p>
+     * This method is NOT thread safe and it is assumed the caller has already gotten a lock on the
+     * {@link #geoPackageLock} and is running on the {@link #writerQueue} thread.
+     *
+     * @param spoolOffset The end offset of the record in the current spool, or -1 if it is not in the
+     *                    spool.
+     */
+    private void onRecordWritten(int spoolOffset)
+    {
+        if (spoolOffset < 0)
+        {
+            unspooledRecordPending = true;
+        } else
+        {
+            // The write tasks run in the same order the records were appended, so this only moves forward
+            processedSpoolOffset = spoolOffset;
+        }
+    }
+
+    /**
+     * Opens the spool file for this logger, and replays any records that were left in it from the last
+     * time the app was running into the current GeoPackage file.
+     * <p>
+     * Must be run on the {@link #writerQueue} thread.
+     *
+     * @since 1.25.0
+     */
+    private void openRecordSpool()
+    {
+        synchronized (geoPackageLock)
+        {
+            if (geoPackage == null || applicationContext == null) return;
+
+            final File spoolDirectory = new File(applicationContext.getNoBackupFilesDir(), SPOOL_DIRECTORY_NAME);
+            //noinspection ResultOfMethodCallIgnored
+            spoolDirectory.mkdirs();
+
+            final RecordSpool spool;
+            try
+            {
+                spool = new RecordSpool(new File(spoolDirectory, fileNamePrefix + SPOOL_FILE_EXTENSION), SPOOL_CAPACITY_BYTES);
+            } catch (Exception e)
+            {
+                Timber.e(e, "Could not open the record spool, survey records will only be buffered in memory");
+                return;
+            }
+
+            final List<RecordSpool.Entry> entries = spool.readEntries();
+            if (!entries.isEmpty())
+            {
+                Timber.i("Recovering %d survey records from the spool into %s", entries.size(), geoPackage.getName());
+                for (RecordSpool.Entry entry : entries)
+                {
+                    try
+                    {
+                        replaySpooledRecord(entry.recordType, entry.epochMillis, entry.payload);
+                    } catch (Exception e)
+                    {
+                        Timber.e(e, "Could not recover a survey record of type %d from the spool", entry.recordType);
+                    }
+                }
+            }
+
+            processedSpool = spool;
+            processedSpoolOffset = spool.getWriteOffset();
+            commitBatch();
+
+            recordSpool = spool;
+        }
+    }
+
+    /**
+     * Closes the provided spool, after removing all the records from it if they have been written
+     * to the GeoPackage file (which has to be closed first).
+     * <p>
+     * This method is NOT thread safe and it is assumed the caller has already gotten a lock on the
+     * {@link #geoPackageLock} and is running on the {@link #writerQueue} thread.
+     *
+     * @param spool The spool to close, or null if it was never opened.
+     * @since 1.25.0
+     */
+    private void closeRecordSpool(RecordSpool spool)
+    {
+        if (spool != null)
+        {
+            if (spool == processedSpool) commitProcessedSpool();
+            spool.close();
+        }
+
+        processedSpool = null;
+        processedSpoolOffset = -1;
+        unspooledRecordPending = false;
+    }
+
+    /**
+     * Gives back the space in the spool used by the records that have been written to the GeoPackage
+     * file since the last commit. The offset is cleared afterwards because the spool might start over
+     * at the front of the file, which would make it point at a record that is not committed yet.
+     * <p>
+     * This method is NOT thread safe and it is assumed the caller has already gotten a lock on the
+     * {@link #geoPackageLock} and is running on the {@link #writerQueue} thread.
+     */
+    private void commitProcessedSpool()
+    {
+        if (processedSpool == null || processedSpoolOffset < 0) return;
+
+        processedSpool.commit(processedSpoolOffset);
+        processedSpoolOffset = -1;
+    }
+
+    /**
+     * Creates a reusable insert statement for the specified table in the current GeoPackage file.
+     * The statement is closed automatically when the GeoPackage file is closed.
+     * <p>
+     * This should only be called from {@link #prepareInserters(GeoPackage)}.
+     *
+     * @param tableName The name of the table to insert records into.
+     * @return The new inserter.
+     * @since 1.25.0
+     */
+    FeatureTableInserter createInserter(String tableName)
+    {
+        if (stringDictionary == null && StringDictionary.exists(geoPackage))
+        {
+            // Every logger that writes to a shared file has to use the same dictionary
+            stringDictionary = sharedSession != null ? sharedSession.getStringDictionary() : new StringDictionary(geoPackage);
+        }
+
+        final FeatureTableInserter inserter = new FeatureTableInserter(geoPackage, tableName, stringDictionary, getDictionaryColumns());
+        inserters.add(inserter);
+        return inserter;
+    }
+
+    /**
+     * Closes all the insert statements (and the dictionary if there is one) for the current GeoPackage
+     * file. This must be called before the GeoPackage file is closed.
+     * <p>
+     * This method is NOT thread safe and it is assumed the caller has already gotten a lock on the
+     * {@link #geoPackageLock} before making a call to this method.
+     *
+     * @since 1.25.0
+     */
+    private void closeInserters()
+    {
+        for (FeatureTableInserter inserter : inserters)
+        {
+            try
+            {
+                inserter.close();
+            } catch (Exception e)
+            {
+                Timber.e(e, "Could not close the insert statement for the %s table", inserter.getTableName());
+            }
+        }
+        inserters.clear();
+
+        if (stringDictionary != null)
+        {
+            try
+            {
+                // The shared dictionary is closed by the session along with the file
+                if (sharedSession == null) stringDictionary.close();
+            } catch (Exception e)
+            {
+                Timber.e(e, "Could not close the string dictionary");
+            }
+            stringDictionary = null;
+        }
+    }
+
+    /**
+     * Commits any pending batch and then finishes and closes the provided GeoPackage file in the
+     * background.
+     * <p>
+     * This method is NOT thread safe and it is assumed the caller has already gotten a lock on the
+     * {@link #geoPackageLock} and is running on the {@link #writerQueue} thread.
+     *
+     * @param geoPackageToClose The GeoPackage to close.
+     * @since 1.25.0
      */
-    protected final Object geoPackageLock = new Object();
+    private void closeGeoPackage(GeoPackage geoPackageToClose)
+    {
+        writerQueue.removeCallbacks(batchTimeoutTask);
+        batchRowCount = 0;
+
+        try
+        {
+            if (geoPackageToClose.inTransaction()) geoPackageToClose.endTransaction(true);
+        } catch (Exception e)
+        {
+            Timber.e(e, "Could not commit the last batch of survey records before closing the GeoPackage file");
+        }
+
+        finishGeoPackageInBackground(geoPackageToClose);
+    }
 
     /**
-     * Constructs a Logger that writes Survey records to a GeoPackage SQLite database.
+     * Runs {@link #finishGeoPackage(GeoPackage, boolean, LogStorageManager)} in the background.
      *
-     * @param networkSurveyService The Service instance that is running this logger.
-     * @param serviceLooper        The Looper associated with the service that can be used to do any background processing.
-     * @param logDirectoryName     The parent directory name to write all the files in.
-     * @param fileNamePrefix       The prefix to use for the GeoPackage file name.
+     * @param geoPackageToClose The GeoPackage to close, which must not have an open transaction.
+     * @since 1.25.0
      */
-    SurveyRecordLogger(NetworkSurveyService networkSurveyService, Looper serviceLooper, String logDirectoryName, String fileNamePrefix)
+    private void finishGeoPackageInBackground(GeoPackage geoPackageToClose)
     {
-        this.networkSurveyService = networkSurveyService;
-        applicationContext = networkSurveyService.getApplicationContext();
-        handler = new Handler(serviceLooper);
-        this.logDirectoryName = logDirectoryName;
-        this.fileNamePrefix = fileNamePrefix;
-
-        geoPackageManager = GeoPackageFactory.getManager(networkSurveyService.getApplicationContext());
+        runInBackground(() -> finishGeoPackage(geoPackageToClose, indexLogFiles, logStorageManager));
     }
 
-    public void onDestroy()
+    /**
+     * Runs the provided task on the {@link #standbyExecutor}, after any files that are already being
+     * finished. If the executor has already been shut down because the logger was destroyed, the task
+     * is run on the calling thread instead so that the log files are still closed out properly.
+     *
+     * @param task The task to run.
+     * @since 1.25.0
+     */
+    private void runInBackground(Runnable task)
     {
-        networkSurveyService = null;
-        applicationContext = null;
-        handler = null;
+        try
+        {
+            standbyExecutor.execute(task);
+        } catch (RejectedExecutionException e)
+        {
+            task.run();
+        }
     }
 
     /**
-     * Create all GeoPackage table(s) that can be populated with records.
+     * Closes the provided GeoPackage file. If enabled, the spatial and time indexes are built first.
+     * Then, if the file was using a write-ahead log, it is checkpointed and switched back to the
+     * default journal mode so that the closed log file is a single portable file. The caller must make
+     * sure there is no open transaction.
      *
-     * @param geoPackage The GeoPackage to create the table in.
-     * @param srs        The SRS to use for the table coordinates.
-     * @throws SQLException If there is a problem working with the GeoPackage SQLite DB.
+     * @param geoPackageToClose The GeoPackage to close.
+     * @param createIndexes     True if the spatial and time indexes should be built.
+     * @param logStorageManager The manager to report the closed file to.
+     * @since 1.25.0
      */
-    abstract void createTables(GeoPackage geoPackage, SpatialReferenceSystem srs) throws SQLException;
+    static void finishGeoPackage(GeoPackage geoPackageToClose, boolean createIndexes, LogStorageManager logStorageManager)
+    {
+        if (createIndexes)
+        {
+            try
+            {
+                GeoPackageIndexer.createIndexes(geoPackageToClose);
+            } catch (Exception e)
+            {
+                Timber.e(e, "Could not index the GeoPackage file %s", geoPackageToClose.getName());
+            }
+        }
+
+        try
+        {
+            HighThroughputSqliteProfile.restoreDefaultJournalMode(geoPackageToClose);
+        } catch (Exception e)
+        {
+            Timber.e(e, "Could not restore the default journal mode before closing the GeoPackage file");
+        }
+
+        final String path = geoPackageToClose.getPath();
+        geoPackageToClose.close();
+        logStorageManager.onLogFileClosed(path);
+    }
 
     /**
-     * Sets up all the GeoPackage stuff so that the survey records can be written to a log file.
+     * Merges all the GeoPackage files from a logging session into a single file next to the first one,
+     * and then deletes the separate files. The merged file is indexed (if enabled) and compacted. If
+     * the merge fails, the merged file is deleted instead and the separate files are left as they were.
      * <p>
-     * If calling this method, it is assumed that the caller will add this {@link SurveyRecordLogger} as a listener for
-     * survey records.
+     * This must be run on the same background thread that finishes the files so that it happens after
+     * all of them have been finished and closed.
      *
-     * @param enable True if logging is being turned on, false if the log file should be closed.
-     * @return True if the toggling action was successful, false if the request could not be completed.
+     * @param geoPackageManager The manager that the GeoPackage files were created with.
+     * @param geoPackageNames   The names of the closed GeoPackage files, in the order they were created.
+     * @param createIndexes     True if the spatial and time indexes should be built for the merged file.
+     * @param logStorageManager The manager to report the merged and deleted files to.
+     * @since 1.25.0
      */
-    public boolean enableLogging(boolean enable)
+    static void mergeGeoPackageFiles(GeoPackageManager geoPackageManager, List<String> geoPackageNames, boolean createIndexes,
+                                     LogStorageManager logStorageManager)
     {
-        synchronized (geoPackageLock)
+        final List<File> files = new ArrayList<>();
+        for (String name : geoPackageNames)
         {
-            try
-            {
-                if (!enable)
-                {
-                    if (loggingEnabled)
-                    {
-                        loggingEnabled = false;
-                        geoPackage.close();
-                        geoPackage = null;
-                        removeTempFiles();
-                        rolloverWorker.reset();
-                        return true;
-                    }
+            final File file = geoPackageManager.getFile(name);
+            if (file != null && file.exists()) files.add(file);
+        }
+        if (files.size() < 2) return;
 
-                    return false;
-                }
+        final String firstPath = files.get(0).getPath();
+        final String mergedPath = firstPath.substring(0, firstPath.length() - GEOPACKAGE_FILE_EXTENSION.length())
+                + MERGED_FILE_SUFFIX + GEOPACKAGE_FILE_EXTENSION;
+        if (!firstPath.endsWith(GEOPACKAGE_FILE_EXTENSION) || new File(mergedPath).exists())
+        {
+            Timber.w("Not merging the GeoPackage files because %s can't be created", mergedPath);
+            return;
+        }
 
-                if (!isExternalStorageWritable()) return false;
+        final GeoPackage merged;
+        try
+        {
+            merged = geoPackageManager.create(mergedPath) ? geoPackageManager.open(mergedPath) : null;
+        } catch (Exception e)
+        {
+            Timber.e(e, "Could not create the merged GeoPackage file %s", mergedPath);
+            return;
+        }
 
-                boolean fileCreated = prepareGeoPackageForLogging();
+        if (merged == null)
+        {
+            Timber.e("Unable to create the merged GeoPackage file %s", mergedPath);
+            return;
+        }
+        logStorageManager.onLogFileCreated(mergedPath);
 
-                updateRolloverWorker();
+        final String mergedName = merged.getName();
+        boolean successful = false;
+        try
+        {
+            final long rows = GeoPackageMerger.merge(merged, files);
+            if (createIndexes) GeoPackageIndexer.createIndexes(merged);
+            GeoPackageMerger.compact(merged);
+            successful = true;
+            Timber.i("Merged %d rows from %d GeoPackage files into %s", rows, files.size(), mergedPath);
+        } catch (Exception e)
+        {
+            Timber.e(e, "Could not merge the GeoPackage files into %s", mergedPath);
+        } finally
+        {
+            merged.close();
+        }
 
-                return loggingEnabled = fileCreated;
-            } catch (Exception e)
+        try
+        {
+            if (successful)
             {
-                Timber.e(e, "Caught an exception when trying prepare GeoPackage file for logging");
-                if (geoPackage != null)
+                for (String name : geoPackageNames)
                 {
-                    geoPackage.close();
-                    geoPackage = null;
+                    deleteGeoPackageFile(geoPackageManager, name, logStorageManager);
                 }
-                return false;
+                logStorageManager.onLogFileClosed(mergedPath);
+            } else
+            {
+                deleteGeoPackageFile(geoPackageManager, mergedName, logStorageManager);
             }
+        } catch (Exception e)
+        {
+            Timber.e(e, "Could not clean up after merging the GeoPackage files");
         }
     }
 
     /**
-     * Creates and sets up a GeoPackage file to be ready for survey logging.
+     * Converts all the survey CSV files in the CSV log directory into a single new GeoPackage file
+     * with the {@link CsvGeoPackageImporter}. The new file uses the standard schema, and is indexed
+     * if that is enabled. If no rows are imported, or the import fails, the new file is deleted.
      * <p>
-     * This method is NOT thread safe and it is assumed the caller has already gotten a lock on the
-     * {@link #geoPackageLock} before making a call to this method.
+     * The CSV files are left as they are. None of them can still be open for writing, so this must
+     * only be called when CSV logging is off. It reads every CSV file, so it must not be called
+     * from the UI thread.
      *
-     * @return True, if the operations were successful.
-     * @throws SQLException Thrown if database manipulations resulted in failure.
+     * @param context           The context used to get the GeoPackage manager and the preferences.
+     * @param logStorageManager The manager to report the new file to.
+     * @return The number of rows that were imported, or -1 if the import failed.
+     * @since 1.25.0
      */
-    private boolean prepareGeoPackageForLogging() throws SQLException
+    public static long importCsvLogFiles(Context context, LogStorageManager logStorageManager)
     {
-        final String loggingFile = createPublicStorageFilePath();
+        final GeoPackageManager geoPackageManager = GeoPackageFactory.getManager(context);
+        final File csvDirectory = new File(getPublicStorageDirectoryPath(NetworkSurveyConstants.CSV_LOG_DIRECTORY_NAME));
+        final String filePath = createLogFilePath(getPublicStorageDirectoryPath(NetworkSurveyConstants.LOG_DIRECTORY_NAME),
+                NetworkSurveyConstants.CSV_IMPORT_FILE_NAME_PREFIX);
 
-        Timber.i("Creating the log file: %s", loggingFile);
+        final GeoPackage geoPackage;
+        try
+        {
+            // The importer creates the tables for the types of CSV files that it finds
+            geoPackage = createLogFile(geoPackageManager, filePath, false, false, (newGeoPackage, srs) -> {
+            }, logStorageManager);
+        } catch (Exception e)
+        {
+            Timber.e(e, "Could not create the GeoPackage file %s to import the CSV files into", filePath);
+            return -1;
+        }
+        if (geoPackage == null) return -1;
 
-        final boolean created = geoPackageManager.create(loggingFile);
-        final Context applicationContext = networkSurveyService.getApplicationContext();
+        final String name = geoPackage.getName();
+        long rows = -1;
+        try
+        {
+            final CsvGeoPackageImporter importer = new CsvGeoPackageImporter(geoPackage, FeatureTableInserter.factoryFor(geoPackage));
+            try
+            {
+                rows = importer.importDirectory(csvDirectory);
+            } finally
+            {
+                importer.close();
+            }
 
-        if (!created)
+            if (rows > 0 && PreferenceUtils.getIndexLogFilesPreference(context)) GeoPackageIndexer.createIndexes(geoPackage);
+            Timber.i("Imported %d rows (skipped %d) from the CSV files into %s", rows, importer.getRowsSkipped(), filePath);
+        } catch (Exception e)
         {
-            final String errorMessage = "Error: Unable to create the GeoPackage file.  No logging will be recorded.";
-            Timber.e(errorMessage);
-            Toast.makeText(applicationContext, errorMessage, Toast.LENGTH_SHORT).show();
-            return false;
+            Timber.e(e, "Could not import the CSV files into %s", filePath);
+            rows = -1;
+        } finally
+        {
+            geoPackage.close();
         }
 
-        geoPackage = geoPackageManager.open(loggingFile);
-        if (geoPackage == null)
+        try
         {
-            final String errorMessage = "Error: Unable to open the GeoPackage file.  No logging will be recorded.";
-            Timber.e(errorMessage);
-            Toast.makeText(applicationContext, errorMessage, Toast.LENGTH_SHORT).show();
-            return false;
+            if (rows > 0)
+            {
+                logStorageManager.onLogFileClosed(filePath);
+            } else
+            {
+                deleteGeoPackageFile(geoPackageManager, name, logStorageManager);
+            }
+        } catch (Exception e)
+        {
+            Timber.e(e, "Could not clean up after importing the CSV files");
         }
 
-        final SpatialReferenceSystem spatialReferenceSystem = geoPackage.getSpatialReferenceSystemDao()
-                .getOrCreateCode(ProjectionConstants.AUTHORITY_EPSG, ProjectionConstants.EPSG_WORLD_GEODETIC_SYSTEM);
+        return rows;
+    }
 
-        geoPackage.createGeometryColumnsTable();
-        createTables(geoPackage, spatialReferenceSystem);
+    /**
+     * Updates the SQLite profile, file indexing, file merging, and compact schema flags from the
+     * SharedPreferences, or the MDM properties if enabled.
+     *
+     * @since 1.25.0
+     */
+    private void updateGeoPackagePreferences()
+    {
+        if (applicationContext == null) return;
 
-        return true;
+        highThroughputProfile = PreferenceUtils.getHighThroughputLoggingPreference(applicationContext);
+        indexLogFiles = PreferenceUtils.getIndexLogFilesPreference(applicationContext);
+        compactSchema = PreferenceUtils.getCompactGeoPackageSchemaPreference(applicationContext);
+        mergeLogFiles = PreferenceUtils.getMergeLogFilesPreference(applicationContext);
     }
 
     /**
@@ -224,23 +1489,94 @@ public abstract class SurveyRecordLogger
     }
 
     /**
-     * Update the max log size if the preference has changed via shared preferences.
+     * Update the max log size and the GeoPackage settings if the preferences have changed via shared preferences.
      *
      * @since 0.4.0
      */
     public void onSharedPreferenceChanged()
     {
         updateRolloverWorker();
+        updateGeoPackagePreferences();
     }
 
     /**
-     * Update the max log size if the preference has changed via MDM.
+     * Update the max log size and the GeoPackage settings if the preferences have changed via MDM.
      *
      * @since 0.4.0
      */
     public void onMdmPreferenceChanged()
     {
         updateRolloverWorker();
+        updateGeoPackagePreferences();
+    }
+
+    /**
+     * Starts the shutdown of this logger's use of the shared session file. Queued writes for this
+     * logger are skipped from here on, and the commit and the rest of the cleanup happen on the
+     * shared writer thread since that is where the transaction lives.
+     * <p>
+     * This method is NOT thread safe and it is assumed the caller has already gotten a lock on the
+     * {@link #geoPackageLock}, and has closed the inserters.
+     *
+     * @since 1.25.0
+     */
+    private void leaveSharedSession()
+    {
+        geoPackage = null;
+        final RecordSpool closingSpool = recordSpool;
+        recordSpool = null;
+        writerQueue.post(() -> {
+            synchronized (geoPackageLock)
+            {
+                // The rows from this logger might still be in the shared transaction, so they have
+                // to be committed before the spool is cleared
+                sharedSession.commit();
+                closeRecordSpool(closingSpool);
+                sharedSession.leave(this);
+            }
+        });
+        rolloverWorker.reset();
+    }
+
+    /**
+     * Called by the {@link SharedGeoPackageSession} right before the shared file is rolled over.
+     * <p>
+     * This method is NOT thread safe and it is assumed the caller has already gotten a lock on the
+     * {@link #geoPackageLock} and is running on the {@link #writerQueue} thread.
+     *
+     * @since 1.25.0
+     */
+    void detachSharedGeoPackage()
+    {
+        closeInserters();
+        geoPackage = null;
+    }
+
+    /**
+     * Called by the {@link SharedGeoPackageSession} once a new shared file has been created during a
+     * rollover.
+     * <p>
+     * This method is NOT thread safe and it is assumed the caller has already gotten a lock on the
+     * {@link #geoPackageLock} and is running on the {@link #writerQueue} thread.
+     *
+     * @param sharedGeoPackage The new shared GeoPackage file.
+     * @since 1.25.0
+     */
+    void attachSharedGeoPackage(GeoPackage sharedGeoPackage)
+    {
+        geoPackage = sharedGeoPackage;
+        prepareInserters(sharedGeoPackage);
+    }
+
+    /**
+     * Creates all the survey tables in a new GeoPackage file (e.g. {@link #createTables}).
+     *
+     * @since 1.25.0
+     */
+    @FunctionalInterface
+    interface TableCreator
+    {
+        void createTables(GeoPackage geoPackage, SpatialReferenceSystem srs) throws SQLException;
     }
 
     /**
@@ -257,15 +1593,26 @@ public abstract class SurveyRecordLogger
     void createTable(String tableName, GeoPackage geoPackage, SpatialReferenceSystem srs, boolean addCellularColumns,
                      BiConsumer<List<FeatureColumn>, Integer> customColumnAddition) throws SQLException
     {
-        ContentsDao contentsDao = geoPackage.getContentsDao();
-
-        Contents contents = new Contents();
-        contents.setTableName(tableName);
-        contents.setDataType(ContentsDataType.FEATURES);
-        contents.setIdentifier(tableName);
-        contents.setDescription(tableName);
-        contents.setSrs(srs);
+        createTable(tableName, geoPackage, srs, getDictionaryColumns(), addCellularColumns, customColumnAddition);
+    }
 
+    /**
+     * The same as {@link #createTable(String, GeoPackage, SpatialReferenceSystem, boolean, BiConsumer)},
+     * but it does not need a logger instance, so the table schemas can also be created by code that
+     * has no running logger (e.g. the {@link CsvGeoPackageImporter}).
+     *
+     * @param tableName            The name of the table to create.
+     * @param geoPackage           The GeoPackage to create the table in.
+     * @param srs                  The SRS to use for the table coordinates.
+     * @param dictionaryColumns    The columns that are dictionary encoded if the GeoPackage uses the compact schema.
+     * @param addCellularColumns   If true, the cellular specific columns are added to the file (see {@link CellularMessageConstants}).
+     * @param customColumnAddition The consumer responsible for adding the custom columns associated with the protocol.
+     * @throws SQLException If there is a problem working with the GeoPackage SQLite DB.
+     * @since 1.25.0
+     */
+    static void createTable(String tableName, GeoPackageCore geoPackage, SpatialReferenceSystem srs, List<String> dictionaryColumns,
+                            boolean addCellularColumns, BiConsumer<List<FeatureColumn>, Integer> customColumnAddition) throws SQLException
+    {
         int columnNumber = 0;
         List<FeatureColumn> tableColumns = new LinkedList<>();
         tableColumns.add(FeatureColumn.createPrimaryKeyColumn(columnNumber++, MessageConstants.ID_COLUMN));
@@ -285,95 +1632,121 @@ public abstract class SurveyRecordLogger
 
         customColumnAddition.accept(tableColumns, columnNumber);
 
+        encodeDictionaryColumns(geoPackage, tableColumns, dictionaryColumns);
+
         FeatureTable table = new FeatureTable(tableName, tableColumns);
         geoPackage.createFeatureTable(table);
 
-        contentsDao.create(contents);
-
-        GeometryColumnsDao geometryColumnsDao = geoPackage.getGeometryColumnsDao();
+        createFeatureContents(tableName, geoPackage, srs);
 
-        GeometryColumns geometryColumns = new GeometryColumns();
-        geometryColumns.setContents(contents);
-        geometryColumns.setColumnName(MessageConstants.GEOMETRY_COLUMN);
-        geometryColumns.setGeometryType(GeometryType.POINT);
-        geometryColumns.setSrs(srs);
-        geometryColumns.setZ((byte) 0);
-        geometryColumns.setM((byte) 0);
-        geometryColumnsDao.create(geometryColumns);
+        createDictionaryView(tableName, geoPackage, srs, tableColumns, dictionaryColumns);
     }
 
     /**
-     * Converts the LTE Bandwidth to a float and sets it on the provided row.
+     * If the GeoPackage uses the compact schema, then this replaces each of the dictionary columns
+     * with an INTEGER column that references the {@link StringDictionary}. This must be called before
+     * the feature table is created.
      *
-     * @param featureRow   The row of the GeoPackage file to set the LTE Bandwidth on.
-     * @param lteBandwidth The LTE Bandwidth enum to convert to a float.
+     * @param geoPackage        The GeoPackage that the table is being created in.
+     * @param tableColumns      The columns of the table that is about to be created.
+     * @param dictionaryColumns The columns to encode (see {@link #getDictionaryColumns()}).
+     * @since 1.25.0
      */
-    void setLteBandwidth(FeatureRow featureRow, LteBandwidth lteBandwidth)
+    static void encodeDictionaryColumns(GeoPackageCore geoPackage, List<FeatureColumn> tableColumns, List<String> dictionaryColumns)
     {
-        final String lteBandwidthString = LteMessageConstants.getLteBandwidth(lteBandwidth);
-        if (!lteBandwidthString.isEmpty())
+        if (!StringDictionary.exists(geoPackage)) return;
+
+        final ListIterator<FeatureColumn> iterator = tableColumns.listIterator();
+        while (iterator.hasNext())
         {
-            featureRow.setValue(LteMessageConstants.BANDWIDTH_COLUMN, lteBandwidthString);
+            final FeatureColumn column = iterator.next();
+            if (dictionaryColumns.contains(column.getName()))
+            {
+                iterator.set(FeatureColumn.createColumn(column.getIndex(), column.getName(), GeoPackageDataType.INTEGER, false, null));
+            }
         }
     }
 
     /**
-     * Sets the provided value on the row at the specified column as an int ({@link GeoPackageDataType#MEDIUMINT}).
+     * If the GeoPackage uses the compact schema, this creates a view of the provided table that
+     * looks up the dictionary encoded values so that it has the same columns as the standard schema.
+     * The view is registered as a features layer so that it can be opened directly in GIS tools.
      *
-     * @param featureRow The row to populate the value.
-     * @param columnName The column to set the value in.
-     * @param value      The value to set as an int.
+     * @param tableName         The name of the table that was just created.
+     * @param geoPackage        The GeoPackage that contains the table.
+     * @param srs               The SRS of the table coordinates.
+     * @param tableColumns      The columns of the table.
+     * @param dictionaryColumns The columns that are dictionary encoded (see {@link #getDictionaryColumns()}).
+     * @throws SQLException If there is a problem working with the GeoPackage SQLite DB.
+     * @since 1.25.0
      */
-    void setIntValue(FeatureRow featureRow, String columnName, int value)
+    static void createDictionaryView(String tableName, GeoPackageCore geoPackage, SpatialReferenceSystem srs,
+                                     List<FeatureColumn> tableColumns, List<String> dictionaryColumns) throws SQLException
     {
-        featureRow.setValue(columnName, value);
+        if (!StringDictionary.exists(geoPackage)) return;
+
+        StringDictionary.createView(geoPackage, tableName, tableColumns, dictionaryColumns);
+        createFeatureContents(tableName + StringDictionary.VIEW_SUFFIX, geoPackage, srs);
     }
 
     /**
-     * Sets the provided value on the row at the specified column as a short ({@link GeoPackageDataType#SMALLINT}).
+     * Adds the contents and geometry column entries that register a table (or view) as a POINT
+     * features layer.
      *
-     * @param featureRow The row to populate the value.
-     * @param columnName The column to set the value in.
-     * @param value      The value to set as a short.
+     * @param tableName  The name of the table or view.
+     * @param geoPackage The GeoPackage that contains the table.
+     * @param srs        The SRS of the table coordinates.
+     * @throws SQLException If there is a problem working with the GeoPackage SQLite DB.
+     * @since 1.25.0
      */
-    void setShortValue(FeatureRow featureRow, String columnName, int value)
+    private static void createFeatureContents(String tableName, GeoPackageCore geoPackage, SpatialReferenceSystem srs) throws SQLException
     {
-        featureRow.setValue(columnName, (short) value);
+        ContentsDao contentsDao = geoPackage.getContentsDao();
+
+        Contents contents = new Contents();
+        contents.setTableName(tableName);
+        contents.setDataType(ContentsDataType.FEATURES);
+        contents.setIdentifier(tableName);
+        contents.setDescription(tableName);
+        contents.setSrs(srs);
+
+        contentsDao.create(contents);
+
+        GeometryColumnsDao geometryColumnsDao = geoPackage.getGeometryColumnsDao();
+
+        GeometryColumns geometryColumns = new GeometryColumns();
+        geometryColumns.setContents(contents);
+        geometryColumns.setColumnName(MessageConstants.GEOMETRY_COLUMN);
+        geometryColumns.setGeometryType(GeometryType.POINT);
+        geometryColumns.setSrs(srs);
+        geometryColumns.setZ((byte) 0);
+        geometryColumns.setM((byte) 0);
+        geometryColumnsDao.create(geometryColumns);
     }
 
     /**
-     * Deletes any temporary journal files in the save directory.
+     * Deletes any temporary journal files that were left behind for the provided GeoPackage files.
+     * Only the journal of each file is checked, so the log directory never has to be listed.
      *
+     * @param geoPackageNames The names of the closed GeoPackage files.
      * @since 0.3.0
      */
-    void removeTempFiles()
+    void removeTempFiles(List<String> geoPackageNames)
     {
-        try
+        for (String name : geoPackageNames)
         {
-            if (logFileDirectoryPath != null)
+            try
             {
-                File dir = new File(logFileDirectoryPath);
-                if (dir.exists())
-                {
-                    // If the file is not a directory, null will be returned
-                    File[] files = dir.listFiles();
+                final File file = geoPackageManager.getFile(name);
+                if (file == null) continue;
 
-                    if (files != null)
-                    {
-                        for (File file : files)
-                        {
-                            String fileName = file.getName();
-                            if (fileName.endsWith(JOURNAL_FILE_SUFFIX))
-                            {
-                                //noinspection ResultOfMethodCallIgnored
-                                file.delete();
-                            }
-                        }
-                    }
-                }
+                final File journal = new File(file.getPath() + JOURNAL_FILE_SUFFIX);
+                //noinspection ResultOfMethodCallIgnored
+                if (journal.exists()) journal.delete();
+            } catch (Exception ignore)
+            {
+                // The file was deleted (e.g. after being merged), so there is no journal to remove
             }
-        } catch (Exception ignore)
-        {
         }
     }
 
@@ -390,18 +1763,37 @@ public abstract class SurveyRecordLogger
 
     /**
      * Creates the absolute path to the log file that this class writes to.
-     * <p>
-     * Also, as a side effect, this class creates and sets the {@link #logFileDirectoryPath} instance variable.
      *
      * @return The full path to the GeoPackage log file.
      */
     private String createPublicStorageFilePath()
     {
-        logFileDirectoryPath = Environment.getExternalStoragePublicDirectory(
-                Environment.DIRECTORY_DOWNLOADS) + "/" + logDirectoryName + "/";
+        return createLogFilePath(getPublicStorageDirectoryPath(logDirectoryName), fileNamePrefix);
+    }
+
+    /**
+     * @param logDirectoryName The name of the log directory.
+     * @return The absolute path to the log directory in the public Downloads directory, ending with a
+     * path separator.
+     * @since 1.25.0
+     */
+    static String getPublicStorageDirectoryPath(String logDirectoryName)
+    {
+        return Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS) + "/" + logDirectoryName + "/";
+    }
 
+    /**
+     * Creates a unique path for a new GeoPackage log file that is named using the current time.
+     *
+     * @param logFileDirectoryPath The directory to create the file in, ending with a path separator.
+     * @param fileNamePrefix       The prefix to use for the file name.
+     * @return The full path to the GeoPackage log file.
+     * @since 1.25.0
+     */
+    static String createLogFilePath(String logFileDirectoryPath, String fileNamePrefix)
+    {
         String filePath = logFileDirectoryPath +
-                fileNamePrefix + SurveyRecordProcessor.DATE_TIME_FORMATTER.format(LocalDateTime.now()) + ".gpkg";
+                fileNamePrefix + SurveyRecordProcessor.DATE_TIME_FORMATTER.format(LocalDateTime.now()) + GEOPACKAGE_FILE_EXTENSION;
 
         // I have seen a couple times now that it is possible that the RolloverWorker can create two GeoPackage files
         // within the same second. Both instances were bluetooth so I am thinking there were 500+ devices around which
@@ -413,7 +1805,7 @@ public abstract class SurveyRecordLogger
         {
             counter++;
             filePath = logFileDirectoryPath + fileNamePrefix +
-                    SurveyRecordProcessor.DATE_TIME_FORMATTER.format(LocalDateTime.now()) + "-" + counter + ".gpkg";
+                    SurveyRecordProcessor.DATE_TIME_FORMATTER.format(LocalDateTime.now()) + "-" + counter + GEOPACKAGE_FILE_EXTENSION;
         }
 
         return filePath;
@@ -481,9 +1873,11 @@ public abstract class SurveyRecordLogger
                     // Need to synchronize so that we don't try to get the file while a new one is being created.
                     synchronized (geoPackageLock)
                     {
+                        // Commit any pending rows first so that the file size is accurate
+                        commitBatch();
                         file = geoPackageManager.getFile(geoPackage.getName());
                     }
-                    final long fileSizeBytes = file.length();
+                    final long fileSizeBytes = HighThroughputSqliteProfile.getFileSize(file);
 
                     Timber.v("Checking GeoPackage file size, currently at: %s bytes", fileSizeBytes);
                     if (fileSizeBytes >= rolloverSizeBytes)
@@ -494,18 +1888,15 @@ public abstract class SurveyRecordLogger
                         {
                             try
                             {
-                                geoPackage.close();
-
-                                boolean fileCreated = prepareGeoPackageForLogging();
-                                if (!fileCreated)
-                                {
-                                    Timber.e("Failed to create a new GeoPackage file");
-                                }
+                                rollover();
                             } catch (Exception e)
                             {
                                 Timber.e(e, "Error occurred while trying to create a GeoPackage file");
                             }
                         }
+                    } else if (fileSizeBytes >= (long) rolloverSizeBytes * STANDBY_FILE_THRESHOLD_PERCENT / 100)
+                    {
+                        requestStandbyGeoPackage();
                     }
 
                     return;
@@ -0,0 +1,69 @@
+package com.craxiom.networksurvey.logging;
+
+/**
+ * Inserts rows into a single survey table using a reusable insert statement.
+ * <p>
+ * On the device this is implemented by the {@link FeatureTableInserter}, which compiles the insert
+ * statement with the Android SQLite API. The import and export code (see {@link CsvGeoPackageImporter})
+ * only uses this interface, so that it does not depend on how the rows are stored, and so that it can
+ * be tested with a fake inserter.
+ * <p>
+ * Values are bound using the index returned from {@link #getColumnIndex(String)}. Any column that is
+ * not bound before calling {@link #insert()} is inserted with its default value if it has one,
+ * otherwise as null.
+ *
+ * @since 1.25.0
+ */
+public interface SurveyRowInserter
+{
+    /**
+     * Returns the index to use when binding a value for the specified column.
+     *
+     * @param columnName The name of the column.
+     * @return The bind index for the column.
+     * @throws IllegalArgumentException If the table does not contain the specified column.
+     */
+    int getColumnIndex(String columnName);
+
+    /**
+     * Binds a WGS84 point to the geometry column of the table.
+     *
+     * @param longitude The longitude of the point.
+     * @param latitude  The latitude of the point.
+     * @param altitude  The altitude of the point.
+     */
+    void bindPoint(double longitude, double latitude, double altitude);
+
+    /**
+     * Binds an integer value (INTEGER, MEDIUMINT, SMALLINT, or TINYINT column).
+     */
+    void bindLong(int index, long value);
+
+    /**
+     * Binds a floating point value (DOUBLE, FLOAT, or REAL column).
+     */
+    void bindDouble(int index, double value);
+
+    /**
+     * Binds a boolean value, which is stored as 1 or 0 per the GeoPackage BOOLEAN data type.
+     */
+    void bindBoolean(int index, boolean value);
+
+    /**
+     * Binds a String value, or null if the provided value is null.
+     */
+    void bindString(int index, String value);
+
+    /**
+     * Inserts a row using all the values that have been bound since the last insert, and then
+     * clears the bindings so that the statement is ready for the next row.
+     *
+     * @return The row ID of the inserted row.
+     */
+    long insert();
+
+    /**
+     * Releases the insert statement. This must be called before the GeoPackage file is closed.
+     */
+    void close();
+}
@@ -22,26 +22,20 @@ import static com.craxiom.networksurvey.constants.csv.UmtsCsvConstants.SIGNAL_ST
 import static com.craxiom.networksurvey.constants.csv.UmtsCsvConstants.SPEED;
 import static com.craxiom.networksurvey.constants.csv.UmtsCsvConstants.UARFCN;
 
-import android.os.Looper;
-
 import com.craxiom.messaging.UmtsRecord;
 import com.craxiom.messaging.UmtsRecordData;
 import com.craxiom.networksurvey.constants.NetworkSurveyConstants;
 import com.craxiom.networksurvey.listeners.ICellularSurveyRecordListener;
 import com.craxiom.networksurvey.services.NetworkSurveyService;
 
-import java.io.IOException;
-
-import timber.log.Timber;
-
 /**
  * Responsible for taking in UMTS survey records and logging them to a CSV file.
  */
 public class UmtsCsvLogger extends CsvRecordLogger implements ICellularSurveyRecordListener
 {
-    public UmtsCsvLogger(NetworkSurveyService networkSurveyService, Looper serviceLooper)
+    public UmtsCsvLogger(NetworkSurveyService networkSurveyService)
     {
-        super(networkSurveyService, serviceLooper, NetworkSurveyConstants.CSV_LOG_DIRECTORY_NAME,
+        super(networkSurveyService, NetworkSurveyConstants.CSV_LOG_DIRECTORY_NAME,
                 NetworkSurveyConstants.UMTS_FILE_NAME_PREFIX, true);
     }
 
@@ -62,45 +56,36 @@ public class UmtsCsvLogger extends CsvRecordLogger implements ICellularSurveyRec
     @Override
     public synchronized void onUmtsSurveyRecord(UmtsRecord record)
     {
-        try
-        {
-            writeCsvRecord(convertToObjectArray(record), true);
-        } catch (IOException e)
-        {
-            Timber.e(e, "Could not log the UMTS record to the CSV file");
-        }
+        writeCsvRecord(record, UmtsCsvLogger::encodeRow);
     }
 
     /**
-     * @return A String array that contains the UMTS record values that can be written out as a CSV
-     * row.
+     * Adds the UMTS record values to the encoder as a CSV row.
      */
-    private String[] convertToObjectArray(UmtsRecord record)
+    private static void encodeRow(UmtsRecord record, CsvRowEncoder encoder)
     {
         UmtsRecordData data = record.getData();
 
-        return new String[]{
-                data.getDeviceTime(),
-                String.valueOf(data.getLatitude()),
-                String.valueOf(data.getLongitude()),
-                String.valueOf(data.getAltitude()),
-                String.valueOf(data.getSpeed()),
-                String.valueOf(data.getAccuracy()),
-                data.getMissionId(),
-                String.valueOf(data.getRecordNumber()),
-                String.valueOf(data.getGroupNumber()),
-                data.hasMcc() ? String.valueOf(data.getMcc().getValue()) : "",
-                data.hasMnc() ? String.valueOf(data.getMnc().getValue()) : "",
-                data.hasLac() ? String.valueOf(data.getLac().getValue()) : "",
-                data.hasCid() ? String.valueOf(data.getCid().getValue()) : "",
-                data.hasUarfcn() ? String.valueOf(data.getUarfcn().getValue()) : "",
-                data.hasPsc() ? String.valueOf(data.getPsc().getValue()) : "",
-                data.hasRscp() ? String.valueOf(data.getRscp().getValue()) : "",
-                data.hasEcno() ? String.valueOf(data.getEcno().getValue()) : "",
-                data.hasSignalStrength() ? String.valueOf(data.getSignalStrength().getValue()) : "",
-                data.hasServingCell() ? String.valueOf(data.getServingCell().getValue()) : "",
-                data.getProvider(),
-                data.hasSlot() ? String.valueOf(data.getSlot().getValue()) : "",
-        };
+        encoder.add(data.getDeviceTime())
+                .add(data.getLatitude())
+                .add(data.getLongitude())
+                .add(data.getAltitude())
+                .add(data.getSpeed())
+                .add(data.getAccuracy())
+                .add(data.getMissionId())
+                .add(data.getRecordNumber())
+                .add(data.getGroupNumber())
+                .addIf(data.hasMcc(), data.getMcc().getValue())
+                .addIf(data.hasMnc(), data.getMnc().getValue())
+                .addIf(data.hasLac(), data.getLac().getValue())
+                .addIf(data.hasCid(), data.getCid().getValue())
+                .addIf(data.hasUarfcn(), data.getUarfcn().getValue())
+                .addIf(data.hasPsc(), data.getPsc().getValue())
+                .addIf(data.hasRscp(), data.getRscp().getValue())
+                .addIf(data.hasEcno(), data.getEcno().getValue())
+                .addIf(data.hasSignalStrength(), data.getSignalStrength().getValue())
+                .addIf(data.hasServingCell(), data.getServingCell().getValue())
+                .add(data.getProvider())
+                .addIf(data.hasSlot(), data.getSlot().getValue());
     }
 }
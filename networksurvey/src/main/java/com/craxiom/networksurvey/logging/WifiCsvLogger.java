@@ -29,8 +29,6 @@ import static com.craxiom.networksurvey.constants.csv.WifiCsvConstants.STANDARD;
 import static com.craxiom.networksurvey.constants.csv.WifiCsvConstants.SUPPORTED_RATES;
 import static com.craxiom.networksurvey.constants.csv.WifiCsvConstants.WPA;
 
-import android.os.Looper;
-
 import com.craxiom.messaging.WifiBeaconRecordData;
 import com.craxiom.messaging.wifi.CipherSuite;
 import com.craxiom.networksurvey.constants.NetworkSurveyConstants;
@@ -38,20 +36,21 @@ import com.craxiom.networksurvey.listeners.IWifiSurveyRecordListener;
 import com.craxiom.networksurvey.model.WifiRecordWrapper;
 import com.craxiom.networksurvey.services.NetworkSurveyService;
 
-import java.io.IOException;
 import java.util.List;
-import java.util.stream.Collectors;
-
-import timber.log.Timber;
 
 /**
  * Responsible for taking in Wi-Fi survey records and logging them to a CSV file.
  */
 public class WifiCsvLogger extends CsvRecordLogger implements IWifiSurveyRecordListener
 {
-    public WifiCsvLogger(NetworkSurveyService networkSurveyService, Looper serviceLooper)
+    /**
+     * Reused to join the cipher suites for each row. Only used on the writer thread.
+     */
+    private final StringBuilder cipherSuites = new StringBuilder();
+
+    public WifiCsvLogger(NetworkSurveyService networkSurveyService)
     {
-        super(networkSurveyService, serviceLooper, NetworkSurveyConstants.CSV_LOG_DIRECTORY_NAME,
+        super(networkSurveyService, NetworkSurveyConstants.CSV_LOG_DIRECTORY_NAME,
                 NetworkSurveyConstants.WIFI_FILE_NAME_PREFIX, true);
     }
 
@@ -74,70 +73,51 @@ public class WifiCsvLogger extends CsvRecordLogger implements IWifiSurveyRecordL
     @Override
     public synchronized void onWifiBeaconSurveyRecords(List<WifiRecordWrapper> wifiBeaconRecords)
     {
-        wifiBeaconRecords.forEach(wrapper -> {
-            try
-            {
-                writeCsvRecord(convertToObjectArray(wrapper), false);
-            } catch (IOException e)
-            {
-                Timber.e(e, "Could not log the Wi-Fi record to the CSV file");
-            }
-        });
-
-        try
-        {
-            printer.flush();
-        } catch (IOException e)
-        {
-            Timber.e(e, "Could not flush the Wi-Fi records to the CSV file");
-        }
+        writeCsvRecords(wifiBeaconRecords, this::encodeRow);
     }
 
     /**
-     * @return A String array that contains the Wi-Fi record values that can be written out as a CSV
-     * row.
+     * Adds the Wi-Fi record values to the encoder as a CSV row.
      */
-    private String[] convertToObjectArray(WifiRecordWrapper wrapper)
+    private void encodeRow(WifiRecordWrapper wrapper, CsvRowEncoder encoder)
     {
         WifiBeaconRecordData data = wrapper.getWifiBeaconRecord().getData();
 
         final List<CipherSuite> cipherSuitesList = data.getCipherSuitesList();
-        String cipherSuites = "";
-        if (!cipherSuitesList.isEmpty())
+        cipherSuites.setLength(0);
+        for (int i = 0; i < cipherSuitesList.size(); i++)
         {
-            cipherSuites = cipherSuitesList.stream().map(Enum::toString)
-                    .collect(Collectors.joining(";"));
+            if (i > 0) cipherSuites.append(';');
+            cipherSuites.append(cipherSuitesList.get(i).toString());
         }
 
-        return new String[]{
-                data.getDeviceTime(),
-                String.valueOf(data.getLatitude()),
-                String.valueOf(data.getLongitude()),
-                String.valueOf(data.getAltitude()),
-                String.valueOf(data.getSpeed()),
-                String.valueOf(data.getAccuracy()),
-                data.getMissionId(),
-                String.valueOf(data.getRecordNumber()),
-                data.getSourceAddress(),
-                data.getDestinationAddress(),
-                data.getBssid(),
-                data.hasBeaconInterval() ? String.valueOf(data.getBeaconInterval().getValue()) : "",
-                "", // Service Set Type, not supported by NS
-                data.getSsid(),
-                "", // Supported Rates, not supported by NS
-                "", // Extended Supported Rates, not supported by NS
-                cipherSuites,
-                "", // AKM Suites, not supported by NS
-                data.getEncryptionType().toString(),
-                data.hasWps() ? String.valueOf(data.getWps().getValue()) : "",
-                data.hasChannel() ? String.valueOf(data.getChannel().getValue()) : "",
-                data.hasFrequencyMhz() ? String.valueOf(data.getFrequencyMhz().getValue()) : "",
-                data.hasSignalStrength() ? String.valueOf(data.getSignalStrength().getValue()) : "",
-                data.hasSnr() ? String.valueOf(data.getSnr().getValue()) : "",
-                "", // Node Type, not supported by NS
-                data.getStandard().toString(),
-                data.hasPasspoint() ? String.valueOf(data.getPasspoint().getValue()) : "",
-                data.getBandwidth().toString(),
-        };
+        encoder.add(data.getDeviceTime())
+                .add(data.getLatitude())
+                .add(data.getLongitude())
+                .add(data.getAltitude())
+                .add(data.getSpeed())
+                .add(data.getAccuracy())
+                .add(data.getMissionId())
+                .add(data.getRecordNumber())
+                .add(data.getSourceAddress())
+                .add(data.getDestinationAddress())
+                .add(data.getBssid())
+                .addIf(data.hasBeaconInterval(), data.getBeaconInterval().getValue())
+                .addEmpty() // Service Set Type, not supported by NS
+                .add(data.getSsid())
+                .addEmpty() // Supported Rates, not supported by NS
+                .addEmpty() // Extended Supported Rates, not supported by NS
+                .add(cipherSuites)
+                .addEmpty() // AKM Suites, not supported by NS
+                .add(data.getEncryptionType().toString())
+                .addIf(data.hasWps(), data.getWps().getValue())
+                .addIf(data.hasChannel(), data.getChannel().getValue())
+                .addIf(data.hasFrequencyMhz(), data.getFrequencyMhz().getValue())
+                .addIf(data.hasSignalStrength(), data.getSignalStrength().getValue())
+                .addIf(data.hasSnr(), data.getSnr().getValue())
+                .addEmpty() // Node Type, not supported by NS
+                .add(data.getStandard().toString())
+                .addIf(data.hasPasspoint(), data.getPasspoint().getValue())
+                .add(data.getBandwidth().toString());
     }
 }
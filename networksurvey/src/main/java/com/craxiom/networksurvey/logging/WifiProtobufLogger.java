@@ -0,0 +1,38 @@
+package com.craxiom.networksurvey.logging;
+
+import com.craxiom.messaging.WifiBeaconRecord;
+import com.craxiom.networksurvey.constants.NetworkSurveyConstants;
+import com.craxiom.networksurvey.listeners.IWifiSurveyRecordListener;
+import com.craxiom.networksurvey.model.WifiRecordWrapper;
+import com.craxiom.networksurvey.services.NetworkSurveyService;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Responsible for taking in the Wi-Fi survey records and logging them to a binary protobuf log file.
+ *
+ * @since 1.25.0
+ */
+public class WifiProtobufLogger extends ProtobufRecordLogger implements IWifiSurveyRecordListener
+{
+    static final int RECORD_TYPE_WIFI_BEACON = 1;
+
+    public WifiProtobufLogger(NetworkSurveyService networkSurveyService)
+    {
+        super(networkSurveyService, NetworkSurveyConstants.PROTOBUF_LOG_DIRECTORY_NAME,
+                NetworkSurveyConstants.WIFI_FILE_NAME_PREFIX, "wifi");
+    }
+
+    @Override
+    public void onWifiBeaconSurveyRecords(List<WifiRecordWrapper> wifiBeaconRecords)
+    {
+        final List<WifiBeaconRecord> beaconRecords = new ArrayList<>(wifiBeaconRecords.size());
+        for (WifiRecordWrapper wifiRecordWrapper : wifiBeaconRecords)
+        {
+            beaconRecords.add(wifiRecordWrapper.getWifiBeaconRecord());
+        }
+
+        writeRecords(RECORD_TYPE_WIFI_BEACON, beaconRecords);
+    }
+}
@@ -1,7 +1,6 @@
 package com.craxiom.networksurvey.logging;
 
-import android.os.Looper;
-
+import com.craxiom.messaging.WifiBeaconRecord;
 import com.craxiom.messaging.WifiBeaconRecordData;
 import com.craxiom.messaging.wifi.CipherSuite;
 import com.craxiom.messaging.wifi.EncryptionType;
@@ -9,23 +8,27 @@ import com.craxiom.networksurvey.constants.NetworkSurveyConstants;
 import com.craxiom.networksurvey.constants.WifiBeaconMessageConstants;
 import com.craxiom.networksurvey.constants.csv.WifiCsvConstants;
 import com.craxiom.networksurvey.listeners.IWifiSurveyRecordListener;
+import com.craxiom.networksurvey.model.RecordTimestamp;
 import com.craxiom.networksurvey.model.WifiRecordWrapper;
 import com.craxiom.networksurvey.services.NetworkSurveyService;
 import com.craxiom.networksurvey.util.IOUtils;
 import com.craxiom.networksurvey.util.MathUtils;
+import com.google.protobuf.InvalidProtocolBufferException;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import mil.nga.geopackage.GeoPackage;
+import mil.nga.geopackage.GeoPackageCore;
 import mil.nga.geopackage.db.GeoPackageDataType;
 import mil.nga.geopackage.features.user.FeatureColumn;
-import mil.nga.geopackage.features.user.FeatureDao;
-import mil.nga.geopackage.features.user.FeatureRow;
-import mil.nga.geopackage.geom.GeoPackageGeometryData;
 import mil.nga.geopackage.srs.SpatialReferenceSystem;
-import mil.nga.sf.Point;
 import timber.log.Timber;
 
 /**
@@ -35,29 +38,105 @@ import timber.log.Timber;
  */
 public class WifiSurveyRecordLogger extends SurveyRecordLogger implements IWifiSurveyRecordListener
 {
+    /**
+     * The columns that repeat the same few values on most rows, which are dictionary encoded when the
+     * compact schema is enabled.
+     */
+    static final List<String> DICTIONARY_COLUMNS = Collections.unmodifiableList(Arrays.asList(
+            WifiBeaconMessageConstants.MISSION_ID_COLUMN,
+            WifiBeaconMessageConstants.SSID_COLUMN,
+            WifiBeaconMessageConstants.CIPHER_SUITES_COLUMN,
+            WifiBeaconMessageConstants.ENCRYPTION_TYPE_COLUMN,
+            WifiCsvConstants.STANDARD,
+            WifiCsvConstants.BANDWIDTH));
+
+    /**
+     * The record type used to identify the records in the spool.
+     */
+    private static final int SPOOL_TYPE_WIFI_BEACON = 1;
+
+    private BeaconTable beaconTable;
+
+    /**
+     * The cipher suites column value for each combination of cipher suites that has been seen. There
+     * are only a handful of combinations, so this saves building the same String for every record.
+     * Only accessed from the {@link #writerQueue} thread.
+     */
+    private final Map<List<CipherSuite>, String> cipherSuitesStrings = new HashMap<>();
+
     /**
      * Constructs a Logger that writes 802.11 Survey records to a GeoPackage SQLite database.
      *
      * @param networkSurveyService The Service instance that is running this logger.
-     * @param serviceLooper        The Looper associated with the service that can be used to do any background processing.
      */
-    public WifiSurveyRecordLogger(NetworkSurveyService networkSurveyService, Looper serviceLooper)
+    public WifiSurveyRecordLogger(NetworkSurveyService networkSurveyService)
     {
-        super(networkSurveyService, serviceLooper, NetworkSurveyConstants.LOG_DIRECTORY_NAME, NetworkSurveyConstants.WIFI_FILE_NAME_PREFIX);
+        super(networkSurveyService, NetworkSurveyConstants.LOG_DIRECTORY_NAME, NetworkSurveyConstants.WIFI_FILE_NAME_PREFIX);
     }
 
     @Override
     public void onWifiBeaconSurveyRecords(List<WifiRecordWrapper> wifiBeaconRecords)
     {
-        wifiBeaconRecords.forEach(this::writeWifiBeaconRecordToLogFile);
+        writeScanGroup(wifiBeaconRecords, record -> writeWifiBeaconRecordToLogFile(record.getWifiBeaconRecord(),
+                IOUtils.getEpochFromRfc3339(record.getWifiBeaconRecord().getData().getDeviceTime())));
+    }
+
+    @Override
+    public void onWifiBeaconSurveyRecords(List<WifiRecordWrapper> wifiBeaconRecords, RecordTimestamp timestamp)
+    {
+        final List<WifiBeaconRecord> beaconRecords = new ArrayList<>(wifiBeaconRecords.size());
+        for (WifiRecordWrapper wifiRecordWrapper : wifiBeaconRecords)
+        {
+            beaconRecords.add(wifiRecordWrapper.getWifiBeaconRecord());
+        }
+
+        writeScanGroup(beaconRecords, timestamp.getEpochMillis(), SPOOL_TYPE_WIFI_BEACON, this::writeWifiBeaconRecordToLogFile);
     }
 
     @Override
     void createTables(GeoPackage geoPackage, SpatialReferenceSystem srs) throws SQLException
+    {
+        createSchema(geoPackage, srs);
+    }
+
+    /**
+     * Creates the Wi-Fi table in the provided GeoPackage. This is static so that the same schema
+     * can be used by tools that don't have a running logger (e.g. the {@link CsvGeoPackageImporter}).
+     *
+     * @param geoPackage The GeoPackage to create the tables in.
+     * @param srs        The SRS to use for the table coordinates.
+     * @throws SQLException If there is a problem working with the GeoPackage SQLite DB.
+     * @since 1.25.0
+     */
+    static void createSchema(GeoPackageCore geoPackage, SpatialReferenceSystem srs) throws SQLException
     {
         createWifiBeaconRecordTable(geoPackage, srs);
     }
 
+    @Override
+    void prepareInserters(GeoPackage geoPackage)
+    {
+        beaconTable = new BeaconTable(createInserter(WifiBeaconMessageConstants.WIFI_BEACON_RECORDS_TABLE_NAME));
+    }
+
+    @Override
+    void replaySpooledRecord(int recordType, long epochMillis, byte[] payload) throws InvalidProtocolBufferException
+    {
+        if (recordType == SPOOL_TYPE_WIFI_BEACON)
+        {
+            writeWifiBeaconRecordToLogFile(WifiBeaconRecord.parseFrom(payload), epochMillis);
+        } else
+        {
+            Timber.w("Unknown spooled Wi-Fi record type: %d", recordType);
+        }
+    }
+
+    @Override
+    List<String> getDictionaryColumns()
+    {
+        return DICTIONARY_COLUMNS;
+    }
+
     /**
      * Creates an GeoPackage Table that can be populated with 802.11 Beacon Records.
      *
@@ -65,9 +144,9 @@ public class WifiSurveyRecordLogger extends SurveyRecordLogger implements IWifiS
      * @param srs        The SRS to use for the table coordinates.
      * @throws SQLException If there is a problem working with the GeoPackage SQLite DB.
      */
-    private void createWifiBeaconRecordTable(GeoPackage geoPackage, SpatialReferenceSystem srs) throws SQLException
+    private static void createWifiBeaconRecordTable(GeoPackageCore geoPackage, SpatialReferenceSystem srs) throws SQLException
     {
-        createTable(WifiBeaconMessageConstants.WIFI_BEACON_RECORDS_TABLE_NAME, geoPackage, srs, false, (tableColumns, columnNumber) -> {
+        createTable(WifiBeaconMessageConstants.WIFI_BEACON_RECORDS_TABLE_NAME, geoPackage, srs, DICTIONARY_COLUMNS, false, (tableColumns, columnNumber) -> {
             tableColumns.add(FeatureColumn.createColumn(columnNumber++, WifiBeaconMessageConstants.BSSID_COLUMN, GeoPackageDataType.TEXT, false, null));
             tableColumns.add(FeatureColumn.createColumn(columnNumber++, WifiBeaconMessageConstants.SSID_COLUMN, GeoPackageDataType.TEXT, false, null));
             tableColumns.add(FeatureColumn.createColumn(columnNumber++, WifiBeaconMessageConstants.CHANNEL_COLUMN, GeoPackageDataType.SMALLINT, false, null));
@@ -86,106 +165,138 @@ public class WifiSurveyRecordLogger extends SurveyRecordLogger implements IWifiS
 
     /**
      * Given an 802.11 Beacon Record, write it to the GeoPackage log file.
+     * <p>
+     * This method is NOT thread safe and it is assumed the caller has already gotten a lock on the
+     * {@link #geoPackageLock} and is running on the {@link #writerQueue} thread.
      *
-     * @param wifiRecordWrapper The 802.11 Beacon Record to write to the log file.
+     * @param wifiBeaconRecord The 802.11 Beacon Record to write to the log file.
+     * @param epochMillis      The time that the record was captured, in milliseconds since the Unix Epoch.
      */
-    private void writeWifiBeaconRecordToLogFile(final WifiRecordWrapper wifiRecordWrapper)
+    private void writeWifiBeaconRecordToLogFile(final WifiBeaconRecord wifiBeaconRecord, long epochMillis)
     {
-        if (!loggingEnabled) return;
-
-        handler.post(() -> {
-            synchronized (geoPackageLock)
+        try
+        {
+            if (geoPackage != null)
             {
-                try
+                beginBatchIfNeeded();
+
+                final WifiBeaconRecordData data = wifiBeaconRecord.getData();
+                final BeaconTable table = beaconTable;
+
+                table.inserter.bindPoint(data.getLongitude(), data.getLatitude(), data.getAltitude());
+
+                table.inserter.bindLong(table.time, epochMillis);
+                table.inserter.bindString(table.missionId, data.getMissionId());
+                table.inserter.bindLong(table.recordNumber, data.getRecordNumber());
+                table.inserter.bindLong(table.accuracy, MathUtils.roundAccuracy(data.getAccuracy()));
+
+                final String bssid = data.getBssid();
+                if (!bssid.isEmpty())
+                {
+                    table.inserter.bindString(table.bssid, bssid);
+                }
+
+                final String ssid = data.getSsid();
+                if (!ssid.isEmpty())
+                {
+                    table.inserter.bindString(table.ssid, ssid);
+                }
+
+                if (data.hasSignalStrength())
+                {
+                    table.inserter.bindDouble(table.signalStrength, data.getSignalStrength().getValue());
+                }
+
+                if (data.hasChannel())
+                {
+                    table.inserter.bindLong(table.channel, data.getChannel().getValue());
+                }
+
+                if (data.hasFrequencyMhz())
+                {
+                    table.inserter.bindLong(table.frequencyMhz, data.getFrequencyMhz().getValue());
+                }
+
+                final EncryptionType encryptionType = data.getEncryptionType();
+                if (encryptionType != EncryptionType.UNKNOWN)
+                {
+                    table.inserter.bindString(table.encryptionType, WifiBeaconMessageConstants.getEncryptionTypeString(encryptionType));
+                }
+
+                if (data.hasWps())
+                {
+                    table.inserter.bindBoolean(table.wps, data.getWps().getValue());
+                }
+
+                table.inserter.bindString(table.standard, data.getStandard().toString());
+
+                if (data.hasPasspoint())
                 {
-                    if (geoPackage != null)
-                    {
-                        final WifiBeaconRecordData data = wifiRecordWrapper.getWifiBeaconRecord().getData();
-                        FeatureDao featureDao = geoPackage.getFeatureDao(WifiBeaconMessageConstants.WIFI_BEACON_RECORDS_TABLE_NAME);
-                        FeatureRow row = featureDao.newRow();
-
-                        Point fix = new Point(data.getLongitude(), data.getLatitude(), (double) data.getAltitude());
-
-                        GeoPackageGeometryData geomData = new GeoPackageGeometryData(WGS84_SRS);
-                        geomData.setGeometry(fix);
-
-                        row.setGeometry(geomData);
-
-                        row.setValue(WifiBeaconMessageConstants.TIME_COLUMN, IOUtils.getEpochFromRfc3339(data.getDeviceTime()));
-                        row.setValue(WifiBeaconMessageConstants.MISSION_ID_COLUMN, data.getMissionId());
-                        row.setValue(WifiBeaconMessageConstants.RECORD_NUMBER_COLUMN, data.getRecordNumber());
-                        row.setValue(WifiBeaconMessageConstants.ACCURACY, MathUtils.roundAccuracy(data.getAccuracy()));
-
-                        final String sourceAddress = data.getSourceAddress();
-                        if (!sourceAddress.isEmpty())
-                        {
-                            row.setValue(WifiBeaconMessageConstants.SOURCE_ADDRESS_COLUMN, sourceAddress);
-                        }
-
-                        final String bssid = data.getBssid();
-                        if (!bssid.isEmpty())
-                        {
-                            row.setValue(WifiBeaconMessageConstants.BSSID_COLUMN, bssid);
-                        }
-
-                        final String ssid = data.getSsid();
-                        if (!ssid.isEmpty())
-                        {
-                            row.setValue(WifiBeaconMessageConstants.SSID_COLUMN, ssid);
-                        }
-
-                        if (data.hasSignalStrength())
-                        {
-                            row.setValue(WifiBeaconMessageConstants.SIGNAL_STRENGTH_COLUMN, data.getSignalStrength().getValue());
-                        }
-
-                        if (data.hasChannel())
-                        {
-                            setShortValue(row, WifiBeaconMessageConstants.CHANNEL_COLUMN, data.getChannel().getValue());
-                        }
-
-                        if (data.hasFrequencyMhz())
-                        {
-                            setIntValue(row, WifiBeaconMessageConstants.FREQUENCY_MHZ_COLUMN, data.getFrequencyMhz().getValue());
-                        }
-
-                        final EncryptionType encryptionType = data.getEncryptionType();
-                        if (encryptionType != EncryptionType.UNKNOWN)
-                        {
-                            row.setValue(WifiBeaconMessageConstants.ENCRYPTION_TYPE_COLUMN, WifiBeaconMessageConstants.getEncryptionTypeString(encryptionType));
-                        }
-
-                        if (data.hasWps())
-                        {
-                            row.setValue(WifiBeaconMessageConstants.WPS_COLUMN, data.getWps().getValue());
-                        }
-
-                        row.setValue(WifiCsvConstants.STANDARD, data.getStandard().toString());
-
-                        if (data.hasPasspoint())
-                        {
-                            row.setValue(WifiCsvConstants.PASSPOINT, data.getPasspoint().getValue());
-                        }
-
-                        row.setValue(WifiCsvConstants.BANDWIDTH, data.getBandwidth().toString());
-
-                        final List<CipherSuite> cipherSuitesList = data.getCipherSuitesList();
-                        if (!cipherSuitesList.isEmpty())
-                        {
-                            row.setValue(WifiBeaconMessageConstants.CIPHER_SUITES_COLUMN,
-                                    cipherSuitesList.stream().map(WifiBeaconMessageConstants::getCipherSuiteString)
-                                            .collect(Collectors.joining(";")));
-                        }
-
-                        featureDao.insert(row);
-
-                        checkIfRolloverNeeded();
-                    }
-                } catch (Exception e)
+                    table.inserter.bindBoolean(table.passpoint, data.getPasspoint().getValue());
+                }
+
+                table.inserter.bindString(table.bandwidth, data.getBandwidth().toString());
+
+                final List<CipherSuite> cipherSuitesList = data.getCipherSuitesList();
+                if (!cipherSuitesList.isEmpty())
                 {
-                    Timber.e(e, "Something went wrong when trying to write a Wi-Fi survey record");
+                    table.inserter.bindString(table.cipherSuites, cipherSuitesStrings.computeIfAbsent(cipherSuitesList,
+                            list -> list.stream().map(WifiBeaconMessageConstants::getCipherSuiteString)
+                                    .collect(Collectors.joining(";"))));
                 }
+
+                table.inserter.insert();
+
+                onRecordInserted();
             }
-        });
+        } catch (Exception e)
+        {
+            Timber.e(e, "Something went wrong when trying to write a Wi-Fi survey record");
+        }
+    }
+
+    /**
+     * The insert statement and column indexes for the 802.11 Beacon table in the current GeoPackage file.
+     *
+     * @since 1.25.0
+     */
+    private static final class BeaconTable
+    {
+        final FeatureTableInserter inserter;
+        final int time;
+        final int missionId;
+        final int recordNumber;
+        final int accuracy;
+        final int bssid;
+        final int ssid;
+        final int channel;
+        final int frequencyMhz;
+        final int cipherSuites;
+        final int encryptionType;
+        final int wps;
+        final int signalStrength;
+        final int standard;
+        final int passpoint;
+        final int bandwidth;
+
+        BeaconTable(FeatureTableInserter inserter)
+        {
+            this.inserter = inserter;
+            time = inserter.getColumnIndex(WifiBeaconMessageConstants.TIME_COLUMN);
+            missionId = inserter.getColumnIndex(WifiBeaconMessageConstants.MISSION_ID_COLUMN);
+            recordNumber = inserter.getColumnIndex(WifiBeaconMessageConstants.RECORD_NUMBER_COLUMN);
+            accuracy = inserter.getColumnIndex(WifiBeaconMessageConstants.ACCURACY);
+            bssid = inserter.getColumnIndex(WifiBeaconMessageConstants.BSSID_COLUMN);
+            ssid = inserter.getColumnIndex(WifiBeaconMessageConstants.SSID_COLUMN);
+            channel = inserter.getColumnIndex(WifiBeaconMessageConstants.CHANNEL_COLUMN);
+            frequencyMhz = inserter.getColumnIndex(WifiBeaconMessageConstants.FREQUENCY_MHZ_COLUMN);
+            cipherSuites = inserter.getColumnIndex(WifiBeaconMessageConstants.CIPHER_SUITES_COLUMN);
+            encryptionType = inserter.getColumnIndex(WifiBeaconMessageConstants.ENCRYPTION_TYPE_COLUMN);
+            wps = inserter.getColumnIndex(WifiBeaconMessageConstants.WPS_COLUMN);
+            signalStrength = inserter.getColumnIndex(WifiBeaconMessageConstants.SIGNAL_STRENGTH_COLUMN);
+            standard = inserter.getColumnIndex(WifiCsvConstants.STANDARD);
+            passpoint = inserter.getColumnIndex(WifiCsvConstants.PASSPOINT);
+            bandwidth = inserter.getColumnIndex(WifiCsvConstants.BANDWIDTH);
+        }
     }
 }
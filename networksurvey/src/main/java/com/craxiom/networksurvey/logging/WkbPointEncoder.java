@@ -0,0 +1,127 @@
+package com.craxiom.networksurvey.logging;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Encodes a 3D point into the GeoPackage geometry blob format, and decodes it again for the
+ * {@link ColumnarExporter}.
+ * <p>
+ * Every survey record is stored as a POINT Z in the same spatial reference system, so instead of
+ * creating a {@code Point} and a {@code GeoPackageGeometryData} for each record and then running the
+ * generic geometry writer, this class writes the bytes directly into a single reusable buffer. The
+ * output is byte for byte the same as what {@code GeoPackageGeometryData#toBytes()} produces for a
+ * point with a Z value: a big endian GeoPackage header with no envelope, followed by a big endian
+ * ISO WKB point (type code 1001).
+ * <p>
+ * The header never changes, so it is only written once. The returned array is reused by the next
+ * call to {@link #encode(double, double, double)}, so it must be consumed (e.g. bound and inserted)
+ * before then. This class is NOT thread safe.
+ *
+ * @since 1.25.0
+ */
+final class WkbPointEncoder
+{
+    private static final byte[] GEOPACKAGE_MAGIC = {'G', 'P'};
+    private static final byte GEOPACKAGE_VERSION = 0;
+
+    /**
+     * Standard geometry type, not empty, no envelope, and a big endian header.
+     */
+    private static final byte GEOPACKAGE_FLAGS = 0;
+
+    private static final byte WKB_BIG_ENDIAN = 0;
+    private static final int WKB_POINT = 1;
+    private static final int WKB_POINT_Z = 1001;
+    private static final int WKB_POINT_ZM = 3001;
+
+    private static final int FLAG_ENVELOPE_MASK = 0x0E;
+    private static final int FLAG_EMPTY = 0x10;
+
+    private static final int HEADER_LENGTH = 8;
+    static final int ENCODED_LENGTH = HEADER_LENGTH + 1 + 4 + 3 * Double.BYTES;
+
+    private final byte[] bytes = new byte[ENCODED_LENGTH];
+    private final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+
+    /**
+     * @param srsId The ID of the spatial reference system that all the points are in.
+     */
+    WkbPointEncoder(int srsId)
+    {
+        buffer.put(GEOPACKAGE_MAGIC)
+                .put(GEOPACKAGE_VERSION)
+                .put(GEOPACKAGE_FLAGS)
+                .putInt(srsId)
+                .put(WKB_BIG_ENDIAN)
+                .putInt(WKB_POINT_Z);
+    }
+
+    /**
+     * Writes the provided coordinates into the reusable buffer.
+     *
+     * @param x The X coordinate (longitude).
+     * @param y The Y coordinate (latitude).
+     * @param z The Z coordinate (altitude).
+     * @return The encoded geometry, which is only valid until the next call to this method.
+     */
+    byte[] encode(double x, double y, double z)
+    {
+        buffer.putDouble(HEADER_LENGTH + 5, x)
+                .putDouble(HEADER_LENGTH + 5 + Double.BYTES, y)
+                .putDouble(HEADER_LENGTH + 5 + 2 * Double.BYTES, z);
+        return bytes;
+    }
+
+    /**
+     * Reads the coordinates of a point from a GeoPackage geometry blob. This handles the blobs written
+     * by this class as well as those written by other tools, which might use little endian values, an
+     * envelope, or a 2D point.
+     *
+     * @param geometry The GeoPackage geometry blob.
+     * @param point    The array that the X, Y, and Z coordinates are written to. The Z coordinate is
+     *                 set to 0 if the point does not have one.
+     * @return True if the point was read, false if the blob is not a non-empty point.
+     */
+    static boolean decode(byte[] geometry, double[] point)
+    {
+        if (geometry == null || geometry.length < HEADER_LENGTH || geometry[0] != 'G' || geometry[1] != 'P') return false;
+
+        final int flags = geometry[3];
+        if ((flags & FLAG_EMPTY) != 0) return false;
+
+        final int envelopeLength;
+        switch ((flags & FLAG_ENVELOPE_MASK) >> 1)
+        {
+            case 0:
+                envelopeLength = 0;
+                break;
+            case 1:
+                envelopeLength = 4 * Double.BYTES;
+                break;
+            case 2:
+            case 3:
+                envelopeLength = 6 * Double.BYTES;
+                break;
+            case 4:
+                envelopeLength = 8 * Double.BYTES;
+                break;
+            default:
+                return false;
+        }
+
+        final int wkbStart = HEADER_LENGTH + envelopeLength;
+        if (geometry.length < wkbStart + 5 + 2 * Double.BYTES) return false;
+
+        final ByteBuffer wkb = ByteBuffer.wrap(geometry).order(geometry[wkbStart] == WKB_BIG_ENDIAN ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+        final int type = wkb.getInt(wkbStart + 1);
+        final boolean hasZ = type == WKB_POINT_Z || type == WKB_POINT_ZM;
+        if (type != WKB_POINT && !hasZ) return false;
+        if (hasZ && geometry.length < wkbStart + 5 + 3 * Double.BYTES) return false;
+
+        point[0] = wkb.getDouble(wkbStart + 5);
+        point[1] = wkb.getDouble(wkbStart + 5 + Double.BYTES);
+        point[2] = hasZ ? wkb.getDouble(wkbStart + 5 + 2 * Double.BYTES) : 0;
+        return true;
+    }
+}
@@ -0,0 +1,56 @@
+package com.craxiom.networksurvey.model;
+
+import com.craxiom.networksurvey.listeners.BackpressurePolicy;
+
+/**
+ * A snapshot of how a single survey record listener is keeping up with the records that are
+ * dispatched to it.
+ *
+ * @since 1.25.0
+ */
+public final class BackpressureStats
+{
+    /**
+     * The type of records the listener is registered for (e.g. "cellular").
+     */
+    public final String recordType;
+    public final String listenerName;
+    public final BackpressurePolicy policy;
+
+    /**
+     * The number of records that are waiting on the listener, including any that were spilled to disk.
+     */
+    public final long backlog;
+    public final long delivered;
+    public final long dropped;
+    public final long conflated;
+    public final long spilled;
+
+    /**
+     * The number of records that the listener itself dropped after they were delivered to it (e.g. a
+     * logger whose write queue stayed full).
+     */
+    public final long listenerDropped;
+
+    public BackpressureStats(String recordType, String listenerName, BackpressurePolicy policy, long backlog,
+                             long delivered, long dropped, long conflated, long spilled, long listenerDropped)
+    {
+        this.recordType = recordType;
+        this.listenerName = listenerName;
+        this.policy = policy;
+        this.backlog = backlog;
+        this.delivered = delivered;
+        this.dropped = dropped;
+        this.conflated = conflated;
+        this.spilled = spilled;
+        this.listenerDropped = listenerDropped;
+    }
+
+    /**
+     * @return True if the listener has missed or skipped any records, or has had to spill some to disk.
+     */
+    public boolean hasFallenBehind()
+    {
+        return dropped != 0 || conflated != 0 || spilled != 0 || listenerDropped != 0;
+    }
+}
@@ -7,10 +7,12 @@ public class LogTypeState
 {
     public final boolean csv;
     public final boolean geoPackage;
+    public final boolean protobuf;
 
-    public LogTypeState(boolean csv, boolean geoPackage)
+    public LogTypeState(boolean csv, boolean geoPackage, boolean protobuf)
     {
         this.csv = csv;
         this.geoPackage = geoPackage;
+        this.protobuf = protobuf;
     }
 }
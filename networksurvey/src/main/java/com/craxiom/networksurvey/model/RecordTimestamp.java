@@ -0,0 +1,78 @@
+package com.craxiom.networksurvey.model;
+
+import android.os.SystemClock;
+
+import com.craxiom.networksurvey.util.IOUtils;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+/**
+ * The time that a group of survey records was captured.
+ * <p>
+ * One of these is created for each scan group (e.g. all the records from a single Wi-Fi scan) and
+ * is passed along with the records so that the loggers can write the epoch time directly instead of
+ * parsing it back out of the RFC3339 device time string. The RFC3339 string is only formatted the
+ * first time it is requested, and then reused for every record in the group.
+ *
+ * @since 1.25.0
+ */
+public final class RecordTimestamp
+{
+    private final long epochMillis;
+    private final long elapsedRealtimeNanos;
+    private volatile String rfc3339String;
+
+    /**
+     * @param epochMillis          The wall clock time in milliseconds since the Unix Epoch.
+     * @param elapsedRealtimeNanos The monotonic time from {@link SystemClock#elapsedRealtimeNanos()}.
+     */
+    public RecordTimestamp(long epochMillis, long elapsedRealtimeNanos)
+    {
+        this.epochMillis = epochMillis;
+        this.elapsedRealtimeNanos = elapsedRealtimeNanos;
+    }
+
+    /**
+     * @return A new timestamp for the current time.
+     */
+    public static RecordTimestamp now()
+    {
+        return new RecordTimestamp(System.currentTimeMillis(), SystemClock.elapsedRealtimeNanos());
+    }
+
+    /**
+     * @return The wall clock time in milliseconds since the Unix Epoch.
+     */
+    public long getEpochMillis()
+    {
+        return epochMillis;
+    }
+
+    /**
+     * @return The monotonic time from {@link SystemClock#elapsedRealtimeNanos()}, which is not
+     * affected by changes to the wall clock and can be used to measure elapsed time.
+     */
+    public long getElapsedRealtimeNanos()
+    {
+        return elapsedRealtimeNanos;
+    }
+
+    /**
+     * @return The time as an RFC3339 formatted String in the system time zone (the same format as
+     * {@link IOUtils#getRfc3339String(ZonedDateTime)}).
+     */
+    public String getRfc3339String()
+    {
+        String value = rfc3339String;
+        if (value == null)
+        {
+            // It is fine if two threads race here since they will both produce the same value
+            value = IOUtils.getRfc3339String(ZonedDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault()));
+            rfc3339String = value;
+        }
+
+        return value;
+    }
+}
@@ -9,19 +9,26 @@ import com.craxiom.messaging.LteRecord;
 import com.craxiom.messaging.NrRecord;
 import com.craxiom.messaging.PhoneState;
 import com.craxiom.messaging.UmtsRecord;
-import com.craxiom.messaging.WifiBeaconRecord;
 import com.craxiom.mqttlibrary.connection.DefaultMqttConnection;
+import com.craxiom.networksurvey.listeners.BackpressurePolicy;
 import com.craxiom.networksurvey.listeners.IBluetoothSurveyRecordListener;
 import com.craxiom.networksurvey.listeners.ICellularSurveyRecordListener;
 import com.craxiom.networksurvey.listeners.IDeviceStatusListener;
 import com.craxiom.networksurvey.listeners.IGnssSurveyRecordListener;
 import com.craxiom.networksurvey.listeners.IWifiSurveyRecordListener;
 import com.craxiom.networksurvey.model.WifiRecordWrapper;
+import com.craxiom.networksurvey.services.PipelineMetrics;
+import com.google.protobuf.GeneratedMessageV3;
 
 import java.util.List;
 
 /**
  * Class for creating a connection to an MQTT server.
+ * <p>
+ * The records are published as they are received. The device name in them is already set to the MQTT
+ * client ID because the service registers it as this connection's device name override with the
+ * {@link com.craxiom.networksurvey.services.SurveyRecordProcessor}, which builds a copy of each record
+ * with the override for this connection only.
  *
  * @since 0.1.1
  */
@@ -38,143 +45,88 @@ public class MqttConnection extends DefaultMqttConnection implements ICellularSu
     private static final String MQTT_GNSS_MESSAGE_TOPIC = "gnss_message";
     private static final String MQTT_DEVICE_STATUS_MESSAGE_TOPIC = "device_status_message";
 
+    /**
+     * Publishes the message, recording how long it took the MQTT client to accept it.
+     *
+     * @since 1.25.0
+     */
+    private void publishAndMeasure(String topic, GeneratedMessageV3 message)
+    {
+        final long startNanos = PipelineMetrics.now();
+        publishMessage(topic, message);
+        PipelineMetrics.recordSince(PipelineMetrics.Stage.MQTT_PUBLISH, startNanos);
+    }
+
+    @Override
+    public BackpressurePolicy getBackpressurePolicy()
+    {
+        // Records that were surveyed while the broker connection was slow are still worth sending, so hold on to them
+        return BackpressurePolicy.spillToDisk(256);
+    }
+
     @Override
     public void onGsmSurveyRecord(GsmRecord gsmRecord)
     {
-        // Set the device name to the user entered value in the MQTT connection UI (or the value provided via MDM)
-        if (mqttClientId != null)
-        {
-            final GsmRecord.Builder recordBuilder = gsmRecord.toBuilder();
-            gsmRecord = recordBuilder.setData(recordBuilder.getDataBuilder().setDeviceName(mqttClientId)).build();
-        }
-
-        publishMessage(MQTT_GSM_MESSAGE_TOPIC, gsmRecord);
+        publishAndMeasure(MQTT_GSM_MESSAGE_TOPIC, gsmRecord);
     }
 
     @Override
     public void onCdmaSurveyRecord(CdmaRecord cdmaRecord)
     {
-        // Set the device name to the user entered value in the MQTT connection UI (or the value provided via MDM)
-        if (mqttClientId != null)
-        {
-            final CdmaRecord.Builder recordBuilder = cdmaRecord.toBuilder();
-            cdmaRecord = recordBuilder.setData(recordBuilder.getDataBuilder().setDeviceName(mqttClientId)).build();
-        }
-
-        publishMessage(MQTT_CDMA_MESSAGE_TOPIC, cdmaRecord);
+        publishAndMeasure(MQTT_CDMA_MESSAGE_TOPIC, cdmaRecord);
     }
 
     @Override
     public void onUmtsSurveyRecord(UmtsRecord umtsRecord)
     {
-        // Set the device name to the user entered value in the MQTT connection UI (or the value provided via MDM)
-        if (mqttClientId != null)
-        {
-            final UmtsRecord.Builder recordBuilder = umtsRecord.toBuilder();
-            umtsRecord = recordBuilder.setData(recordBuilder.getDataBuilder().setDeviceName(mqttClientId)).build();
-        }
-
-        publishMessage(MQTT_UMTS_MESSAGE_TOPIC, umtsRecord);
+        publishAndMeasure(MQTT_UMTS_MESSAGE_TOPIC, umtsRecord);
     }
 
     @Override
     public void onLteSurveyRecord(LteRecord lteRecord)
     {
-        // Set the device name to the user entered value in the MQTT connection UI (or the value provided via MDM)
-        if (mqttClientId != null)
-        {
-            final LteRecord.Builder recordBuilder = lteRecord.toBuilder();
-            lteRecord = recordBuilder.setData(recordBuilder.getDataBuilder().setDeviceName(mqttClientId)).build();
-        }
-
-        publishMessage(MQTT_LTE_MESSAGE_TOPIC, lteRecord);
+        publishAndMeasure(MQTT_LTE_MESSAGE_TOPIC, lteRecord);
     }
 
     @Override
     public void onNrSurveyRecord(NrRecord nrRecord)
     {
-        if (mqttClientId != null)
-        {
-            final NrRecord.Builder recordBuilder = nrRecord.toBuilder();
-            nrRecord = recordBuilder.setData(recordBuilder.getDataBuilder().setDeviceName(mqttClientId)).build();
-        }
-
-        publishMessage(MQTT_NR_MESSAGE_TOPIC, nrRecord);
+        publishAndMeasure(MQTT_NR_MESSAGE_TOPIC, nrRecord);
     }
 
     @Override
     public void onWifiBeaconSurveyRecords(List<WifiRecordWrapper> wifiBeaconRecords)
     {
-        wifiBeaconRecords.forEach(wifiRecord -> {
-            WifiBeaconRecord wifiBeaconRecord = wifiRecord.getWifiBeaconRecord();
-            if (mqttClientId != null)
-            {
-                final WifiBeaconRecord.Builder recordBuilder = wifiBeaconRecord.toBuilder();
-                wifiBeaconRecord = recordBuilder.setData(recordBuilder.getDataBuilder().setDeviceName(mqttClientId)).build();
-            }
-            publishMessage(MQTT_WIFI_BEACON_MESSAGE_TOPIC, wifiBeaconRecord);
-        });
+        wifiBeaconRecords.forEach(wifiRecord -> publishAndMeasure(MQTT_WIFI_BEACON_MESSAGE_TOPIC, wifiRecord.getWifiBeaconRecord()));
     }
 
     @Override
     public void onBluetoothSurveyRecord(BluetoothRecord bluetoothRecord)
     {
-        // Set the device name to the user entered value in the MQTT connection UI (or the value provided via MDM)
-        if (mqttClientId != null)
-        {
-            final BluetoothRecord.Builder recordBuilder = bluetoothRecord.toBuilder();
-            bluetoothRecord = recordBuilder.setData(recordBuilder.getDataBuilder().setDeviceName(mqttClientId)).build();
-        }
-
-        publishMessage(MQTT_BLUETOOTH_MESSAGE_TOPIC, bluetoothRecord);
+        publishAndMeasure(MQTT_BLUETOOTH_MESSAGE_TOPIC, bluetoothRecord);
     }
 
     @Override
     public void onBluetoothSurveyRecords(List<BluetoothRecord> bluetoothRecords)
     {
-        bluetoothRecords.forEach(bluetoothRecord -> {
-            if (mqttClientId != null)
-            {
-                final BluetoothRecord.Builder recordBuilder = bluetoothRecord.toBuilder();
-                bluetoothRecord = recordBuilder.setData(recordBuilder.getDataBuilder().setDeviceName(mqttClientId)).build();
-            }
-            publishMessage(MQTT_BLUETOOTH_MESSAGE_TOPIC, bluetoothRecord);
-        });
+        bluetoothRecords.forEach(bluetoothRecord -> publishAndMeasure(MQTT_BLUETOOTH_MESSAGE_TOPIC, bluetoothRecord));
     }
 
     @Override
     public void onGnssSurveyRecord(GnssRecord gnssRecord)
     {
-        if (mqttClientId != null)
-        {
-            final GnssRecord.Builder gnssRecordBuilder = gnssRecord.toBuilder();
-            gnssRecord = gnssRecordBuilder.setData(gnssRecordBuilder.getDataBuilder().setDeviceName(mqttClientId)).build();
-        }
-
-        publishMessage(MQTT_GNSS_MESSAGE_TOPIC, gnssRecord);
+        publishAndMeasure(MQTT_GNSS_MESSAGE_TOPIC, gnssRecord);
     }
 
     @Override
     public void onDeviceStatus(DeviceStatus deviceStatus)
     {
-        if (mqttClientId != null)
-        {
-            final DeviceStatus.Builder deviceStatusBuilder = deviceStatus.toBuilder();
-            deviceStatus = deviceStatusBuilder.setData(deviceStatusBuilder.getDataBuilder().setDeviceName(mqttClientId)).build();
-        }
-
-        publishMessage(MQTT_DEVICE_STATUS_MESSAGE_TOPIC, deviceStatus);
+        publishAndMeasure(MQTT_DEVICE_STATUS_MESSAGE_TOPIC, deviceStatus);
     }
 
     @Override
     public void onPhoneState(PhoneState phoneState)
     {
-        if (mqttClientId != null)
-        {
-            final PhoneState.Builder messageBuilder = phoneState.toBuilder();
-            phoneState = messageBuilder.setData(messageBuilder.getDataBuilder().setDeviceName(mqttClientId)).build();
-        }
-
-        publishMessage(MQTT_DEVICE_STATUS_MESSAGE_TOPIC, phoneState);
+        publishAndMeasure(MQTT_DEVICE_STATUS_MESSAGE_TOPIC, phoneState);
     }
-}
\ No newline at end of file
+}
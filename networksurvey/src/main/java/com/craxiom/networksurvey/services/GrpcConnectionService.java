@@ -52,6 +52,7 @@ import com.craxiom.networksurvey.GpsListener;
 import com.craxiom.networksurvey.R;
 import com.craxiom.networksurvey.constants.DeviceStatusMessageConstants;
 import com.craxiom.networksurvey.constants.NetworkSurveyConstants;
+import com.craxiom.networksurvey.listeners.BackpressurePolicy;
 import com.craxiom.networksurvey.listeners.ICellularSurveyRecordListener;
 import com.craxiom.networksurvey.listeners.IDeviceStatusListener;
 import com.craxiom.networksurvey.listeners.IWifiSurveyRecordListener;
@@ -66,15 +67,17 @@ import java.lang.ref.WeakReference;
 import java.net.ConnectException;
 import java.time.ZonedDateTime;
 import java.util.List;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
-import java.util.stream.Collectors;
 
 import io.grpc.ManagedChannel;
 import io.grpc.Status;
@@ -94,6 +97,12 @@ public class GrpcConnectionService extends Service implements IDeviceStatusListe
     private static final int DEVICE_STATUS_REFRESH_RATE_MS = 15_000;
     // number of concurrent linked queues. Does not take into account the old queues
     private static final int NUMBER_OF_QUEUES_TO_PROCESS = 7;
+    /**
+     * The maximum number of messages that can be waiting to be sent on each of the gRPC streams. Once a queue is
+     * full the oldest message is dropped so that a slow or stalled server can't grow the queues without bound.
+     */
+    private static final int MAX_QUEUED_MESSAGES = 1024;
+    private static final String GRPC_QUEUE_METRICS_NAME = "grpc";
     private static final int QUEUE_PROCESSING_SLEEP_TIME = 1_000;
 
     private static ConnectionState connectionState = ConnectionState.DISCONNECTED;
@@ -112,23 +121,24 @@ public class GrpcConnectionService extends Service implements IDeviceStatusListe
     private GpsListener gpsListener;
 
     private final ScheduledExecutorService executorService;
+    private final AtomicLong droppedMessageCount = new AtomicLong();
 
-    private final ConcurrentLinkedQueue<DeviceStatus> deviceStatusQueue = new ConcurrentLinkedQueue<>();
-    private final ConcurrentLinkedQueue<GsmRecord> gsmRecordQueue = new ConcurrentLinkedQueue<>();
-    private final ConcurrentLinkedQueue<CdmaRecord> cdmaRecordQueue = new ConcurrentLinkedQueue<>();
-    private final ConcurrentLinkedQueue<UmtsRecord> umtsRecordQueue = new ConcurrentLinkedQueue<>();
-    private final ConcurrentLinkedQueue<LteRecord> lteRecordQueue = new ConcurrentLinkedQueue<>();
-    private final ConcurrentLinkedQueue<NrRecord> nrRecordQueue = new ConcurrentLinkedQueue<>();
-    private final ConcurrentLinkedQueue<WifiBeaconRecord> wifiBeaconRecordQueue = new ConcurrentLinkedQueue<>();
+    private final BlockingQueue<DeviceStatus> deviceStatusQueue = new LinkedBlockingQueue<>(MAX_QUEUED_MESSAGES);
+    private final BlockingQueue<GsmRecord> gsmRecordQueue = new LinkedBlockingQueue<>(MAX_QUEUED_MESSAGES);
+    private final BlockingQueue<CdmaRecord> cdmaRecordQueue = new LinkedBlockingQueue<>(MAX_QUEUED_MESSAGES);
+    private final BlockingQueue<UmtsRecord> umtsRecordQueue = new LinkedBlockingQueue<>(MAX_QUEUED_MESSAGES);
+    private final BlockingQueue<LteRecord> lteRecordQueue = new LinkedBlockingQueue<>(MAX_QUEUED_MESSAGES);
+    private final BlockingQueue<NrRecord> nrRecordQueue = new LinkedBlockingQueue<>(MAX_QUEUED_MESSAGES);
+    private final BlockingQueue<WifiBeaconRecord> wifiBeaconRecordQueue = new LinkedBlockingQueue<>(MAX_QUEUED_MESSAGES);
 
     private final List<IConnectionStateListener> grpcConnectionListeners = new CopyOnWriteArrayList<>();
 
     // Old connection approach, delete this when we can update all the grpc code
-    private final ConcurrentLinkedQueue<com.craxiom.networksurvey.messaging.DeviceStatus> oldDeviceStatusQueue = new ConcurrentLinkedQueue<>();
-    private final ConcurrentLinkedQueue<com.craxiom.networksurvey.messaging.GsmRecord> oldGsmRecordQueue = new ConcurrentLinkedQueue<>();
-    private final ConcurrentLinkedQueue<com.craxiom.networksurvey.messaging.CdmaRecord> oldCdmaRecordQueue = new ConcurrentLinkedQueue<>();
-    private final ConcurrentLinkedQueue<com.craxiom.networksurvey.messaging.UmtsRecord> oldUmtsRecordQueue = new ConcurrentLinkedQueue<>();
-    private final ConcurrentLinkedQueue<com.craxiom.networksurvey.messaging.LteRecord> oldLteRecordQueue = new ConcurrentLinkedQueue<>();
+    private final BlockingQueue<com.craxiom.networksurvey.messaging.DeviceStatus> oldDeviceStatusQueue = new LinkedBlockingQueue<>(MAX_QUEUED_MESSAGES);
+    private final BlockingQueue<com.craxiom.networksurvey.messaging.GsmRecord> oldGsmRecordQueue = new LinkedBlockingQueue<>(MAX_QUEUED_MESSAGES);
+    private final BlockingQueue<com.craxiom.networksurvey.messaging.CdmaRecord> oldCdmaRecordQueue = new LinkedBlockingQueue<>(MAX_QUEUED_MESSAGES);
+    private final BlockingQueue<com.craxiom.networksurvey.messaging.UmtsRecord> oldUmtsRecordQueue = new LinkedBlockingQueue<>(MAX_QUEUED_MESSAGES);
+    private final BlockingQueue<com.craxiom.networksurvey.messaging.LteRecord> oldLteRecordQueue = new LinkedBlockingQueue<>(MAX_QUEUED_MESSAGES);
     private GrpcTask<com.craxiom.networksurvey.messaging.DeviceStatus, com.craxiom.networksurvey.messaging.StatusUpdateReply> oldDeviceStatusGrpcTask;
     private GrpcTask<com.craxiom.networksurvey.messaging.GsmRecord, com.craxiom.networksurvey.messaging.GsmSurveyResponse> oldGsmRecordGrpcTask;
     private GrpcTask<com.craxiom.networksurvey.messaging.CdmaRecord, com.craxiom.networksurvey.messaging.CdmaSurveyResponse> oldCdmaRecordGrpcTask;
@@ -238,6 +248,8 @@ public class GrpcConnectionService extends Service implements IDeviceStatusListe
 
         deviceStatusReportHandler = new Handler(deviceStatusReportHandlerThread.getLooper());
 
+        PipelineMetrics.registerQueue(GRPC_QUEUE_METRICS_NAME, this::getQueuedMessageCount);
+
         // Bind to the survey service
         final Context applicationContext = getApplicationContext();
         final Intent serviceIntent = new Intent(applicationContext, NetworkSurveyService.class);
@@ -288,6 +300,8 @@ public class GrpcConnectionService extends Service implements IDeviceStatusListe
     {
         Timber.i("Destroying the Connection Service");
 
+        PipelineMetrics.unregisterQueue(GRPC_QUEUE_METRICS_NAME);
+
         if (surveyServiceConnection != null)
         {
             getApplicationContext().unbindService(surveyServiceConnection);
@@ -311,10 +325,10 @@ public class GrpcConnectionService extends Service implements IDeviceStatusListe
         {
             if (deviceStatusGrpcTask != null && deviceStatusGrpcTask.getStatus() != AsyncTask.Status.FINISHED)
             {
-                deviceStatusQueue.add(deviceStatus);
+                enqueue(deviceStatusQueue, deviceStatus);
             } else if (oldConnectionApproach && oldDeviceStatusGrpcTask != null && oldDeviceStatusGrpcTask.getStatus() != AsyncTask.Status.FINISHED)
             {
-                oldDeviceStatusQueue.add(LegacyRecordConversion.convertDeviceStatus(deviceStatus));
+                enqueue(oldDeviceStatusQueue, LegacyRecordConversion.convertDeviceStatus(deviceStatus));
             }
         }
     }
@@ -332,10 +346,10 @@ public class GrpcConnectionService extends Service implements IDeviceStatusListe
         {
             if (gsmRecordGrpcTask != null && gsmRecordGrpcTask.getStatus() != AsyncTask.Status.FINISHED)
             {
-                gsmRecordQueue.add(gsmRecord);
+                enqueue(gsmRecordQueue, gsmRecord);
             } else if (oldConnectionApproach && oldGsmRecordGrpcTask != null && oldGsmRecordGrpcTask.getStatus() != AsyncTask.Status.FINISHED)
             {
-                oldGsmRecordQueue.add(LegacyRecordConversion.convertGsmRecord(gsmRecord));
+                enqueue(oldGsmRecordQueue, LegacyRecordConversion.convertGsmRecord(gsmRecord));
             }
         }
     }
@@ -347,10 +361,10 @@ public class GrpcConnectionService extends Service implements IDeviceStatusListe
         {
             if (cdmaRecordGrpcTask != null && cdmaRecordGrpcTask.getStatus() != AsyncTask.Status.FINISHED)
             {
-                cdmaRecordQueue.add(cdmaRecord);
+                enqueue(cdmaRecordQueue, cdmaRecord);
             } else if (oldConnectionApproach && oldCdmaRecordGrpcTask != null && oldCdmaRecordGrpcTask.getStatus() != AsyncTask.Status.FINISHED)
             {
-                oldCdmaRecordQueue.add(LegacyRecordConversion.convertCdmaRecord(cdmaRecord));
+                enqueue(oldCdmaRecordQueue, LegacyRecordConversion.convertCdmaRecord(cdmaRecord));
             }
         }
     }
@@ -362,10 +376,10 @@ public class GrpcConnectionService extends Service implements IDeviceStatusListe
         {
             if (umtsRecordGrpcTask != null && umtsRecordGrpcTask.getStatus() != AsyncTask.Status.FINISHED)
             {
-                umtsRecordQueue.add(umtsRecord);
+                enqueue(umtsRecordQueue, umtsRecord);
             } else if (oldConnectionApproach && oldUmtsRecordGrpcTask != null && oldUmtsRecordGrpcTask.getStatus() != AsyncTask.Status.FINISHED)
             {
-                oldUmtsRecordQueue.add(LegacyRecordConversion.convertUmtsRecord(umtsRecord));
+                enqueue(oldUmtsRecordQueue, LegacyRecordConversion.convertUmtsRecord(umtsRecord));
             }
         }
     }
@@ -377,10 +391,10 @@ public class GrpcConnectionService extends Service implements IDeviceStatusListe
         {
             if (lteRecordGrpcTask != null && lteRecordGrpcTask.getStatus() != AsyncTask.Status.FINISHED)
             {
-                lteRecordQueue.add(lteRecord);
+                enqueue(lteRecordQueue, lteRecord);
             } else if (oldConnectionApproach && oldLteRecordGrpcTask != null && oldLteRecordGrpcTask.getStatus() != AsyncTask.Status.FINISHED)
             {
-                oldLteRecordQueue.add(LegacyRecordConversion.convertLteRecord(lteRecord));
+                enqueue(oldLteRecordQueue, LegacyRecordConversion.convertLteRecord(lteRecord));
             }
         }
     }
@@ -390,7 +404,7 @@ public class GrpcConnectionService extends Service implements IDeviceStatusListe
     {
         if (isConnected() && nrRecord != null && nrRecordGrpcTask.getStatus() != AsyncTask.Status.FINISHED)
         {
-            nrRecordQueue.add(nrRecord);
+            enqueue(nrRecordQueue, nrRecord);
         }
     }
 
@@ -399,11 +413,20 @@ public class GrpcConnectionService extends Service implements IDeviceStatusListe
     {
         if (isConnected() && wifiBeaconRecordGrpcTask != null && wifiBeaconRecordGrpcTask.getStatus() != AsyncTask.Status.FINISHED)
         {
-            wifiBeaconRecordQueue.addAll(
-                    wifiBeaconRecords.stream().map(WifiRecordWrapper::getWifiBeaconRecord).collect(Collectors.toList()));
+            for (WifiRecordWrapper wifiRecord : wifiBeaconRecords)
+            {
+                enqueue(wifiBeaconRecordQueue, wifiRecord.getWifiBeaconRecord());
+            }
         }
     }
 
+    @Override
+    public BackpressurePolicy getBackpressurePolicy()
+    {
+        // The gRPC streams already have their own queues, so there is no point in holding a large backlog here too
+        return BackpressurePolicy.dropOldest(256);
+    }
+
     /**
      * Adds an {@link IConnectionStateListener} so that it will be notified of all future connection state changes.
      *
@@ -720,6 +743,28 @@ public class GrpcConnectionService extends Service implements IDeviceStatusListe
         }, 1000L);
     }
 
+    /**
+     * @return The total number of messages waiting to be sent on all of the gRPC streams.
+     */
+    private long getQueuedMessageCount()
+    {
+        return deviceStatusQueue.size() + gsmRecordQueue.size() + cdmaRecordQueue.size() + umtsRecordQueue.size()
+                + lteRecordQueue.size() + nrRecordQueue.size() + wifiBeaconRecordQueue.size()
+                + oldDeviceStatusQueue.size() + oldGsmRecordQueue.size() + oldCdmaRecordQueue.size()
+                + oldUmtsRecordQueue.size() + oldLteRecordQueue.size();
+    }
+
+    /**
+     * Adds the message to the queue, and if the queue is full, drops the oldest message to make room for it.
+     */
+    private <T> void enqueue(BlockingQueue<T> queue, T message)
+    {
+        while (!queue.offer(message))
+        {
+            if (queue.poll() != null) droppedMessageCount.incrementAndGet();
+        }
+    }
+
     /**
      * Generate a device status message that can be sent to any remote servers.
      *
@@ -758,6 +803,12 @@ public class GrpcConnectionService extends Service implements IDeviceStatusListe
             dataBuilder.setBatteryLevelPercent(Int32Value.of((int) batteryPercent));
         }
 
+        final long droppedMessages = droppedMessageCount.get();
+        if (droppedMessages > 0)
+        {
+            dataBuilder.getErrorBuilder().setErrorMessage("gRPC messages dropped because the server fell behind: " + droppedMessages);
+        }
+
         final DeviceStatus.Builder statusBuilder = DeviceStatus.newBuilder();
         statusBuilder.setMessageType(DeviceStatusMessageConstants.DEVICE_STATUS_MESSAGE_TYPE);
         statusBuilder.setVersion(BuildConfig.MESSAGING_API_VERSION);
@@ -940,12 +991,12 @@ public class GrpcConnectionService extends Service implements IDeviceStatusListe
     private class GrpcTask<MessageType, Reply> extends AsyncTask<Void, Void, Boolean>
     {
         private final WeakReference<GrpcConnectionService> serviceWeakReference;
-        private final ConcurrentLinkedQueue<MessageType> messageQueue;
+        private final Queue<MessageType> messageQueue;
         private final Function<StreamObserver<Reply>, StreamObserver<MessageType>> asyncStubCall;
 
         private Throwable failed;
 
-        private GrpcTask(GrpcConnectionService serviceWeakReference, ConcurrentLinkedQueue<MessageType> queue,
+        private GrpcTask(GrpcConnectionService serviceWeakReference, Queue<MessageType> queue,
                          Function<StreamObserver<Reply>, StreamObserver<MessageType>> asyncStubCall)
         {
             this.serviceWeakReference = new WeakReference<>(serviceWeakReference);
@@ -1013,7 +1064,9 @@ public class GrpcConnectionService extends Service implements IDeviceStatusListe
 
                         Timber.v("Sending a message to the remote gRPC server: %s", nextMessageToSend);
 
+                        final long sendStartNanos = PipelineMetrics.now();
                         outgoingMessageStream.onNext(nextMessageToSend);
+                        PipelineMetrics.recordSince(PipelineMetrics.Stage.GRPC_SEND, sendStartNanos);
                     }
                 } catch (InterruptedException ignore)
                 {
@@ -71,6 +71,11 @@ import com.craxiom.networksurvey.listeners.ILoggingChangeListener;
 import com.craxiom.networksurvey.listeners.IWifiSurveyRecordListener;
 import com.craxiom.networksurvey.logging.CdrLogger;
 import com.craxiom.networksurvey.logging.DeviceStatusCsvLogger;
+import com.craxiom.networksurvey.logging.LogStorageManager;
+import com.craxiom.networksurvey.logging.PipelineMetricsCsvLogger;
+import com.craxiom.networksurvey.logging.SharedGeoPackageSession;
+import com.craxiom.networksurvey.logging.SurveyRecordLogger;
+import com.craxiom.networksurvey.model.BackpressureStats;
 import com.craxiom.networksurvey.model.CdrEventType;
 import com.craxiom.networksurvey.model.LogTypeState;
 import com.craxiom.networksurvey.mqtt.MqttConnection;
@@ -86,12 +91,12 @@ import com.google.protobuf.BoolValue;
 import com.google.protobuf.Int32Value;
 
 import java.time.ZonedDateTime;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -125,7 +130,7 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
 
     private SurveyServiceBinder surveyServiceBinder;
     private final Handler uiThreadHandler;
-    private final ExecutorService executorService;
+    private final SurveyLanes surveyLanes;
 
     private volatile int deviceStatusScanRateMs;
 
@@ -133,6 +138,16 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
     private WifiController wifiController;
     private BluetoothController bluetoothController;
     private GnssController gnssController;
+
+    /**
+     * The GeoPackage file that all the survey loggers share, or null if each logger has its own file.
+     */
+    private SharedGeoPackageSession sharedGeoPackageSession;
+
+    /**
+     * Keeps track of the storage used by all the log files, and enforces the storage limits.
+     */
+    private LogStorageManager logStorageManager;
     private String deviceId;
     private String myPhoneNumber = "";
     private SurveyRecordProcessor surveyRecordProcessor;
@@ -142,6 +157,7 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
 
     private CdrLogger cdrLogger;
     private DeviceStatusCsvLogger deviceStatusCsvLogger;
+    private PipelineMetricsCsvLogger pipelineMetricsCsvLogger;
     private Looper serviceLooper;
     private Handler serviceHandler;
     private MqttConnection mqttConnection;
@@ -161,7 +177,7 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
         surveyServiceBinder = new SurveyServiceBinder(this);
         uiThreadHandler = new Handler(Looper.getMainLooper());
 
-        executorService = Executors.newFixedThreadPool(8);
+        surveyLanes = new SurveyLanes();
     }
 
     @Override
@@ -180,19 +196,31 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
         serviceHandler = new Handler(serviceLooper);
 
         deviceId = createDeviceId();
-        cdrLogger = new CdrLogger(this, serviceLooper);
-        deviceStatusCsvLogger = new DeviceStatusCsvLogger(this, serviceLooper);
+
+        // Has to be created before any of the loggers so that it hears about every new log file
+        logStorageManager = new LogStorageManager(context);
+        logStorageManager.start();
+
+        cdrLogger = new CdrLogger(this);
+        deviceStatusCsvLogger = new DeviceStatusCsvLogger(this);
+        pipelineMetricsCsvLogger = new PipelineMetricsCsvLogger(this);
 
         primaryLocationListener = new GpsListener();
         gnssLocationListener = new ExtraLocationListener(LocationManager.GPS_PROVIDER);
         networkLocationListener = new ExtraLocationListener(LocationManager.NETWORK_PROVIDER);
 
-        surveyRecordProcessor = new SurveyRecordProcessor(primaryLocationListener, deviceId, context, executorService);
+        surveyRecordProcessor = new SurveyRecordProcessor(primaryLocationListener, deviceId, context, surveyLanes);
+
+        // Has to be created before the controllers so that their loggers can register with it
+        if (PreferenceUtils.getUnifiedGeoPackagePreference(context))
+        {
+            sharedGeoPackageSession = new SharedGeoPackageSession(context, logStorageManager);
+        }
 
-        cellularController = new CellularController(this, executorService, serviceLooper, serviceHandler, surveyRecordProcessor);
-        wifiController = new WifiController(this, executorService, serviceLooper, serviceHandler, surveyRecordProcessor, uiThreadHandler);
-        bluetoothController = new BluetoothController(this, executorService, serviceLooper, serviceHandler, surveyRecordProcessor, uiThreadHandler);
-        gnssController = new GnssController(this, executorService, serviceLooper, serviceHandler, surveyRecordProcessor);
+        cellularController = new CellularController(this, surveyLanes.get(SurveyLanes.Lane.CELLULAR), serviceHandler, surveyRecordProcessor);
+        wifiController = new WifiController(this, surveyLanes.get(SurveyLanes.Lane.WIFI), serviceHandler, surveyRecordProcessor, uiThreadHandler);
+        bluetoothController = new BluetoothController(this, surveyLanes.get(SurveyLanes.Lane.BLUETOOTH), serviceHandler, surveyRecordProcessor, uiThreadHandler);
+        gnssController = new GnssController(this, surveyLanes.get(SurveyLanes.Lane.GNSS), serviceHandler, surveyRecordProcessor);
 
         setScanRateValues();
         readMdmOverridePreference();
@@ -282,15 +310,21 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
         removeLocationListener();
         stopDeviceStatusReport();
         stopAllLogging();
+        if (surveyRecordProcessor != null) surveyRecordProcessor.onDestroy();
 
         serviceLooper.quitSafely();
         shutdownNotifications();
-        executorService.shutdown();
+        surveyLanes.shutdown();
 
         cellularController.onDestroy();
         wifiController.onDestroy();
         bluetoothController.onDestroy();
         gnssController.onDestroy();
+        cdrLogger.onDestroy();
+        deviceStatusCsvLogger.onDestroy();
+        pipelineMetricsCsvLogger.onDestroy();
+        if (sharedGeoPackageSession != null) sharedGeoPackageSession.onDestroy();
+        logStorageManager.onDestroy();
 
         surveyServiceBinder.onDestroy();
         surveyServiceBinder = null;
@@ -306,6 +340,11 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
         switch (key)
         {
             case NetworkSurveyConstants.PROPERTY_LOG_ROLLOVER_SIZE_MB:
+            case NetworkSurveyConstants.PROPERTY_HIGH_THROUGHPUT_LOGGING:
+            case NetworkSurveyConstants.PROPERTY_INDEX_LOG_FILES:
+            case NetworkSurveyConstants.PROPERTY_COMPACT_GEOPACKAGE_SCHEMA:
+            case NetworkSurveyConstants.PROPERTY_MERGE_LOG_FILES:
+            case NetworkSurveyConstants.PROPERTY_COMPRESS_CSV_LOG_FILES:
                 cellularController.onRolloverPreferenceChanged();
                 wifiController.onRolloverPreferenceChanged();
                 bluetoothController.onRolloverPreferenceChanged();
@@ -313,6 +352,7 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
 
                 cdrLogger.onSharedPreferenceChanged();
                 deviceStatusCsvLogger.onSharedPreferenceChanged();
+                pipelineMetricsCsvLogger.onSharedPreferenceChanged();
                 break;
             case NetworkSurveyConstants.PROPERTY_CELLULAR_SCAN_INTERVAL_SECONDS:
             case NetworkSurveyConstants.PROPERTY_WIFI_SCAN_INTERVAL_SECONDS:
@@ -321,6 +361,10 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
             case NetworkSurveyConstants.PROPERTY_DEVICE_STATUS_SCAN_INTERVAL_SECONDS:
                 setScanRateValues();
                 break;
+            case NetworkSurveyConstants.PROPERTY_LOG_STORAGE_QUOTA_MB:
+            case NetworkSurveyConstants.PROPERTY_LOG_RETENTION_DAYS:
+                logStorageManager.onPreferencesChanged();
+                break;
             case NetworkSurveyConstants.PROPERTY_MDM_OVERRIDE_KEY:
                 readMdmOverridePreference();
                 break;
@@ -398,6 +442,13 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
         mqttConnection.connect(getApplicationContext(), connectionInfo);
         MqttConnectionInfo networkSurveyConnection = (MqttConnectionInfo) connectionInfo;
 
+        // Set the device name to the user entered value in the MQTT connection UI (or the value provided via MDM),
+        // but only in the records that are sent to the broker
+        if (surveyRecordProcessor != null)
+        {
+            surveyRecordProcessor.setDeviceNameOverride(mqttConnection, networkSurveyConnection.getMqttClientId());
+        }
+
         // Saving the MQTT protocol streaming flags here allows the Dashboard UI to get notified
         // of the updates since otherwise MDM specified flags won't get propagated to the Dashboard
         PreferenceUtils.saveMqttStreamFlags(networkSurveyConnection, getApplicationContext());
@@ -441,6 +492,7 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
         unregisterBluetoothSurveyRecordListener(mqttConnection);
         unregisterGnssSurveyRecordListener(mqttConnection);
         unregisterDeviceStatusListener(mqttConnection);
+        if (surveyRecordProcessor != null) surveyRecordProcessor.setDeviceNameOverride(mqttConnection, null);
     }
 
     /**
@@ -482,6 +534,28 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
         }
     }
 
+    /**
+     * @return A snapshot of how each of the survey record listeners is keeping up with the records,
+     * including the number of records it has missed because of its backpressure policy.
+     * @since 1.25.0
+     */
+    public List<BackpressureStats> getBackpressureStats()
+    {
+        if (surveyRecordProcessor == null) return Collections.emptyList();
+
+        return surveyRecordProcessor.getBackpressureStats();
+    }
+
+    /**
+     * @return The number of scan results that were dropped because the survey lane for them stayed
+     * full, for each lane that has dropped any.
+     * @since 1.25.0
+     */
+    public Map<SurveyLanes.Lane, Long> getRejectedScanCounts()
+    {
+        return surveyLanes.getRejectedCounts();
+    }
+
     /**
      * @return The current connection state to the MQTT Broker.
      * @since 0.1.1
@@ -526,6 +600,25 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
         return deviceId;
     }
 
+    /**
+     * @return The GeoPackage file that all the survey loggers share, or null if the unified GeoPackage
+     * file preference was not enabled when this service was created.
+     * @since 1.25.0
+     */
+    public SharedGeoPackageSession getSharedGeoPackageSession()
+    {
+        return sharedGeoPackageSession;
+    }
+
+    /**
+     * @return The manager that tracks the storage used by all the survey log files.
+     * @since 1.25.0
+     */
+    public LogStorageManager getLogStorageManager()
+    {
+        return logStorageManager;
+    }
+
     /**
      * Registers a new listener for changes to the location information.
      *
@@ -1001,6 +1094,27 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
         return cdrLoggingEnabled.get();
     }
 
+    /**
+     * Converts the survey CSV log files into a single new GeoPackage file. This is refused while any
+     * logging is on so that a CSV file that is still being written is never read.
+     * <p>
+     * This reads every CSV file, so it must not be called from the UI thread.
+     *
+     * @return The number of records that were converted, or -1 if logging is on or the conversion failed.
+     * @since 1.25.0
+     */
+    public long importCsvLogFiles()
+    {
+        if (cellularController.isLoggingEnabled() || wifiController.isLoggingEnabled() || bluetoothController.isLoggingEnabled()
+                || gnssController.isLoggingEnabled() || cdrLoggingEnabled.get())
+        {
+            Timber.w("Not converting the CSV log files because logging is on");
+            return -1;
+        }
+
+        return SurveyRecordLogger.importCsvLogFiles(getApplicationContext(), logStorageManager);
+    }
+
     public int getWifiScanRateMs()
     {
         return wifiController.getScanRateMs();
@@ -1438,6 +1552,7 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
             {
                 deviceStatusCsvLogger.enableLogging(true);
                 surveyRecordProcessor.registerDeviceStatusListener(deviceStatusCsvLogger);
+                pipelineMetricsCsvLogger.enableLogging(true);
             }
             startDeviceStatusReport();
         }
@@ -1470,6 +1585,8 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
                     }
 
                     surveyRecordProcessor.onDeviceStatus(generateDeviceStatus());
+                    // The pipeline metrics are logged alongside the device status CSV file, at the same rate
+                    pipelineMetricsCsvLogger.writeSnapshot(PipelineMetrics.snapshot());
 
                     serviceHandler.postDelayed(this, deviceStatusScanRateMs);
                 } catch (SecurityException e)
@@ -1485,10 +1602,10 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
     /**
      * Generate a device status message that can be sent to any remote servers.
      *
-     * @return A Device Status message that can be sent to a remote server.
+     * @return The builder for a Device Status message that can be sent to a remote server.
      * @since 1.1.0
      */
-    private DeviceStatus generateDeviceStatus()
+    private DeviceStatus.Builder generateDeviceStatus()
     {
         final DeviceStatusData.Builder dataBuilder = DeviceStatusData.newBuilder();
         dataBuilder.setDeviceSerialNumber(deviceId)
@@ -1556,7 +1673,7 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
         statusBuilder.setVersion(BuildConfig.MESSAGING_API_VERSION);
         statusBuilder.setData(dataBuilder);
 
-        return statusBuilder.build();
+        return statusBuilder;
     }
 
     /**
@@ -1576,6 +1693,7 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
         {
             surveyRecordProcessor.unregisterDeviceStatusListener(deviceStatusCsvLogger);
             deviceStatusCsvLogger.enableLogging(false);
+            pipelineMetricsCsvLogger.enableLogging(false);
 
             // Need to check the survey record processor because MQTT could be using the device status message
             if (!surveyRecordProcessor.isDeviceStatusBeingUsed()) stopDeviceStatusReport();
@@ -1751,6 +1869,7 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
         gnssController.stopAllLogging();
         if (cdrLogger != null) cdrLogger.enableLogging(false);
         if (deviceStatusCsvLogger != null) deviceStatusCsvLogger.enableLogging(false);
+        if (pipelineMetricsCsvLogger != null) pipelineMetricsCsvLogger.enableLogging(false);
     }
 
     /**
@@ -1786,6 +1905,8 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
 
                 cdrLogger.onMdmPreferenceChanged();
                 deviceStatusCsvLogger.onMdmPreferenceChanged();
+                pipelineMetricsCsvLogger.onMdmPreferenceChanged();
+                logStorageManager.onPreferencesChanged();
             }
         };
 
@@ -1988,7 +2109,7 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
     {
         try
         {
-            executorService.execute(runnable);
+            surveyLanes.get(SurveyLanes.Lane.GENERAL).execute(runnable);
         } catch (Throwable t)
         {
             Timber.w(t, "Could not submit to the executor service");
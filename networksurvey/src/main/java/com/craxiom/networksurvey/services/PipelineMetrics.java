@@ -0,0 +1,240 @@
+package com.craxiom.networksurvey.services;
+
+import com.craxiom.networksurvey.util.LatencyHistogram;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Measures where the time goes as a survey record makes its way from the scan request to the log files
+ * and remote servers.
+ * <p>
+ * Each {@link Stage} of the pipeline has a {@link LatencyHistogram} that is cheap enough to record to
+ * on every record, plus the queues and throughput counters register themselves by name so that their
+ * current values can be read when a {@link Snapshot} is taken. The snapshots are shown on the
+ * diagnostics screen and periodically written out by the
+ * {@link com.craxiom.networksurvey.logging.PipelineMetricsCsvLogger}.
+ * <p>
+ * All the methods in this class are thread safe.
+ *
+ * @since 1.25.0
+ */
+public final class PipelineMetrics
+{
+    /**
+     * The stages of the survey record pipeline, in the order a record passes through them.
+     */
+    public enum Stage
+    {
+        /**
+         * From requesting a cell info update from the Telephony Manager to the callback firing.
+         */
+        CELLULAR_SCAN("cellular_scan"),
+        /**
+         * From a scan result being handed to the {@link SurveyRecordProcessor} to the survey records
+         * being published to the listeners.
+         */
+        RECORD_GENERATION("record_generation"),
+        /**
+         * From a record being published to a listener being handed the record.
+         */
+        DISPATCH("dispatch"),
+        /**
+         * From a record being queued for a GeoPackage log file to the transaction containing it being
+         * committed.
+         */
+        LOG_COMMIT("log_commit"),
+        /**
+         * The time it takes to hand a record to the MQTT client.
+         */
+        MQTT_PUBLISH("mqtt_publish"),
+        /**
+         * The time it takes to write a record to a gRPC stream.
+         */
+        GRPC_SEND("grpc_send");
+
+        public final String key;
+
+        Stage(String key)
+        {
+            this.key = key;
+        }
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+    private static final LatencyHistogram[] HISTOGRAMS = new LatencyHistogram[STAGES.length];
+
+    static
+    {
+        for (int i = 0; i < HISTOGRAMS.length; i++)
+        {
+            HISTOGRAMS[i] = new LatencyHistogram();
+        }
+    }
+
+    private static final Map<String, LongSupplier> queueDepths = new ConcurrentSkipListMap<>();
+    private static final Map<String, LongSupplier> counters = new ConcurrentSkipListMap<>();
+
+    private PipelineMetrics()
+    {
+    }
+
+    /**
+     * @return The current time to use as the start of a stage, in the same time base as
+     * {@link #recordSince(Stage, long)}.
+     */
+    public static long now()
+    {
+        return System.nanoTime();
+    }
+
+    /**
+     * Records how long a stage took.
+     *
+     * @param stage      The stage of the pipeline.
+     * @param startNanos The time the stage started, from {@link #now()}.
+     */
+    public static void recordSince(Stage stage, long startNanos)
+    {
+        HISTOGRAMS[stage.ordinal()].recordNanos(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Adds a queue whose depth should be included in the snapshots, replacing any queue that is
+     * already registered with the same name.
+     *
+     * @param name  The name to show for the queue.
+     * @param depth Returns the number of items waiting in the queue.
+     */
+    public static void registerQueue(String name, LongSupplier depth)
+    {
+        queueDepths.put(name, depth);
+    }
+
+    /**
+     * Removes a queue that was added with {@link #registerQueue(String, LongSupplier)}.
+     */
+    public static void unregisterQueue(String name)
+    {
+        queueDepths.remove(name);
+    }
+
+    /**
+     * Adds a counter that only ever goes up (e.g. the number of records published) to the snapshots,
+     * so that the rate can be calculated between two snapshots.
+     *
+     * @param name  The name to show for the counter.
+     * @param count Returns the current value of the counter.
+     */
+    public static void registerCounter(String name, LongSupplier count)
+    {
+        counters.put(name, count);
+    }
+
+    /**
+     * Removes a counter that was added with {@link #registerCounter(String, LongSupplier)}.
+     */
+    public static void unregisterCounter(String name)
+    {
+        counters.remove(name);
+    }
+
+    /**
+     * @return The current state of all the histograms, queues, and counters.
+     */
+    public static Snapshot snapshot()
+    {
+        final LatencyHistogram.Snapshot[] stages = new LatencyHistogram.Snapshot[HISTOGRAMS.length];
+        for (int i = 0; i < HISTOGRAMS.length; i++)
+        {
+            stages[i] = HISTOGRAMS[i].snapshot();
+        }
+
+        return new Snapshot(System.nanoTime(), stages, readAll(queueDepths), readAll(counters));
+    }
+
+    private static Map<String, Long> readAll(Map<String, LongSupplier> suppliers)
+    {
+        final Map<String, Long> values = new LinkedHashMap<>();
+        for (Map.Entry<String, LongSupplier> entry : suppliers.entrySet())
+        {
+            values.put(entry.getKey(), entry.getValue().getAsLong());
+        }
+        return Collections.unmodifiableMap(values);
+    }
+
+    /**
+     * The state of the pipeline metrics at a point in time. The histograms and counters are
+     * cumulative, so two snapshots are needed to look at a window of time.
+     */
+    public static final class Snapshot
+    {
+        /**
+         * The time this snapshot was taken, from {@link #now()}.
+         */
+        public final long timeNanos;
+        private final LatencyHistogram.Snapshot[] stages;
+
+        /**
+         * The current depth of each registered queue, sorted by name.
+         */
+        public final Map<String, Long> queueDepths;
+
+        /**
+         * The current value of each registered counter, sorted by name.
+         */
+        public final Map<String, Long> counters;
+
+        private Snapshot(long timeNanos, LatencyHistogram.Snapshot[] stages, Map<String, Long> queueDepths, Map<String, Long> counters)
+        {
+            this.timeNanos = timeNanos;
+            this.stages = stages;
+            this.queueDepths = queueDepths;
+            this.counters = counters;
+        }
+
+        /**
+         * @return The latencies recorded for the stage.
+         */
+        public LatencyHistogram.Snapshot getStage(Stage stage)
+        {
+            return stages[stage.ordinal()];
+        }
+
+        /**
+         * @param earlier A snapshot taken before this one.
+         * @return The latencies recorded for the stage between the two snapshots.
+         */
+        public LatencyHistogram.Snapshot getStageSince(Stage stage, Snapshot earlier)
+        {
+            return earlier == null ? getStage(stage) : getStage(stage).since(earlier.getStage(stage));
+        }
+
+        /**
+         * @param earlier A snapshot taken before this one.
+         * @return The number of seconds between the two snapshots, or 0 if there is no earlier snapshot.
+         */
+        public double getSecondsSince(Snapshot earlier)
+        {
+            return earlier == null ? 0 : (timeNanos - earlier.timeNanos) / 1_000_000_000d;
+        }
+
+        /**
+         * @param earlier A snapshot taken before this one.
+         * @return The rate per second that the counter went up between the two snapshots, or 0 if the
+         * counter is not in both snapshots.
+         */
+        public double getCounterRate(String name, Snapshot earlier)
+        {
+            final double seconds = getSecondsSince(earlier);
+            final Long current = counters.get(name);
+            final Long previous = earlier == null ? null : earlier.counters.get(name);
+            if (seconds <= 0 || current == null || previous == null) return 0;
+
+            return Math.max(0, current - previous) / seconds;
+        }
+    }
+}
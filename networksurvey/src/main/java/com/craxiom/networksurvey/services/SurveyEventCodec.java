@@ -0,0 +1,258 @@
+package com.craxiom.networksurvey.services;
+
+import com.craxiom.messaging.BluetoothRecord;
+import com.craxiom.messaging.CdmaRecord;
+import com.craxiom.messaging.DeviceStatus;
+import com.craxiom.messaging.GnssRecord;
+import com.craxiom.messaging.GsmRecord;
+import com.craxiom.messaging.LteRecord;
+import com.craxiom.messaging.NrRecord;
+import com.craxiom.messaging.PhoneState;
+import com.craxiom.messaging.UmtsRecord;
+import com.craxiom.messaging.WifiBeaconRecord;
+import com.craxiom.networksurvey.model.CellularProtocol;
+import com.craxiom.networksurvey.model.CellularRecordWrapper;
+import com.craxiom.networksurvey.model.NrRecordWrapper;
+import com.craxiom.networksurvey.model.RecordTimestamp;
+import com.craxiom.networksurvey.model.WifiRecordWrapper;
+import com.google.protobuf.GeneratedMessageV3;
+import com.google.protobuf.MessageLite;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import timber.log.Timber;
+
+/**
+ * Encodes the events that are dispatched by the {@link SurveyRecordProcessor} so that they can be
+ * spilled to disk for the listeners that fall behind.
+ * <p>
+ * The records are encoded in their protobuf wire format, along with the event type, the scan
+ * timestamp, and the other event fields. The CDR events are not protobuf messages, so they can't be
+ * spilled.
+ *
+ * @since 1.25.0
+ */
+final class SurveyEventCodec implements SurveyRecordDispatcher.EventCodec
+{
+    static final SurveyEventCodec INSTANCE = new SurveyEventCodec();
+
+    private SurveyEventCodec()
+    {
+    }
+
+    @Override
+    public byte[] encode(SurveyRecordDispatcher.Event event)
+    {
+        if (event.type == SurveyRecordDispatcher.EventType.CDR_EVENT) return null;
+
+        try
+        {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+            final DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(event.type.ordinal());
+            out.writeBoolean(event.timestamp != null);
+            if (event.timestamp != null)
+            {
+                out.writeLong(event.timestamp.getEpochMillis());
+                out.writeLong(event.timestamp.getElapsedRealtimeNanos());
+            }
+            out.writeInt(event.subscriptionId);
+            out.writeLong(event.publishedNanos);
+
+            switch (event.type)
+            {
+                case CELLULAR_BATCH:
+                    final List<?> cellularRecords = (List<?>) event.record;
+                    out.writeInt(cellularRecords.size());
+                    for (Object item : cellularRecords)
+                    {
+                        final CellularRecordWrapper wrapper = (CellularRecordWrapper) item;
+                        out.writeByte(wrapper.cellularProtocol.ordinal());
+                        writeMessage(out, wrapper.cellularRecord);
+                        final int[] bands = wrapper instanceof NrRecordWrapper ? ((NrRecordWrapper) wrapper).bands : null;
+                        out.writeInt(bands == null ? -1 : bands.length);
+                        if (bands != null)
+                        {
+                            for (int band : bands) out.writeInt(band);
+                        }
+                    }
+                    break;
+                case NETWORK_TYPE:
+                    writeString(out, event.dataNetworkType);
+                    writeString(out, event.voiceNetworkType);
+                    writeString(out, event.overrideNetworkType);
+                    break;
+                case WIFI_BEACON_RECORDS:
+                    final List<?> wifiRecords = (List<?>) event.record;
+                    out.writeInt(wifiRecords.size());
+                    for (Object item : wifiRecords)
+                    {
+                        final WifiRecordWrapper wrapper = (WifiRecordWrapper) item;
+                        writeMessage(out, wrapper.getWifiBeaconRecord());
+                        writeString(out, wrapper.getCapabilitiesString());
+                    }
+                    break;
+                case BLUETOOTH_RECORDS:
+                    final List<?> bluetoothRecords = (List<?>) event.record;
+                    out.writeInt(bluetoothRecords.size());
+                    for (Object item : bluetoothRecords)
+                    {
+                        writeMessage(out, (MessageLite) item);
+                    }
+                    break;
+                default:
+                    writeMessage(out, (MessageLite) event.record);
+                    break;
+            }
+
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException | ClassCastException e)
+        {
+            Timber.w(e, "Could not encode a %s event", event.type);
+            return null;
+        }
+    }
+
+    @Override
+    public void decode(byte[] encodedEvent, SurveyRecordDispatcher.Event event) throws IOException
+    {
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(encodedEvent));
+        event.type = SurveyRecordDispatcher.EventType.values()[in.readUnsignedByte()];
+        event.timestamp = in.readBoolean() ? new RecordTimestamp(in.readLong(), in.readLong()) : null;
+        event.subscriptionId = in.readInt();
+        event.publishedNanos = in.readLong();
+        event.dataNetworkType = null;
+        event.voiceNetworkType = null;
+        event.overrideNetworkType = null;
+
+        switch (event.type)
+        {
+            case GSM_RECORD:
+                event.record = GsmRecord.parseFrom(readBytes(in));
+                break;
+            case CDMA_RECORD:
+                event.record = CdmaRecord.parseFrom(readBytes(in));
+                break;
+            case UMTS_RECORD:
+                event.record = UmtsRecord.parseFrom(readBytes(in));
+                break;
+            case LTE_RECORD:
+                event.record = LteRecord.parseFrom(readBytes(in));
+                break;
+            case NR_RECORD:
+                event.record = NrRecord.parseFrom(readBytes(in));
+                break;
+            case CELLULAR_BATCH:
+                final int cellularCount = in.readInt();
+                final List<CellularRecordWrapper> cellularRecords = new ArrayList<>(cellularCount);
+                for (int i = 0; i < cellularCount; i++)
+                {
+                    final CellularProtocol protocol = CellularProtocol.values()[in.readUnsignedByte()];
+                    final byte[] recordBytes = readBytes(in);
+                    final int bandCount = in.readInt();
+                    final int[] bands = bandCount < 0 ? null : new int[bandCount];
+                    for (int j = 0; j < bandCount; j++) bands[j] = in.readInt();
+
+                    if (protocol == CellularProtocol.NR)
+                    {
+                        cellularRecords.add(new NrRecordWrapper(NrRecord.parseFrom(recordBytes), bands));
+                    } else
+                    {
+                        cellularRecords.add(new CellularRecordWrapper(protocol, parseCellularRecord(protocol, recordBytes)));
+                    }
+                }
+                event.record = cellularRecords;
+                break;
+            case NETWORK_TYPE:
+                event.record = null;
+                event.dataNetworkType = readString(in);
+                event.voiceNetworkType = readString(in);
+                event.overrideNetworkType = readString(in);
+                break;
+            case WIFI_BEACON_RECORDS:
+                final int wifiCount = in.readInt();
+                final List<WifiRecordWrapper> wifiRecords = new ArrayList<>(wifiCount);
+                for (int i = 0; i < wifiCount; i++)
+                {
+                    final WifiBeaconRecord record = WifiBeaconRecord.parseFrom(readBytes(in));
+                    wifiRecords.add(new WifiRecordWrapper(record, readString(in)));
+                }
+                event.record = wifiRecords;
+                break;
+            case BLUETOOTH_RECORD:
+                event.record = BluetoothRecord.parseFrom(readBytes(in));
+                break;
+            case BLUETOOTH_RECORDS:
+                final int bluetoothCount = in.readInt();
+                final List<BluetoothRecord> bluetoothRecords = new ArrayList<>(bluetoothCount);
+                for (int i = 0; i < bluetoothCount; i++)
+                {
+                    bluetoothRecords.add(BluetoothRecord.parseFrom(readBytes(in)));
+                }
+                event.record = bluetoothRecords;
+                break;
+            case GNSS_RECORD:
+                event.record = GnssRecord.parseFrom(readBytes(in));
+                break;
+            case DEVICE_STATUS:
+                event.record = DeviceStatus.parseFrom(readBytes(in));
+                break;
+            case PHONE_STATE:
+                event.record = PhoneState.parseFrom(readBytes(in));
+                break;
+            default:
+                throw new IOException("Unexpected spilled event type " + event.type);
+        }
+    }
+
+    private static GeneratedMessageV3 parseCellularRecord(CellularProtocol protocol, byte[] recordBytes) throws IOException
+    {
+        switch (protocol)
+        {
+            case GSM:
+                return GsmRecord.parseFrom(recordBytes);
+            case CDMA:
+                return CdmaRecord.parseFrom(recordBytes);
+            case UMTS:
+                return UmtsRecord.parseFrom(recordBytes);
+            case LTE:
+                return LteRecord.parseFrom(recordBytes);
+            case NR:
+                return NrRecord.parseFrom(recordBytes);
+            default:
+                throw new IOException("Unexpected cellular protocol " + protocol);
+        }
+    }
+
+    private static void writeMessage(DataOutputStream out, MessageLite message) throws IOException
+    {
+        final byte[] messageBytes = message.toByteArray();
+        out.writeInt(messageBytes.length);
+        out.write(messageBytes);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException
+    {
+        final byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException
+    {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeUTF(value);
+    }
+
+    private static String readString(DataInputStream in) throws IOException
+    {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,160 @@
+package com.craxiom.networksurvey.services;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import timber.log.Timber;
+
+/**
+ * A first in, first out queue of encoded events that is backed by a file, which is used to hold the
+ * events that a listener with the {@link com.craxiom.networksurvey.listeners.BackpressurePolicy.Mode#SPILL_TO_DISK}
+ * policy has fallen too far behind on.
+ * <p>
+ * Each entry is a 4 byte length followed by the encoded event. Entries are appended to the end of the
+ * file and read from the front, and once every entry has been read the file is truncated back to
+ * empty so it only grows while the listener is behind.
+ * <p>
+ * This class is thread safe.
+ *
+ * @since 1.25.0
+ */
+final class SurveyEventSpill
+{
+    private final File file;
+    private final long maxBytes;
+    private RandomAccessFile randomAccessFile;
+    private long readOffset;
+    private long writeOffset;
+    private volatile int size;
+    private boolean closed;
+
+    /**
+     * @param file     The file to spill the events to. Any existing content is discarded.
+     * @param maxBytes The maximum size that the file can grow to.
+     */
+    SurveyEventSpill(File file, long maxBytes)
+    {
+        this.file = file;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return The number of events in the spill.
+     */
+    int size()
+    {
+        return size;
+    }
+
+    /**
+     * Adds an event to the end of the spill.
+     *
+     * @return False if the event could not be added because the spill is full or closed, or the file
+     * could not be written.
+     */
+    synchronized boolean append(byte[] encodedEvent)
+    {
+        if (closed || writeOffset + 4 + encodedEvent.length > maxBytes) return false;
+
+        try
+        {
+            if (randomAccessFile == null)
+            {
+                randomAccessFile = new RandomAccessFile(file, "rw");
+                randomAccessFile.setLength(0);
+            }
+
+            final byte[] entry = new byte[4 + encodedEvent.length];
+            final int length = encodedEvent.length;
+            entry[0] = (byte) (length >>> 24);
+            entry[1] = (byte) (length >>> 16);
+            entry[2] = (byte) (length >>> 8);
+            entry[3] = (byte) length;
+            System.arraycopy(encodedEvent, 0, entry, 4, length);
+
+            randomAccessFile.seek(writeOffset);
+            randomAccessFile.write(entry);
+            writeOffset += entry.length;
+            size++;
+            return true;
+        } catch (IOException e)
+        {
+            Timber.e(e, "Could not spill an event to %s", file);
+            return false;
+        }
+    }
+
+    /**
+     * Removes the event at the front of the spill.
+     *
+     * @return The encoded event, or null if the spill is empty or the file could not be read.
+     */
+    synchronized byte[] poll()
+    {
+        if (size == 0) return null;
+
+        try
+        {
+            randomAccessFile.seek(readOffset);
+            final byte[] encodedEvent = new byte[randomAccessFile.readInt()];
+            randomAccessFile.readFully(encodedEvent);
+            readOffset += 4 + encodedEvent.length;
+            size--;
+
+            if (size == 0)
+            {
+                randomAccessFile.setLength(0);
+                readOffset = 0;
+                writeOffset = 0;
+            }
+
+            return encodedEvent;
+        } catch (IOException e)
+        {
+            Timber.e(e, "Could not read a spilled event from %s, discarding the rest of the spill", file);
+            clear();
+            return null;
+        }
+    }
+
+    /**
+     * Discards all the events and deletes the file.
+     *
+     * @return The number of events that were discarded.
+     */
+    synchronized int close()
+    {
+        closed = true;
+        final int discarded = size;
+        clear();
+        if (randomAccessFile != null)
+        {
+            try
+            {
+                randomAccessFile.close();
+            } catch (IOException e)
+            {
+                Timber.w(e, "Could not close the spill file %s", file);
+            }
+            randomAccessFile = null;
+        }
+        if (file.exists() && !file.delete()) Timber.w("Could not delete the spill file %s", file);
+
+        return discarded;
+    }
+
+    private void clear()
+    {
+        size = 0;
+        readOffset = 0;
+        writeOffset = 0;
+        try
+        {
+            if (randomAccessFile != null) randomAccessFile.setLength(0);
+        } catch (IOException e)
+        {
+            Timber.w(e, "Could not truncate the spill file %s", file);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.craxiom.networksurvey.services;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import timber.log.Timber;
+
+/**
+ * The executors that the survey scan results are processed on, one per survey type.
+ * <p>
+ * Each {@link Lane} is a single thread, so the results for a survey type are processed (and the
+ * records reach the listeners) in the same order the scans came in, and the record and group numbers
+ * for that survey type are only ever touched by one thread at a time. A slow Bluetooth scan can't
+ * hold up the cellular records, and a burst of Wi-Fi results doesn't have to compete with the GNSS
+ * measurements for a spot in a shared pool.
+ * <p>
+ * The queue in front of each lane is bounded so that a stuck lane can't use up all the memory. If a
+ * lane's queue is full, the caller waits up to {@link #REJECTED_WAIT_MS} for room. The task is only
+ * dropped and counted if the lane is still full after that. The depth of each queue, along with the
+ * number of completed and dropped tasks, is registered with the {@link PipelineMetrics}. The dropped
+ * counts are also shown on the dashboard.
+ *
+ * @since 1.25.0
+ */
+public final class SurveyLanes
+{
+    public enum Lane
+    {
+        CELLULAR("cellular", 256),
+        WIFI("wifi", 64),
+        /**
+         * The Bluetooth Classic scan results come in one device at a time, so this lane needs the
+         * most room.
+         */
+        BLUETOOTH("bluetooth", 1024),
+        GNSS("gnss", 256),
+        /**
+         * Everything else, such as the CDR events and location requests.
+         */
+        GENERAL("general", 256);
+
+        public final String key;
+        final int capacity;
+
+        Lane(String key, int capacity)
+        {
+            this.key = key;
+            this.capacity = capacity;
+        }
+
+        String getMetricsName()
+        {
+            return "lane." + key;
+        }
+    }
+
+    /**
+     * How long the caller waits for room in a full lane before the task is dropped. This is kept short
+     * because some of the tasks are submitted from the main thread.
+     */
+    private static final long REJECTED_WAIT_MS = 200;
+
+    private static final Lane[] LANES = Lane.values();
+
+    private final ThreadPoolExecutor[] executors = new ThreadPoolExecutor[LANES.length];
+    private final AtomicLong[] rejectedCounts = new AtomicLong[LANES.length];
+
+    public SurveyLanes()
+    {
+        for (Lane lane : LANES)
+        {
+            final AtomicLong rejectedCount = new AtomicLong();
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(lane.capacity),
+                    runnable -> new Thread(runnable, "NS-" + lane.key),
+                    (runnable, rejectedBy) -> onRejected(lane, runnable, rejectedBy, rejectedCount));
+
+            executors[lane.ordinal()] = executor;
+            rejectedCounts[lane.ordinal()] = rejectedCount;
+
+            final String metricsName = lane.getMetricsName();
+            PipelineMetrics.registerQueue(metricsName, () -> executor.getQueue().size());
+            PipelineMetrics.registerCounter(metricsName + ".completed", executor::getCompletedTaskCount);
+            PipelineMetrics.registerCounter(metricsName + ".rejected", rejectedCount::get);
+        }
+    }
+
+    /**
+     * @return The executor for the lane. Tasks submitted to it are run one at a time, in order.
+     */
+    public ExecutorService get(Lane lane)
+    {
+        return executors[lane.ordinal()];
+    }
+
+    /**
+     * @return The number of tasks that were dropped because the lane's queue was full.
+     */
+    public long getRejectedCount(Lane lane)
+    {
+        return rejectedCounts[lane.ordinal()].get();
+    }
+
+    /**
+     * @return The number of dropped tasks for each lane that has dropped at least one, in lane order.
+     */
+    public Map<Lane, Long> getRejectedCounts()
+    {
+        final Map<Lane, Long> rejected = new EnumMap<>(Lane.class);
+        for (Lane lane : LANES)
+        {
+            final long count = getRejectedCount(lane);
+            if (count > 0) rejected.put(lane, count);
+        }
+        return Collections.unmodifiableMap(rejected);
+    }
+
+    /**
+     * Lets the tasks that are already queued finish, but stops accepting new ones.
+     */
+    public void shutdown()
+    {
+        for (Lane lane : LANES)
+        {
+            executors[lane.ordinal()].shutdown();
+
+            final String metricsName = lane.getMetricsName();
+            PipelineMetrics.unregisterQueue(metricsName);
+            PipelineMetrics.unregisterCounter(metricsName + ".completed");
+            PipelineMetrics.unregisterCounter(metricsName + ".rejected");
+        }
+    }
+
+    private static void onRejected(Lane lane, Runnable runnable, ThreadPoolExecutor executor, AtomicLong rejectedCount)
+    {
+        // Scan results that show up while the service is shutting down are expected, so don't count them
+        if (executor.isShutdown()) return;
+
+        // The lane's thread is already running, so the task can go straight into the queue once there is room
+        try
+        {
+            if (executor.getQueue().offer(runnable, REJECTED_WAIT_MS, TimeUnit.MILLISECONDS)) return;
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        // The tasks are not thrown back at the caller because some of them are submitted by the Android
+        // framework (e.g. the cell info callbacks), which is not expecting an exception
+        final long rejected = rejectedCount.incrementAndGet();
+        if (rejected == 1 || rejected % 100 == 0)
+        {
+            Timber.w("The %s survey lane is full, %d tasks have been dropped so far", lane.key, rejected);
+        }
+    }
+}
@@ -0,0 +1,841 @@
+package com.craxiom.networksurvey.services;
+
+import com.craxiom.networksurvey.listeners.BackpressurePolicy;
+import com.craxiom.networksurvey.listeners.ISurveyRecordListener;
+import com.craxiom.networksurvey.model.BackpressureStats;
+import com.craxiom.networksurvey.model.RecordTimestamp;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import timber.log.Timber;
+
+/**
+ * Hands the records generated by the {@link SurveyRecordProcessor} to one type of listener (e.g. the
+ * cellular listeners) using a preallocated ring buffer, in the style of the LMAX Disruptor.
+ * <p>
+ * Publishing an event only copies a few references into the next slot of the ring and advances the
+ * cursor, so the thread that is processing the scan results never calls into a listener. Each
+ * registered listener is a consumer with its own sequence and its own thread, and it works its way
+ * through the ring at its own pace. This means a slow listener (e.g. an MQTT publish that is blocked
+ * on the network) does not add latency to scan processing or to any of the other listeners. Each
+ * listener still sees the events in the order they were published.
+ * <p>
+ * Each listener declares a {@link BackpressurePolicy} with the number of events it can fall behind
+ * by. Once a listener's backlog is full, a publisher either waits on it ({@code BLOCK}), or takes the
+ * oldest event away from it by advancing its sequence with a compare and set. A publisher waits
+ * before it takes the publish lock, so the other publishers are not held up behind the lock while it
+ * does, and it only waits for up to {@link #MAX_BLOCK_WAIT_NS}. After that the listener is marked as
+ * stalled and its oldest events are dropped (and counted) until it catches up. The listener thread
+ * copies an event out of the ring and then claims it with the same compare and set, so whichever
+ * side wins owns the event, and a listener never delivers an event that was overwritten while it was
+ * reading it. An event that is taken away is either dropped or, for {@code SPILL_TO_DISK}, handed to
+ * the listener's spill thread, which encodes it to a spill file that the listener drains before going
+ * back to the ring. The publisher only copies the event's references, so the encoding and the disk
+ * write never happen while it holds the publish lock. {@code CONFLATE_LATEST}
+ * listeners also skip any snapshot event (e.g. a whole Wi-Fi scan) that already has a newer one of
+ * the same kind waiting in their backlog.
+ * <p>
+ * An event can also carry a copy of its record that was built with a device name override. That copy
+ * is only delivered (or spilled) to the listener that asked for the override, so the other listeners
+ * get the record exactly as it was built and no listener has to copy a record to change it.
+ * <p>
+ * The slots are reused and not cleared after they are read, so up to the capacity of the ring worth of
+ * events are kept reachable. The capacity should be picked with the size of the events in mind.
+ * <p>
+ * This class is thread safe. Events can be published from any number of threads.
+ *
+ * @param <L> The type of listener that the events are dispatched to.
+ * @since 1.25.0
+ */
+final class SurveyRecordDispatcher<L extends ISurveyRecordListener>
+{
+    /**
+     * How long a publisher parks for between checks when it is waiting on a {@code BLOCK} listener.
+     */
+    private static final long PUBLISHER_WAIT_NS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    /**
+     * The longest a publisher waits on the {@code BLOCK} listeners for each event before it starts
+     * dropping their oldest events.
+     */
+    private static final long MAX_BLOCK_WAIT_NS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    /**
+     * The maximum size of the spill file for each {@code SPILL_TO_DISK} listener.
+     */
+    private static final long MAX_SPILL_BYTES = 32L * 1024 * 1024;
+
+    /**
+     * The number of taken events that can be waiting to be written to the spill file of each
+     * {@code SPILL_TO_DISK} listener. Any more than that are dropped.
+     */
+    private static final int SPILL_QUEUE_CAPACITY = 1024;
+
+    /**
+     * How long to wait for a listener thread to finish the event it is on when it is unregistered.
+     */
+    private static final long UNREGISTER_JOIN_MS = 5_000;
+
+    /**
+     * The kinds of events that can be published. The type determines which of the {@link Event}
+     * fields are set, and which listener method the event is dispatched to.
+     */
+    enum EventType
+    {
+        GSM_RECORD(false),
+        CDMA_RECORD(false),
+        UMTS_RECORD(false),
+        LTE_RECORD(false),
+        NR_RECORD(false),
+        CELLULAR_BATCH(true),
+        NETWORK_TYPE(true),
+        WIFI_BEACON_RECORDS(true),
+        BLUETOOTH_RECORD(false),
+        BLUETOOTH_RECORDS(true),
+        GNSS_RECORD(false),
+        CDR_EVENT(false),
+        DEVICE_STATUS(true),
+        PHONE_STATE(true);
+
+        /**
+         * True if the event holds the complete current state for its subscription ID (e.g. a whole
+         * scan), so a newer event of the same type replaces it.
+         */
+        final boolean snapshot;
+
+        EventType(boolean snapshot)
+        {
+            this.snapshot = snapshot;
+        }
+    }
+
+    /**
+     * A slot in the ring. The fields are only written by a publisher before the slot is published,
+     * and they are only read by the listener threads after that.
+     */
+    static final class Event
+    {
+        EventType type;
+        Object record;
+
+        /**
+         * The record (or list of records) built with the device name override, which is only delivered to the
+         * {@linkplain #setNamedRecordListener(ISurveyRecordListener) named record listener}, or null if there is
+         * no override.
+         */
+        Object namedRecord;
+        RecordTimestamp timestamp;
+        int subscriptionId;
+        String dataNetworkType;
+        String voiceNetworkType;
+        String overrideNetworkType;
+
+        /**
+         * The time the event was published, from {@link PipelineMetrics#now()}, or 0 if it is not known.
+         */
+        long publishedNanos;
+
+        void copyFrom(Event other)
+        {
+            type = other.type;
+            record = other.record;
+            namedRecord = other.namedRecord;
+            timestamp = other.timestamp;
+            subscriptionId = other.subscriptionId;
+            dataNetworkType = other.dataNetworkType;
+            voiceNetworkType = other.voiceNetworkType;
+            overrideNetworkType = other.overrideNetworkType;
+            publishedNanos = other.publishedNanos;
+        }
+    }
+
+    /**
+     * Calls the listener method for an event.
+     */
+    interface EventHandler<L>
+    {
+        void onEvent(L listener, Event event) throws Exception;
+    }
+
+    /**
+     * Converts events to and from bytes so they can be spilled to disk.
+     */
+    interface EventCodec
+    {
+        /**
+         * @return The encoded event, or null if this type of event can't be spilled.
+         */
+        byte[] encode(Event event);
+
+        /**
+         * Decodes an event that was encoded with {@link #encode(Event)} into the provided event.
+         */
+        void decode(byte[] encodedEvent, Event event) throws Exception;
+    }
+
+    private final String name;
+    private final EventHandler<L> handler;
+    private final EventCodec codec;
+    private final File spillDirectory;
+    private final Event[] ring;
+    private final int mask;
+    private final Object publishLock = new Object();
+    private final Object registrationLock = new Object();
+    private final List<Consumer> consumers = new CopyOnWriteArrayList<>();
+
+    /**
+     * The listener that is sent the {@link Event#namedRecord} instead of the record, or null if there is none.
+     */
+    private volatile ISurveyRecordListener namedRecordListener;
+
+    /**
+     * The sequence of the last published event. It is only written while holding the publish lock.
+     */
+    private volatile long cursor = -1;
+
+    /**
+     * @param name           The name of the listener type, which is used for the thread names and logging.
+     * @param capacity       The number of slots in the ring, which must be a power of two.
+     * @param handler        Calls the listener method for an event.
+     * @param codec          Encodes the events for the {@code SPILL_TO_DISK} listeners.
+     * @param spillDirectory The directory to create the spill files in, or null if spilling is not
+     *                       possible, in which case {@code SPILL_TO_DISK} listeners drop the events.
+     */
+    SurveyRecordDispatcher(String name, int capacity, EventHandler<L> handler, EventCodec codec, File spillDirectory)
+    {
+        if (capacity < 1 || Integer.bitCount(capacity) != 1)
+        {
+            throw new IllegalArgumentException("The capacity must be a power of two, but was " + capacity);
+        }
+
+        this.name = name;
+        this.handler = handler;
+        this.codec = codec;
+        this.spillDirectory = spillDirectory;
+        ring = new Event[capacity];
+        for (int i = 0; i < capacity; i++)
+        {
+            ring[i] = new Event();
+        }
+        mask = capacity - 1;
+
+        PipelineMetrics.registerCounter("published." + name, this::getPublishedCount);
+        PipelineMetrics.registerQueue("dispatch." + name, this::getMaxBacklog);
+    }
+
+    /**
+     * Adds a listener using the backpressure policy it declares. It is only dispatched the events that
+     * are published after this call. Adding a listener that is already registered has no effect.
+     */
+    void register(L listener)
+    {
+        synchronized (registrationLock)
+        {
+            for (Consumer consumer : consumers)
+            {
+                if (consumer.listener == listener) return;
+            }
+
+            final Consumer consumer = new Consumer(listener, listener.getBackpressurePolicy());
+
+            // The publishers start checking the consumer as soon as it is added, so the start
+            // sequence is read again afterwards in case an event was published in between
+            consumer.sequence.set(cursor);
+            consumers.add(consumer);
+            consumer.sequence.set(cursor);
+            consumer.thread.start();
+            consumer.registerCounters();
+        }
+    }
+
+    /**
+     * Removes a listener. Any events that the listener has not gotten to yet are dropped, but an event
+     * that is being dispatched to it right now is allowed to finish. The listener thread is stopped
+     * before the listener is removed from the ring, so the publishers can't reuse a slot that the
+     * listener thread is still reading.
+     */
+    void unregister(L listener)
+    {
+        synchronized (registrationLock)
+        {
+            for (Consumer consumer : consumers)
+            {
+                if (consumer.listener == listener)
+                {
+                    consumer.stop();
+                    consumer.join();
+                    consumers.remove(consumer);
+                    consumer.unregisterCounters();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all the listeners and stops their threads.
+     */
+    void close()
+    {
+        PipelineMetrics.unregisterCounter("published." + name);
+        PipelineMetrics.unregisterQueue("dispatch." + name);
+
+        synchronized (registrationLock)
+        {
+            for (Consumer consumer : consumers)
+            {
+                consumer.stop();
+                consumer.unregisterCounters();
+            }
+            consumers.clear();
+        }
+    }
+
+    /**
+     * Sets the listener that is sent the records that were built with its device name override (see
+     * {@link Event#namedRecord}). Every other listener is sent the records as they were built.
+     *
+     * @param listener The listener, or null to send the records as they were built to every listener.
+     */
+    void setNamedRecordListener(ISurveyRecordListener listener)
+    {
+        namedRecordListener = listener;
+    }
+
+    /**
+     * @return True if at least one listener is registered.
+     */
+    boolean hasListeners()
+    {
+        return !consumers.isEmpty();
+    }
+
+    /**
+     * @return The number of events that have been published.
+     */
+    long getPublishedCount()
+    {
+        return cursor + 1;
+    }
+
+    /**
+     * @return The number of events that the furthest behind listener has not gotten to yet, including
+     * any events in its spill file.
+     */
+    long getMaxBacklog()
+    {
+        final long published = cursor;
+        long maxBacklog = 0;
+        for (Consumer consumer : consumers)
+        {
+            final int spilled = consumer.spill == null ? 0 : consumer.spill.size();
+            maxBacklog = Math.max(maxBacklog, Math.max(0, published - consumer.sequence.get()) + spilled);
+        }
+        return maxBacklog;
+    }
+
+    /**
+     * Adds a snapshot of how each of the listeners is keeping up to the provided list.
+     */
+    void collectStats(List<BackpressureStats> stats)
+    {
+        final long published = cursor;
+        for (Consumer consumer : consumers)
+        {
+            final int spilled = consumer.spill == null ? 0 : consumer.spill.size();
+            stats.add(new BackpressureStats(name, consumer.listener.getClass().getSimpleName(), consumer.policy,
+                    Math.max(0, published - consumer.sequence.get()) + spilled,
+                    consumer.delivered, consumer.dropped.get(), consumer.conflated, consumer.spilledTotal,
+                    consumer.listener.getDroppedRecordCount()));
+        }
+    }
+
+    /**
+     * Publishes an event that carries a record.
+     *
+     * @param type           The type of the record.
+     * @param record         The record (or list of records for the batch types).
+     * @param timestamp      The time that the scan group was captured, or null if the event type does
+     *                       not have one.
+     * @param subscriptionId The subscription ID for the cellular batch events.
+     */
+    void publish(EventType type, Object record, RecordTimestamp timestamp, int subscriptionId)
+    {
+        publish(type, record, null, timestamp, subscriptionId);
+    }
+
+    /**
+     * Publishes an event that carries a record, along with the copy of it that was built for the named
+     * record listener.
+     *
+     * @param namedRecord The record (or list of records) built with the device name override, or null if
+     *                    there is no override.
+     * @see #publish(EventType, Object, RecordTimestamp, int)
+     */
+    void publish(EventType type, Object record, Object namedRecord, RecordTimestamp timestamp, int subscriptionId)
+    {
+        if (consumers.isEmpty()) return;
+
+        final long deadline = System.nanoTime() + MAX_BLOCK_WAIT_NS;
+        while (true)
+        {
+            awaitBlockingConsumers(deadline);
+
+            synchronized (publishLock)
+            {
+                // Another publisher might have used up the room that was waited for
+                if (!hasRoomForBlockingConsumers(cursor + 1)) continue;
+
+                final long next = cursor + 1;
+                final Event event = claim(next);
+                event.type = type;
+                event.record = record;
+                event.namedRecord = namedRecord;
+                event.timestamp = timestamp;
+                event.subscriptionId = subscriptionId;
+                event.dataNetworkType = null;
+                event.voiceNetworkType = null;
+                event.overrideNetworkType = null;
+                event.publishedNanos = PipelineMetrics.now();
+                commit(next);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Publishes a {@link EventType#NETWORK_TYPE} event.
+     */
+    void publishNetworkType(String dataNetworkType, String voiceNetworkType, int subscriptionId, String overrideNetworkType)
+    {
+        if (consumers.isEmpty()) return;
+
+        final long deadline = System.nanoTime() + MAX_BLOCK_WAIT_NS;
+        while (true)
+        {
+            awaitBlockingConsumers(deadline);
+
+            synchronized (publishLock)
+            {
+                // Another publisher might have used up the room that was waited for
+                if (!hasRoomForBlockingConsumers(cursor + 1)) continue;
+
+                final long next = cursor + 1;
+                final Event event = claim(next);
+                event.type = EventType.NETWORK_TYPE;
+                event.record = null;
+                event.namedRecord = null;
+                event.timestamp = null;
+                event.subscriptionId = subscriptionId;
+                event.dataNetworkType = dataNetworkType;
+                event.voiceNetworkType = voiceNetworkType;
+                event.overrideNetworkType = overrideNetworkType;
+                event.publishedNanos = PipelineMetrics.now();
+                commit(next);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Waits until every {@code BLOCK} listener has room in its backlog for the next event, or until
+     * the deadline passes, in which case the listeners that are still full are marked as stalled. This
+     * is called without holding the publish lock.
+     */
+    private void awaitBlockingConsumers(long deadline)
+    {
+        for (Consumer consumer : consumers)
+        {
+            while (consumer.isFullFor(cursor + 1))
+            {
+                if (System.nanoTime() - deadline >= 0)
+                {
+                    consumer.stall();
+                    break;
+                }
+
+                LockSupport.parkNanos(PUBLISHER_WAIT_NS);
+            }
+        }
+    }
+
+    /**
+     * @return True if none of the {@code BLOCK} listeners that are still being waited on are full.
+     */
+    private boolean hasRoomForBlockingConsumers(long sequence)
+    {
+        for (Consumer consumer : consumers)
+        {
+            if (consumer.isFullFor(sequence)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Makes room for the event with the provided sequence in the backlog of every listener, applying
+     * the backpressure policy of any listener whose backlog is full, and then returns the slot that
+     * the event can be written to. The {@code BLOCK} listeners have already been waited on, so any
+     * that are still full have stalled and lose their oldest event like a {@code DROP_OLDEST} listener.
+     */
+    private Event claim(long sequence)
+    {
+        for (Consumer consumer : consumers)
+        {
+            while (consumer.running)
+            {
+                final long consumed = consumer.sequence.get();
+                if (sequence - consumed <= consumer.capacity) break;
+
+                // Counted as pending before it is taken, so the listener thread can't get past the
+                // event in the ring before it has been spilled
+                consumer.spillPending.incrementAndGet();
+                if (consumer.sequence.compareAndSet(consumed, consumed + 1))
+                {
+                    // The oldest event now belongs to this thread. It can't be overwritten until this
+                    // method returns, so it is safe to read it.
+                    consumer.onEventTaken(ring[(int) (consumed + 1) & mask]);
+                } else
+                {
+                    consumer.spillPending.decrementAndGet();
+                }
+            }
+        }
+
+        return ring[(int) sequence & mask];
+    }
+
+    /**
+     * Makes the event visible to the listener threads, and wakes up the ones that are waiting for it.
+     */
+    private void commit(long sequence)
+    {
+        cursor = sequence;
+
+        for (Consumer consumer : consumers)
+        {
+            if (consumer.waiting) LockSupport.unpark(consumer.thread);
+        }
+    }
+
+    /**
+     * A registered listener, along with the sequence of the last event it has claimed and the thread
+     * that dispatches the events to it.
+     */
+    private final class Consumer implements Runnable
+    {
+        private final L listener;
+        private final String metricsName;
+        private final BackpressurePolicy policy;
+        private final int capacity;
+        private final Thread thread;
+        private final SurveyEventSpill spill;
+
+        /**
+         * Encodes the taken events and writes them to the {@link #spill} file, or null if this
+         * listener does not spill.
+         */
+        private final ThreadPoolExecutor spillExecutor;
+
+        /**
+         * The number of taken events that have not been written to the spill file (or dropped) yet.
+         */
+        private final AtomicInteger spillPending = new AtomicInteger();
+        private final Event scratch = new Event();
+        private final AtomicLong sequence = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+        private volatile long delivered;
+        private volatile long conflated;
+        private volatile long spilledTotal;
+        private volatile boolean waiting;
+        private volatile boolean running = true;
+
+        /**
+         * True if this is a {@code BLOCK} listener that the publishers gave up waiting on. It is
+         * cleared once the listener has caught up.
+         */
+        private volatile boolean stalled;
+
+        private Consumer(L listener, BackpressurePolicy policy)
+        {
+            this.listener = listener;
+            this.policy = policy;
+            capacity = Math.min(policy.capacity, ring.length);
+            metricsName = "dispatch." + name + "." + listener.getClass().getSimpleName();
+            final String threadName = "ns-" + name + "-" + listener.getClass().getSimpleName();
+            thread = new Thread(this, threadName);
+            thread.setDaemon(true);
+
+            if (policy.mode == BackpressurePolicy.Mode.SPILL_TO_DISK && codec != null && spillDirectory != null
+                    && (spillDirectory.isDirectory() || spillDirectory.mkdirs()))
+            {
+                spill = new SurveyEventSpill(new File(spillDirectory, threadName + "-" + System.identityHashCode(this) + ".spill"), MAX_SPILL_BYTES);
+                spillExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<>(SPILL_QUEUE_CAPACITY), runnable -> {
+                    final Thread spillThread = new Thread(runnable, threadName + "-spill");
+                    spillThread.setDaemon(true);
+                    return spillThread;
+                });
+            } else
+            {
+                spill = null;
+                spillExecutor = null;
+            }
+        }
+
+        @Override
+        public void run()
+        {
+            while (running)
+            {
+                // Read before checking the spill file, so that once it is zero every taken event is in the file
+                final boolean spillBusy = spill != null && spillPending.get() > 0;
+
+                // The spilled events are older than anything left in the ring, so they go first
+                if (spill != null && spill.size() > 0)
+                {
+                    deliverSpilledEvent();
+                    continue;
+                }
+
+                // A taken event that is still being written to the spill file is also older than
+                // anything left in the ring, so wait for it
+                if (spillBusy)
+                {
+                    waiting = true;
+                    if (running) LockSupport.parkNanos(this, PUBLISHER_WAIT_NS);
+                    waiting = false;
+                    continue;
+                }
+
+                final long consumed = sequence.get();
+                final long next = consumed + 1;
+                if (cursor < next)
+                {
+                    stalled = false;
+
+                    // The cursor has to be checked again after setting the waiting flag, otherwise an
+                    // event published in between would not wake this thread up
+                    waiting = true;
+                    if (cursor < next && running && (spill == null || spill.size() == 0)) LockSupport.park(this);
+                    waiting = false;
+                    continue;
+                }
+
+                scratch.copyFrom(ring[(int) next & mask]);
+
+                // Once this listener is stopped the publishers no longer wait on it, so the slot might
+                // have been reused while it was being copied
+                if (!running) break;
+
+                // If a publisher took the event while it was being copied, then the copy can't be trusted
+                if (!sequence.compareAndSet(consumed, next)) continue;
+
+                if (policy.mode == BackpressurePolicy.Mode.CONFLATE_LATEST && isSuperseded(next))
+                {
+                    conflated++;
+                    continue;
+                }
+
+                useNamedRecord(scratch);
+                deliver(scratch);
+            }
+
+            if (spill != null)
+            {
+                dropped.addAndGet(spillExecutor.shutdownNow().size());
+                dropped.addAndGet(spill.close());
+            }
+        }
+
+        /**
+         * Called by a publisher, while holding the publish lock, once it has taken the oldest event in
+         * this listener's backlog. The {@link #spillPending} count has already been incremented for it.
+         * <p>
+         * Only the references in the event are copied here. The event is encoded and written to the
+         * spill file on the spill thread, so the publisher is not held up by the disk.
+         */
+        private void onEventTaken(Event event)
+        {
+            if (spill != null)
+            {
+                final Event taken = new Event();
+                taken.copyFrom(event);
+                useNamedRecord(taken);
+                try
+                {
+                    spillExecutor.execute(() -> spillEvent(taken));
+                    return;
+                } catch (RejectedExecutionException e)
+                {
+                    // The spill thread is too far behind, or this listener is being stopped
+                }
+            }
+
+            dropped.incrementAndGet();
+            spillPending.decrementAndGet();
+        }
+
+        /**
+         * Encodes a taken event and adds it to the spill file. This is run on the spill thread.
+         */
+        private void spillEvent(Event event)
+        {
+            try
+            {
+                final byte[] encodedEvent = codec.encode(event);
+                if (encodedEvent != null && spill.append(encodedEvent))
+                {
+                    spilledTotal++;
+                } else
+                {
+                    dropped.incrementAndGet();
+                }
+            } catch (Throwable t)
+            {
+                Timber.e(t, "Could not spill a %s event", name);
+                dropped.incrementAndGet();
+            } finally
+            {
+                spillPending.decrementAndGet();
+                if (waiting) LockSupport.unpark(thread);
+            }
+        }
+
+        /**
+         * Swaps in the named record if this is the named record listener and the event has one.
+         */
+        private void useNamedRecord(Event event)
+        {
+            if (event.namedRecord != null && listener == namedRecordListener) event.record = event.namedRecord;
+        }
+
+        /**
+         * @return True if there is a newer event that replaces the one in the scratch event waiting in
+         * the ring.
+         */
+        private boolean isSuperseded(long sequenceOfScratch)
+        {
+            if (!scratch.type.snapshot) return false;
+
+            final long available = cursor;
+            boolean superseded = false;
+            for (long i = sequenceOfScratch + 1; i <= available && !superseded; i++)
+            {
+                final Event newer = ring[(int) i & mask];
+                superseded = newer.type == scratch.type && newer.subscriptionId == scratch.subscriptionId;
+            }
+
+            // If a publisher took events while they were being checked, the check can't be trusted
+            return superseded && sequence.get() == sequenceOfScratch;
+        }
+
+        private void deliverSpilledEvent()
+        {
+            final byte[] encodedEvent = spill.poll();
+            if (encodedEvent == null) return;
+
+            try
+            {
+                scratch.publishedNanos = 0;
+                scratch.namedRecord = null;
+                codec.decode(encodedEvent, scratch);
+            } catch (Exception e)
+            {
+                Timber.e(e, "Could not decode a spilled %s event", name);
+                dropped.incrementAndGet();
+                return;
+            }
+
+            deliver(scratch);
+        }
+
+        private void deliver(Event event)
+        {
+            if (event.publishedNanos != 0) PipelineMetrics.recordSince(PipelineMetrics.Stage.DISPATCH, event.publishedNanos);
+
+            try
+            {
+                handler.onEvent(listener, event);
+            } catch (Throwable t)
+            {
+                Timber.e(t, "Unable to notify a %s listener because of an exception", name);
+            }
+            delivered++;
+        }
+
+        /**
+         * @return True if this is a {@code BLOCK} listener that the publishers are waiting on, and it
+         * does not have room for the event with the provided sequence.
+         */
+        private boolean isFullFor(long sequenceToPublish)
+        {
+            return policy.mode == BackpressurePolicy.Mode.BLOCK && running && !stalled
+                    && sequenceToPublish - sequence.get() > capacity;
+        }
+
+        private void stall()
+        {
+            if (stalled) return;
+
+            stalled = true;
+            Timber.w("The %s listener %s did not keep up within %d ms, so its oldest events are being dropped until it catches up",
+                    name, listener.getClass().getSimpleName(), TimeUnit.NANOSECONDS.toMillis(MAX_BLOCK_WAIT_NS));
+        }
+
+        /**
+         * Adds the counts of the events this listener has missed to the pipeline metrics, so they are
+         * included in the metrics CSV file and on the diagnostics screen.
+         */
+        private void registerCounters()
+        {
+            PipelineMetrics.registerCounter(metricsName + ".dropped", dropped::get);
+            PipelineMetrics.registerCounter(metricsName + ".conflated", () -> conflated);
+            PipelineMetrics.registerCounter(metricsName + ".spilled", () -> spilledTotal);
+            PipelineMetrics.registerCounter(metricsName + ".writeDropped", listener::getDroppedRecordCount);
+        }
+
+        private void unregisterCounters()
+        {
+            PipelineMetrics.unregisterCounter(metricsName + ".dropped");
+            PipelineMetrics.unregisterCounter(metricsName + ".conflated");
+            PipelineMetrics.unregisterCounter(metricsName + ".spilled");
+            PipelineMetrics.unregisterCounter(metricsName + ".writeDropped");
+        }
+
+        private void stop()
+        {
+            running = false;
+            LockSupport.unpark(thread);
+        }
+
+        /**
+         * Waits for the listener thread to finish the event it is on. Does nothing if called from the
+         * listener thread itself (i.e. a listener that unregisters itself).
+         */
+        private void join()
+        {
+            if (Thread.currentThread() == thread) return;
+
+            try
+            {
+                thread.join(UNREGISTER_JOIN_MS);
+                if (thread.isAlive())
+                {
+                    Timber.w("The %s listener thread %s did not stop within %d ms", name, thread.getName(), UNREGISTER_JOIN_MS);
+                }
+            } catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -90,15 +90,17 @@ import com.craxiom.networksurvey.listeners.ICdrEventListener;
 import com.craxiom.networksurvey.listeners.ICellularSurveyRecordListener;
 import com.craxiom.networksurvey.listeners.IDeviceStatusListener;
 import com.craxiom.networksurvey.listeners.IGnssSurveyRecordListener;
+import com.craxiom.networksurvey.listeners.ISurveyRecordListener;
 import com.craxiom.networksurvey.listeners.IWifiSurveyRecordListener;
+import com.craxiom.networksurvey.model.BackpressureStats;
 import com.craxiom.networksurvey.model.CdrEvent;
 import com.craxiom.networksurvey.model.CdrEventType;
 import com.craxiom.networksurvey.model.CellularProtocol;
 import com.craxiom.networksurvey.model.CellularRecordWrapper;
 import com.craxiom.networksurvey.model.ConstellationFreqKey;
 import com.craxiom.networksurvey.model.NrRecordWrapper;
+import com.craxiom.networksurvey.model.RecordTimestamp;
 import com.craxiom.networksurvey.model.WifiRecordWrapper;
-import com.craxiom.networksurvey.util.IOUtils;
 import com.craxiom.networksurvey.util.LocationUtils;
 import com.craxiom.networksurvey.util.MathUtils;
 import com.craxiom.networksurvey.util.ParserUtils;
@@ -106,14 +108,15 @@ import com.craxiom.networksurvey.util.PreferenceUtils;
 import com.craxiom.networksurvey.util.WifiUtils;
 import com.google.protobuf.BoolValue;
 import com.google.protobuf.FloatValue;
+import com.google.protobuf.GeneratedMessageV3;
 import com.google.protobuf.Int32Value;
 import com.google.protobuf.Int64Value;
 import com.google.protobuf.UInt32Value;
 import com.google.protobuf.UInt64Value;
 
+import java.io.File;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
-import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -121,12 +124,12 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
-import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import timber.log.Timber;
@@ -150,33 +153,57 @@ public class SurveyRecordProcessor
     private static final int UNSET_RSSI = 127;
     private static final int MAX_CDR_LOCATION_WAIT_TIME = 5_000;
 
+    /*
+     * The number of events that each listener type can fall behind by before the record processing has to wait on
+     * it. The Wi-Fi events are a whole scan worth of records, so that ring is kept smaller.
+     */
+    private static final int CELLULAR_RING_CAPACITY = 512;
+    private static final int WIFI_RING_CAPACITY = 64;
+    private static final int BLUETOOTH_RING_CAPACITY = 1024;
+    private static final int GNSS_RING_CAPACITY = 512;
+    private static final int CDR_RING_CAPACITY = 64;
+    private static final int DEVICE_STATUS_RING_CAPACITY = 128;
+
+    /**
+     * The cache directory that the listeners with the spill to disk backpressure policy spill to.
+     */
+    private static final String SPILL_DIRECTORY_NAME = "survey-record-spill";
+
     private final Object cellInfoProcessingLock = new Object();
     private final Object activityUpdateLock = new Object();
 
     private final GpsListener gpsListener;
-    private final Set<ICellularSurveyRecordListener> cellularSurveyRecordListeners = new CopyOnWriteArraySet<>();
-    private final Set<IWifiSurveyRecordListener> wifiSurveyRecordListeners = new CopyOnWriteArraySet<>();
-    private final Set<IBluetoothSurveyRecordListener> bluetoothSurveyRecordListeners = new CopyOnWriteArraySet<>();
-    private final Set<IGnssSurveyRecordListener> gnssSurveyRecordListeners = new CopyOnWriteArraySet<>();
-    private final Set<ICdrEventListener> cdrListeners = new CopyOnWriteArraySet<>();
-    private final Set<IDeviceStatusListener> deviceStatusListeners = new CopyOnWriteArraySet<>();
+    private final SurveyRecordDispatcher<ICellularSurveyRecordListener> cellularSurveyRecordListeners;
+    private final SurveyRecordDispatcher<IWifiSurveyRecordListener> wifiSurveyRecordListeners;
+    private final SurveyRecordDispatcher<IBluetoothSurveyRecordListener> bluetoothSurveyRecordListeners;
+    private final SurveyRecordDispatcher<IGnssSurveyRecordListener> gnssSurveyRecordListeners;
+    private final SurveyRecordDispatcher<ICdrEventListener> cdrListeners;
+    private final SurveyRecordDispatcher<IDeviceStatusListener> deviceStatusListeners;
     private volatile NetworkSurveyActivity networkSurveyActivity;
 
-    private final ExecutorService executorService;
+    /**
+     * The device name that one of the listeners wants in its records instead of the normal one (e.g. the MQTT
+     * client ID), or null if there is no override.
+     */
+    private volatile String deviceNameOverride;
+
+    private final SurveyLanes lanes;
     private final String deviceId;
     private final String missionId;
     private final Context context;
 
-    private int recordNumber = 1;
-    private int groupNumber = 0; // This will be incremented to 1 the first time it is used.
+    // Each survey type is processed on its own lane, but some records (e.g. the empty GNSS records and the
+    // phone state) are generated from other threads, so the counters are atomic
+    private final AtomicInteger recordNumber = new AtomicInteger(1);
+    private final AtomicInteger groupNumber = new AtomicInteger(0); // This will be incremented to 1 the first time it is used.
 
-    private int wifiRecordNumber = 1;
-    private int bluetoothRecordNumber = 1;
+    private final AtomicInteger wifiRecordNumber = new AtomicInteger(1);
+    private final AtomicInteger bluetoothRecordNumber = new AtomicInteger(1);
 
-    private int gnssRecordNumber = 1;
-    private int gnssGroupNumber = 0; // This will be incremented to 1 the first time it is used.
+    private final AtomicInteger gnssRecordNumber = new AtomicInteger(1);
+    private final AtomicInteger gnssGroupNumber = new AtomicInteger(0); // This will be incremented to 1 the first time it is used.
 
-    private int phoneStateRecordNumber = 1;
+    private final AtomicInteger phoneStateRecordNumber = new AtomicInteger(1);
 
     private long lastGnssLogTimeMs;
     private int gnssScanRateMs;
@@ -191,48 +218,74 @@ public class SurveyRecordProcessor
      * @param gpsListener The GPS Listener that is used to retrieve the latest location.
      * @param deviceId    The Device ID associated with this phone.
      * @param context     The context that is used to get the app's default shared preferences.
+     * @param lanes       The executors to process each type of scan result on.
      */
-    SurveyRecordProcessor(GpsListener gpsListener, String deviceId, Context context, ExecutorService executorService)
+    SurveyRecordProcessor(GpsListener gpsListener, String deviceId, Context context, SurveyLanes lanes)
     {
         this.gpsListener = gpsListener;
         this.deviceId = deviceId;
-        this.executorService = executorService;
+        this.lanes = lanes;
         this.context = context;
 
         missionId = MISSION_ID_PREFIX + deviceId + " " + DATE_TIME_FORMATTER.format(LocalDateTime.now());
 
+        // Any spill files left behind by a previous run are stale, so start with an empty directory
+        final File spillDirectory = new File(context.getCacheDir(), SPILL_DIRECTORY_NAME);
+        final File[] staleSpillFiles = spillDirectory.listFiles();
+        if (staleSpillFiles != null)
+        {
+            for (File staleSpillFile : staleSpillFiles)
+            {
+                if (!staleSpillFile.delete()) Timber.w("Could not delete the stale spill file %s", staleSpillFile);
+            }
+        }
+
+        final SurveyEventCodec codec = SurveyEventCodec.INSTANCE;
+        cellularSurveyRecordListeners = new SurveyRecordDispatcher<>("cellular", CELLULAR_RING_CAPACITY,
+                SurveyRecordProcessor::dispatchCellularEvent, codec, spillDirectory);
+        wifiSurveyRecordListeners = new SurveyRecordDispatcher<>("wifi", WIFI_RING_CAPACITY,
+                SurveyRecordProcessor::dispatchWifiEvent, codec, spillDirectory);
+        bluetoothSurveyRecordListeners = new SurveyRecordDispatcher<>("bluetooth", BLUETOOTH_RING_CAPACITY,
+                SurveyRecordProcessor::dispatchBluetoothEvent, codec, spillDirectory);
+        gnssSurveyRecordListeners = new SurveyRecordDispatcher<>("gnss", GNSS_RING_CAPACITY,
+                SurveyRecordProcessor::dispatchGnssEvent, codec, spillDirectory);
+        cdrListeners = new SurveyRecordDispatcher<>("cdr", CDR_RING_CAPACITY,
+                SurveyRecordProcessor::dispatchCdrEvent, codec, spillDirectory);
+        deviceStatusListeners = new SurveyRecordDispatcher<>("device-status", DEVICE_STATUS_RING_CAPACITY,
+                SurveyRecordProcessor::dispatchDeviceStatusEvent, codec, spillDirectory);
+
         gnssScanRateMs = PreferenceUtils.getScanRatePreferenceMs(NetworkSurveyConstants.PROPERTY_GNSS_SCAN_INTERVAL_SECONDS,
                 NetworkSurveyConstants.DEFAULT_GNSS_SCAN_INTERVAL_SECONDS, context);
     }
 
     void registerCellularSurveyRecordListener(ICellularSurveyRecordListener surveyRecordListener)
     {
-        cellularSurveyRecordListeners.add(surveyRecordListener);
+        cellularSurveyRecordListeners.register(surveyRecordListener);
     }
 
     void unregisterCellularSurveyRecordListener(ICellularSurveyRecordListener surveyRecordListener)
     {
-        cellularSurveyRecordListeners.remove(surveyRecordListener);
+        cellularSurveyRecordListeners.unregister(surveyRecordListener);
     }
 
     void registerWifiSurveyRecordListener(IWifiSurveyRecordListener surveyRecordListener)
     {
-        wifiSurveyRecordListeners.add(surveyRecordListener);
+        wifiSurveyRecordListeners.register(surveyRecordListener);
     }
 
     void unregisterWifiSurveyRecordListener(IWifiSurveyRecordListener surveyRecordListener)
     {
-        wifiSurveyRecordListeners.remove(surveyRecordListener);
+        wifiSurveyRecordListeners.unregister(surveyRecordListener);
     }
 
     void registerBluetoothSurveyRecordListener(IBluetoothSurveyRecordListener surveyRecordListener)
     {
-        bluetoothSurveyRecordListeners.add(surveyRecordListener);
+        bluetoothSurveyRecordListeners.register(surveyRecordListener);
     }
 
     void unregisterBluetoothSurveyRecordListener(IBluetoothSurveyRecordListener surveyRecordListener)
     {
-        bluetoothSurveyRecordListeners.remove(surveyRecordListener);
+        bluetoothSurveyRecordListeners.unregister(surveyRecordListener);
     }
 
     /**
@@ -243,7 +296,7 @@ public class SurveyRecordProcessor
      */
     void registerGnssSurveyRecordListener(IGnssSurveyRecordListener surveyRecordListener)
     {
-        gnssSurveyRecordListeners.add(surveyRecordListener);
+        gnssSurveyRecordListeners.register(surveyRecordListener);
     }
 
     /**
@@ -254,7 +307,7 @@ public class SurveyRecordProcessor
      */
     void unregisterGnssSurveyRecordListener(IGnssSurveyRecordListener surveyRecordListener)
     {
-        gnssSurveyRecordListeners.remove(surveyRecordListener);
+        gnssSurveyRecordListeners.unregister(surveyRecordListener);
     }
 
     /**
@@ -265,7 +318,7 @@ public class SurveyRecordProcessor
      */
     void registerCdrEventListener(ICdrEventListener listener)
     {
-        cdrListeners.add(listener);
+        cdrListeners.register(listener);
     }
 
     /**
@@ -276,7 +329,30 @@ public class SurveyRecordProcessor
      */
     void unregisterCdrEventListener(ICdrEventListener listener)
     {
-        cdrListeners.remove(listener);
+        cdrListeners.unregister(listener);
+    }
+
+    /**
+     * Sets a device name that replaces the normal one in the records that are sent to the provided listener (e.g.
+     * the MQTT client ID). While an override is set, each record is built as normal and then built once more from
+     * the same builders with the override, and only the provided listener is sent that copy. The other listeners
+     * (e.g. the file loggers and gRPC) get the records as normal. Only one listener can have an override at a time.
+     *
+     * @param listener   The listener that wants the override.
+     * @param deviceName The device name to put in the records, or null to clear the override.
+     * @since 1.25.0
+     */
+    synchronized void setDeviceNameOverride(ISurveyRecordListener listener, String deviceName)
+    {
+        // Stop building the copies before the dispatchers are changed, and only start building them again after
+        final ISurveyRecordListener namedRecordListener = deviceName == null ? null : listener;
+        deviceNameOverride = null;
+        cellularSurveyRecordListeners.setNamedRecordListener(namedRecordListener);
+        wifiSurveyRecordListeners.setNamedRecordListener(namedRecordListener);
+        bluetoothSurveyRecordListeners.setNamedRecordListener(namedRecordListener);
+        gnssSurveyRecordListeners.setNamedRecordListener(namedRecordListener);
+        deviceStatusListeners.setNamedRecordListener(namedRecordListener);
+        deviceNameOverride = deviceName;
     }
 
     /**
@@ -287,7 +363,7 @@ public class SurveyRecordProcessor
      */
     void registerDeviceStatusListener(IDeviceStatusListener deviceStatusListener)
     {
-        deviceStatusListeners.add(deviceStatusListener);
+        deviceStatusListeners.register(deviceStatusListener);
     }
 
     /**
@@ -298,7 +374,7 @@ public class SurveyRecordProcessor
      */
     void unregisterDeviceStatusListener(IDeviceStatusListener deviceStatusListener)
     {
-        deviceStatusListeners.remove(deviceStatusListener);
+        deviceStatusListeners.unregister(deviceStatusListener);
     }
 
     /**
@@ -332,12 +408,12 @@ public class SurveyRecordProcessor
     boolean isBeingUsed()
     {
         return networkSurveyActivity != null
-                || !cellularSurveyRecordListeners.isEmpty()
-                || !wifiSurveyRecordListeners.isEmpty()
-                || !bluetoothSurveyRecordListeners.isEmpty()
-                || !gnssSurveyRecordListeners.isEmpty()
-                || !cdrListeners.isEmpty()
-                || !deviceStatusListeners.isEmpty();
+                || cellularSurveyRecordListeners.hasListeners()
+                || wifiSurveyRecordListeners.hasListeners()
+                || bluetoothSurveyRecordListeners.hasListeners()
+                || gnssSurveyRecordListeners.hasListeners()
+                || cdrListeners.hasListeners()
+                || deviceStatusListeners.hasListeners();
     }
 
     /**
@@ -346,7 +422,7 @@ public class SurveyRecordProcessor
      */
     boolean isCellularBeingUsed()
     {
-        return !cellularSurveyRecordListeners.isEmpty() || networkSurveyActivity != null;
+        return cellularSurveyRecordListeners.hasListeners() || networkSurveyActivity != null;
     }
 
     /**
@@ -354,7 +430,7 @@ public class SurveyRecordProcessor
      */
     boolean isWifiBeingUsed()
     {
-        return !wifiSurveyRecordListeners.isEmpty();
+        return wifiSurveyRecordListeners.hasListeners();
     }
 
     /**
@@ -363,7 +439,7 @@ public class SurveyRecordProcessor
      */
     boolean isBluetoothBeingUsed()
     {
-        return !bluetoothSurveyRecordListeners.isEmpty();
+        return bluetoothSurveyRecordListeners.hasListeners();
     }
 
     /**
@@ -372,7 +448,7 @@ public class SurveyRecordProcessor
      */
     boolean isGnssBeingUsed()
     {
-        return !gnssSurveyRecordListeners.isEmpty();
+        return gnssSurveyRecordListeners.hasListeners();
     }
 
     /**
@@ -381,7 +457,7 @@ public class SurveyRecordProcessor
      */
     boolean isCdrBeingUsed()
     {
-        return !cdrListeners.isEmpty();
+        return cdrListeners.hasListeners();
     }
 
     /**
@@ -390,7 +466,40 @@ public class SurveyRecordProcessor
      */
     boolean isDeviceStatusBeingUsed()
     {
-        return !deviceStatusListeners.isEmpty();
+        return deviceStatusListeners.hasListeners();
+    }
+
+    /**
+     * @return A snapshot of how each registered listener is keeping up with the records, including the
+     * number of records that have been dropped, conflated, or spilled to disk because of its
+     * backpressure policy.
+     * @since 1.25.0
+     */
+    List<BackpressureStats> getBackpressureStats()
+    {
+        final List<BackpressureStats> stats = new ArrayList<>();
+        cellularSurveyRecordListeners.collectStats(stats);
+        wifiSurveyRecordListeners.collectStats(stats);
+        bluetoothSurveyRecordListeners.collectStats(stats);
+        gnssSurveyRecordListeners.collectStats(stats);
+        cdrListeners.collectStats(stats);
+        deviceStatusListeners.collectStats(stats);
+        return stats;
+    }
+
+    /**
+     * Removes all the listeners and stops the threads that dispatch the records to them.
+     *
+     * @since 1.25.0
+     */
+    void onDestroy()
+    {
+        cellularSurveyRecordListeners.close();
+        wifiSurveyRecordListeners.close();
+        bluetoothSurveyRecordListeners.close();
+        gnssSurveyRecordListeners.close();
+        cdrListeners.close();
+        deviceStatusListeners.close();
     }
 
     /**
@@ -412,6 +521,8 @@ public class SurveyRecordProcessor
                                  int subscriptionId, String networkOperatorName, SignalStrength signalStrength,
                                  String overrideNetworkType) throws SecurityException
     {
+        final long startNanos = PipelineMetrics.now();
+
         // synchronized to make sure that we are only processing one list of Cell Info objects at a time.
         synchronized (cellInfoProcessingLock)
         {
@@ -424,26 +535,28 @@ public class SurveyRecordProcessor
 
                 if (allCellInfo != null && !allCellInfo.isEmpty())
                 {
-                    groupNumber++; // Group all the records found in this scan iteration.
-                    final List<CellularRecordWrapper> cellularRecords = new ArrayList<>(allCellInfo.size());
+                    groupNumber.incrementAndGet(); // Group all the records found in this scan iteration.
+                    final RecordTimestamp timestamp = RecordTimestamp.now();
+                    final List<BuiltRecord<? extends CellularRecordWrapper>> cellularRecords = new ArrayList<>(allCellInfo.size());
 
                     for (CellInfo cellInfo : allCellInfo)
                     {
-                        final CellularRecordWrapper cellularRecord = processCellInfo(cellInfo, subscriptionId, networkOperatorName, signalStrength);
+                        final BuiltRecord<? extends CellularRecordWrapper> cellularRecord = processCellInfo(cellInfo, subscriptionId, networkOperatorName, signalStrength, timestamp);
                         if (cellularRecord != null) cellularRecords.add(cellularRecord);
                     }
 
                     // processCellInfo notifies listeners of the individual records, but we also
                     // want to notify the batch listeners (eg. the UI) of the entire batch.
-                    notifyCellularListeners(cellularRecords, subscriptionId);
+                    notifyCellularListeners(getRecords(cellularRecords), getNamedRecords(cellularRecords), subscriptionId);
+                    PipelineMetrics.recordSince(PipelineMetrics.Stage.RECORD_GENERATION, startNanos);
                 } else
                 {
-                    notifyCellularListeners(Collections.emptyList(), subscriptionId);
+                    notifyCellularListeners(Collections.emptyList(), null, subscriptionId);
                 }
             } catch (Exception e)
             {
                 Timber.e(e, "Unable to display and log Survey Record(s)");
-                notifyCellularListeners(Collections.emptyList(), subscriptionId);
+                notifyCellularListeners(Collections.emptyList(), null, subscriptionId);
             }
         }
     }
@@ -460,7 +573,11 @@ public class SurveyRecordProcessor
         apScanResults.forEach(scanResult -> Timber.v(scanResult.toString()));
         Timber.v("");*/
 
-        execute(() -> processAccessPoints(apScanResults));
+        final long startNanos = PipelineMetrics.now();
+        execute(SurveyLanes.Lane.WIFI, () -> {
+            processAccessPoints(apScanResults);
+            PipelineMetrics.recordSince(PipelineMetrics.Stage.RECORD_GENERATION, startNanos);
+        });
     }
 
     /**
@@ -472,7 +589,11 @@ public class SurveyRecordProcessor
      */
     public void onBluetoothClassicScanUpdate(BluetoothDevice device, int rssi)
     {
-        execute(() -> processBluetoothClassicResult(device, rssi));
+        final long startNanos = PipelineMetrics.now();
+        execute(SurveyLanes.Lane.BLUETOOTH, () -> {
+            processBluetoothClassicResult(device, rssi);
+            PipelineMetrics.recordSince(PipelineMetrics.Stage.RECORD_GENERATION, startNanos);
+        });
     }
 
     /**
@@ -483,7 +604,11 @@ public class SurveyRecordProcessor
      */
     public void onBluetoothScanUpdate(android.bluetooth.le.ScanResult result)
     {
-        execute(() -> processBluetoothResult(result));
+        final long startNanos = PipelineMetrics.now();
+        execute(SurveyLanes.Lane.BLUETOOTH, () -> {
+            processBluetoothResult(result);
+            PipelineMetrics.recordSince(PipelineMetrics.Stage.RECORD_GENERATION, startNanos);
+        });
     }
 
     /**
@@ -498,7 +623,11 @@ public class SurveyRecordProcessor
         results.forEach(scanResult -> Timber.v(scanResult.toString()));
         Timber.v("");*/
 
-        execute(() -> processBluetoothResults(results));
+        final long startNanos = PipelineMetrics.now();
+        execute(SurveyLanes.Lane.BLUETOOTH, () -> {
+            processBluetoothResults(results);
+            PipelineMetrics.recordSince(PipelineMetrics.Stage.RECORD_GENERATION, startNanos);
+        });
     }
 
     /**
@@ -509,18 +638,25 @@ public class SurveyRecordProcessor
      */
     public void onGnssMeasurements(GnssMeasurementsEvent event)
     {
-        execute(() -> processGnssMeasurements(event));
+        final long startNanos = PipelineMetrics.now();
+        execute(SurveyLanes.Lane.GNSS, () -> {
+            processGnssMeasurements(event);
+            PipelineMetrics.recordSince(PipelineMetrics.Stage.RECORD_GENERATION, startNanos);
+        });
     }
 
     /**
      * Notification for when the latest device status is available to process.
      *
-     * @param deviceStatus The latest device status.
+     * @param deviceStatusBuilder The builder for the latest device status.
      * @since 1.1.0
      */
-    void onDeviceStatus(DeviceStatus deviceStatus)
+    void onDeviceStatus(DeviceStatus.Builder deviceStatusBuilder)
     {
-        execute(() -> notifyDeviceStatusListeners(deviceStatus));
+        notifyDeviceStatusListeners(withNamedRecord(deviceStatusBuilder.build(), deviceName -> {
+            deviceStatusBuilder.getDataBuilder().setDeviceName(deviceName);
+            return deviceStatusBuilder.build();
+        }));
     }
 
     /**
@@ -534,7 +670,8 @@ public class SurveyRecordProcessor
     @RequiresApi(api = Build.VERSION_CODES.Q)
     public void onServiceStateChanged(ServiceState serviceState, TelephonyManager telephonyManager)
     {
-        notifyPhoneStateListeners(createPhoneStateMessage(telephonyManager,
+        final RecordTimestamp timestamp = RecordTimestamp.now();
+        notifyPhoneStateListeners(createPhoneStateMessage(telephonyManager, timestamp,
                 builder -> {
                     // The documentation indicates the getNetworkRegistrationInfoList method was added in API level 30,
                     // but I found it works for API level 29 as well. I filed a bug: https://issuetracker.google.com/issues/190809962
@@ -543,7 +680,7 @@ public class SurveyRecordProcessor
                         serviceState.getNetworkRegistrationInfoList()
                                 .forEach(info -> builder.addNetworkRegistrationInfo(ParserUtils.convertNetworkInfo(info)));
                     }
-                }));
+                }), timestamp);
     }
 
     void onCdrServiceStateChanged(ServiceState serviceState, TelephonyManager telephonyManager)
@@ -600,7 +737,7 @@ public class SurveyRecordProcessor
 
     public void onSmsEvent(CdrEventType smsEventType, String originatingAddress, TelephonyManager telephonyManager, String destinationAddress)
     {
-        if (cdrListeners.isEmpty()) return;
+        if (!cdrListeners.hasListeners()) return;
 
         Timber.d("onSmsEvent outgoingAddress=%s, destinationAddress=%s", originatingAddress, destinationAddress);
         CdrEvent cdrEvent = new CdrEvent(smsEventType, originatingAddress, destinationAddress);
@@ -636,11 +773,13 @@ public class SurveyRecordProcessor
     void onRegistrationFailed(@NonNull CellIdentity cellIdentity, int domain,
                               int causeCode, int additionalCauseCode, TelephonyManager telephonyManager)
     {
-        notifyPhoneStateListeners(createPhoneStateMessage(telephonyManager,
-                builder -> builder.addNetworkRegistrationInfo(ParserUtils.convertNetworkInfo(cellIdentity, domain, causeCode))));
+        final RecordTimestamp timestamp = RecordTimestamp.now();
+        notifyPhoneStateListeners(createPhoneStateMessage(telephonyManager, timestamp,
+                builder -> builder.addNetworkRegistrationInfo(ParserUtils.convertNetworkInfo(cellIdentity, domain, causeCode))), timestamp);
     }
 
-    private PhoneState createPhoneStateMessage(TelephonyManager telephonyManager, Consumer<PhoneStateData.Builder> networkRegistrationInfoFunction)
+    private BuiltRecord<PhoneState> createPhoneStateMessage(TelephonyManager telephonyManager, RecordTimestamp timestamp,
+                                               Consumer<PhoneStateData.Builder> networkRegistrationInfoFunction)
     {
         final PhoneStateData.Builder dataBuilder = PhoneStateData.newBuilder();
 
@@ -661,10 +800,10 @@ public class SurveyRecordProcessor
         }
 
         dataBuilder.setDeviceSerialNumber(deviceId);
-        dataBuilder.setDeviceTime(IOUtils.getRfc3339String(ZonedDateTime.now()));
+        dataBuilder.setDeviceTime(timestamp.getRfc3339String());
 
         dataBuilder.setMissionId(missionId);
-        dataBuilder.setRecordNumber(phoneStateRecordNumber++);
+        dataBuilder.setRecordNumber(phoneStateRecordNumber.getAndIncrement());
 
         dataBuilder.setSimState(SimState.forNumber(telephonyManager.getSimState()));
         dataBuilder.setSimOperator(telephonyManager.getSimOperator());
@@ -676,7 +815,7 @@ public class SurveyRecordProcessor
         messageBuilder.setVersion(BuildConfig.MESSAGING_API_VERSION);
         messageBuilder.setData(dataBuilder);
 
-        return messageBuilder.build();
+        return withNamedRecord(messageBuilder.build(), deviceName -> messageBuilder.setData(dataBuilder.setDeviceName(deviceName)).build());
     }
 
     /**
@@ -697,54 +836,56 @@ public class SurveyRecordProcessor
      *
      * @param cellInfo       The Cell Info object with the details.
      * @param subscriptionId The subscription ID (aka SIM ID) associated with the cell info record.
+     * @param timestamp      The time that the cell info list was received.
      * @since 0.0.5
      */
-    private CellularRecordWrapper processCellInfo(CellInfo cellInfo, int subscriptionId, String networkOperatorName, SignalStrength signalStrength)
+    private BuiltRecord<? extends CellularRecordWrapper> processCellInfo(CellInfo cellInfo, int subscriptionId, String networkOperatorName,
+                                                  SignalStrength signalStrength, RecordTimestamp timestamp)
     {
         // We only want to take the time to process a record if we are going to do something with it.  Currently, that
         // means logging, sending to a server, or updating the UI with the latest LTE information.
-        if (!cellularSurveyRecordListeners.isEmpty())
+        if (cellularSurveyRecordListeners.hasListeners())
         {
             final String carrierName = getCarrierName(cellInfo, networkOperatorName);
 
             if (cellInfo instanceof CellInfoLte)
             {
-                final LteRecord lteSurveyRecord = generateLteSurveyRecord((CellInfoLte) cellInfo, subscriptionId, carrierName, signalStrength);
+                final BuiltRecord<LteRecord> lteSurveyRecord = generateLteSurveyRecord((CellInfoLte) cellInfo, subscriptionId, carrierName, signalStrength, timestamp);
                 if (lteSurveyRecord != null)
                 {
-                    notifyLteRecordListeners(lteSurveyRecord);
-                    return new CellularRecordWrapper(CellularProtocol.LTE, lteSurveyRecord);
+                    notifyLteRecordListeners(lteSurveyRecord, timestamp);
+                    return wrapCellularRecord(CellularProtocol.LTE, lteSurveyRecord);
                 }
             } else if (cellInfo instanceof CellInfoGsm)
             {
-                final GsmRecord gsmRecord = generateGsmSurveyRecord((CellInfoGsm) cellInfo, subscriptionId, carrierName);
+                final BuiltRecord<GsmRecord> gsmRecord = generateGsmSurveyRecord((CellInfoGsm) cellInfo, subscriptionId, carrierName, timestamp);
                 if (gsmRecord != null)
                 {
-                    notifyGsmRecordListeners(gsmRecord);
-                    return new CellularRecordWrapper(CellularProtocol.GSM, gsmRecord);
+                    notifyGsmRecordListeners(gsmRecord, timestamp);
+                    return wrapCellularRecord(CellularProtocol.GSM, gsmRecord);
                 }
             } else if (cellInfo instanceof CellInfoCdma)
             {
-                final CdmaRecord cdmaRecord = generateCdmaSurveyRecord((CellInfoCdma) cellInfo, subscriptionId, carrierName);
+                final BuiltRecord<CdmaRecord> cdmaRecord = generateCdmaSurveyRecord((CellInfoCdma) cellInfo, subscriptionId, carrierName, timestamp);
                 if (cdmaRecord != null)
                 {
-                    notifyCdmaRecordListeners(cdmaRecord);
-                    return new CellularRecordWrapper(CellularProtocol.CDMA, cdmaRecord);
+                    notifyCdmaRecordListeners(cdmaRecord, timestamp);
+                    return wrapCellularRecord(CellularProtocol.CDMA, cdmaRecord);
                 }
             } else if (cellInfo instanceof CellInfoWcdma)
             {
-                final UmtsRecord umtsRecord = generateUmtsSurveyRecord((CellInfoWcdma) cellInfo, subscriptionId, carrierName);
+                final BuiltRecord<UmtsRecord> umtsRecord = generateUmtsSurveyRecord((CellInfoWcdma) cellInfo, subscriptionId, carrierName, timestamp);
                 if (umtsRecord != null)
                 {
-                    notifyUmtsRecordListeners(umtsRecord);
-                    return new CellularRecordWrapper(CellularProtocol.UMTS, umtsRecord);
+                    notifyUmtsRecordListeners(umtsRecord, timestamp);
+                    return wrapCellularRecord(CellularProtocol.UMTS, umtsRecord);
                 }
             } else if (android.os.Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && cellInfo instanceof CellInfoNr)
             {
-                final NrRecordWrapper nrRecordWrapper = generateNrSurveyRecord((CellInfoNr) cellInfo, subscriptionId, carrierName);
+                final BuiltRecord<NrRecordWrapper> nrRecordWrapper = generateNrSurveyRecord((CellInfoNr) cellInfo, subscriptionId, carrierName, timestamp);
                 if (nrRecordWrapper != null)
                 {
-                    notifyNrRecordListeners((NrRecord) nrRecordWrapper.cellularRecord);
+                    notifyNrRecordListeners(nrRecordWrapper, timestamp);
                     return nrRecordWrapper;
                 }
             }
@@ -785,10 +926,11 @@ public class SurveyRecordProcessor
      */
     private void processAccessPoints(List<ScanResult> apScanResults)
     {
-        final List<WifiRecordWrapper> wifiBeaconRecords = apScanResults.stream()
-                .map(this::generateWiFiBeaconSurveyRecord)
+        final RecordTimestamp timestamp = RecordTimestamp.now();
+        final List<BuiltRecord<WifiRecordWrapper>> wifiBeaconRecords = apScanResults.stream()
+                .map(scanResult -> generateWiFiBeaconSurveyRecord(scanResult, timestamp))
                 .collect(Collectors.toList());
-        notifyWifiBeaconRecordListeners(wifiBeaconRecords);
+        notifyWifiBeaconRecordListeners(getRecords(wifiBeaconRecords), getNamedRecords(wifiBeaconRecords), timestamp);
     }
 
     /**
@@ -800,7 +942,8 @@ public class SurveyRecordProcessor
      */
     private void processBluetoothClassicResult(BluetoothDevice device, int rssi)
     {
-        notifyBluetoothRecordListeners(generateBluetoothSurveyRecord(device, rssi, UNSET_TX_POWER_LEVEL));
+        final RecordTimestamp timestamp = RecordTimestamp.now();
+        notifyBluetoothRecordListeners(generateBluetoothSurveyRecord(device, rssi, UNSET_TX_POWER_LEVEL, timestamp), timestamp);
     }
 
     /**
@@ -811,7 +954,8 @@ public class SurveyRecordProcessor
      */
     private void processBluetoothResult(android.bluetooth.le.ScanResult result)
     {
-        notifyBluetoothRecordListeners(generateBluetoothSurveyRecord(result));
+        final RecordTimestamp timestamp = RecordTimestamp.now();
+        notifyBluetoothRecordListeners(generateBluetoothSurveyRecord(result, timestamp), timestamp);
     }
 
     /**
@@ -822,10 +966,11 @@ public class SurveyRecordProcessor
      */
     private void processBluetoothResults(List<android.bluetooth.le.ScanResult> results)
     {
-        final List<BluetoothRecord> bluetoothRecords = results.stream()
-                .map(this::generateBluetoothSurveyRecord)
+        final RecordTimestamp timestamp = RecordTimestamp.now();
+        final List<BuiltRecord<BluetoothRecord>> bluetoothRecords = results.stream()
+                .map(result -> generateBluetoothSurveyRecord(result, timestamp))
                 .collect(Collectors.toList());
-        notifyBluetoothRecordListeners(bluetoothRecords);
+        notifyBluetoothRecordListeners(getRecords(bluetoothRecords), getNamedRecords(bluetoothRecords), timestamp);
     }
 
     /**
@@ -864,12 +1009,13 @@ public class SurveyRecordProcessor
             }
         }
 
-        gnssGroupNumber++; // Group all the records found in this scan iteration.
+        gnssGroupNumber.incrementAndGet(); // Group all the records found in this scan iteration.
+        final RecordTimestamp timestamp = RecordTimestamp.now();
 
         for (final GnssMeasurement gnssMeasurement : gnssMeasurements)
         {
-            final GnssRecord gnssRecord = generateGnssSurveyRecord(gnssMeasurement, agcMap);
-            notifyGnssRecordListeners(gnssRecord);
+            final BuiltRecord<GnssRecord> gnssRecord = generateGnssSurveyRecord(gnssMeasurement, agcMap, timestamp);
+            notifyGnssRecordListeners(gnssRecord, timestamp);
         }
     }
 
@@ -885,8 +1031,9 @@ public class SurveyRecordProcessor
         if (isLocationAllowed() && lastGnssLogTimeMs < System.currentTimeMillis() - getGnssTimeoutIntervalMs(gnssScanRateMs))
         {
             Timber.d("Generating an empty GNSS message");
-            final GnssRecord gnssRecord = generateEmptyGnssSurveyRecord();
-            notifyGnssRecordListeners(gnssRecord);
+            final RecordTimestamp timestamp = RecordTimestamp.now();
+            final BuiltRecord<GnssRecord> gnssRecord = generateEmptyGnssSurveyRecord(timestamp);
+            notifyGnssRecordListeners(gnssRecord, timestamp);
         }
     }
 
@@ -907,27 +1054,94 @@ public class SurveyRecordProcessor
      * shutting down but some scan results are coming in. Hopefully that is the only case because otherwise we are
      * losing some survey results.
      *
+     * @param lane     The lane for the type of scan result that the runnable processes.
      * @param runnable The runnable to execute on the executor service.
      * @since 1.5.0
      */
-    private void execute(Runnable runnable)
+    private void execute(SurveyLanes.Lane lane, Runnable runnable)
     {
         try
         {
-            executorService.execute(runnable);
+            lanes.get(lane).execute(runnable);
         } catch (Throwable t)
         {
             Timber.w(t, "Could not submit to the executor service");
         }
     }
 
+    /**
+     * Pairs a record that was just built with the copy of it that has the device name override, if one is set.
+     *
+     * @param record             The record as it was built, or null if it could not be built.
+     * @param namedRecordBuilder Builds the copy from the same builders as the record, given the device name.
+     * @return The built record, or null if the provided record is null.
+     * @since 1.25.0
+     */
+    private <T> BuiltRecord<T> withNamedRecord(T record, Function<String, T> namedRecordBuilder)
+    {
+        if (record == null) return null;
+
+        final String deviceName = deviceNameOverride;
+        return new BuiltRecord<>(record, deviceName == null ? null : namedRecordBuilder.apply(deviceName));
+    }
+
+    /**
+     * Wraps a cellular record (and its named copy) so it can be added to a cellular batch.
+     *
+     * @since 1.25.0
+     */
+    private static BuiltRecord<CellularRecordWrapper> wrapCellularRecord(CellularProtocol protocol,
+                                                                        BuiltRecord<? extends GeneratedMessageV3> builtRecord)
+    {
+        return new BuiltRecord<>(new CellularRecordWrapper(protocol, builtRecord.record),
+                builtRecord.namedRecord == null ? null : new CellularRecordWrapper(protocol, builtRecord.namedRecord));
+    }
+
+    /**
+     * @return The records as they were built. Any null entries are kept.
+     * @since 1.25.0
+     */
+    private static <T> List<T> getRecords(List<? extends BuiltRecord<? extends T>> builtRecords)
+    {
+        final List<T> records = new ArrayList<>(builtRecords.size());
+        for (BuiltRecord<? extends T> builtRecord : builtRecords)
+        {
+            records.add(builtRecord == null ? null : builtRecord.record);
+        }
+        return records;
+    }
+
+    /**
+     * @return The copies of the records with the device name override, or null if any of the records does not have
+     * one (e.g. because there is no override, or it was changed partway through the batch).
+     * @since 1.25.0
+     */
+    private static <T> List<T> getNamedRecords(List<? extends BuiltRecord<? extends T>> builtRecords)
+    {
+        final List<T> namedRecords = new ArrayList<>(builtRecords.size());
+        for (BuiltRecord<? extends T> builtRecord : builtRecords)
+        {
+            if (builtRecord == null)
+            {
+                namedRecords.add(null);
+            } else if (builtRecord.namedRecord == null)
+            {
+                return null;
+            } else
+            {
+                namedRecords.add(builtRecord.namedRecord);
+            }
+        }
+        return namedRecords;
+    }
+
     /**
      * Given a {@link CellInfoGsm} object, pull out the values and generate a {@link GsmRecord}.
      *
      * @param cellInfoGsm The object that contains the GSM Cell info.  This can be a serving cell or a neighbor cell.
      * @return The survey record.
      */
-    private GsmRecord generateGsmSurveyRecord(CellInfoGsm cellInfoGsm, int subscriptionId, String carrierName)
+    private BuiltRecord<GsmRecord> generateGsmSurveyRecord(CellInfoGsm cellInfoGsm, int subscriptionId, String carrierName, RecordTimestamp timestamp)
     {
         final CellIdentityGsm cellIdentity = cellInfoGsm.getCellIdentity();
         final int mcc = cellIdentity.getMcc();
@@ -972,10 +1186,10 @@ public class SurveyRecordProcessor
         }
 
         dataBuilder.setDeviceSerialNumber(deviceId);
-        dataBuilder.setDeviceTime(IOUtils.getRfc3339String(ZonedDateTime.now()));
+        dataBuilder.setDeviceTime(timestamp.getRfc3339String());
         dataBuilder.setMissionId(missionId);
-        dataBuilder.setRecordNumber(recordNumber++);
-        dataBuilder.setGroupNumber(groupNumber);
+        dataBuilder.setRecordNumber(recordNumber.getAndIncrement());
+        dataBuilder.setGroupNumber(groupNumber.get());
         dataBuilder.setServingCell(BoolValue.newBuilder().setValue(cellInfoGsm.isRegistered()).build());
         if (provider != null) dataBuilder.setProvider(provider.toString());
 
@@ -1017,7 +1231,7 @@ public class SurveyRecordProcessor
         recordBuilder.setVersion(BuildConfig.MESSAGING_API_VERSION);
         recordBuilder.setData(dataBuilder);
 
-        return recordBuilder.build();
+        return withNamedRecord(recordBuilder.build(), deviceName -> recordBuilder.setData(dataBuilder.setDeviceName(deviceName)).build());
     }
 
     /**
@@ -1026,7 +1240,7 @@ public class SurveyRecordProcessor
      * @param cellInfoCdma The object that contains the GSM Cell info.  This can be a serving cell or a neighbor cell.
      * @return The survey record.
      */
-    private CdmaRecord generateCdmaSurveyRecord(CellInfoCdma cellInfoCdma, int subscriptionId, String carrierName)
+    private BuiltRecord<CdmaRecord> generateCdmaSurveyRecord(CellInfoCdma cellInfoCdma, int subscriptionId, String carrierName, RecordTimestamp timestamp)
     {
         final CellIdentityCdma cellIdentity = cellInfoCdma.getCellIdentity();
         final int sid = cellIdentity.getSystemId();
@@ -1072,10 +1286,10 @@ public class SurveyRecordProcessor
         }
 
         dataBuilder.setDeviceSerialNumber(deviceId);
-        dataBuilder.setDeviceTime(IOUtils.getRfc3339String(ZonedDateTime.now()));
+        dataBuilder.setDeviceTime(timestamp.getRfc3339String());
         dataBuilder.setMissionId(missionId);
-        dataBuilder.setRecordNumber(recordNumber++);
-        dataBuilder.setGroupNumber(groupNumber);
+        dataBuilder.setRecordNumber(recordNumber.getAndIncrement());
+        dataBuilder.setGroupNumber(groupNumber.get());
         dataBuilder.setServingCell(BoolValue.newBuilder().setValue(cellInfoCdma.isRegistered()).build());
         if (provider != null) dataBuilder.setProvider(provider.toString());
 
@@ -1104,7 +1318,7 @@ public class SurveyRecordProcessor
         recordBuilder.setVersion(BuildConfig.MESSAGING_API_VERSION);
         recordBuilder.setData(dataBuilder);
 
-        return recordBuilder.build();
+        return withNamedRecord(recordBuilder.build(), deviceName -> recordBuilder.setData(dataBuilder.setDeviceName(deviceName)).build());
     }
 
     /**
@@ -1113,7 +1327,7 @@ public class SurveyRecordProcessor
      * @param cellInfoWcdma The object that contains the UMTS Cell info.  This can be a serving cell, or a neighbor cell.
      * @return The survey record.
      */
-    private UmtsRecord generateUmtsSurveyRecord(CellInfoWcdma cellInfoWcdma, int subscriptionId, String carrierName)
+    private BuiltRecord<UmtsRecord> generateUmtsSurveyRecord(CellInfoWcdma cellInfoWcdma, int subscriptionId, String carrierName, RecordTimestamp timestamp)
     {
         final CellIdentityWcdma cellIdentity = cellInfoWcdma.getCellIdentity();
         final int mcc = cellIdentity.getMcc();
@@ -1159,10 +1373,10 @@ public class SurveyRecordProcessor
         }
 
         dataBuilder.setDeviceSerialNumber(deviceId);
-        dataBuilder.setDeviceTime(IOUtils.getRfc3339String(ZonedDateTime.now()));
+        dataBuilder.setDeviceTime(timestamp.getRfc3339String());
         dataBuilder.setMissionId(missionId);
-        dataBuilder.setRecordNumber(recordNumber++);
-        dataBuilder.setGroupNumber(groupNumber);
+        dataBuilder.setRecordNumber(recordNumber.getAndIncrement());
+        dataBuilder.setGroupNumber(groupNumber.get());
         dataBuilder.setServingCell(BoolValue.newBuilder().setValue(cellInfoWcdma.isRegistered()).build());
         if (provider != null) dataBuilder.setProvider(provider.toString());
 
@@ -1213,7 +1427,7 @@ public class SurveyRecordProcessor
         recordBuilder.setVersion(BuildConfig.MESSAGING_API_VERSION);
         recordBuilder.setData(dataBuilder);
 
-        return recordBuilder.build();
+        return withNamedRecord(recordBuilder.build(), deviceName -> recordBuilder.setData(dataBuilder.setDeviceName(deviceName)).build());
     }
 
     /**
@@ -1222,7 +1436,7 @@ public class SurveyRecordProcessor
      * @param cellInfoLte The object that contains the LTE Cell info.  This can be a serving cell, or a neighbor cell.
      * @return The survey record.
      */
-    private LteRecord generateLteSurveyRecord(CellInfoLte cellInfoLte, int subscriptionId, String carrierName, SignalStrength signalStrength)
+    private BuiltRecord<LteRecord> generateLteSurveyRecord(CellInfoLte cellInfoLte, int subscriptionId, String carrierName, SignalStrength signalStrength, RecordTimestamp timestamp)
     {
         final CellIdentityLte cellIdentity = cellInfoLte.getCellIdentity();
         final int mcc = cellIdentity.getMcc();
@@ -1275,10 +1489,10 @@ public class SurveyRecordProcessor
         }
 
         dataBuilder.setDeviceSerialNumber(deviceId);
-        dataBuilder.setDeviceTime(IOUtils.getRfc3339String(ZonedDateTime.now()));
+        dataBuilder.setDeviceTime(timestamp.getRfc3339String());
         dataBuilder.setMissionId(missionId);
-        dataBuilder.setRecordNumber(recordNumber++);
-        dataBuilder.setGroupNumber(groupNumber);
+        dataBuilder.setRecordNumber(recordNumber.getAndIncrement());
+        dataBuilder.setGroupNumber(groupNumber.get());
         dataBuilder.setServingCell(BoolValue.newBuilder().setValue(cellInfoLte.isRegistered()).build());
         if (provider != null) dataBuilder.setProvider(provider.toString());
 
@@ -1363,7 +1577,7 @@ public class SurveyRecordProcessor
         recordBuilder.setVersion(BuildConfig.MESSAGING_API_VERSION);
         recordBuilder.setData(dataBuilder);
 
-        return recordBuilder.build();
+        return withNamedRecord(recordBuilder.build(), deviceName -> recordBuilder.setData(dataBuilder.setDeviceName(deviceName)).build());
     }
 
     private int getLteRssnr(SignalStrength signalStrengths)
@@ -1400,7 +1614,7 @@ public class SurveyRecordProcessor
      * @since 1.5.0
      */
     @RequiresApi(api = Build.VERSION_CODES.Q)
-    private NrRecordWrapper generateNrSurveyRecord(CellInfoNr cellInfoNr, int subscriptionId, String carrierName)
+    private BuiltRecord<NrRecordWrapper> generateNrSurveyRecord(CellInfoNr cellInfoNr, int subscriptionId, String carrierName, RecordTimestamp timestamp)
     {
         // safe to cast as per: https://developer.android.com/reference/android/telephony/CellInfoNr#getCellIdentity()
         final CellIdentityNr cellIdentity = (CellIdentityNr) cellInfoNr.getCellIdentity();
@@ -1468,10 +1682,10 @@ public class SurveyRecordProcessor
         }
 
         dataBuilder.setDeviceSerialNumber(deviceId);
-        dataBuilder.setDeviceTime(IOUtils.getRfc3339String(ZonedDateTime.now()));
+        dataBuilder.setDeviceTime(timestamp.getRfc3339String());
         dataBuilder.setMissionId(missionId);
-        dataBuilder.setRecordNumber(recordNumber++);
-        dataBuilder.setGroupNumber(groupNumber);
+        dataBuilder.setRecordNumber(recordNumber.getAndIncrement());
+        dataBuilder.setGroupNumber(groupNumber.get());
         dataBuilder.setServingCell(BoolValue.newBuilder().setValue(cellInfoNr.isRegistered()).build());
         if (provider != null) dataBuilder.setProvider(provider.toString());
 
@@ -1541,7 +1755,9 @@ public class SurveyRecordProcessor
         recordBuilder.setVersion(BuildConfig.MESSAGING_API_VERSION);
         recordBuilder.setData(dataBuilder);
 
-        return new NrRecordWrapper(recordBuilder.build(), bands);
+        final int[] nrBands = bands;
+        return withNamedRecord(new NrRecordWrapper(recordBuilder.build(), nrBands),
+                deviceName -> new NrRecordWrapper(recordBuilder.setData(dataBuilder.setDeviceName(deviceName)).build(), nrBands));
     }
 
     /**
@@ -1551,7 +1767,7 @@ public class SurveyRecordProcessor
      * @return The Wi-Fi record to send to any listeners.
      * @since 0.1.2
      */
-    private WifiRecordWrapper generateWiFiBeaconSurveyRecord(ScanResult apScanResult)
+    private BuiltRecord<WifiRecordWrapper> generateWiFiBeaconSurveyRecord(ScanResult apScanResult, RecordTimestamp timestamp)
     {
         final String bssid = apScanResult.BSSID;
         final int signalStrength = apScanResult.level;
@@ -1578,9 +1794,9 @@ public class SurveyRecordProcessor
         }
 
         dataBuilder.setDeviceSerialNumber(deviceId);
-        dataBuilder.setDeviceTime(IOUtils.getRfc3339String(ZonedDateTime.now()));
+        dataBuilder.setDeviceTime(timestamp.getRfc3339String());
         dataBuilder.setMissionId(missionId);
-        dataBuilder.setRecordNumber(wifiRecordNumber++);
+        dataBuilder.setRecordNumber(wifiRecordNumber.getAndIncrement());
 
         dataBuilder.setBssid(bssid);
         dataBuilder.setSignalStrength(FloatValue.newBuilder().setValue(signalStrength).build());
@@ -1632,7 +1848,8 @@ public class SurveyRecordProcessor
         recordBuilder.setVersion(BuildConfig.MESSAGING_API_VERSION);
         recordBuilder.setData(dataBuilder);
 
-        return new WifiRecordWrapper(recordBuilder.build(), apScanResult.capabilities);
+        return withNamedRecord(new WifiRecordWrapper(recordBuilder.build(), capabilities),
+                deviceName -> new WifiRecordWrapper(recordBuilder.setData(dataBuilder.setDeviceName(deviceName)).build(), capabilities));
     }
 
     /**
@@ -1642,9 +1859,9 @@ public class SurveyRecordProcessor
      * @return The Bluetooth record to send to any listeners.
      * @since 1.0.0
      */
-    private BluetoothRecord generateBluetoothSurveyRecord(android.bluetooth.le.ScanResult result)
+    private BuiltRecord<BluetoothRecord> generateBluetoothSurveyRecord(android.bluetooth.le.ScanResult result, RecordTimestamp timestamp)
     {
-        return generateBluetoothSurveyRecord(result.getDevice(), result.getRssi(), result.getTxPower());
+        return generateBluetoothSurveyRecord(result.getDevice(), result.getRssi(), result.getTxPower(), timestamp);
     }
 
     /**
@@ -1653,7 +1870,7 @@ public class SurveyRecordProcessor
      * @return The Bluetooth record to send to any listeners.
      * @since 1.0.0
      */
-    private BluetoothRecord generateBluetoothSurveyRecord(BluetoothDevice device, int rssi, int txPowerLevel)
+    private BuiltRecord<BluetoothRecord> generateBluetoothSurveyRecord(BluetoothDevice device, int rssi, int txPowerLevel, RecordTimestamp timestamp)
     {
         final String sourceAddress = device.getAddress();
 
@@ -1679,9 +1896,9 @@ public class SurveyRecordProcessor
         }
 
         dataBuilder.setDeviceSerialNumber(deviceId);
-        dataBuilder.setDeviceTime(IOUtils.getRfc3339String(ZonedDateTime.now()));
+        dataBuilder.setDeviceTime(timestamp.getRfc3339String());
         dataBuilder.setMissionId(missionId);
-        dataBuilder.setRecordNumber(bluetoothRecordNumber++);
+        dataBuilder.setRecordNumber(bluetoothRecordNumber.getAndIncrement());
 
         dataBuilder.setSourceAddress(sourceAddress);
 
@@ -1715,7 +1932,7 @@ public class SurveyRecordProcessor
         recordBuilder.setVersion(BuildConfig.MESSAGING_API_VERSION);
         recordBuilder.setData(dataBuilder);
 
-        return recordBuilder.build();
+        return withNamedRecord(recordBuilder.build(), deviceName -> recordBuilder.setData(dataBuilder.setDeviceName(deviceName)).build());
     }
 
     /**
@@ -1726,7 +1943,7 @@ public class SurveyRecordProcessor
      * @return The GNSS record to send to any listeners.
      * @since 0.3.0
      */
-    private GnssRecord generateGnssSurveyRecord(GnssMeasurement gnss, Map<ConstellationFreqKey, Float> agcMap)
+    private BuiltRecord<GnssRecord> generateGnssSurveyRecord(GnssMeasurement gnss, Map<ConstellationFreqKey, Float> agcMap, RecordTimestamp timestamp)
     {
         final GnssRecordData.Builder dataBuilder = GnssRecordData.newBuilder();
 
@@ -1761,10 +1978,10 @@ public class SurveyRecordProcessor
         }
 
         dataBuilder.setDeviceSerialNumber(deviceId);
-        dataBuilder.setDeviceTime(IOUtils.getRfc3339String(ZonedDateTime.now()));
+        dataBuilder.setDeviceTime(timestamp.getRfc3339String());
         dataBuilder.setMissionId(missionId);
-        dataBuilder.setRecordNumber(gnssRecordNumber++);
-        dataBuilder.setGroupNumber(gnssGroupNumber);
+        dataBuilder.setRecordNumber(gnssRecordNumber.getAndIncrement());
+        dataBuilder.setGroupNumber(gnssGroupNumber.get());
         dataBuilder.setDeviceModel(Build.MODEL);
 
         final Constellation constellation = GnssMessageConstants.getProtobufConstellation(gnss.getConstellationType());
@@ -1803,7 +2020,7 @@ public class SurveyRecordProcessor
         recordBuilder.setVersion(BuildConfig.MESSAGING_API_VERSION);
         recordBuilder.setData(dataBuilder);
 
-        return recordBuilder.build();
+        return withNamedRecord(recordBuilder.build(), deviceName -> recordBuilder.setData(dataBuilder.setDeviceName(deviceName)).build());
     }
 
     /**
@@ -1812,7 +2029,7 @@ public class SurveyRecordProcessor
      * @return The empty GNSS record to send to any listeners.
      * @since 1.8.0
      */
-    private GnssRecord generateEmptyGnssSurveyRecord()
+    private BuiltRecord<GnssRecord> generateEmptyGnssSurveyRecord(RecordTimestamp timestamp)
     {
         final GnssRecordData.Builder dataBuilder = GnssRecordData.newBuilder();
 
@@ -1847,10 +2064,10 @@ public class SurveyRecordProcessor
         }
 
         dataBuilder.setDeviceSerialNumber(deviceId);
-        dataBuilder.setDeviceTime(IOUtils.getRfc3339String(ZonedDateTime.now()));
+        dataBuilder.setDeviceTime(timestamp.getRfc3339String());
         dataBuilder.setMissionId(missionId);
-        dataBuilder.setRecordNumber(gnssRecordNumber++);
-        dataBuilder.setGroupNumber(gnssGroupNumber);
+        dataBuilder.setRecordNumber(gnssRecordNumber.getAndIncrement());
+        dataBuilder.setGroupNumber(gnssGroupNumber.get());
         dataBuilder.setDeviceModel(Build.MODEL);
 
         final GnssRecord.Builder recordBuilder = GnssRecord.newBuilder();
@@ -1858,7 +2075,7 @@ public class SurveyRecordProcessor
         recordBuilder.setVersion(BuildConfig.MESSAGING_API_VERSION);
         recordBuilder.setData(dataBuilder);
 
-        return recordBuilder.build();
+        return withNamedRecord(recordBuilder.build(), deviceName -> recordBuilder.setData(dataBuilder.setDeviceName(deviceName)).build());
     }
 
     /**
@@ -2210,101 +2427,62 @@ public class SurveyRecordProcessor
      * Notify all the listeners that we have a new GSM Record available.
      *
      * @param gsmRecord The new GSM Survey Record to send to the listeners.
+     * @param timestamp The time that the scan group was captured.
      */
-    private void notifyGsmRecordListeners(GsmRecord gsmRecord)
+    private void notifyGsmRecordListeners(BuiltRecord<GsmRecord> gsmRecord, RecordTimestamp timestamp)
     {
         if (gsmRecord == null) return;
-        for (ICellularSurveyRecordListener listener : cellularSurveyRecordListeners)
-        {
-            try
-            {
-                listener.onGsmSurveyRecord(gsmRecord);
-            } catch (Exception e)
-            {
-                Timber.e(e, "Unable to notify a Cellular Survey Record Listener because of an exception");
-            }
-        }
+        cellularSurveyRecordListeners.publish(SurveyRecordDispatcher.EventType.GSM_RECORD, gsmRecord.record, gsmRecord.namedRecord, timestamp, 0);
     }
 
     /**
      * Notify all the listeners that we have a new CDMA Record available.
      *
      * @param cdmaRecord The new CDMA Survey Record to send to the listeners.
+     * @param timestamp  The time that the scan group was captured.
      */
-    private void notifyCdmaRecordListeners(CdmaRecord cdmaRecord)
+    private void notifyCdmaRecordListeners(BuiltRecord<CdmaRecord> cdmaRecord, RecordTimestamp timestamp)
     {
         if (cdmaRecord == null) return;
-        for (ICellularSurveyRecordListener listener : cellularSurveyRecordListeners)
-        {
-            try
-            {
-                listener.onCdmaSurveyRecord(cdmaRecord);
-            } catch (Exception e)
-            {
-                Timber.e(e, "Unable to notify a Cellular Survey Record Listener because of an exception");
-            }
-        }
+        cellularSurveyRecordListeners.publish(SurveyRecordDispatcher.EventType.CDMA_RECORD, cdmaRecord.record, cdmaRecord.namedRecord, timestamp, 0);
     }
 
     /**
      * Notify all the listeners that we have a new UMTS Record available.
      *
      * @param umtsRecord The new UMTS Survey Record to send to the listeners.
+     * @param timestamp  The time that the scan group was captured.
      */
-    private void notifyUmtsRecordListeners(UmtsRecord umtsRecord)
+    private void notifyUmtsRecordListeners(BuiltRecord<UmtsRecord> umtsRecord, RecordTimestamp timestamp)
     {
         if (umtsRecord == null) return;
-        for (ICellularSurveyRecordListener listener : cellularSurveyRecordListeners)
-        {
-            try
-            {
-                listener.onUmtsSurveyRecord(umtsRecord);
-            } catch (Exception e)
-            {
-                Timber.e(e, "Unable to notify a Cellular Survey Record Listener because of an exception");
-            }
-        }
+        cellularSurveyRecordListeners.publish(SurveyRecordDispatcher.EventType.UMTS_RECORD, umtsRecord.record, umtsRecord.namedRecord, timestamp, 0);
     }
 
     /**
      * Notify all the listeners that we have a new LTE Record available.
      *
      * @param lteRecord The new LTE Survey Record to send to the listeners.
+     * @param timestamp The time that the scan group was captured.
      */
-    private void notifyLteRecordListeners(LteRecord lteRecord)
+    private void notifyLteRecordListeners(BuiltRecord<LteRecord> lteRecord, RecordTimestamp timestamp)
     {
         if (lteRecord == null) return;
-        for (ICellularSurveyRecordListener listener : cellularSurveyRecordListeners)
-        {
-            try
-            {
-                listener.onLteSurveyRecord(lteRecord);
-            } catch (Exception e)
-            {
-                Timber.e(e, "Unable to notify a Cellular Survey Record Listener because of an exception");
-            }
-        }
+        cellularSurveyRecordListeners.publish(SurveyRecordDispatcher.EventType.LTE_RECORD, lteRecord.record, lteRecord.namedRecord, timestamp, 0);
     }
 
     /**
      * Notify {@link #cellularSurveyRecordListeners} of a new NR record
      *
-     * @param nrRecord The new NR Survey Record to send to the listeners
+     * @param nrRecord  The new NR Survey Record to send to the listeners
+     * @param timestamp The time that the scan group was captured.
      * @since 1.5.0
      */
-    private void notifyNrRecordListeners(NrRecord nrRecord)
+    private void notifyNrRecordListeners(BuiltRecord<NrRecordWrapper> nrRecord, RecordTimestamp timestamp)
     {
         if (nrRecord == null) return;
-
-        cellularSurveyRecordListeners.forEach(l -> {
-            try
-            {
-                l.onNrSurveyRecord(nrRecord);
-            } catch (Exception e)
-            {
-                Timber.e(e, "Unable to notify a Cellular Survey Record Listener because of an exception");
-            }
-        });
+        cellularSurveyRecordListeners.publish(SurveyRecordDispatcher.EventType.NR_RECORD, nrRecord.record.cellularRecord,
+                nrRecord.namedRecord == null ? null : nrRecord.namedRecord.cellularRecord, timestamp, 0);
     }
 
     /**
@@ -2312,21 +2490,15 @@ public class SurveyRecordProcessor
      * towers this device can see. It can contain multiple technologies (e.g. NR and LTE), which is why it is a list of
      * generic messages and not a specific cellular protocol message.
      *
-     * @param cellularRecords The batch of cellular records.
-     * @param subscriptionId  The subscription ID (aka SIM ID) that the records are associated with.
+     * @param cellularRecords      The batch of cellular records.
+     * @param namedCellularRecords The batch of cellular records built with the device name override, or null.
+     * @param subscriptionId       The subscription ID (aka SIM ID) that the records are associated with.
      * @since 1.6.0
      */
-    private void notifyCellularListeners(List<CellularRecordWrapper> cellularRecords, int subscriptionId)
+    private void notifyCellularListeners(List<CellularRecordWrapper> cellularRecords, List<CellularRecordWrapper> namedCellularRecords,
+                                         int subscriptionId)
     {
-        cellularSurveyRecordListeners.forEach(l -> {
-            try
-            {
-                l.onCellularBatch(cellularRecords, subscriptionId);
-            } catch (Throwable t)
-            {
-                Timber.e(t, "Unable to notify a Cellular Survey Record Listener because of an exception");
-            }
-        });
+        cellularSurveyRecordListeners.publish(SurveyRecordDispatcher.EventType.CELLULAR_BATCH, cellularRecords, namedCellularRecords, null, subscriptionId);
     }
 
     /**
@@ -2340,102 +2512,63 @@ public class SurveyRecordProcessor
     private void notifyNetworkTypeListeners(String dataNetworkType, String voiceNetworkType,
                                             int subscriptionId, String overrideNetworkType)
     {
-        cellularSurveyRecordListeners.forEach(l -> {
-            try
-            {
-                l.onNetworkType(dataNetworkType, voiceNetworkType, subscriptionId, overrideNetworkType);
-            } catch (Exception e)
-            {
-                Timber.e(e, "Unable to notify a Cellular Survey Record Listener because of an exception");
-            }
-        });
+        cellularSurveyRecordListeners.publishNetworkType(dataNetworkType, voiceNetworkType, subscriptionId, overrideNetworkType);
     }
 
     /**
      * Notify all the listeners that we have a new group of 802.11 Beacon Records available.
      *
-     * @param wifiBeaconRecords The new list 802.11 Beacon Survey Records to send to the listeners.
+     * @param wifiBeaconRecords      The new list 802.11 Beacon Survey Records to send to the listeners.
+     * @param namedWifiBeaconRecords The same records built with the device name override, or null.
+     * @param timestamp              The time that the scan group was captured.
      * @since 0.1.2
      */
-    private void notifyWifiBeaconRecordListeners(List<WifiRecordWrapper> wifiBeaconRecords)
+    private void notifyWifiBeaconRecordListeners(List<WifiRecordWrapper> wifiBeaconRecords, List<WifiRecordWrapper> namedWifiBeaconRecords,
+                                                 RecordTimestamp timestamp)
     {
         if (wifiBeaconRecords == null || wifiBeaconRecords.isEmpty()) return;
-
-        for (IWifiSurveyRecordListener listener : wifiSurveyRecordListeners)
-        {
-            try
-            {
-                listener.onWifiBeaconSurveyRecords(wifiBeaconRecords);
-            } catch (Exception e)
-            {
-                Timber.e(e, "Unable to notify a Wi-Fi Survey Record Listener because of an exception");
-            }
-        }
+        wifiSurveyRecordListeners.publish(SurveyRecordDispatcher.EventType.WIFI_BEACON_RECORDS, wifiBeaconRecords, namedWifiBeaconRecords, timestamp, 0);
     }
 
     /**
      * Notify all the listeners that we have a new single Bluetooth Record available.
      *
      * @param bluetoothRecord The new Bluetooth Survey Record to send to the listeners.
+     * @param timestamp       The time that the scan group was captured.
      * @since 1.0.0
      */
-    private void notifyBluetoothRecordListeners(BluetoothRecord bluetoothRecord)
+    private void notifyBluetoothRecordListeners(BuiltRecord<BluetoothRecord> bluetoothRecord, RecordTimestamp timestamp)
     {
         if (bluetoothRecord == null) return;
-
-        for (IBluetoothSurveyRecordListener listener : bluetoothSurveyRecordListeners)
-        {
-            try
-            {
-                listener.onBluetoothSurveyRecord(bluetoothRecord);
-            } catch (Exception e)
-            {
-                Timber.e(e, "Unable to notify a Bluetooth Survey Record Listener because of an exception");
-            }
-        }
+        bluetoothSurveyRecordListeners.publish(SurveyRecordDispatcher.EventType.BLUETOOTH_RECORD, bluetoothRecord.record, bluetoothRecord.namedRecord, timestamp, 0);
     }
 
     /**
      * Notify all the listeners that we have a new group of Bluetooth Records available.
      *
-     * @param bluetoothRecords The new list Bluetooth Survey Records to send to the listeners.
+     * @param bluetoothRecords      The new list Bluetooth Survey Records to send to the listeners.
+     * @param namedBluetoothRecords The same records built with the device name override, or null.
+     * @param timestamp             The time that the scan group was captured.
      * @since 1.0.0
      */
-    private void notifyBluetoothRecordListeners(List<BluetoothRecord> bluetoothRecords)
+    private void notifyBluetoothRecordListeners(List<BluetoothRecord> bluetoothRecords, List<BluetoothRecord> namedBluetoothRecords,
+                                                RecordTimestamp timestamp)
     {
         if (bluetoothRecords == null || bluetoothRecords.isEmpty()) return;
-
-        for (IBluetoothSurveyRecordListener listener : bluetoothSurveyRecordListeners)
-        {
-            try
-            {
-                listener.onBluetoothSurveyRecords(bluetoothRecords);
-            } catch (Exception e)
-            {
-                Timber.e(e, "Unable to notify a Bluetooth Survey Record Listener because of an exception");
-            }
-        }
+        bluetoothSurveyRecordListeners.publish(SurveyRecordDispatcher.EventType.BLUETOOTH_RECORDS, bluetoothRecords, namedBluetoothRecords, timestamp, 0);
     }
 
     /**
      * Notify all the listeners that we have a new GNSS Record available.
      *
      * @param gnssRecord The new GNSS Survey Record to send to the listeners.
+     * @param timestamp  The time that the scan group was captured.
      * @since 0.3.0
      */
-    private void notifyGnssRecordListeners(GnssRecord gnssRecord)
+    private void notifyGnssRecordListeners(BuiltRecord<GnssRecord> gnssRecord, RecordTimestamp timestamp)
     {
         if (gnssRecord == null) return;
-        for (IGnssSurveyRecordListener listener : gnssSurveyRecordListeners)
-        {
-            try
-            {
-                listener.onGnssSurveyRecord(gnssRecord);
-            } catch (Exception e)
-            {
-                Timber.e(e, "Unable to notify a GNSS Survey Record Listener because of an exception");
-            }
-        }
+        gnssSurveyRecordListeners.publish(SurveyRecordDispatcher.EventType.GNSS_RECORD, gnssRecord.record, gnssRecord.namedRecord, timestamp, 0);
     }
 
     private void finishCdrEvent(CdrEvent cdrEvent)
@@ -2452,16 +2585,7 @@ public class SurveyRecordProcessor
      */
     private void notifyCdrListeners(CdrEvent cdrEvent)
     {
-        for (ICdrEventListener listener : cdrListeners)
-        {
-            try
-            {
-                listener.onCdrEvent(cdrEvent);
-            } catch (Exception e)
-            {
-                Timber.e(e, "Unable to notify a CDR Event Listener because of an exception");
-            }
-        }
+        cdrListeners.publish(SurveyRecordDispatcher.EventType.CDR_EVENT, cdrEvent, null, 0);
     }
 
     /**
@@ -2511,7 +2635,7 @@ public class SurveyRecordProcessor
             notifyCdrListeners(cdrEvent);
         };
 
-        requestLocation(context, cancellationSignal, executorService, locationConsumer);
+        requestLocation(context, cancellationSignal, lanes.get(SurveyLanes.Lane.GENERAL), locationConsumer);
     }
 
     /**
@@ -2552,39 +2676,122 @@ public class SurveyRecordProcessor
      * @param deviceStatus The new Device Status Message to send to the listeners.
      * @since 1.1.0
      */
-    private void notifyDeviceStatusListeners(DeviceStatus deviceStatus)
+    private void notifyDeviceStatusListeners(BuiltRecord<DeviceStatus> deviceStatus)
     {
         if (deviceStatus == null) return;
-        for (IDeviceStatusListener listener : deviceStatusListeners)
-        {
-            try
-            {
-                listener.onDeviceStatus(deviceStatus);
-            } catch (Exception e)
-            {
-                Timber.e(e, "Unable to notify a Device Status Listener because of an exception");
-            }
-        }
+        deviceStatusListeners.publish(SurveyRecordDispatcher.EventType.DEVICE_STATUS, deviceStatus.record, deviceStatus.namedRecord, null, 0);
     }
 
     /**
      * Notify all the listeners that we have a new Phone State available.
      *
      * @param phoneState The new Phone State Message to send to the listeners.
+     * @param timestamp  The time that the scan group was captured.
      * @since 1.1.0
      */
-    private void notifyPhoneStateListeners(PhoneState phoneState)
+    private void notifyPhoneStateListeners(BuiltRecord<PhoneState> phoneState, RecordTimestamp timestamp)
     {
         if (phoneState == null) return;
-        for (IDeviceStatusListener listener : deviceStatusListeners)
+        deviceStatusListeners.publish(SurveyRecordDispatcher.EventType.PHONE_STATE, phoneState.record, phoneState.namedRecord, timestamp, 0);
+    }
+
+    /**
+     * Calls the {@link ICellularSurveyRecordListener} method for an event. This is run on the listener's own
+     * dispatch thread.
+     *
+     * @since 1.25.0
+     */
+    @SuppressWarnings("unchecked")
+    private static void dispatchCellularEvent(ICellularSurveyRecordListener listener, SurveyRecordDispatcher.Event event)
+    {
+        switch (event.type)
         {
-            try
-            {
-                listener.onPhoneState(phoneState);
-            } catch (Exception e)
-            {
-                Timber.e(e, "Unable to notify a Phone State Listener because of an exception");
-            }
+            case GSM_RECORD:
+                listener.onGsmSurveyRecord((GsmRecord) event.record, event.timestamp);
+                break;
+            case CDMA_RECORD:
+                listener.onCdmaSurveyRecord((CdmaRecord) event.record, event.timestamp);
+                break;
+            case UMTS_RECORD:
+                listener.onUmtsSurveyRecord((UmtsRecord) event.record, event.timestamp);
+                break;
+            case LTE_RECORD:
+                listener.onLteSurveyRecord((LteRecord) event.record, event.timestamp);
+                break;
+            case NR_RECORD:
+                listener.onNrSurveyRecord((NrRecord) event.record, event.timestamp);
+                break;
+            case CELLULAR_BATCH:
+                listener.onCellularBatch((List<CellularRecordWrapper>) event.record, event.subscriptionId);
+                break;
+            case NETWORK_TYPE:
+                listener.onNetworkType(event.dataNetworkType, event.voiceNetworkType, event.subscriptionId, event.overrideNetworkType);
+                break;
+            default:
+                Timber.wtf("Unexpected cellular event type %s", event.type);
+                break;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void dispatchWifiEvent(IWifiSurveyRecordListener listener, SurveyRecordDispatcher.Event event)
+    {
+        listener.onWifiBeaconSurveyRecords((List<WifiRecordWrapper>) event.record, event.timestamp);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void dispatchBluetoothEvent(IBluetoothSurveyRecordListener listener, SurveyRecordDispatcher.Event event)
+    {
+        if (event.type == SurveyRecordDispatcher.EventType.BLUETOOTH_RECORDS)
+        {
+            listener.onBluetoothSurveyRecords((List<BluetoothRecord>) event.record, event.timestamp);
+        } else
+        {
+            listener.onBluetoothSurveyRecord((BluetoothRecord) event.record, event.timestamp);
+        }
+    }
+
+    private static void dispatchGnssEvent(IGnssSurveyRecordListener listener, SurveyRecordDispatcher.Event event)
+    {
+        listener.onGnssSurveyRecord((GnssRecord) event.record, event.timestamp);
+    }
+
+    private static void dispatchCdrEvent(ICdrEventListener listener, SurveyRecordDispatcher.Event event)
+    {
+        listener.onCdrEvent((CdrEvent) event.record);
+    }
+
+    private static void dispatchDeviceStatusEvent(IDeviceStatusListener listener, SurveyRecordDispatcher.Event event)
+    {
+        if (event.type == SurveyRecordDispatcher.EventType.PHONE_STATE)
+        {
+            listener.onPhoneState((PhoneState) event.record, event.timestamp);
+        } else
+        {
+            listener.onDeviceStatus((DeviceStatus) event.record);
+        }
+    }
+
+    /**
+     * A record as it was built, along with the copy of it that was built with the device name override for the
+     * listener that asked for it.
+     *
+     * @param <T> The type of record.
+     * @since 1.25.0
+     */
+    private static final class BuiltRecord<T>
+    {
+        private final T record;
+
+        /**
+         * The copy of the record with the device name override, or null if there is no override.
+         */
+        private final T namedRecord;
+
+        private BuiltRecord(T record, T namedRecord)
+        {
+            this.record = record;
+            this.namedRecord = namedRecord;
         }
     }
 }
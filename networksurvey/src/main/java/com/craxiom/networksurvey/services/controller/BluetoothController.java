@@ -16,7 +16,6 @@ import android.content.IntentFilter;
 import android.content.pm.PackageManager;
 import android.os.Build;
 import android.os.Handler;
-import android.os.Looper;
 import android.widget.Toast;
 
 import androidx.core.app.ActivityCompat;
@@ -24,6 +23,7 @@ import androidx.core.app.ActivityCompat;
 import com.craxiom.networksurvey.R;
 import com.craxiom.networksurvey.constants.NetworkSurveyConstants;
 import com.craxiom.networksurvey.logging.BluetoothCsvLogger;
+import com.craxiom.networksurvey.logging.BluetoothProtobufLogger;
 import com.craxiom.networksurvey.logging.BluetoothSurveyRecordLogger;
 import com.craxiom.networksurvey.model.LogTypeState;
 import com.craxiom.networksurvey.services.NetworkSurveyService;
@@ -56,12 +56,13 @@ public class BluetoothController extends AController
 
     private final BluetoothSurveyRecordLogger bluetoothSurveyRecordLogger;
     private final BluetoothCsvLogger bluetoothCsvLogger;
+    private final BluetoothProtobufLogger bluetoothProtobufLogger;
     private volatile int bluetoothScanRateMs;
     private ScanCallback bluetoothScanCallback;
     private BroadcastReceiver bluetoothBroadcastReceiver;
 
     public BluetoothController(NetworkSurveyService surveyService, ExecutorService executorService,
-                               Looper serviceLooper, Handler serviceHandler,
+                               Handler serviceHandler,
                                SurveyRecordProcessor surveyRecordProcessor, Handler uiThreadHandler)
     {
         super(surveyService, executorService);
@@ -70,8 +71,9 @@ public class BluetoothController extends AController
         this.surveyRecordProcessor = surveyRecordProcessor;
         this.uiThreadHandler = uiThreadHandler;
 
-        bluetoothSurveyRecordLogger = new BluetoothSurveyRecordLogger(surveyService, serviceLooper);
-        bluetoothCsvLogger = new BluetoothCsvLogger(surveyService, serviceLooper);
+        bluetoothSurveyRecordLogger = new BluetoothSurveyRecordLogger(surveyService);
+        bluetoothCsvLogger = new BluetoothCsvLogger(surveyService);
+        bluetoothProtobufLogger = new BluetoothProtobufLogger(surveyService);
     }
 
     @Override
@@ -83,6 +85,7 @@ public class BluetoothController extends AController
         {
             bluetoothSurveyRecordLogger.onDestroy();
             bluetoothCsvLogger.onDestroy();
+            bluetoothProtobufLogger.onDestroy();
 
             bluetoothBroadcastReceiver = null;
             bluetoothScanCallback = null;
@@ -110,6 +113,7 @@ public class BluetoothController extends AController
     {
         bluetoothSurveyRecordLogger.onSharedPreferenceChanged();
         bluetoothCsvLogger.onSharedPreferenceChanged();
+        bluetoothProtobufLogger.onSharedPreferenceChanged();
     }
 
     /**
@@ -120,6 +124,7 @@ public class BluetoothController extends AController
     {
         bluetoothSurveyRecordLogger.onMdmPreferenceChanged();
         bluetoothCsvLogger.onMdmPreferenceChanged();
+        bluetoothProtobufLogger.onMdmPreferenceChanged();
     }
 
     public void onLogFileTypePreferenceChanged()
@@ -189,6 +194,10 @@ public class BluetoothController extends AController
                 {
                     successful = bluetoothCsvLogger.enableLogging(true);
                 }
+                if (types.protobuf)
+                {
+                    successful = bluetoothProtobufLogger.enableLogging(true);
+                }
 
                 if (successful)
                 {
@@ -199,6 +208,7 @@ public class BluetoothController extends AController
                     // disable all of them and set local config to false
                     bluetoothSurveyRecordLogger.enableLogging(false);
                     bluetoothCsvLogger.enableLogging(false);
+                    bluetoothProtobufLogger.enableLogging(false);
                     toggleBtConfig(false, null);
                 }
             } else
@@ -207,6 +217,7 @@ public class BluetoothController extends AController
                 // in case the user changed the setting after they started logging.
                 bluetoothSurveyRecordLogger.enableLogging(false);
                 bluetoothCsvLogger.enableLogging(false);
+                bluetoothProtobufLogger.enableLogging(false);
                 toggleBtConfig(false, null);
                 successful = true;
             }
@@ -483,6 +494,7 @@ public class BluetoothController extends AController
     {
         if (bluetoothSurveyRecordLogger != null) bluetoothSurveyRecordLogger.enableLogging(false);
         if (bluetoothCsvLogger != null) bluetoothCsvLogger.enableLogging(false);
+        if (bluetoothProtobufLogger != null) bluetoothProtobufLogger.enableLogging(false);
     }
 
     private void toggleBtConfig(boolean enable, LogTypeState types)
@@ -502,6 +514,10 @@ public class BluetoothController extends AController
                 {
                     surveyService.registerBluetoothSurveyRecordListener(bluetoothCsvLogger);
                 }
+                if (types.protobuf)
+                {
+                    surveyService.registerBluetoothSurveyRecordListener(bluetoothProtobufLogger);
+                }
             } else
             {
                 throw new IllegalArgumentException("LogTypeState cannot be null when enabling Bluetooth logging");
@@ -510,6 +526,7 @@ public class BluetoothController extends AController
         {
             surveyService.unregisterBluetoothSurveyRecordListener(bluetoothSurveyRecordLogger);
             surveyService.unregisterBluetoothSurveyRecordListener(bluetoothCsvLogger);
+            surveyService.unregisterBluetoothSurveyRecordListener(bluetoothProtobufLogger);
         }
     }
 
@@ -8,7 +8,6 @@ import android.content.IntentFilter;
 import android.content.pm.PackageManager;
 import android.os.Build;
 import android.os.Handler;
-import android.os.Looper;
 import android.telephony.CellInfo;
 import android.telephony.PhoneStateListener;
 import android.telephony.ServiceState;
@@ -29,6 +28,7 @@ import com.craxiom.networksurvey.CalculationUtils;
 import com.craxiom.networksurvey.SimChangeReceiver;
 import com.craxiom.networksurvey.constants.NetworkSurveyConstants;
 import com.craxiom.networksurvey.logging.CdmaCsvLogger;
+import com.craxiom.networksurvey.logging.CellularProtobufLogger;
 import com.craxiom.networksurvey.logging.CellularSurveyRecordLogger;
 import com.craxiom.networksurvey.logging.GsmCsvLogger;
 import com.craxiom.networksurvey.logging.LteCsvLogger;
@@ -37,6 +37,7 @@ import com.craxiom.networksurvey.logging.PhoneStateRecordLogger;
 import com.craxiom.networksurvey.logging.UmtsCsvLogger;
 import com.craxiom.networksurvey.model.LogTypeState;
 import com.craxiom.networksurvey.services.NetworkSurveyService;
+import com.craxiom.networksurvey.services.PipelineMetrics;
 import com.craxiom.networksurvey.services.SurveyRecordProcessor;
 import com.craxiom.networksurvey.util.PreferenceUtils;
 
@@ -45,6 +46,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -75,6 +77,12 @@ public class CellularController extends AController
     private final List<TelephonyManagerWrapper> telephonyManagerList = new ArrayList<>();
     private final Map<Integer, TelephonyManager.CellInfoCallback> cellInfoCallbackMap = new HashMap<>();
     private final Map<Integer, OverrideNetworkTypeListener> displayInfoCallbackMap = new HashMap<>();
+
+    /**
+     * The time of the last cell info update request for each subscription ID, from
+     * {@link PipelineMetrics#now()}, so that the time until the callback fires can be measured.
+     */
+    private final Map<Integer, Long> cellInfoRequestTimes = new ConcurrentHashMap<>();
     private final Object activeSubscriptionInfoListLock = new Object();
     private List<SubscriptionInfo> activeSubscriptionInfoList = new ArrayList<>();
 
@@ -85,24 +93,26 @@ public class CellularController extends AController
     private final UmtsCsvLogger umtsCsvLogger;
     private final CdmaCsvLogger cdmaCsvLogger;
     private final GsmCsvLogger gsmCsvLogger;
+    private final CellularProtobufLogger cellularProtobufLogger;
     private PhoneStateListener phoneStateListener;
     private BroadcastReceiver simBroadcastReceiver;
 
     public CellularController(NetworkSurveyService surveyService, ExecutorService executorService,
-                              Looper serviceLooper, Handler serviceHandler,
+                              Handler serviceHandler,
                               SurveyRecordProcessor surveyRecordProcessor)
     {
         super(surveyService, executorService);
         this.serviceHandler = serviceHandler;
         this.surveyRecordProcessor = surveyRecordProcessor;
 
-        cellularSurveyRecordLogger = new CellularSurveyRecordLogger(surveyService, serviceLooper);
-        phoneStateRecordLogger = new PhoneStateRecordLogger(surveyService, serviceLooper);
-        nrCsvLogger = new NrCsvLogger(surveyService, serviceLooper);
-        lteCsvLogger = new LteCsvLogger(surveyService, serviceLooper);
-        umtsCsvLogger = new UmtsCsvLogger(surveyService, serviceLooper);
-        cdmaCsvLogger = new CdmaCsvLogger(surveyService, serviceLooper);
-        gsmCsvLogger = new GsmCsvLogger(surveyService, serviceLooper);
+        cellularSurveyRecordLogger = new CellularSurveyRecordLogger(surveyService);
+        phoneStateRecordLogger = new PhoneStateRecordLogger(surveyService);
+        nrCsvLogger = new NrCsvLogger(surveyService);
+        lteCsvLogger = new LteCsvLogger(surveyService);
+        umtsCsvLogger = new UmtsCsvLogger(surveyService);
+        cdmaCsvLogger = new CdmaCsvLogger(surveyService);
+        gsmCsvLogger = new GsmCsvLogger(surveyService);
+        cellularProtobufLogger = new CellularProtobufLogger(surveyService);
     }
 
     @Override
@@ -119,6 +129,7 @@ public class CellularController extends AController
             umtsCsvLogger.onDestroy();
             cdmaCsvLogger.onDestroy();
             gsmCsvLogger.onDestroy();
+            cellularProtobufLogger.onDestroy();
             super.onDestroy();
         }
     }
@@ -163,6 +174,7 @@ public class CellularController extends AController
         umtsCsvLogger.onSharedPreferenceChanged();
         cdmaCsvLogger.onSharedPreferenceChanged();
         gsmCsvLogger.onSharedPreferenceChanged();
+        cellularProtobufLogger.onSharedPreferenceChanged();
     }
 
     /**
@@ -178,6 +190,7 @@ public class CellularController extends AController
         umtsCsvLogger.onSharedPreferenceChanged();
         cdmaCsvLogger.onSharedPreferenceChanged();
         gsmCsvLogger.onSharedPreferenceChanged();
+        cellularProtobufLogger.onMdmPreferenceChanged();
     }
 
     public void onLogFileTypePreferenceChanged()
@@ -249,6 +262,10 @@ public class CellularController extends AController
                             cdmaCsvLogger.enableLogging(true) &&
                             gsmCsvLogger.enableLogging(true);
                 }
+                if (types.protobuf)
+                {
+                    successful = cellularProtobufLogger.enableLogging(true);
+                }
 
                 if (successful)
                 {
@@ -265,6 +282,7 @@ public class CellularController extends AController
                     umtsCsvLogger.enableLogging(false);
                     cdmaCsvLogger.enableLogging(false);
                     gsmCsvLogger.enableLogging(false);
+                    cellularProtobufLogger.enableLogging(false);
                     toggleCellularConfig(false, null);
                 }
             } else
@@ -278,6 +296,7 @@ public class CellularController extends AController
                 umtsCsvLogger.enableLogging(false);
                 cdmaCsvLogger.enableLogging(false);
                 gsmCsvLogger.enableLogging(false);
+                cellularProtobufLogger.enableLogging(false);
                 toggleCellularConfig(false, null);
                 successful = true;
             }
@@ -453,6 +472,9 @@ public class CellularController extends AController
                         @Override
                         public void onCellInfo(@NonNull List<CellInfo> cellInfo)
                         {
+                            final Long requestTime = cellInfoRequestTimes.remove(subscriptionId);
+                            if (requestTime != null) PipelineMetrics.recordSince(PipelineMetrics.Stage.CELLULAR_SCAN, requestTime);
+
                             String dataNetworkType = "Unknown";
                             String voiceNetworkType = "Unknown";
                             TelephonyManager telephonyManager = wrapper.getTelephonyManager();
@@ -555,6 +577,7 @@ public class CellularController extends AController
                             TelephonyManager.CellInfoCallback callback = cellInfoCallbackMap.get(wrapper.getSubscriptionId());
                             if (callback != null)
                             {
+                                cellInfoRequestTimes.put(wrapper.getSubscriptionId(), PipelineMetrics.now());
                                 wrapper.getTelephonyManager().requestCellInfoUpdate(executorService, callback);
                             } else
                             {
@@ -657,6 +680,7 @@ public class CellularController extends AController
                                     TelephonyManager.CellInfoCallback callback = cellInfoCallbackMap.get(wrapper.getSubscriptionId());
                                     if (callback != null)
                                     {
+                                        cellInfoRequestTimes.put(wrapper.getSubscriptionId(), PipelineMetrics.now());
                                         wrapper.getTelephonyManager().requestCellInfoUpdate(executorService, callback);
                                     } else
                                     {
@@ -742,6 +766,7 @@ public class CellularController extends AController
         if (umtsCsvLogger != null) umtsCsvLogger.enableLogging(false);
         if (cdmaCsvLogger != null) cdmaCsvLogger.enableLogging(false);
         if (gsmCsvLogger != null) gsmCsvLogger.enableLogging(false);
+        if (cellularProtobufLogger != null) cellularProtobufLogger.enableLogging(false);
     }
 
     /**
@@ -771,6 +796,10 @@ public class CellularController extends AController
                     surveyService.registerCellularSurveyRecordListener(cdmaCsvLogger);
                     surveyService.registerCellularSurveyRecordListener(gsmCsvLogger);
                 }
+                if (types.protobuf)
+                {
+                    surveyService.registerCellularSurveyRecordListener(cellularProtobufLogger);
+                }
             } else
             {
                 throw new IllegalArgumentException("LogTypeState cannot be null when enabling cellular logging");
@@ -783,6 +812,7 @@ public class CellularController extends AController
             surveyService.unregisterCellularSurveyRecordListener(umtsCsvLogger);
             surveyService.unregisterCellularSurveyRecordListener(cdmaCsvLogger);
             surveyService.unregisterCellularSurveyRecordListener(gsmCsvLogger);
+            surveyService.unregisterCellularSurveyRecordListener(cellularProtobufLogger);
             surveyService.unregisterDeviceStatusListener(phoneStateRecordLogger);
         }
     }
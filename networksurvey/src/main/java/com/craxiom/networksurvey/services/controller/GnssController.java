@@ -9,7 +9,6 @@ import android.location.GnssStatus;
 import android.location.LocationManager;
 import android.os.Build;
 import android.os.Handler;
-import android.os.Looper;
 
 import androidx.core.content.ContextCompat;
 
@@ -18,6 +17,7 @@ import com.craxiom.networksurvey.R;
 import com.craxiom.networksurvey.constants.NetworkSurveyConstants;
 import com.craxiom.networksurvey.listeners.IGnssFailureListener;
 import com.craxiom.networksurvey.logging.GnssCsvLogger;
+import com.craxiom.networksurvey.logging.GnssProtobufLogger;
 import com.craxiom.networksurvey.logging.GnssRecordLogger;
 import com.craxiom.networksurvey.model.LogTypeState;
 import com.craxiom.networksurvey.services.NetworkSurveyService;
@@ -69,20 +69,22 @@ public class GnssController extends AController
     private IGnssFailureListener gnssFailureListener;
     private final GnssRecordLogger gnssRecordLogger;
     private final GnssCsvLogger gnssCsvLogger;
+    private final GnssProtobufLogger gnssProtobufLogger;
     private long firstGpsAcqTime = Long.MIN_VALUE;
     private boolean gnssRawSupportKnown = false;
     private boolean hasGnssRawFailureNagLaunched = false;
 
     public GnssController(NetworkSurveyService surveyService, ExecutorService executorService,
-                          Looper serviceLooper, Handler serviceHandler,
+                          Handler serviceHandler,
                           SurveyRecordProcessor surveyRecordProcessor)
     {
         super(surveyService, executorService);
         this.serviceHandler = serviceHandler;
         this.surveyRecordProcessor = surveyRecordProcessor;
 
-        gnssRecordLogger = new GnssRecordLogger(surveyService, serviceLooper);
-        gnssCsvLogger = new GnssCsvLogger(surveyService, serviceLooper);
+        gnssRecordLogger = new GnssRecordLogger(surveyService);
+        gnssCsvLogger = new GnssCsvLogger(surveyService);
+        gnssProtobufLogger = new GnssProtobufLogger(surveyService);
     }
 
     @Override
@@ -94,6 +96,7 @@ public class GnssController extends AController
         {
             gnssRecordLogger.onDestroy();
             gnssCsvLogger.onDestroy();
+            gnssProtobufLogger.onDestroy();
             super.onDestroy();
         }
     }
@@ -117,6 +120,7 @@ public class GnssController extends AController
     {
         gnssRecordLogger.onSharedPreferenceChanged();
         gnssCsvLogger.onSharedPreferenceChanged();
+        gnssProtobufLogger.onSharedPreferenceChanged();
     }
 
     /**
@@ -127,6 +131,7 @@ public class GnssController extends AController
     {
         gnssRecordLogger.onMdmPreferenceChanged();
         gnssCsvLogger.onMdmPreferenceChanged();
+        gnssProtobufLogger.onMdmPreferenceChanged();
     }
 
     public void onLogFileTypePreferenceChanged()
@@ -192,6 +197,10 @@ public class GnssController extends AController
                 {
                     successful = gnssCsvLogger.enableLogging(true);
                 }
+                if (types.protobuf)
+                {
+                    successful = gnssProtobufLogger.enableLogging(true);
+                }
 
                 if (successful)
                 {
@@ -202,6 +211,7 @@ public class GnssController extends AController
                     // disable all of them and set local config to false
                     gnssRecordLogger.enableLogging(false);
                     gnssCsvLogger.enableLogging(false);
+                    gnssProtobufLogger.enableLogging(false);
                     toggleGnssConfig(false, null);
                 }
             } else
@@ -210,6 +220,7 @@ public class GnssController extends AController
                 // in case the user changed the setting after they started logging.
                 gnssRecordLogger.enableLogging(false);
                 gnssCsvLogger.enableLogging(false);
+                gnssProtobufLogger.enableLogging(false);
                 toggleGnssConfig(false, null);
                 successful = true;
             }
@@ -377,6 +388,7 @@ public class GnssController extends AController
     {
         if (gnssRecordLogger != null) gnssRecordLogger.enableLogging(false);
         if (gnssCsvLogger != null) gnssCsvLogger.enableLogging(false);
+        if (gnssProtobufLogger != null) gnssProtobufLogger.enableLogging(false);
     }
 
     private void toggleGnssConfig(boolean enable, LogTypeState types)
@@ -396,6 +408,10 @@ public class GnssController extends AController
                 {
                     surveyService.registerGnssSurveyRecordListener(gnssCsvLogger);
                 }
+                if (types.protobuf)
+                {
+                    surveyService.registerGnssSurveyRecordListener(gnssProtobufLogger);
+                }
             } else
             {
                 throw new IllegalArgumentException("LogTypeState cannot be null when enabling GNSS logging");
@@ -404,6 +420,7 @@ public class GnssController extends AController
         {
             surveyService.unregisterGnssSurveyRecordListener(gnssRecordLogger);
             surveyService.unregisterGnssSurveyRecordListener(gnssCsvLogger);
+            surveyService.unregisterGnssSurveyRecordListener(gnssProtobufLogger);
         }
     }
 
@@ -10,7 +10,6 @@ import android.net.wifi.ScanResult;
 import android.net.wifi.WifiManager;
 import android.os.Build;
 import android.os.Handler;
-import android.os.Looper;
 import android.provider.Settings;
 import android.widget.Toast;
 
@@ -19,6 +18,7 @@ import androidx.core.app.ActivityCompat;
 import com.craxiom.networksurvey.R;
 import com.craxiom.networksurvey.constants.NetworkSurveyConstants;
 import com.craxiom.networksurvey.logging.WifiCsvLogger;
+import com.craxiom.networksurvey.logging.WifiProtobufLogger;
 import com.craxiom.networksurvey.logging.WifiSurveyRecordLogger;
 import com.craxiom.networksurvey.model.LogTypeState;
 import com.craxiom.networksurvey.services.NetworkSurveyService;
@@ -51,10 +51,11 @@ public class WifiController extends AController
     private volatile int wifiScanRateMs;
     private final WifiSurveyRecordLogger wifiSurveyRecordLogger;
     private final WifiCsvLogger wifiCsvLogger;
+    private final WifiProtobufLogger wifiProtobufLogger;
     private BroadcastReceiver wifiScanReceiver;
 
     public WifiController(NetworkSurveyService surveyService, ExecutorService executorService,
-                          Looper serviceLooper, Handler serviceHandler,
+                          Handler serviceHandler,
                           SurveyRecordProcessor surveyRecordProcessor, Handler uiThreadHandler)
     {
         super(surveyService, executorService);
@@ -63,8 +64,9 @@ public class WifiController extends AController
         this.surveyRecordProcessor = surveyRecordProcessor;
         this.uiThreadHandler = uiThreadHandler;
 
-        wifiSurveyRecordLogger = new WifiSurveyRecordLogger(surveyService, serviceLooper);
-        wifiCsvLogger = new WifiCsvLogger(surveyService, serviceLooper);
+        wifiSurveyRecordLogger = new WifiSurveyRecordLogger(surveyService);
+        wifiCsvLogger = new WifiCsvLogger(surveyService);
+        wifiProtobufLogger = new WifiProtobufLogger(surveyService);
     }
 
     @Override
@@ -76,6 +78,7 @@ public class WifiController extends AController
         {
             wifiSurveyRecordLogger.onDestroy();
             wifiCsvLogger.onDestroy();
+            wifiProtobufLogger.onDestroy();
             super.onDestroy();
         }
     }
@@ -99,6 +102,7 @@ public class WifiController extends AController
     {
         wifiSurveyRecordLogger.onSharedPreferenceChanged();
         wifiCsvLogger.onSharedPreferenceChanged();
+        wifiProtobufLogger.onSharedPreferenceChanged();
     }
 
     /**
@@ -109,6 +113,7 @@ public class WifiController extends AController
     {
         wifiSurveyRecordLogger.onMdmPreferenceChanged();
         wifiCsvLogger.onMdmPreferenceChanged();
+        wifiProtobufLogger.onMdmPreferenceChanged();
     }
 
     public void onLogFileTypePreferenceChanged()
@@ -178,6 +183,10 @@ public class WifiController extends AController
                 {
                     successful = wifiCsvLogger.enableLogging(true);
                 }
+                if (types.protobuf)
+                {
+                    successful = wifiProtobufLogger.enableLogging(true);
+                }
 
                 if (successful)
                 {
@@ -188,6 +197,7 @@ public class WifiController extends AController
                     // disable all of them and set local config to false
                     wifiSurveyRecordLogger.enableLogging(false);
                     wifiCsvLogger.enableLogging(false);
+                    wifiProtobufLogger.enableLogging(false);
                     toggleWifiConfig(false, null);
                 }
             } else
@@ -196,6 +206,7 @@ public class WifiController extends AController
                 // in case the user changed the setting after they started logging.
                 wifiSurveyRecordLogger.enableLogging(false);
                 wifiCsvLogger.enableLogging(false);
+                wifiProtobufLogger.enableLogging(false);
                 toggleWifiConfig(false, null);
                 successful = true;
             }
@@ -357,6 +368,7 @@ public class WifiController extends AController
     {
         if (wifiSurveyRecordLogger != null) wifiSurveyRecordLogger.enableLogging(false);
         if (wifiCsvLogger != null) wifiCsvLogger.enableLogging(false);
+        if (wifiProtobufLogger != null) wifiProtobufLogger.enableLogging(false);
     }
 
     private void toggleWifiConfig(boolean enable, LogTypeState types)
@@ -376,6 +388,10 @@ public class WifiController extends AController
                 {
                     surveyService.registerWifiSurveyRecordListener(wifiCsvLogger);
                 }
+                if (types.protobuf)
+                {
+                    surveyService.registerWifiSurveyRecordListener(wifiProtobufLogger);
+                }
             } else
             {
                 throw new IllegalArgumentException("LogTypeState cannot be null when enabling wifi logging");
@@ -384,6 +400,7 @@ public class WifiController extends AController
         {
             surveyService.unregisterWifiSurveyRecordListener(wifiSurveyRecordLogger);
             surveyService.unregisterWifiSurveyRecordListener(wifiCsvLogger);
+            surveyService.unregisterWifiSurveyRecordListener(wifiProtobufLogger);
         }
     }
 
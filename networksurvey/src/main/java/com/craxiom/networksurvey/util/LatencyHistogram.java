@@ -0,0 +1,203 @@
+package com.craxiom.networksurvey.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latency values that can be recorded from any thread without locking or allocating.
+ * <p>
+ * The values are recorded in microseconds into log-linear buckets, in the same way as HdrHistogram:
+ * values below {@code 2 * SUB_BUCKET_COUNT} each get their own bucket, and above that every power of
+ * two range is split into {@link #SUB_BUCKET_COUNT} equal buckets. This keeps the error of any
+ * reported value under 1 / {@link #SUB_BUCKET_COUNT} (about 6%) while covering everything from one
+ * microsecond up to {@link #MAX_VALUE_US} in a few hundred buckets.
+ * <p>
+ * The counts only ever go up. To look at a window of time, take a {@link #snapshot()} at the start
+ * and end of the window and use {@link Snapshot#since(Snapshot)}.
+ *
+ * @since 1.25.0
+ */
+public final class LatencyHistogram
+{
+    static final int SUB_BUCKET_COUNT = 16;
+    private static final int SUB_BUCKET_BITS = 4;
+
+    /**
+     * The largest value that can be recorded (about 19 hours). Anything larger is recorded as this
+     * value.
+     */
+    static final long MAX_VALUE_US = (1L << 36) - 1;
+
+    static final int BUCKET_COUNT = bucketIndex(MAX_VALUE_US) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong totalMicros = new AtomicLong();
+
+    /**
+     * Records a latency value.
+     *
+     * @param nanos The latency in nanoseconds. Negative values are recorded as zero.
+     */
+    public void recordNanos(long nanos)
+    {
+        recordMicros(nanos / 1_000);
+    }
+
+    /**
+     * Records a latency value.
+     *
+     * @param micros The latency in microseconds. Negative values are recorded as zero.
+     */
+    public void recordMicros(long micros)
+    {
+        final long value = micros < 0 ? 0 : Math.min(micros, MAX_VALUE_US);
+        counts.incrementAndGet(bucketIndex(value));
+        totalMicros.addAndGet(value);
+    }
+
+    /**
+     * @return A copy of the counts recorded so far. Values that are being recorded while the copy is
+     * made might or might not be included.
+     */
+    public Snapshot snapshot()
+    {
+        final long[] copy = new long[BUCKET_COUNT];
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++)
+        {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+
+        // The count is summed from the buckets so that it always agrees with the percentiles
+        return new Snapshot(copy, count, totalMicros.get());
+    }
+
+    static int bucketIndex(long value)
+    {
+        if (value < 2 * SUB_BUCKET_COUNT) return (int) value;
+
+        final int exponent = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+        return SUB_BUCKET_COUNT * (exponent + 1) + (int) ((value >>> exponent) - SUB_BUCKET_COUNT);
+    }
+
+    static long lowestValueInBucket(int index)
+    {
+        if (index < 2 * SUB_BUCKET_COUNT) return index;
+
+        final int exponent = index / SUB_BUCKET_COUNT - 1;
+        return (long) (index % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT) << exponent;
+    }
+
+    static long highestValueInBucket(int index)
+    {
+        if (index < 2 * SUB_BUCKET_COUNT) return index;
+
+        final int exponent = index / SUB_BUCKET_COUNT - 1;
+        return lowestValueInBucket(index) + (1L << exponent) - 1;
+    }
+
+    /**
+     * An immutable copy of the counts in a {@link LatencyHistogram}. All the values are in
+     * microseconds, and are accurate to within the bucket size.
+     */
+    public static final class Snapshot
+    {
+        private final long[] counts;
+        private final long count;
+        private final long totalMicros;
+
+        private Snapshot(long[] counts, long count, long totalMicros)
+        {
+            this.counts = counts;
+            this.count = count;
+            this.totalMicros = totalMicros;
+        }
+
+        /**
+         * @param earlier A snapshot taken from the same histogram before this one.
+         * @return A snapshot of only the values that were recorded between the two snapshots.
+         */
+        public Snapshot since(Snapshot earlier)
+        {
+            final long[] difference = new long[BUCKET_COUNT];
+            long differenceCount = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++)
+            {
+                difference[i] = Math.max(0, counts[i] - earlier.counts[i]);
+                differenceCount += difference[i];
+            }
+
+            return new Snapshot(difference, differenceCount, Math.max(0, totalMicros - earlier.totalMicros));
+        }
+
+        /**
+         * @return The number of values in the snapshot.
+         */
+        public long getCount()
+        {
+            return count;
+        }
+
+        /**
+         * @return The average value, or 0 if the snapshot is empty.
+         */
+        public double getMeanMicros()
+        {
+            return count == 0 ? 0 : (double) totalMicros / count;
+        }
+
+        /**
+         * @return The smallest value, or 0 if the snapshot is empty.
+         */
+        public long getMinMicros()
+        {
+            for (int i = 0; i < BUCKET_COUNT; i++)
+            {
+                if (counts[i] != 0) return lowestValueInBucket(i);
+            }
+            return 0;
+        }
+
+        /**
+         * @return The largest value, or 0 if the snapshot is empty.
+         */
+        public long getMaxMicros()
+        {
+            for (int i = BUCKET_COUNT - 1; i >= 0; i--)
+            {
+                if (counts[i] != 0) return highestValueInBucket(i);
+            }
+            return 0;
+        }
+
+        /**
+         * @param percentile The percentile to get, from 0 to 100 (e.g. 99.9).
+         * @return The value that the provided percentage of the values are at or below, or 0 if the
+         * snapshot is empty.
+         */
+        public long getValueAtPercentile(double percentile)
+        {
+            if (count == 0) return 0;
+
+            final double clamped = Math.min(Math.max(percentile, 0), 100);
+            final long target = Math.max(1, (long) Math.ceil(clamped / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++)
+            {
+                seen += counts[i];
+                if (seen >= target) return highestValueInBucket(i);
+            }
+            return getMaxMicros();
+        }
+
+        /**
+         * Converts a value from this snapshot to milliseconds.
+         */
+        public static double toMillis(double micros)
+        {
+            return micros / TimeUnit.MILLISECONDS.toMicros(1);
+        }
+    }
+}
@@ -249,6 +249,345 @@ public class PreferenceUtils
         return Integer.parseInt(NetworkSurveyConstants.DEFAULT_ROLLOVER_SIZE_MB);
     }
 
+    /**
+     * Gets the storage quota preference, which is the max total size of all the survey log files. Once the log files go
+     * over this size, the oldest ones are compressed or deleted.
+     * <p>
+     * First, this method tries to pull the MDM provided value. If it is not set (either because the device is
+     * not under MDM control, or if that specific value is not set by the MDM administrator) then the value is pulled
+     * from the Android Shared Preferences (aka from the user settings). If it is not set there then the default value
+     * is used.
+     * <p>
+     * The only exception to this sequence is that if the user has toggled the MDM override switch in user settings,
+     * then the user preference value will be used instead of the MDM value.
+     *
+     * @param context The context to use when getting the Shared Preferences and Restriction Manager.
+     * @return The storage quota in MB, or 0 if there is no quota.
+     * @since 1.25.0
+     */
+    public static int getLogStorageQuotaPreference(Context context)
+    {
+        final RestrictionsManager restrictionsManager = (RestrictionsManager) context.getSystemService(Context.RESTRICTIONS_SERVICE);
+
+        final boolean mdmOverride = PreferenceManager.getDefaultSharedPreferences(context).getBoolean(NetworkSurveyConstants.PROPERTY_MDM_OVERRIDE_KEY, false);
+
+        // First try to use the MDM provided value.
+        if (restrictionsManager != null && !mdmOverride)
+        {
+            final Bundle mdmProperties = restrictionsManager.getApplicationRestrictions();
+
+            if (mdmProperties.containsKey(NetworkSurveyConstants.PROPERTY_LOG_STORAGE_QUOTA_MB))
+            {
+                final int storageQuotaMb = mdmProperties.getInt(NetworkSurveyConstants.PROPERTY_LOG_STORAGE_QUOTA_MB);
+                if (storageQuotaMb >= 0) return storageQuotaMb;
+            }
+        }
+
+        final SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(context);
+
+        // Next, try to use the value from user preferences.
+        final String storageQuotaMbString = preferences.getString(NetworkSurveyConstants.PROPERTY_LOG_STORAGE_QUOTA_MB, NetworkSurveyConstants.DEFAULT_LOG_STORAGE_QUOTA_MB);
+        try
+        {
+            final int storageQuotaMb = Integer.parseInt(storageQuotaMbString);
+            if (storageQuotaMb >= 0) return storageQuotaMb;
+        } catch (Exception e)
+        {
+            Timber.e(e, "Could not convert the log storage quota user preference (%s) to an int", storageQuotaMbString);
+        }
+
+        return Integer.parseInt(NetworkSurveyConstants.DEFAULT_LOG_STORAGE_QUOTA_MB);
+    }
+
+    /**
+     * Gets the log retention preference, which is the number of days that a closed survey log file is kept before it
+     * is deleted.
+     * <p>
+     * First, this method tries to pull the MDM provided value. If it is not set (either because the device is
+     * not under MDM control, or if that specific value is not set by the MDM administrator) then the value is pulled
+     * from the Android Shared Preferences (aka from the user settings). If it is not set there then the default value
+     * is used.
+     * <p>
+     * The only exception to this sequence is that if the user has toggled the MDM override switch in user settings,
+     * then the user preference value will be used instead of the MDM value.
+     *
+     * @param context The context to use when getting the Shared Preferences and Restriction Manager.
+     * @return The number of days to keep the log files, or 0 if they should be kept forever.
+     * @since 1.25.0
+     */
+    public static int getLogRetentionDaysPreference(Context context)
+    {
+        final RestrictionsManager restrictionsManager = (RestrictionsManager) context.getSystemService(Context.RESTRICTIONS_SERVICE);
+
+        final boolean mdmOverride = PreferenceManager.getDefaultSharedPreferences(context).getBoolean(NetworkSurveyConstants.PROPERTY_MDM_OVERRIDE_KEY, false);
+
+        // First try to use the MDM provided value.
+        if (restrictionsManager != null && !mdmOverride)
+        {
+            final Bundle mdmProperties = restrictionsManager.getApplicationRestrictions();
+
+            if (mdmProperties.containsKey(NetworkSurveyConstants.PROPERTY_LOG_RETENTION_DAYS))
+            {
+                final int retentionDays = mdmProperties.getInt(NetworkSurveyConstants.PROPERTY_LOG_RETENTION_DAYS);
+                if (retentionDays >= 0) return retentionDays;
+            }
+        }
+
+        final SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(context);
+
+        // Next, try to use the value from user preferences.
+        final String retentionDaysString = preferences.getString(NetworkSurveyConstants.PROPERTY_LOG_RETENTION_DAYS, NetworkSurveyConstants.DEFAULT_LOG_RETENTION_DAYS);
+        try
+        {
+            final int retentionDays = Integer.parseInt(retentionDaysString);
+            if (retentionDays >= 0) return retentionDays;
+        } catch (Exception e)
+        {
+            Timber.e(e, "Could not convert the log retention days user preference (%s) to an int", retentionDaysString);
+        }
+
+        return Integer.parseInt(NetworkSurveyConstants.DEFAULT_LOG_RETENTION_DAYS);
+    }
+
+    /**
+     * Gets the high throughput logging preference, which indicates if new GeoPackage log files should be opened using
+     * the high throughput SQLite profile (write-ahead logging, relaxed syncing, and a larger page and cache size).
+     * <p>
+     * First, this method tries to pull the MDM provided value. If it is not set (either because the device is not
+     * under MDM control, or if that specific value is not set by the MDM administrator) then the value is pulled from
+     * the Android Shared Preferences (aka from the user settings). If it is not set there then the default value is
+     * used.
+     * <p>
+     * The only exception to this sequence is that if the user has toggled the MDM override switch in user settings,
+     * then the user preference value will be used instead of the MDM value.
+     *
+     * @param context The context to use when getting the Shared Preferences and Restriction Manager.
+     * @return True if the high throughput profile should be used for new GeoPackage files.
+     * @since 1.25.0
+     */
+    public static boolean getHighThroughputLoggingPreference(Context context)
+    {
+        final RestrictionsManager restrictionsManager = (RestrictionsManager) context.getSystemService(Context.RESTRICTIONS_SERVICE);
+
+        final boolean mdmOverride = PreferenceManager.getDefaultSharedPreferences(context).getBoolean(NetworkSurveyConstants.PROPERTY_MDM_OVERRIDE_KEY, false);
+
+        // First try to use the MDM provided value.
+        if (restrictionsManager != null && !mdmOverride)
+        {
+            final Bundle mdmProperties = restrictionsManager.getApplicationRestrictions();
+
+            if (mdmProperties.containsKey(NetworkSurveyConstants.PROPERTY_HIGH_THROUGHPUT_LOGGING))
+            {
+                return mdmProperties.getBoolean(NetworkSurveyConstants.PROPERTY_HIGH_THROUGHPUT_LOGGING);
+            }
+        }
+
+        final SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(context);
+
+        // Next, try to use the value from user preferences, with a default fallback
+        return preferences.getBoolean(NetworkSurveyConstants.PROPERTY_HIGH_THROUGHPUT_LOGGING,
+                NetworkSurveyConstants.DEFAULT_HIGH_THROUGHPUT_LOGGING);
+    }
+
+    /**
+     * Gets the preference that indicates if the spatial and time indexes should be built for each GeoPackage log file
+     * once it has been closed.
+     * <p>
+     * First, this method tries to pull the MDM provided value. If it is not set (either because the device is not
+     * under MDM control, or if that specific value is not set by the MDM administrator) then the value is pulled from
+     * the Android Shared Preferences (aka from the user settings). If it is not set there then the default value is
+     * used.
+     * <p>
+     * The only exception to this sequence is that if the user has toggled the MDM override switch in user settings,
+     * then the user preference value will be used instead of the MDM value.
+     *
+     * @param context The context to use when getting the Shared Preferences and Restriction Manager.
+     * @return True if the GeoPackage log files should be indexed when they are closed.
+     * @since 1.25.0
+     */
+    public static boolean getIndexLogFilesPreference(Context context)
+    {
+        final RestrictionsManager restrictionsManager = (RestrictionsManager) context.getSystemService(Context.RESTRICTIONS_SERVICE);
+
+        final boolean mdmOverride = PreferenceManager.getDefaultSharedPreferences(context).getBoolean(NetworkSurveyConstants.PROPERTY_MDM_OVERRIDE_KEY, false);
+
+        // First try to use the MDM provided value.
+        if (restrictionsManager != null && !mdmOverride)
+        {
+            final Bundle mdmProperties = restrictionsManager.getApplicationRestrictions();
+
+            if (mdmProperties.containsKey(NetworkSurveyConstants.PROPERTY_INDEX_LOG_FILES))
+            {
+                return mdmProperties.getBoolean(NetworkSurveyConstants.PROPERTY_INDEX_LOG_FILES);
+            }
+        }
+
+        final SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(context);
+
+        // Next, try to use the value from user preferences, with a default fallback
+        return preferences.getBoolean(NetworkSurveyConstants.PROPERTY_INDEX_LOG_FILES,
+                NetworkSurveyConstants.DEFAULT_INDEX_LOG_FILES);
+    }
+
+    /**
+     * Gets the preference that indicates if new GeoPackage log files should use the compact schema, where repeated text
+     * values are stored once in a lookup table and referenced by ID.
+     * <p>
+     * First, this method tries to pull the MDM provided value. If it is not set (either because the device is not
+     * under MDM control, or if that specific value is not set by the MDM administrator) then the value is pulled from
+     * the Android Shared Preferences (aka from the user settings). If it is not set there then the default value is
+     * used.
+     * <p>
+     * The only exception to this sequence is that if the user has toggled the MDM override switch in user settings,
+     * then the user preference value will be used instead of the MDM value.
+     *
+     * @param context The context to use when getting the Shared Preferences and Restriction Manager.
+     * @return True if the compact schema should be used for new GeoPackage files.
+     * @since 1.25.0
+     */
+    public static boolean getCompactGeoPackageSchemaPreference(Context context)
+    {
+        final RestrictionsManager restrictionsManager = (RestrictionsManager) context.getSystemService(Context.RESTRICTIONS_SERVICE);
+
+        final boolean mdmOverride = PreferenceManager.getDefaultSharedPreferences(context).getBoolean(NetworkSurveyConstants.PROPERTY_MDM_OVERRIDE_KEY, false);
+
+        // First try to use the MDM provided value.
+        if (restrictionsManager != null && !mdmOverride)
+        {
+            final Bundle mdmProperties = restrictionsManager.getApplicationRestrictions();
+
+            if (mdmProperties.containsKey(NetworkSurveyConstants.PROPERTY_COMPACT_GEOPACKAGE_SCHEMA))
+            {
+                return mdmProperties.getBoolean(NetworkSurveyConstants.PROPERTY_COMPACT_GEOPACKAGE_SCHEMA);
+            }
+        }
+
+        final SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(context);
+
+        // Next, try to use the value from user preferences, with a default fallback
+        return preferences.getBoolean(NetworkSurveyConstants.PROPERTY_COMPACT_GEOPACKAGE_SCHEMA,
+                NetworkSurveyConstants.DEFAULT_COMPACT_GEOPACKAGE_SCHEMA);
+    }
+
+    /**
+     * Gets the preference that indicates if all the GeoPackage files that were rolled over during a logging session
+     * should be merged into a single file once logging stops.
+     * <p>
+     * First, this method tries to pull the MDM provided value. If it is not set (either because the device is not
+     * under MDM control, or if that specific value is not set by the MDM administrator) then the value is pulled from
+     * the Android Shared Preferences (aka from the user settings). If it is not set there then the default value is
+     * used.
+     * <p>
+     * The only exception to this sequence is that if the user has toggled the MDM override switch in user settings,
+     * then the user preference value will be used instead of the MDM value.
+     *
+     * @param context The context to use when getting the Shared Preferences and Restriction Manager.
+     * @return True if the GeoPackage files from a logging session should be merged when logging stops.
+     * @since 1.25.0
+     */
+    public static boolean getMergeLogFilesPreference(Context context)
+    {
+        final RestrictionsManager restrictionsManager = (RestrictionsManager) context.getSystemService(Context.RESTRICTIONS_SERVICE);
+
+        final boolean mdmOverride = PreferenceManager.getDefaultSharedPreferences(context).getBoolean(NetworkSurveyConstants.PROPERTY_MDM_OVERRIDE_KEY, false);
+
+        // First try to use the MDM provided value.
+        if (restrictionsManager != null && !mdmOverride)
+        {
+            final Bundle mdmProperties = restrictionsManager.getApplicationRestrictions();
+
+            if (mdmProperties.containsKey(NetworkSurveyConstants.PROPERTY_MERGE_LOG_FILES))
+            {
+                return mdmProperties.getBoolean(NetworkSurveyConstants.PROPERTY_MERGE_LOG_FILES);
+            }
+        }
+
+        final SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(context);
+
+        // Next, try to use the value from user preferences, with a default fallback
+        return preferences.getBoolean(NetworkSurveyConstants.PROPERTY_MERGE_LOG_FILES,
+                NetworkSurveyConstants.DEFAULT_MERGE_LOG_FILES);
+    }
+
+    /**
+     * Gets the preference that indicates if all the survey types should be logged to a single shared GeoPackage file
+     * instead of one file per survey type. This is only read when the service is created.
+     * <p>
+     * First, this method tries to pull the MDM provided value. If it is not set (either because the device is not
+     * under MDM control, or if that specific value is not set by the MDM administrator) then the value is pulled from
+     * the Android Shared Preferences (aka from the user settings). If it is not set there then the default value is
+     * used.
+     * <p>
+     * The only exception to this sequence is that if the user has toggled the MDM override switch in user settings,
+     * then the user preference value will be used instead of the MDM value.
+     *
+     * @param context The context to use when getting the Shared Preferences and Restriction Manager.
+     * @return True if all the survey types should be logged to a single GeoPackage file.
+     * @since 1.25.0
+     */
+    public static boolean getUnifiedGeoPackagePreference(Context context)
+    {
+        final RestrictionsManager restrictionsManager = (RestrictionsManager) context.getSystemService(Context.RESTRICTIONS_SERVICE);
+
+        final boolean mdmOverride = PreferenceManager.getDefaultSharedPreferences(context).getBoolean(NetworkSurveyConstants.PROPERTY_MDM_OVERRIDE_KEY, false);
+
+        // First try to use the MDM provided value.
+        if (restrictionsManager != null && !mdmOverride)
+        {
+            final Bundle mdmProperties = restrictionsManager.getApplicationRestrictions();
+
+            if (mdmProperties.containsKey(NetworkSurveyConstants.PROPERTY_UNIFIED_GEOPACKAGE))
+            {
+                return mdmProperties.getBoolean(NetworkSurveyConstants.PROPERTY_UNIFIED_GEOPACKAGE);
+            }
+        }
+
+        final SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(context);
+
+        // Next, try to use the value from user preferences, with a default fallback
+        return preferences.getBoolean(NetworkSurveyConstants.PROPERTY_UNIFIED_GEOPACKAGE,
+                NetworkSurveyConstants.DEFAULT_UNIFIED_GEOPACKAGE);
+    }
+
+    /**
+     * Gets the preference that indicates if new CSV log files should be written as gzip compressed files.
+     * <p>
+     * First, this method tries to pull the MDM provided value. If it is not set (either because the device is not
+     * under MDM control, or if that specific value is not set by the MDM administrator) then the value is pulled from
+     * the Android Shared Preferences (aka from the user settings). If it is not set there then the default value is
+     * used.
+     * <p>
+     * The only exception to this sequence is that if the user has toggled the MDM override switch in user settings,
+     * then the user preference value will be used instead of the MDM value.
+     *
+     * @param context The context to use when getting the Shared Preferences and Restriction Manager.
+     * @return True if new CSV log files should be gzip compressed.
+     * @since 1.25.0
+     */
+    public static boolean getCompressCsvLogFilesPreference(Context context)
+    {
+        final RestrictionsManager restrictionsManager = (RestrictionsManager) context.getSystemService(Context.RESTRICTIONS_SERVICE);
+
+        final boolean mdmOverride = PreferenceManager.getDefaultSharedPreferences(context).getBoolean(NetworkSurveyConstants.PROPERTY_MDM_OVERRIDE_KEY, false);
+
+        // First try to use the MDM provided value.
+        if (restrictionsManager != null && !mdmOverride)
+        {
+            final Bundle mdmProperties = restrictionsManager.getApplicationRestrictions();
+
+            if (mdmProperties.containsKey(NetworkSurveyConstants.PROPERTY_COMPRESS_CSV_LOG_FILES))
+            {
+                return mdmProperties.getBoolean(NetworkSurveyConstants.PROPERTY_COMPRESS_CSV_LOG_FILES);
+            }
+        }
+
+        final SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(context);
+
+        // Next, try to use the value from user preferences, with a default fallback
+        return preferences.getBoolean(NetworkSurveyConstants.PROPERTY_COMPRESS_CSV_LOG_FILES,
+                NetworkSurveyConstants.DEFAULT_COMPRESS_CSV_LOG_FILES);
+    }
+
     /**
      * Gets the log file type preference.
      * <p>
@@ -379,6 +718,7 @@ public class PreferenceUtils
     {
         boolean csv = false;
         boolean geoPackage = false;
+        boolean protobuf = false;
         switch (index)
         {
             case "0" -> // CSV Only
@@ -390,6 +730,8 @@ public class PreferenceUtils
                 csv = true;
                 geoPackage = true;
             }
+            case "3" -> // Protobuf Binary Only
+                    protobuf = true;
             default ->
             {
                 Timber.wtf("Unhandled log type setting=%s", index);
@@ -398,7 +740,7 @@ public class PreferenceUtils
             }
         }
 
-        return new LogTypeState(csv, geoPackage);
+        return new LogTypeState(csv, geoPackage, protobuf);
     }
 
     /**
@@ -0,0 +1,432 @@
+package com.craxiom.networksurvey.logging;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link ArrowStreamWriter} class.
+ * <p>
+ * The stream is read back with a small reader that is written from the Arrow columnar format spec
+ * (the Schema.fbs and Message.fbs field IDs, and the buffer layouts), independently of the
+ * {@link FlatBufferWriter}, so that a mistake in the writer's tables or buffers shows up as a wrong
+ * value rather than being mirrored by the test.
+ *
+ * @since 1.25.0
+ */
+public class ArrowStreamWriterTest
+{
+    private static final int SCHEMA = 1;
+    private static final int DICTIONARY_BATCH = 2;
+    private static final int RECORD_BATCH = 3;
+
+    private static final List<ArrowStreamWriter.Column> COLUMNS = Arrays.asList(
+            new ArrowStreamWriter.Column(ArrowStreamWriter.LONGITUDE_COLUMN, ArrowStreamWriter.ColumnType.FLOAT64),
+            new ArrowStreamWriter.Column(ArrowStreamWriter.LATITUDE_COLUMN, ArrowStreamWriter.ColumnType.FLOAT64),
+            new ArrowStreamWriter.Column(ArrowStreamWriter.ALTITUDE_COLUMN, ArrowStreamWriter.ColumnType.FLOAT64),
+            new ArrowStreamWriter.Column("time", ArrowStreamWriter.ColumnType.TIMESTAMP),
+            new ArrowStreamWriter.Column("servingCell", ArrowStreamWriter.ColumnType.BOOL),
+            new ArrowStreamWriter.Column("provider", ArrowStreamWriter.ColumnType.STRING));
+
+    @Test
+    public void close_withoutRows_writesTheSchemaDictionaryAndEndOfStream() throws IOException
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ArrowStreamWriter writer = new ArrowStreamWriter(out, COLUMNS, 10);
+        writer.close();
+
+        assertEquals(Arrays.asList(SCHEMA, DICTIONARY_BATCH), readMessageTypes(out.toByteArray()));
+    }
+
+    @Test
+    public void insert_writesARecordBatchForEachFullRowGroup() throws IOException
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ArrowStreamWriter writer = new ArrowStreamWriter(out, COLUMNS, 2);
+        final String[] providers = {"T-Mobile", "T-Mobile", null, "T-Mobile", "AT&T"};
+        for (int i = 0; i < providers.length; i++)
+        {
+            writer.bindPoint(-104.5, 38.5 + i, 1800);
+            writer.bindLong(writer.getColumnIndex("time"), 1682956800000L + i);
+            writer.bindBoolean(writer.getColumnIndex("servingCell"), i == 0);
+            writer.bindString(writer.getColumnIndex("provider"), providers[i]);
+            assertEquals(i + 1, writer.insert());
+        }
+        writer.close();
+
+        // Only the last row group has a new String, so that is the only delta dictionary
+        assertEquals(Arrays.asList(SCHEMA, DICTIONARY_BATCH, RECORD_BATCH, RECORD_BATCH, DICTIONARY_BATCH, RECORD_BATCH),
+                readMessageTypes(out.toByteArray()));
+        assertEquals(5, writer.getRowsWritten());
+    }
+
+    @Test
+    public void insert_valuesCanBeReadBackFromTheStream() throws IOException
+    {
+        final List<ArrowStreamWriter.Column> columns = new ArrayList<>(COLUMNS);
+        columns.add(new ArrowStreamWriter.Column("pci", ArrowStreamWriter.ColumnType.INT64));
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ArrowStreamWriter writer = new ArrowStreamWriter(out, columns, 3);
+        final String[] providers = {"T-Mobile", null, "T-Mobile", "AT&T", "Verizon", "AT&T", null};
+        for (int i = 0; i < providers.length; i++)
+        {
+            writer.bindPoint(-104.5 - i, 38.5 + i, 1800.25);
+            if (i != 2) writer.bindLong(writer.getColumnIndex("time"), 1682956800000L + i);
+            writer.bindBoolean(writer.getColumnIndex("servingCell"), i % 3 == 0);
+            writer.bindString(writer.getColumnIndex("provider"), providers[i]);
+            if (i % 2 == 0) writer.bindLong(writer.getColumnIndex("pci"), 100 + i);
+            writer.insert();
+        }
+        writer.close();
+
+        final ArrowStreamReader reader = new ArrowStreamReader(out.toByteArray());
+
+        assertEquals(Arrays.asList("longitude:Float64", "latitude:Float64", "altitude:Float64",
+                "time:Timestamp(ms, UTC)", "servingCell:Bool", "provider:Dictionary(Int32, Utf8)", "pci:Int64"), reader.fields);
+        assertEquals(Arrays.asList(3, 3, 1), reader.batchLengths);
+        assertEquals(Arrays.asList(-104.5, -105.5, -106.5, -107.5, -108.5, -109.5, -110.5), reader.columns.get("longitude"));
+        assertEquals(Arrays.asList(38.5, 39.5, 40.5, 41.5, 42.5, 43.5, 44.5), reader.columns.get("latitude"));
+        assertEquals(Arrays.asList(1682956800000L, 1682956800001L, null, 1682956800003L, 1682956800004L,
+                1682956800005L, 1682956800006L), reader.columns.get("time"));
+        assertEquals(Arrays.asList(true, false, false, true, false, false, true), reader.columns.get("servingCell"));
+        assertEquals(Arrays.asList(providers), reader.columns.get("provider"));
+        assertEquals(Arrays.asList(100L, null, 102L, null, 104L, null, 106L), reader.columns.get("pci"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void bindString_rejectsANumericColumn() throws IOException
+    {
+        final ArrowStreamWriter writer = new ArrowStreamWriter(new ByteArrayOutputStream(), COLUMNS, 2);
+        writer.bindString(writer.getColumnIndex("time"), "noon");
+    }
+
+    /**
+     * Walks the encapsulated messages in the stream, checking the framing and alignment along the way.
+     *
+     * @return The header type of each message, up to the end of stream marker.
+     */
+    private static List<Integer> readMessageTypes(byte[] stream)
+    {
+        final ByteBuffer buffer = ByteBuffer.wrap(stream).order(ByteOrder.LITTLE_ENDIAN);
+        final List<Integer> types = new ArrayList<>();
+        while (true)
+        {
+            assertEquals(0, buffer.position() % 8);
+            assertEquals(0xFFFFFFFF, buffer.getInt());
+            final int metadataLength = buffer.getInt();
+            if (metadataLength == 0) break;
+            assertEquals(0, metadataLength % 8);
+
+            // The Message table: version (0), header_type (1), header (2), and bodyLength (3)
+            final int metadataStart = buffer.position();
+            final int table = metadataStart + buffer.getInt(metadataStart);
+            final int vtable = table - buffer.getInt(table);
+            assertEquals(4, buffer.getShort(table + buffer.getShort(vtable + 4)));
+            types.add((int) buffer.get(table + buffer.getShort(vtable + 6)));
+            final long bodyLength = buffer.getLong(table + buffer.getShort(vtable + 10));
+            assertEquals(0, bodyLength % 8);
+
+            buffer.position(metadataStart + metadataLength + (int) bodyLength);
+        }
+
+        assertEquals(stream.length, buffer.position());
+        return types;
+    }
+
+    /**
+     * Reads a table from a FlatBuffer, following the encoding in the FlatBuffers internals doc.
+     */
+    private static final class FlatTable
+    {
+        private final ByteBuffer buffer;
+        private final int position;
+
+        private FlatTable(ByteBuffer buffer, int position)
+        {
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        static FlatTable root(ByteBuffer buffer, int start)
+        {
+            return new FlatTable(buffer, start + buffer.getInt(start));
+        }
+
+        /**
+         * @return The position of the field, or 0 if the field is not set.
+         */
+        private int field(int id)
+        {
+            final int vtable = position - buffer.getInt(position);
+            final int entry = 4 + 2 * id;
+            if (entry >= buffer.getShort(vtable)) return 0;
+            final int offset = buffer.getShort(vtable + entry);
+            return offset == 0 ? 0 : position + offset;
+        }
+
+        private int indirect(int id)
+        {
+            final int field = field(id);
+            return field == 0 ? 0 : field + buffer.getInt(field);
+        }
+
+        byte getByte(int id)
+        {
+            final int field = field(id);
+            return field == 0 ? 0 : buffer.get(field);
+        }
+
+        boolean getBoolean(int id)
+        {
+            return getByte(id) != 0;
+        }
+
+        short getShort(int id)
+        {
+            final int field = field(id);
+            return field == 0 ? 0 : buffer.getShort(field);
+        }
+
+        int getInt(int id)
+        {
+            final int field = field(id);
+            return field == 0 ? 0 : buffer.getInt(field);
+        }
+
+        long getLong(int id)
+        {
+            final int field = field(id);
+            return field == 0 ? 0 : buffer.getLong(field);
+        }
+
+        FlatTable getTable(int id)
+        {
+            final int table = indirect(id);
+            return table == 0 ? null : new FlatTable(buffer, table);
+        }
+
+        String getString(int id)
+        {
+            final int string = indirect(id);
+            if (string == 0) return null;
+            final byte[] bytes = new byte[buffer.getInt(string)];
+            for (int i = 0; i < bytes.length; i++)
+            {
+                bytes[i] = buffer.get(string + 4 + i);
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        int getVectorLength(int id)
+        {
+            final int vector = indirect(id);
+            return vector == 0 ? 0 : buffer.getInt(vector);
+        }
+
+        FlatTable getTableAt(int id, int index)
+        {
+            final int element = indirect(id) + 4 + 4 * index;
+            return new FlatTable(buffer, element + buffer.getInt(element));
+        }
+
+        /**
+         * @return The long at the index in a vector of structs that only have long fields (e.g. the
+         * FieldNode and Buffer structs), counting the longs rather than the structs.
+         */
+        long getStructLongAt(int id, int index)
+        {
+            return buffer.getLong(indirect(id) + 4 + 8 * index);
+        }
+    }
+
+    /**
+     * Reads an Arrow IPC stream into lists of values, using the Arrow columnar format spec.
+     */
+    private static final class ArrowStreamReader
+    {
+        final List<String> fields = new ArrayList<>();
+        final List<Integer> batchLengths = new ArrayList<>();
+        final Map<String, List<Object>> columns = new LinkedHashMap<>();
+
+        private final List<FlatTable> schemaFields = new ArrayList<>();
+        private final Map<Long, List<String>> dictionaries = new HashMap<>();
+
+        ArrowStreamReader(byte[] stream)
+        {
+            final ByteBuffer buffer = ByteBuffer.wrap(stream).order(ByteOrder.LITTLE_ENDIAN);
+            int position = 0;
+            while (true)
+            {
+                assertEquals(0xFFFFFFFF, buffer.getInt(position));
+                final int metadataLength = buffer.getInt(position + 4);
+                if (metadataLength == 0) break;
+
+                final FlatTable message = FlatTable.root(buffer, position + 8);
+                assertEquals(4, message.getShort(0)); // MetadataVersion.V5
+                final int bodyStart = position + 8 + metadataLength;
+                final FlatTable header = message.getTable(2);
+                switch (message.getByte(1))
+                {
+                    case SCHEMA:
+                        readSchema(header);
+                        break;
+                    case DICTIONARY_BATCH:
+                        readDictionaryBatch(header, buffer, bodyStart);
+                        break;
+                    case RECORD_BATCH:
+                        readRecordBatch(header, buffer, bodyStart);
+                        break;
+                    default:
+                        throw new AssertionError("Unexpected message type " + message.getByte(1));
+                }
+
+                position = bodyStart + (int) message.getLong(3);
+            }
+        }
+
+        private void readSchema(FlatTable schema)
+        {
+            assertEquals(0, schema.getShort(0)); // Endianness.Little
+            for (int i = 0; i < schema.getVectorLength(1); i++)
+            {
+                final FlatTable field = schema.getTableAt(1, i);
+                assertTrue(field.getBoolean(1));
+                schemaFields.add(field);
+                columns.put(field.getString(0), new ArrayList<>());
+                fields.add(field.getString(0) + ":" + describeType(field));
+            }
+        }
+
+        private static String describeType(FlatTable field)
+        {
+            final FlatTable type = field.getTable(3);
+            final String valueType;
+            switch (field.getByte(2))
+            {
+                case 2:
+                    valueType = describeInt(type);
+                    break;
+                case 3:
+                    assertEquals(2, type.getShort(0)); // Precision.DOUBLE
+                    valueType = "Float64";
+                    break;
+                case 5:
+                    valueType = "Utf8";
+                    break;
+                case 6:
+                    valueType = "Bool";
+                    break;
+                case 10:
+                    assertEquals(1, type.getShort(0)); // TimeUnit.MILLISECOND
+                    valueType = "Timestamp(ms, " + type.getString(1) + ")";
+                    break;
+                default:
+                    throw new AssertionError("Unexpected type " + field.getByte(2));
+            }
+
+            final FlatTable dictionary = field.getTable(4);
+            if (dictionary == null) return valueType;
+
+            assertFalse(dictionary.getBoolean(2));
+            return "Dictionary(" + describeInt(dictionary.getTable(1)) + ", " + valueType + ")";
+        }
+
+        private static String describeInt(FlatTable intType)
+        {
+            assertTrue(intType.getBoolean(1));
+            return "Int" + intType.getInt(0);
+        }
+
+        private void readDictionaryBatch(FlatTable dictionaryBatch, ByteBuffer buffer, int bodyStart)
+        {
+            final long id = dictionaryBatch.getLong(0);
+            final FlatTable data = dictionaryBatch.getTable(1);
+            if (!dictionaryBatch.getBoolean(2)) dictionaries.put(id, new ArrayList<>());
+
+            // Utf8 layout: validity, int32 offsets, and then the UTF-8 bytes
+            final int length = (int) data.getLong(0);
+            final int offsets = bodyStart + (int) data.getStructLongAt(2, 2);
+            final int values = bodyStart + (int) data.getStructLongAt(2, 4);
+            for (int i = 0; i < length; i++)
+            {
+                final int start = buffer.getInt(offsets + 4 * i);
+                final byte[] bytes = new byte[buffer.getInt(offsets + 4 * (i + 1)) - start];
+                for (int b = 0; b < bytes.length; b++)
+                {
+                    bytes[b] = buffer.get(values + start + b);
+                }
+                dictionaries.get(id).add(new String(bytes, StandardCharsets.UTF_8));
+            }
+        }
+
+        private void readRecordBatch(FlatTable recordBatch, ByteBuffer buffer, int bodyStart)
+        {
+            final int length = (int) recordBatch.getLong(0);
+            batchLengths.add(length);
+            assertEquals(schemaFields.size(), recordBatch.getVectorLength(1));
+
+            for (int i = 0; i < schemaFields.size(); i++)
+            {
+                final FlatTable field = schemaFields.get(i);
+                assertEquals(length, recordBatch.getStructLongAt(1, 2 * i));
+                final long nullCount = recordBatch.getStructLongAt(1, 2 * i + 1);
+                final int validity = bodyStart + (int) recordBatch.getStructLongAt(2, 4 * i);
+                final long validityLength = recordBatch.getStructLongAt(2, 4 * i + 1);
+                final int values = bodyStart + (int) recordBatch.getStructLongAt(2, 4 * i + 2);
+
+                final List<Object> column = columns.get(field.getString(0));
+                long nulls = 0;
+                for (int row = 0; row < length; row++)
+                {
+                    if (validityLength != 0 && !isBitSet(buffer, validity, row))
+                    {
+                        nulls++;
+                        column.add(null);
+                        continue;
+                    }
+
+                    final FlatTable dictionary = field.getTable(4);
+                    if (dictionary != null)
+                    {
+                        column.add(dictionaries.get(dictionary.getLong(0)).get(buffer.getInt(values + 4 * row)));
+                        continue;
+                    }
+
+                    switch (field.getByte(2))
+                    {
+                        case 3:
+                            column.add(buffer.getDouble(values + 8 * row));
+                            break;
+                        case 6:
+                            column.add(isBitSet(buffer, values, row));
+                            break;
+                        default:
+                            column.add(buffer.getLong(values + 8 * row));
+                            break;
+                    }
+                }
+                assertEquals(nullCount, nulls);
+            }
+        }
+
+        private static boolean isBitSet(ByteBuffer buffer, int bitmap, int index)
+        {
+            return (buffer.get(bitmap + (index >>> 3)) & (1 << (index & 7))) != 0;
+        }
+    }
+}
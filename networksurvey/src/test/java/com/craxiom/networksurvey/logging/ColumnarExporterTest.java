@@ -0,0 +1,141 @@
+package com.craxiom.networksurvey.logging;
+
+import com.craxiom.networksurvey.constants.NetworkSurveyConstants;
+
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link ColumnarExporter} class.
+ *
+ * @since 1.25.0
+ */
+public class ColumnarExporterTest
+{
+    private static final String LTE_HEADER = "deviceTime,latitude,longitude,altitude,speed,accuracy,missionId,recordNumber,groupNumber,"
+            + "mcc,mnc,tac,eci,earfcn,pci,rsrp,rsrq,ta,servingCell,lteBandwidth,provider,signalStrength,cqi,slot,snr\r\n";
+    private static final String[] PROVIDERS = {"T-Mobile", "AT&T", "Verizon"};
+    private static final String LTE_FILE_NAME = NetworkSurveyConstants.LTE_FILE_NAME_PREFIX + "20230501-120000.csv";
+
+    @Test
+    public void exportCsv_writesEveryRowOfALargeSurvey() throws IOException
+    {
+        final int rows = 20_000;
+        final String csv = createLteCsv(rows);
+        final ColumnarExporter exporter = new ColumnarExporter(4_096);
+        final ByteArrayOutputStream arrow = new ByteArrayOutputStream();
+
+        assertEquals(rows, exporter.exportCsv(LTE_FILE_NAME, new StringReader(csv), arrow));
+        assertEquals(rows, exporter.getRowsExported());
+        assertEquals(0, exporter.getRowsSkipped());
+
+        // Spans several row groups, and still ends with the end of stream marker
+        final ByteBuffer stream = ByteBuffer.wrap(arrow.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+        assertTrue(stream.limit() > 0);
+        assertEquals(0xFFFFFFFF, stream.getInt(stream.limit() - 8));
+        assertEquals(0, stream.getInt(stream.limit() - 4));
+    }
+
+    /**
+     * Compares the exported Arrow stream with the CSV file it came from, and prints the sizes and the
+     * time it takes to export the survey next to the time it takes to just parse the CSV file.
+     */
+    @Test
+    public void exportCsv_comparedWithCsv() throws IOException
+    {
+        final int rows = 100_000;
+        final String csv = createLteCsv(rows);
+        final byte[] csvBytes = csv.getBytes(StandardCharsets.UTF_8);
+
+        long parseNanos = Long.MAX_VALUE;
+        long exportNanos = Long.MAX_VALUE;
+        byte[] arrowBytes = null;
+        // The first rounds warm up the JIT, and the fastest round is reported
+        for (int round = 0; round < 3; round++)
+        {
+            long start = System.nanoTime();
+            long parsedRows = 0;
+            try (CSVParser parser = CsvGeoPackageImporter.CSV_FORMAT.parse(new StringReader(csv)))
+            {
+                for (CSVRecord ignored : parser)
+                {
+                    parsedRows++;
+                }
+            }
+            parseNanos = Math.min(parseNanos, System.nanoTime() - start);
+            assertEquals(rows, parsedRows);
+
+            final ByteArrayOutputStream arrow = new ByteArrayOutputStream(csvBytes.length);
+            start = System.nanoTime();
+            assertEquals(rows, new ColumnarExporter().exportCsv(LTE_FILE_NAME, new StringReader(csv), arrow));
+            exportNanos = Math.min(exportNanos, System.nanoTime() - start);
+            arrowBytes = arrow.toByteArray();
+        }
+
+        final long csvGzipSize = gzipSize(csvBytes);
+        final long arrowGzipSize = gzipSize(arrowBytes);
+        System.out.printf("Rows:                %,d%n", rows);
+        System.out.printf("CSV size:            %,d bytes (%,d gzip)%n", csvBytes.length, csvGzipSize);
+        System.out.printf("Arrow size:          %,d bytes (%,d gzip)%n", arrowBytes.length, arrowGzipSize);
+        System.out.printf("CSV parse only:      %,d ms (%,.0f rows/s)%n", parseNanos / 1_000_000, rows * 1e9 / parseNanos);
+        System.out.printf("CSV to Arrow export: %,d ms (%,.0f rows/s)%n", exportNanos / 1_000_000, rows * 1e9 / exportNanos);
+
+        // The numbers are stored in binary and the Strings are dictionary encoded, so the stream compresses better
+        assertTrue(arrowGzipSize < csvGzipSize);
+    }
+
+    /**
+     * Writes a synthetic LTE survey with the same encoder that the CSV loggers use.
+     */
+    private static String createLteCsv(int rows) throws IOException
+    {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (Writer writer = new OutputStreamWriter(bytes, StandardCharsets.UTF_8))
+        {
+            writer.write(LTE_HEADER);
+            final CsvRowEncoder encoder = new CsvRowEncoder();
+            final long startTime = 1682956800000L;
+            for (int i = 0; i < rows; i++)
+            {
+                final boolean servingCell = i % 4 == 0;
+                encoder.add(DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(Instant.ofEpochMilli(startTime + i * 250L).atOffset(ZoneOffset.UTC)))
+                        .add(38.5 + i * 1e-6).add(-104.5 - i * 1e-6).add(1800.0f + i % 10).add(1.5f).add(3.0f)
+                        .add("survey").add(i).add(i / 4)
+                        .addIf(servingCell, 310).addIf(servingCell, 410).addIf(servingCell, 7000).addIf(servingCell, 123456L + i % 32)
+                        .add(5230).add(i % 504).add(-95.5f - i % 30).add(-10.0f).addIf(servingCell, 3)
+                        .add(servingCell).add(servingCell ? "MHZ_20" : "")
+                        .add(servingCell ? PROVIDERS[i / 4 % PROVIDERS.length] : "")
+                        .addEmpty().addEmpty().add(0).addEmpty()
+                        .endRow(writer);
+            }
+        }
+        return bytes.toString(StandardCharsets.UTF_8.name());
+    }
+
+    private static long gzipSize(byte[] bytes) throws IOException
+    {
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed))
+        {
+            gzip.write(bytes);
+        }
+        return compressed.size();
+    }
+}
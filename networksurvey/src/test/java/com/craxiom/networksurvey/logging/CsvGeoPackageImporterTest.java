@@ -0,0 +1,152 @@
+package com.craxiom.networksurvey.logging;
+
+import com.craxiom.networksurvey.constants.CellularMessageConstants;
+import com.craxiom.networksurvey.constants.LteMessageConstants;
+import com.craxiom.networksurvey.constants.MessageConstants;
+import com.craxiom.networksurvey.constants.NetworkSurveyConstants;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the CSV row conversion in the {@link CsvGeoPackageImporter}.
+ *
+ * @since 1.25.0
+ */
+public class CsvGeoPackageImporterTest
+{
+    private static final String LTE_CSV = "# comment line\r\n"
+            + "deviceTime,latitude,longitude,altitude,speed,accuracy,missionId,recordNumber,groupNumber,mcc,mnc,tac,eci,earfcn,pci,rsrp,rsrq,ta,servingCell,lteBandwidth,provider,signalStrength,cqi,slot,snr\r\n"
+            + "2023-05-01T12:00:00.000-04:00,38.5,-104.5,1800.0,0.0,0.3,\"\",7,3,310,410,,,,,-95.5,-10.0,,true,MHZ_20,,,,,\r\n"
+            + "not a time,38.5,-104.5,1800.0,0.0,3.0,,8,3,310,,,,,,,,,,,,,,,\r\n";
+
+    @Test
+    public void findMapping_usesTheFileNamePrefix()
+    {
+        assertEquals(LteMessageConstants.LTE_RECORDS_TABLE_NAME,
+                CsvGeoPackageImporter.findMapping(NetworkSurveyConstants.LTE_FILE_NAME_PREFIX + "20230501-120000.csv.gz").tableName);
+        assertNull(CsvGeoPackageImporter.findMapping(NetworkSurveyConstants.CDR_FILE_NAME_PREFIX + "20230501-120000.csv"));
+    }
+
+    @Test
+    public void rowConverter_bindsTheSameValuesAsTheLogger() throws IOException
+    {
+        final RecordingInserter inserter = new RecordingInserter();
+        try (CSVParser parser = parse(LTE_CSV))
+        {
+            final CsvGeoPackageImporter.RowConverter converter = createLteConverter(parser, inserter);
+            final Iterator<CSVRecord> records = parser.iterator();
+
+            assertTrue(converter.parse(records.next()));
+            converter.bind();
+        }
+
+        assertEquals("-104.5,38.5,1800.0", inserter.values.get("point"));
+        assertEquals(1682956800000L, inserter.values.get(MessageConstants.TIME_COLUMN));
+        assertEquals("", inserter.values.get(MessageConstants.MISSION_ID_COLUMN));
+        assertEquals(7L, inserter.values.get(MessageConstants.RECORD_NUMBER_COLUMN));
+        assertEquals(1L, inserter.values.get(MessageConstants.ACCURACY));
+        assertEquals(310L, inserter.values.get(LteMessageConstants.MCC_COLUMN));
+        assertEquals(-95.5, inserter.values.get(LteMessageConstants.RSRP_COLUMN));
+        assertEquals(true, inserter.values.get(CellularMessageConstants.SERVING_CELL_COLUMN));
+        assertEquals("20", inserter.values.get(LteMessageConstants.BANDWIDTH_COLUMN));
+        assertFalse(inserter.values.containsKey(LteMessageConstants.TAC_COLUMN));
+        assertFalse(inserter.values.containsKey(CellularMessageConstants.PROVIDER_COLUMN));
+    }
+
+    @Test
+    public void rowConverter_skipsRowsThatCannotBeParsed() throws IOException
+    {
+        try (CSVParser parser = parse(LTE_CSV))
+        {
+            final CsvGeoPackageImporter.RowConverter converter = createLteConverter(parser, new RecordingInserter());
+            final Iterator<CSVRecord> records = parser.iterator();
+            records.next();
+
+            assertFalse(converter.parse(records.next()));
+        }
+    }
+
+    private static CSVParser parse(String csv) throws IOException
+    {
+        return CSVFormat.Builder.create().setCommentMarker('#').setHeader().setSkipHeaderRecord(true).build()
+                .parse(new StringReader(csv));
+    }
+
+    private static CsvGeoPackageImporter.RowConverter createLteConverter(CSVParser parser, SurveyRowInserter inserter)
+    {
+        return new CsvGeoPackageImporter.RowConverter(CsvGeoPackageImporter.findMapping(NetworkSurveyConstants.LTE_FILE_NAME_PREFIX),
+                parser.getHeaderMap(), inserter);
+    }
+
+    /**
+     * Records the bound values by column name so the tests don't need a GeoPackage.
+     */
+    private static final class RecordingInserter implements SurveyRowInserter
+    {
+        private final Map<Integer, String> columnNames = new HashMap<>();
+        private final Map<String, Object> values = new HashMap<>();
+
+        @Override
+        public int getColumnIndex(String columnName)
+        {
+            final int index = columnNames.size() + 1;
+            columnNames.put(index, columnName);
+            return index;
+        }
+
+        @Override
+        public void bindPoint(double longitude, double latitude, double altitude)
+        {
+            values.put("point", longitude + "," + latitude + "," + altitude);
+        }
+
+        @Override
+        public void bindLong(int index, long value)
+        {
+            values.put(columnNames.get(index), value);
+        }
+
+        @Override
+        public void bindDouble(int index, double value)
+        {
+            values.put(columnNames.get(index), value);
+        }
+
+        @Override
+        public void bindBoolean(int index, boolean value)
+        {
+            values.put(columnNames.get(index), value);
+        }
+
+        @Override
+        public void bindString(int index, String value)
+        {
+            values.put(columnNames.get(index), value);
+        }
+
+        @Override
+        public long insert()
+        {
+            return 1;
+        }
+
+        @Override
+        public void close()
+        {
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.craxiom.networksurvey.logging;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for the {@link CsvRowEncoder} class. The expected output always comes from the Commons
+ * CSV printer so that the files stay the same as they were before the encoder was added.
+ *
+ * @since 1.25.0
+ */
+public class CsvRowEncoderTest
+{
+    private static final String[] TRICKY_VALUES = {"", " ", "abc", " leading", "trailing ", "tab\t",
+            "#comment", "!bang", "\"quoted\"", "a\"b", "a,b", "line\nbreak", "carriage\rreturn",
+            "back\\slash", "ssid with spaces", "caf\u00e9", "-1.5", "$", "%"};
+
+    @Test
+    public void add_stringsMatchCommonsCsv() throws IOException
+    {
+        for (String first : TRICKY_VALUES)
+        {
+            for (String second : TRICKY_VALUES)
+            {
+                final Object[] row = {first, second, null, ""};
+                assertEquals(printWithCommonsCsv(row), encode(row));
+            }
+        }
+    }
+
+    @Test
+    public void add_nullFirstFieldMatchesCommonsCsv() throws IOException
+    {
+        final Object[] row = {null, "a", ""};
+        assertEquals(printWithCommonsCsv(row), encode(row));
+    }
+
+    @Test
+    public void add_numbersMatchStringValueOf() throws IOException
+    {
+        final CsvRowEncoder encoder = new CsvRowEncoder();
+        encoder.add(-42).add(Long.MAX_VALUE).add(1.5f).add(-104.99031234567d).add(Double.NaN).add(1e21).add(true).addEmpty();
+
+        final StringWriter out = new StringWriter();
+        encoder.endRow(out);
+
+        assertEquals(printWithCommonsCsv(new Object[]{String.valueOf(-42), String.valueOf(Long.MAX_VALUE), String.valueOf(1.5f),
+                String.valueOf(-104.99031234567d), String.valueOf(Double.NaN), String.valueOf(1e21), String.valueOf(true), ""}), out.toString());
+    }
+
+    @Test
+    public void endRow_resetsForTheNextRow() throws IOException
+    {
+        final CsvRowEncoder encoder = new CsvRowEncoder();
+        final StringWriter out = new StringWriter();
+        encoder.add("").add(1).endRow(out);
+        encoder.add("").add(2).endRow(out);
+
+        assertEquals("\"\",1\r\n\"\",2\r\n", out.toString());
+    }
+
+    private static String encode(Object[] row) throws IOException
+    {
+        final CsvRowEncoder encoder = new CsvRowEncoder();
+        for (Object value : row)
+        {
+            encoder.add((CharSequence) value);
+        }
+
+        final StringWriter out = new StringWriter();
+        encoder.endRow(out);
+        return out.toString();
+    }
+
+    private static String printWithCommonsCsv(Object[] row) throws IOException
+    {
+        final StringWriter out = new StringWriter();
+        try (CSVPrinter printer = new CSVPrinter(out, CSVFormat.Builder.create().setCommentMarker('#').build()))
+        {
+            printer.printRecord(row);
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,82 @@
+package com.craxiom.networksurvey.logging;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link LogFileIndex} class.
+ *
+ * @since 1.25.0
+ */
+public class LogFileIndexTest
+{
+    private static final long DAY_MS = 86_400_000L;
+    private static final long NOW_MS = 100 * DAY_MS;
+
+    @Test
+    public void putAndRemove_keepTheClosedSizeUpToDate()
+    {
+        final LogFileIndex index = new LogFileIndex();
+        index.putClosed("/logs/a.gpkg", 100, 1);
+        index.putClosed("/logs/b.csv", 50, 2);
+        index.putOpen("/logs/c.csv");
+
+        assertEquals(150, index.getClosedBytes());
+        assertEquals(3, index.size());
+
+        // Replacing an entry must not count it twice
+        index.putClosed("/logs/b.csv", 70, 2);
+        assertEquals(170, index.getClosedBytes());
+
+        index.remove("/logs/a.gpkg");
+        assertEquals(70, index.getClosedBytes());
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    public void putClosedIfAbsent_doesNotReplaceAnOpenFile()
+    {
+        final LogFileIndex index = new LogFileIndex();
+        index.putOpen("/logs/a.gpkg");
+
+        assertFalse(index.putClosedIfAbsent("/logs/a.gpkg", 100, 1));
+        assertEquals(0, index.getClosedBytes());
+        assertEquals(1, index.getOpenPaths().size());
+    }
+
+    @Test
+    public void selectForRetention_picksTheOldestFilesUntilUnderQuota()
+    {
+        final LogFileIndex index = new LogFileIndex();
+        index.putClosed("/logs/new.gpkg", 100, NOW_MS - DAY_MS);
+        index.putClosed("/logs/oldest.gpkg", 100, NOW_MS - 3 * DAY_MS);
+        index.putClosed("/logs/old.csv", 100, NOW_MS - 2 * DAY_MS);
+        index.putOpen("/logs/current.gpkg");
+
+        final List<LogFileIndex.Entry> selected = index.selectForRetention(200, 0, NOW_MS, 50);
+
+        assertEquals(2, selected.size());
+        assertEquals("/logs/oldest.gpkg", selected.get(0).path);
+        assertEquals("/logs/old.csv", selected.get(1).path);
+    }
+
+    @Test
+    public void selectForRetention_picksAllTheExpiredFiles()
+    {
+        final LogFileIndex index = new LogFileIndex();
+        index.putClosed("/logs/new.gpkg", 100, NOW_MS - DAY_MS);
+        index.putClosed("/logs/expired1.gpkg", 100, NOW_MS - 10 * DAY_MS);
+        index.putClosed("/logs/expired2.gpkg", 100, NOW_MS - 8 * DAY_MS);
+
+        final List<LogFileIndex.Entry> selected = index.selectForRetention(0, 7 * DAY_MS, NOW_MS, 0);
+
+        assertEquals(2, selected.size());
+        assertTrue(LogFileIndex.isExpired(selected.get(1), 7 * DAY_MS, NOW_MS));
+        assertTrue(index.selectForRetention(0, 0, NOW_MS, 0).isEmpty());
+    }
+}
@@ -0,0 +1,149 @@
+package com.craxiom.networksurvey.logging;
+
+import com.google.protobuf.StringValue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link RecordSpool} class.
+ *
+ * @since 1.25.0
+ */
+public class RecordSpoolTest
+{
+    private static final int CAPACITY = 4096;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void append_entriesSurviveReopen() throws Exception
+    {
+        final File file = temporaryFolder.newFile("test.spool");
+
+        final RecordSpool spool = new RecordSpool(file, CAPACITY);
+        spool.append(1, 1000L, StringValue.of("first"));
+        spool.append(2, 2000L, StringValue.of("second"));
+        spool.close();
+
+        final RecordSpool reopened = new RecordSpool(file, CAPACITY);
+        final List<RecordSpool.Entry> entries = reopened.readEntries();
+        reopened.close();
+
+        assertEquals(2, entries.size());
+        assertEquals(1, entries.get(0).recordType);
+        assertEquals(1000L, entries.get(0).epochMillis);
+        assertEquals("first", StringValue.parseFrom(entries.get(0).payload).getValue());
+        assertEquals(2, entries.get(1).recordType);
+        assertEquals(2000L, entries.get(1).epochMillis);
+        assertEquals("second", StringValue.parseFrom(entries.get(1).payload).getValue());
+    }
+
+    @Test
+    public void commit_keepsTheRecordsAppendedAfterTheCommittedOffset() throws Exception
+    {
+        final RecordSpool spool = new RecordSpool(temporaryFolder.newFile("test.spool"), CAPACITY);
+        final int firstOffset = spool.append(1, 1000L, StringValue.of("first"));
+        final int secondOffset = spool.append(1, 2000L, StringValue.of("second"));
+
+        assertFalse(spool.commit(firstOffset));
+        final List<RecordSpool.Entry> entries = spool.readEntries();
+        assertEquals(1, entries.size());
+        assertEquals("second", StringValue.parseFrom(entries.get(0).payload).getValue());
+
+        assertTrue(spool.commit(secondOffset));
+        assertEquals(RecordSpool.EMPTY_OFFSET, spool.getWriteOffset());
+        assertTrue(spool.readEntries().isEmpty());
+        spool.close();
+    }
+
+    @Test
+    public void append_wrapsAroundPastTheCommittedRecords() throws Exception
+    {
+        final File file = temporaryFolder.newFile("test.spool");
+        final RecordSpool spool = new RecordSpool(file, CAPACITY);
+
+        // Write ten spools worth of records while always leaving the last few uncommitted, the same as
+        // a logger that commits its batches while new records keep arriving
+        final int uncommittedCount = 5;
+        final int[] offsets = new int[uncommittedCount];
+        int appendedBytes = 0;
+        int count = 0;
+        while (appendedBytes < CAPACITY * 10)
+        {
+            final StringValue record = StringValue.of("record " + count);
+            final int offset = spool.append(1, count, record);
+            assertTrue("The spool filled up after " + appendedBytes + " bytes", offset > 0);
+
+            appendedBytes += record.getSerializedSize();
+            offsets[count % uncommittedCount] = offset;
+            count++;
+
+            if (count > uncommittedCount) assertFalse(spool.commit(offsets[count % uncommittedCount]));
+        }
+
+        List<RecordSpool.Entry> entries = spool.readEntries();
+        assertEquals(uncommittedCount - 1, entries.size());
+        assertEquals(count - uncommittedCount + 1, entries.get(0).epochMillis);
+        spool.close();
+
+        // The uncommitted records are in two pieces at the end and front of the file at some point, so
+        // also make sure they can be read back after the spool is reopened
+        final RecordSpool reopened = new RecordSpool(file, CAPACITY);
+        entries = reopened.readEntries();
+        reopened.close();
+
+        assertEquals(uncommittedCount - 1, entries.size());
+        for (int i = 0; i < entries.size(); i++)
+        {
+            final long expectedIndex = count - uncommittedCount + 1 + i;
+            assertEquals(expectedIndex, entries.get(i).epochMillis);
+            assertEquals("record " + expectedIndex, StringValue.parseFrom(entries.get(i).payload).getValue());
+        }
+    }
+
+    @Test
+    public void append_wrappedEntriesSurviveReopen() throws Exception
+    {
+        final File file = temporaryFolder.newFile("test.spool");
+        final RecordSpool spool = new RecordSpool(file, 128);
+
+        final int firstOffset = spool.append(1, 1000L, StringValue.of("0123456789012345678901234567890123456789"));
+        spool.append(2, 2000L, StringValue.of("0123456789012345678901234567890123456789"));
+        spool.commit(firstOffset);
+        assertTrue(spool.append(3, 3000L, StringValue.of("0123456789")) < firstOffset);
+        spool.close();
+
+        final RecordSpool reopened = new RecordSpool(file, 128);
+        final List<RecordSpool.Entry> entries = reopened.readEntries();
+
+        assertEquals(2, entries.size());
+        assertEquals(2, entries.get(0).recordType);
+        assertEquals(3, entries.get(1).recordType);
+        assertEquals("0123456789", StringValue.parseFrom(entries.get(1).payload).getValue());
+
+        // The rest of the space is still in use by the uncommitted records
+        assertEquals(-1, reopened.append(4, 4000L, StringValue.of("0123456789012345678901234567890123456789")));
+        reopened.close();
+    }
+
+    @Test
+    public void append_failsWhenFull() throws Exception
+    {
+        final RecordSpool spool = new RecordSpool(temporaryFolder.newFile("test.spool"), 64);
+
+        assertTrue(spool.append(1, 1000L, StringValue.of("0123456789")) > 0);
+        assertEquals(-1, spool.append(1, 2000L, StringValue.of("0123456789012345678901234567890123456789")));
+        assertEquals(1, spool.readEntries().size());
+        spool.close();
+    }
+}
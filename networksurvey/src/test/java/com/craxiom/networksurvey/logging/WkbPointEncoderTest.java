@@ -0,0 +1,82 @@
+package com.craxiom.networksurvey.logging;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link WkbPointEncoder} class.
+ *
+ * @since 1.25.0
+ */
+public class WkbPointEncoderTest
+{
+    @Test
+    public void encode_writesHeaderAndPoint()
+    {
+        final byte[] bytes = new WkbPointEncoder(4326).encode(-104.9903, 39.7392, 1609.3);
+        assertEquals(WkbPointEncoder.ENCODED_LENGTH, bytes.length);
+
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        assertEquals('G', buffer.get());
+        assertEquals('P', buffer.get());
+        assertEquals(0, buffer.get()); // Version
+        assertEquals(0, buffer.get()); // Flags
+        assertEquals(4326, buffer.getInt());
+        assertEquals(0, buffer.get()); // WKB big endian
+        assertEquals(1001, buffer.getInt());
+        assertEquals(-104.9903, buffer.getDouble(), 0);
+        assertEquals(39.7392, buffer.getDouble(), 0);
+        assertEquals(1609.3, buffer.getDouble(), 0);
+    }
+
+    @Test
+    public void encode_reusesBuffer()
+    {
+        final WkbPointEncoder encoder = new WkbPointEncoder(4326);
+        final byte[] first = encoder.encode(1, 2, 3);
+        final byte[] second = encoder.encode(4, 5, 6);
+
+        assertSame(first, second);
+
+        final ByteBuffer buffer = ByteBuffer.wrap(second);
+        assertEquals(4326, buffer.getInt(4));
+        assertEquals(4, buffer.getDouble(13), 0);
+        assertEquals(5, buffer.getDouble(21), 0);
+        assertEquals(6, buffer.getDouble(29), 0);
+    }
+
+    @Test
+    public void decode_readsAnEncodedPoint()
+    {
+        final double[] point = new double[3];
+        assertTrue(WkbPointEncoder.decode(new WkbPointEncoder(4326).encode(-104.9903, 39.7392, 1609.3), point));
+
+        assertEquals(-104.9903, point[0], 0);
+        assertEquals(39.7392, point[1], 0);
+        assertEquals(1609.3, point[2], 0);
+    }
+
+    @Test
+    public void decode_handlesALittleEndian2dPointWithAnEnvelope()
+    {
+        final ByteBuffer buffer = ByteBuffer.allocate(8 + 32 + 21).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put((byte) 'G').put((byte) 'P').put((byte) 0).put((byte) 0x03).putInt(4326);
+        buffer.putDouble(-105).putDouble(-104).putDouble(39).putDouble(40); // The XY envelope
+        buffer.put((byte) 1).putInt(1).putDouble(-104.5).putDouble(39.5);
+
+        final double[] point = new double[3];
+        assertTrue(WkbPointEncoder.decode(buffer.array(), point));
+
+        assertEquals(-104.5, point[0], 0);
+        assertEquals(39.5, point[1], 0);
+        assertEquals(0, point[2], 0);
+        assertFalse(WkbPointEncoder.decode(new byte[]{'G', 'P', 0, 0x10, 0, 0, 0, 0}, point));
+    }
+}
@@ -0,0 +1,130 @@
+package com.craxiom.networksurvey.services;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link SurveyLanes} class.
+ *
+ * @since 1.25.0
+ */
+public class SurveyLanesTest
+{
+    private SurveyLanes lanes;
+
+    @Before
+    public void setUp()
+    {
+        lanes = new SurveyLanes();
+    }
+
+    @After
+    public void tearDown()
+    {
+        lanes.shutdown();
+    }
+
+    @Test
+    public void execute_runsTheTasksForALaneInOrder() throws Exception
+    {
+        final int taskCount = 500;
+        final List<Integer> completed = new CopyOnWriteArrayList<>();
+        final CountDownLatch done = new CountDownLatch(taskCount);
+        final ExecutorService executor = lanes.get(SurveyLanes.Lane.BLUETOOTH);
+
+        for (int i = 0; i < taskCount; i++)
+        {
+            final int task = i;
+            executor.execute(() -> {
+                completed.add(task);
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < taskCount; i++)
+        {
+            assertEquals(i, (int) completed.get(i));
+        }
+    }
+
+    @Test
+    public void execute_aStuckLaneDoesNotHoldUpTheOthers() throws Exception
+    {
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService wifi = lanes.get(SurveyLanes.Lane.WIFI);
+        wifi.execute(() -> {
+            try
+            {
+                release.await();
+            } catch (InterruptedException ignored)
+            {
+            }
+        });
+
+        // Fill up the queue behind the stuck task, and then go past it
+        final int capacity = SurveyLanes.Lane.WIFI.capacity;
+        for (int i = 0; i < capacity + 3; i++)
+        {
+            wifi.execute(() -> {});
+        }
+        assertEquals(3, lanes.getRejectedCount(SurveyLanes.Lane.WIFI));
+        assertEquals(Collections.singletonMap(SurveyLanes.Lane.WIFI, 3L), lanes.getRejectedCounts());
+
+        final CountDownLatch gnssDone = new CountDownLatch(1);
+        lanes.get(SurveyLanes.Lane.GNSS).execute(gnssDone::countDown);
+        assertTrue(gnssDone.await(5, TimeUnit.SECONDS));
+        assertEquals(0, lanes.getRejectedCount(SurveyLanes.Lane.GNSS));
+
+        release.countDown();
+    }
+
+    @Test
+    public void execute_waitsForRoomInAFullLane() throws Exception
+    {
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService wifi = lanes.get(SurveyLanes.Lane.WIFI);
+        wifi.execute(() -> {
+            try
+            {
+                release.await();
+            } catch (InterruptedException ignored)
+            {
+            }
+        });
+
+        final int capacity = SurveyLanes.Lane.WIFI.capacity;
+        final CountDownLatch done = new CountDownLatch(capacity + 1);
+        for (int i = 0; i < capacity; i++)
+        {
+            wifi.execute(done::countDown);
+        }
+
+        // The lane frees up while the extra task is waiting for room, so nothing is dropped
+        new Thread(() -> {
+            try
+            {
+                Thread.sleep(50);
+            } catch (InterruptedException ignored)
+            {
+            }
+            release.countDown();
+        }).start();
+        wifi.execute(done::countDown);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(0, lanes.getRejectedCount(SurveyLanes.Lane.WIFI));
+        assertTrue(lanes.getRejectedCounts().isEmpty());
+    }
+}
@@ -0,0 +1,385 @@
+package com.craxiom.networksurvey.services;
+
+import com.craxiom.networksurvey.listeners.BackpressurePolicy;
+import com.craxiom.networksurvey.listeners.ISurveyRecordListener;
+import com.craxiom.networksurvey.model.BackpressureStats;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link SurveyRecordDispatcher} class.
+ *
+ * @since 1.25.0
+ */
+public class SurveyRecordDispatcherTest
+{
+    private static final int CAPACITY = 8;
+
+    /**
+     * A codec for the test events, which only carry an Integer record.
+     */
+    private static final SurveyRecordDispatcher.EventCodec INTEGER_CODEC = new SurveyRecordDispatcher.EventCodec()
+    {
+        @Override
+        public byte[] encode(SurveyRecordDispatcher.Event event)
+        {
+            return ByteBuffer.allocate(8).putInt(event.type.ordinal()).putInt((Integer) event.record).array();
+        }
+
+        @Override
+        public void decode(byte[] encodedEvent, SurveyRecordDispatcher.Event event)
+        {
+            final ByteBuffer buffer = ByteBuffer.wrap(encodedEvent);
+            event.type = SurveyRecordDispatcher.EventType.values()[buffer.getInt()];
+            event.record = buffer.getInt();
+        }
+    };
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void publish_slowListenerDoesNotHoldUpTheOthers() throws Exception
+    {
+        final SurveyRecordDispatcher<TestListener> dispatcher = newDispatcher();
+        final CountDownLatch release = new CountDownLatch(1);
+        final TestListener slowListener = new TestListener(CAPACITY, release, BackpressurePolicy.BLOCK);
+        final TestListener fastListener = new TestListener(CAPACITY, null, BackpressurePolicy.BLOCK);
+        dispatcher.register(slowListener);
+        dispatcher.register(fastListener);
+
+        // A full ring can be published while the slow listener is stuck on the first record
+        for (int i = 0; i < CAPACITY; i++)
+        {
+            dispatcher.publish(SurveyRecordDispatcher.EventType.GNSS_RECORD, i, null, 0);
+        }
+
+        assertTrue(fastListener.done.await(5, TimeUnit.SECONDS));
+        assertEquals(CAPACITY, slowListener.done.getCount());
+
+        release.countDown();
+        assertTrue(slowListener.done.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < CAPACITY; i++)
+        {
+            assertEquals(i, (int) slowListener.received.get(i));
+            assertEquals(i, (int) fastListener.received.get(i));
+        }
+
+        dispatcher.close();
+    }
+
+    @Test
+    public void publish_waitsForTheSlowestListenerOnceTheRingWraps() throws Exception
+    {
+        final int recordCount = CAPACITY * 50;
+        final SurveyRecordDispatcher<TestListener> dispatcher = newDispatcher();
+        final TestListener listener = new TestListener(recordCount, null, BackpressurePolicy.BLOCK);
+        listener.delayMs = 1;
+        dispatcher.register(listener);
+
+        for (int i = 0; i < recordCount; i++)
+        {
+            dispatcher.publish(SurveyRecordDispatcher.EventType.GNSS_RECORD, i, null, 0);
+        }
+
+        assertTrue(listener.done.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < recordCount; i++)
+        {
+            assertEquals(i, (int) listener.received.get(i));
+        }
+
+        dispatcher.close();
+    }
+
+    @Test
+    public void publish_stopsWaitingOnABlockListenerThatIsStuck() throws Exception
+    {
+        final SurveyRecordDispatcher<TestListener> dispatcher = newDispatcher();
+        final CountDownLatch release = new CountDownLatch(1);
+        final TestListener listener = new TestListener(CAPACITY + 1, release, BackpressurePolicy.BLOCK);
+        dispatcher.register(listener);
+
+        // Only the first record that does not fit waits, after that the stuck listener loses its oldest records
+        final long start = System.nanoTime();
+        publishWhileTheListenerIsStuck(dispatcher, listener, CAPACITY + 4, SurveyRecordDispatcher.EventType.GNSS_RECORD);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2_000);
+
+        release.countDown();
+        assertTrue(listener.done.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(0, 4, 5, 6, 7, 8, 9, 10, 11), listener.received);
+        assertEquals(3, getStats(dispatcher).dropped);
+
+        dispatcher.close();
+    }
+
+    @Test
+    public void publish_dropOldestKeepsTheNewestRecords() throws Exception
+    {
+        final SurveyRecordDispatcher<TestListener> dispatcher = newDispatcher();
+        final CountDownLatch release = new CountDownLatch(1);
+        final TestListener listener = new TestListener(3, release, BackpressurePolicy.dropOldest(2));
+        dispatcher.register(listener);
+
+        publishWhileTheListenerIsStuck(dispatcher, listener, 10, SurveyRecordDispatcher.EventType.GNSS_RECORD);
+
+        release.countDown();
+        assertTrue(listener.done.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(0, 8, 9), listener.received);
+
+        final BackpressureStats stats = getStats(dispatcher);
+        assertEquals(7, stats.dropped);
+        assertEquals(0, stats.spilled);
+        assertEquals(Long.valueOf(7), PipelineMetrics.snapshot().counters.get("dispatch.test.TestListener.dropped"));
+
+        dispatcher.close();
+        assertFalse(PipelineMetrics.snapshot().counters.containsKey("dispatch.test.TestListener.dropped"));
+    }
+
+    @Test
+    public void publish_conflateLatestOnlySkipsSupersededSnapshots() throws Exception
+    {
+        final SurveyRecordDispatcher<TestListener> dispatcher = newDispatcher();
+        final CountDownLatch release = new CountDownLatch(1);
+        final TestListener listener = new TestListener(5, release, BackpressurePolicy.conflateLatest(CAPACITY));
+        dispatcher.register(listener);
+
+        dispatcher.publish(SurveyRecordDispatcher.EventType.GNSS_RECORD, 0, null, 0);
+        assertTrue(listener.started.await(5, TimeUnit.SECONDS));
+
+        dispatcher.publish(SurveyRecordDispatcher.EventType.WIFI_BEACON_RECORDS, 1, null, 0);
+        dispatcher.publish(SurveyRecordDispatcher.EventType.GNSS_RECORD, 2, null, 0);
+        dispatcher.publish(SurveyRecordDispatcher.EventType.CELLULAR_BATCH, 3, null, 1);
+        dispatcher.publish(SurveyRecordDispatcher.EventType.CELLULAR_BATCH, 4, null, 2);
+        dispatcher.publish(SurveyRecordDispatcher.EventType.WIFI_BEACON_RECORDS, 5, null, 0);
+
+        release.countDown();
+        assertTrue(listener.done.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(0, 2, 3, 4, 5), listener.received);
+        assertEquals(1, getStats(dispatcher).conflated);
+
+        dispatcher.close();
+    }
+
+    @Test
+    public void publish_spillToDiskDeliversEveryRecordInOrder() throws Exception
+    {
+        final int recordCount = 10;
+        final SurveyRecordDispatcher<TestListener> dispatcher = new SurveyRecordDispatcher<>("test", CAPACITY,
+                (listener, event) -> listener.onRecord((Integer) event.record), INTEGER_CODEC, temporaryFolder.getRoot());
+        final CountDownLatch release = new CountDownLatch(1);
+        final TestListener listener = new TestListener(recordCount, release, BackpressurePolicy.spillToDisk(2));
+        dispatcher.register(listener);
+
+        publishWhileTheListenerIsStuck(dispatcher, listener, recordCount, SurveyRecordDispatcher.EventType.GNSS_RECORD);
+
+        release.countDown();
+        assertTrue(listener.done.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < recordCount; i++)
+        {
+            assertEquals(i, (int) listener.received.get(i));
+        }
+
+        final BackpressureStats stats = getStats(dispatcher);
+        assertEquals(7, stats.spilled);
+        assertEquals(0, stats.dropped);
+
+        dispatcher.close();
+    }
+
+    @Test
+    public void publish_spillIsWrittenOffThePublishingThread() throws Exception
+    {
+        final int recordCount = 10;
+        final List<Thread> encodingThreads = new CopyOnWriteArrayList<>();
+        final SurveyRecordDispatcher.EventCodec recordingCodec = new SurveyRecordDispatcher.EventCodec()
+        {
+            @Override
+            public byte[] encode(SurveyRecordDispatcher.Event event)
+            {
+                encodingThreads.add(Thread.currentThread());
+                return INTEGER_CODEC.encode(event);
+            }
+
+            @Override
+            public void decode(byte[] encodedEvent, SurveyRecordDispatcher.Event event) throws Exception
+            {
+                INTEGER_CODEC.decode(encodedEvent, event);
+            }
+        };
+        final SurveyRecordDispatcher<TestListener> dispatcher = new SurveyRecordDispatcher<>("test", CAPACITY,
+                (listener, event) -> listener.onRecord((Integer) event.record), recordingCodec, temporaryFolder.getRoot());
+        final CountDownLatch release = new CountDownLatch(1);
+        final TestListener listener = new TestListener(recordCount, release, BackpressurePolicy.spillToDisk(2));
+        dispatcher.register(listener);
+
+        publishWhileTheListenerIsStuck(dispatcher, listener, recordCount, SurveyRecordDispatcher.EventType.GNSS_RECORD);
+
+        release.countDown();
+        assertTrue(listener.done.await(5, TimeUnit.SECONDS));
+        assertEquals(7, encodingThreads.size());
+        for (Thread encodingThread : encodingThreads)
+        {
+            assertTrue(encodingThread != Thread.currentThread());
+            assertTrue(encodingThread.getName().endsWith("-spill"));
+        }
+
+        dispatcher.close();
+    }
+
+    @Test
+    public void publish_namedRecordIsOnlySentToTheNamedRecordListener() throws Exception
+    {
+        final int recordCount = 6;
+        final SurveyRecordDispatcher<TestListener> dispatcher = new SurveyRecordDispatcher<>("test", CAPACITY,
+                (listener, event) -> listener.onRecord((Integer) event.record), INTEGER_CODEC, temporaryFolder.getRoot());
+        final CountDownLatch release = new CountDownLatch(1);
+        final TestListener namedListener = new TestListener(recordCount, release, BackpressurePolicy.spillToDisk(2));
+        final TestListener otherListener = new TestListener(recordCount, null, BackpressurePolicy.BLOCK);
+        dispatcher.register(namedListener);
+        dispatcher.register(otherListener);
+        dispatcher.setNamedRecordListener(namedListener);
+
+        // The named listener is stuck on the first record, so most of its records are sent through the spill file
+        dispatcher.publish(SurveyRecordDispatcher.EventType.GNSS_RECORD, 0, 100, null, 0);
+        assertTrue(namedListener.started.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i < recordCount; i++)
+        {
+            dispatcher.publish(SurveyRecordDispatcher.EventType.GNSS_RECORD, i, 100 + i, null, 0);
+        }
+
+        release.countDown();
+        assertTrue(namedListener.done.await(5, TimeUnit.SECONDS));
+        assertTrue(otherListener.done.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(100, 101, 102, 103, 104, 105), namedListener.received);
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5), otherListener.received);
+
+        dispatcher.close();
+    }
+
+    @Test
+    public void unregister_stopsDispatchingToTheListener() throws Exception
+    {
+        final SurveyRecordDispatcher<TestListener> dispatcher = newDispatcher();
+        final TestListener listener = new TestListener(1, null, BackpressurePolicy.BLOCK);
+        dispatcher.register(listener);
+        dispatcher.register(listener);
+
+        dispatcher.publish(SurveyRecordDispatcher.EventType.GNSS_RECORD, 1, null, 0);
+        assertTrue(listener.done.await(5, TimeUnit.SECONDS));
+
+        dispatcher.unregister(listener);
+        assertFalse(dispatcher.hasListeners());
+        dispatcher.publish(SurveyRecordDispatcher.EventType.GNSS_RECORD, 2, null, 0);
+        Thread.sleep(50);
+
+        assertEquals(1, listener.received.size());
+    }
+
+    @Test
+    public void unregister_waitsForTheEventBeingDispatched() throws Exception
+    {
+        final SurveyRecordDispatcher<TestListener> dispatcher = newDispatcher();
+        final CountDownLatch release = new CountDownLatch(1);
+        final TestListener listener = new TestListener(1, release, BackpressurePolicy.BLOCK);
+        dispatcher.register(listener);
+
+        dispatcher.publish(SurveyRecordDispatcher.EventType.GNSS_RECORD, 1, null, 0);
+        assertTrue(listener.started.await(5, TimeUnit.SECONDS));
+
+        final CountDownLatch unregistered = new CountDownLatch(1);
+        new Thread(() -> {
+            dispatcher.unregister(listener);
+            unregistered.countDown();
+        }).start();
+
+        // The listener still owns its slot in the ring until its thread has stopped
+        assertFalse(unregistered.await(100, TimeUnit.MILLISECONDS));
+        assertTrue(dispatcher.hasListeners());
+
+        release.countDown();
+        assertTrue(unregistered.await(5, TimeUnit.SECONDS));
+        assertFalse(dispatcher.hasListeners());
+        assertEquals(0, listener.done.getCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsACapacityThatIsNotAPowerOfTwo()
+    {
+        new SurveyRecordDispatcher<TestListener>("test", 100, (listener, event) -> {}, null, null);
+    }
+
+    private static SurveyRecordDispatcher<TestListener> newDispatcher()
+    {
+        return new SurveyRecordDispatcher<>("test", CAPACITY,
+                (listener, event) -> listener.onRecord((Integer) event.record), null, null);
+    }
+
+    /**
+     * Publishes the first record and waits for the listener to get stuck on it before publishing the rest.
+     */
+    private static void publishWhileTheListenerIsStuck(SurveyRecordDispatcher<TestListener> dispatcher, TestListener listener,
+                                                       int recordCount, SurveyRecordDispatcher.EventType type) throws InterruptedException
+    {
+        dispatcher.publish(type, 0, null, 0);
+        assertTrue(listener.started.await(5, TimeUnit.SECONDS));
+
+        for (int i = 1; i < recordCount; i++)
+        {
+            dispatcher.publish(type, i, null, 0);
+        }
+    }
+
+    private static BackpressureStats getStats(SurveyRecordDispatcher<TestListener> dispatcher)
+    {
+        final List<BackpressureStats> stats = new ArrayList<>();
+        dispatcher.collectStats(stats);
+        assertEquals(1, stats.size());
+        return stats.get(0);
+    }
+
+    private static final class TestListener implements ISurveyRecordListener
+    {
+        private final List<Integer> received = new CopyOnWriteArrayList<>();
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch done;
+        private final CountDownLatch release;
+        private final BackpressurePolicy policy;
+        private volatile long delayMs;
+
+        private TestListener(int expectedCount, CountDownLatch release, BackpressurePolicy policy)
+        {
+            done = new CountDownLatch(expectedCount);
+            this.release = release;
+            this.policy = policy;
+        }
+
+        @Override
+        public BackpressurePolicy getBackpressurePolicy()
+        {
+            return policy;
+        }
+
+        private void onRecord(int record) throws InterruptedException
+        {
+            received.add(record);
+            started.countDown();
+            if (release != null) release.await();
+            if (delayMs > 0) Thread.sleep(delayMs);
+            done.countDown();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.craxiom.networksurvey.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link LatencyHistogram} class.
+ *
+ * @since 1.25.0
+ */
+public class LatencyHistogramTest
+{
+    @Test
+    public void bucketIndex_bucketsAreContiguous()
+    {
+        for (int i = 0; i < LatencyHistogram.BUCKET_COUNT; i++)
+        {
+            final long lowest = LatencyHistogram.lowestValueInBucket(i);
+            final long highest = LatencyHistogram.highestValueInBucket(i);
+            assertEquals(i, LatencyHistogram.bucketIndex(lowest));
+            assertEquals(i, LatencyHistogram.bucketIndex(highest));
+            if (i > 0) assertEquals(LatencyHistogram.highestValueInBucket(i - 1) + 1, lowest);
+
+            // The bucket width is the precision of the histogram
+            assertTrue(highest - lowest <= Math.max(0, lowest / LatencyHistogram.SUB_BUCKET_COUNT));
+        }
+
+        assertEquals(LatencyHistogram.MAX_VALUE_US, LatencyHistogram.highestValueInBucket(LatencyHistogram.BUCKET_COUNT - 1));
+    }
+
+    @Test
+    public void snapshot_reportsPercentilesWithinThePrecision()
+    {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 10_000; i++)
+        {
+            histogram.recordMicros(i);
+        }
+
+        final LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(10_000, snapshot.getCount());
+        assertEquals(5000.5, snapshot.getMeanMicros(), 0.001);
+        assertEquals(1, snapshot.getMinMicros());
+        assertEquals(5_000, snapshot.getValueAtPercentile(50), 5_000 / LatencyHistogram.SUB_BUCKET_COUNT);
+        assertEquals(9_900, snapshot.getValueAtPercentile(99), 9_900 / LatencyHistogram.SUB_BUCKET_COUNT);
+        assertEquals(10_000, snapshot.getMaxMicros(), 10_000 / LatencyHistogram.SUB_BUCKET_COUNT);
+    }
+
+    @Test
+    public void recordNanos_clampsOutOfRangeValues()
+    {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordNanos(-5_000);
+        histogram.recordMicros(Long.MAX_VALUE);
+
+        final LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(0, snapshot.getMinMicros());
+        assertEquals(LatencyHistogram.MAX_VALUE_US, snapshot.getMaxMicros());
+    }
+
+    @Test
+    public void since_onlyIncludesTheNewValues()
+    {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordMicros(100_000);
+        final LatencyHistogram.Snapshot first = histogram.snapshot();
+
+        histogram.recordMicros(10);
+        histogram.recordMicros(20);
+        final LatencyHistogram.Snapshot interval = histogram.snapshot().since(first);
+
+        assertEquals(2, interval.getCount());
+        assertEquals(15, interval.getMeanMicros(), 0.001);
+        assertEquals(20, interval.getMaxMicros());
+        assertEquals(0, new LatencyHistogram().snapshot().getValueAtPercentile(99));
+    }
+}